@@ -60,6 +60,9 @@ class ARApplication : Application() {
         if (!prefs.isMigratedSettings) {
             prefs.migrateSettings()
         }
+        //Repair recordings interrupted by crash or reboot before a new recording can be started.
+        val recordingRecovery = injector.provideRecordingRecovery(applicationContext)
+        injector.provideRecordingTasksQueue().postRunnable { recordingRecovery.recoverRecords() }
         registerAudioOutputChangeReceiver()
         registerRebootReceiver()
 
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free queue of amplitudes with recording time passed from one producer thread to one consumer thread.
+ * Producer publishes a value by ordered write of the tail, consumer frees slots by ordered write of the head,
+ * so neither thread blocks. When the consumer falls behind and the queue is full new values are dropped and counted.
+ */
+public class AmplitudeQueue {
+
+	private final int capacity;
+	private final int mask;
+	private final long[] mills;
+	private final int[] amps;
+
+	/** Index of the next value to read, written by the consumer. */
+	private final AtomicLong head = new AtomicLong();
+	/** Index of the next value to write, written by the producer. */
+	private final AtomicLong tail = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+
+	/** Last head seen by the producer, it does not read the head while there is free space. */
+	private long producerHead = 0;
+
+	/**
+	 * @param capacity max count of values not drained yet, rounded up to a power of 2.
+	 */
+	public AmplitudeQueue(int capacity) {
+		if (capacity <= 0 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("capacity = " + capacity);
+		}
+		int size = 1;
+		while (size < capacity) {
+			size <<= 1;
+		}
+		this.capacity = size;
+		this.mask = this.capacity - 1;
+		this.mills = new long[this.capacity];
+		this.amps = new int[this.capacity];
+	}
+
+	/**
+	 * Add amplitude. Called only by the producer thread.
+	 * @return false when the queue is full and the value is dropped.
+	 */
+	public boolean offer(long mills, int amp) {
+		long t = tail.get();
+		if (t - producerHead >= capacity) {
+			producerHead = head.get();
+			if (t - producerHead >= capacity) {
+				dropped.incrementAndGet();
+				return false;
+			}
+		}
+		int index = (int) (t & mask);
+		this.mills[index] = mills;
+		this.amps[index] = amp;
+		tail.lazySet(t + 1);
+		return true;
+	}
+
+	/**
+	 * Move values added since the previous drain into the arrays, oldest first. Called only by the consumer thread.
+	 * @return count of moved values, no more than length of the arrays.
+	 */
+	public int drain(long[] millsOut, int[] ampsOut) {
+		long h = head.get();
+		int n = (int) Math.min(tail.get() - h, Math.min(millsOut.length, ampsOut.length));
+		for (int i = 0; i < n; i++) {
+			int index = (int) ((h + i) & mask);
+			millsOut[i] = mills[index];
+			ampsOut[i] = amps[index];
+		}
+		head.lazySet(h + n);
+		return n;
+	}
+
+	/** Skip all values not drained yet. Called only by the consumer thread. */
+	public void clear() {
+		head.lazySet(tail.get());
+	}
+
+	/** Count of values added and not drained yet. */
+	public int size() {
+		long h = head.get();
+		return (int) (tail.get() - h);
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/** Count of values dropped because the queue was full. */
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+}
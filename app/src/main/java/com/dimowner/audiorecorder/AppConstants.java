@@ -19,6 +19,8 @@ package com.dimowner.audiorecorder;
 import android.app.PendingIntent;
 import android.os.Build;
 
+import com.dimowner.audiorecorder.audio.recorder.PreallocatedFileWriter;
+
 /**
  * AppConstants that may be used in multiple classes.
  */
@@ -66,6 +68,8 @@ public class AppConstants {
 	public static final String FORMAT_MP4 = "mp4";
 	public static final String FORMAT_OGG = "ogg";
 	public static final String FORMAT_FLAC = "flac";
+	/** Recording format key of IMA ADPCM WAV. Files have WAV extension. */
+	public static final String FORMAT_WAV_ADPCM = "wav_adpcm";
 
 	public static final String NAME_FORMAT_RECORD = "record";
 	public static final String NAME_FORMAT_TIMESTAMP = "timestamp";
@@ -86,6 +90,16 @@ public class AppConstants {
 	public final static long RECORD_IN_TRASH_MAX_DURATION = 5184000000L; // 1000 X 60 X 60 X 24 X 60 = 60 Days
 	public final static long MIN_REMAIN_RECORDING_TIME = 10000; // 1000 X 10 = 10 Seconds
 	public final static long DECODE_DURATION = 7200000; // 2 X 60 X 60 X 1000 = 2 Hours
+	/** Interval of storage checks while recording. */
+	public final static long STORAGE_CHECK_INTERVAL_MILLS = 5000;
+	/** Count of storage checks the write rate of the recording is measured over. 2 minutes. */
+	public final static int STORAGE_RATE_WINDOW_SAMPLES = 25;
+	/** Shortest time the write rate is measured over. Longer than a preallocated chunk of a typical WAV record. */
+	public final static long STORAGE_RATE_MIN_WINDOW_MILLS = 30000;
+	/** Space kept free for finishing the record, its sidecar files and the database. Two preallocated chunks. */
+	public final static long STORAGE_RESERVE_BYTES = 8 * 1024 * 1024;
+	/** Estimated remaining recording times to warn at. 10 minutes and 2 minutes. */
+	public final static long[] STORAGE_WARNING_MILLS = {600000, 120000};
 
 	//BEGINNING-------------- Waveform visualisation constants ----------------------------------
 
@@ -150,6 +164,64 @@ public class AppConstants {
 	/** Time interval for Recording progress visualisation. */
 	public final static int RECORDING_VISUALIZATION_INTERVAL = 13; //mills
 	public final static int PLAYBACK_VISUALIZATION_INTERVAL = (int)(2.1* RECORDING_VISUALIZATION_INTERVAL); //mills
+	/** Size of FFT of the live spectrogram shown while recording. Defines its frequency resolution. */
+	public final static int SPECTROGRAM_FFT_SIZE = 1024;
+	/** Count of live spectrogram columns per second of recorded audio. */
+	public final static int SPECTROGRAM_COLUMNS_PER_SECOND = 50;
+	/** Max count of live spectrogram columns computed and not displayed yet. */
+	public final static int SPECTROGRAM_QUEUE_CAPACITY = 64;
+
+	/** Duration of audio which can be buffered between capture and file write in WAV and FLAC recording. */
+	public final static float RECORDING_BUFFER_DEPTH_SECONDS = 10f;
+	/** Interval of recorded audio after which WAV header is updated with the current data length. */
+	public final static int WAV_HEADER_COMMIT_INTERVAL_SECONDS = 5;
+	/** Size of file space chunks preallocated ahead of write position in WAV and FLAC recording. */
+	public final static long WAV_PREALLOCATION_CHUNK_SIZE = 4 * 1024 * 1024;
+	/** Size of buffer which collects WAV data into large aligned file writes. */
+	public final static int WAV_WRITE_BUFFER_SIZE = 64 * 1024;
+	/** When recorded WAV and FLAC data is synced to storage. */
+	public final static PreallocatedFileWriter.Durability DEFAULT_WAV_DURABILITY = PreallocatedFileWriter.Durability.PERIODIC;
+	/** Interval of periodic sync of recorded WAV data to storage. */
+	public final static int WAV_SYNC_INTERVAL_SECONDS = 10;
+	/** Max duration of a segment file of WAV recording. 0 to record into a single file until WAV size limit. */
+	public final static int DEFAULT_SEGMENT_DURATION_MINUTES = 0;
+	/** Max size of a segment file of WAV recording. 0 to record into a single file until WAV size limit. */
+	public final static int DEFAULT_SEGMENT_SIZE_MB = 0;
+	/** Record a compact PCM WAV proxy next to the master record of WAV and FLAC recording. */
+	public final static boolean DEFAULT_RECORD_PROXY_ENABLED = false;
+	/** Max sample rate of the mono proxy, enough for speech. */
+	public final static int PROXY_SAMPLE_RATE = 16000;
+	/** Duration of audio which can be buffered between the master record and its proxy encoder. */
+	public final static float PROXY_BUFFER_DEPTH_SECONDS = 10f;
+	/** Duration of audio captured before recording start which is put at the beginning of a recording. 0 disables pre-roll. */
+	public final static int DEFAULT_PRE_ROLL_SECONDS = 0;
+	/** Time an initialized capture prepared ahead of recording waits for the recording start before it is released. */
+	public final static int IDLE_CAPTURE_TIMEOUT_MILLS = 10000;
+	/** Level in dBFS which starts voice activity when silence is skipped. 0 records all captured audio. */
+	public final static int DEFAULT_VOICE_ACTIVATION_DBFS = 0;
+	/** Voice activity continues while level is less than this many dB below the start level. */
+	public final static int VOICE_ACTIVATION_HYSTERESIS_DB = 10;
+	/** Duration of quieter audio after which voice activity ends, so pauses between words are kept. */
+	public final static int VOICE_ACTIVATION_HANGOVER_MILLS = 1500;
+	/** Duration of silence recorded before voice activity starts, so speech onsets are not clipped. */
+	public final static int VOICE_ACTIVATION_LOOK_BACK_MILLS = 300;
+	/** Cutoff of high-pass filter applied to captured audio. 0 disables the filter. */
+	public final static int DEFAULT_HIGH_PASS_HZ = 0;
+	/** Gain applied to captured audio. */
+	public final static int DEFAULT_INPUT_GAIN_DB = 0;
+	public final static boolean DEFAULT_NOISE_GATE_ENABLED = false;
+	public final static boolean DEFAULT_LIMITER_ENABLED = false;
+	/** Level below which noise gate attenuates captured audio. */
+	public final static float NOISE_GATE_THRESHOLD_DBFS = -50;
+	/** Attenuation of the closed noise gate. */
+	public final static float NOISE_GATE_RANGE_DB = 20;
+	/** Max level of samples after the limiter. */
+	public final static float LIMITER_CEILING_DBFS = -1;
+	/** Time the limiter lowers gain before a peak. Recording is delayed by this time. */
+	public final static float LIMITER_LOOK_AHEAD_MILLS = 5;
+	public final static float LIMITER_RELEASE_MILLS = 100;
+	/** Expected size of FLAC recording relative to 16 bit PCM. Used to estimate size and recording time. */
+	public final static float FLAC_COMPRESSION_RATIO = 0.6f;
 
 	public final static int RECORD_BYTES_PER_SECOND = RECORD_ENCODING_BITRATE_48000 /8; //bits per sec converted to bytes per sec.
 	public final static int MIGRATE_PUBLIC_STORAGE_WARNING_COOLDOWN_MILLS = 12*60*60*1000; //12 hours
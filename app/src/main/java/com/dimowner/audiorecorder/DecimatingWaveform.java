@@ -0,0 +1,230 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder;
+
+/**
+ * Fixed memory waveform of amplitudes received during recording.
+ * Level 0 keeps the last {@code capacity} amplitudes at full resolution for the visible part of the recording.
+ * Every next level keeps min and max of 2 times more amplitudes per value for a 2 times longer past.
+ * The last level covers the whole recording: when it is full, pairs of its values are merged.
+ * Memory is O(capacity * levels) regardless of recording length.
+ * Methods are synchronized, amplitudes are added and read on different threads.
+ */
+public class DecimatingWaveform {
+
+	public static final int DEFAULT_LEVEL_COUNT = 8;
+
+	private final int capacity;
+	private final int levelCount;
+
+	/** Ring of values of every level, the last level is a plain array. */
+	private final int[][] mins;
+	private final int[][] maxs;
+	/** Count of values written into the level since start, for the last level count of stored values. */
+	private final long[] written;
+	/** Count of amplitudes merged into one value of the level. */
+	private final long[] factor;
+
+	/** Value of the level which has not received all its amplitudes yet. */
+	private final int[] pendingMin;
+	private final int[] pendingMax;
+	private final long[] pendingCount;
+
+	private long count = 0;
+
+	/**
+	 * @param capacity count of values kept by every level, rounded up to an even number.
+	 * @param levelCount count of levels including full resolution level 0, at least 2.
+	 */
+	public DecimatingWaveform(int capacity, int levelCount) {
+		if (capacity <= 1 || levelCount < 2) {
+			throw new IllegalArgumentException("capacity = " + capacity + " levelCount = " + levelCount);
+		}
+		this.capacity = capacity + (capacity & 1);
+		this.levelCount = levelCount;
+		this.mins = new int[levelCount][this.capacity];
+		this.maxs = new int[levelCount][this.capacity];
+		this.written = new long[levelCount];
+		this.factor = new long[levelCount];
+		this.pendingMin = new int[levelCount];
+		this.pendingMax = new int[levelCount];
+		this.pendingCount = new long[levelCount];
+		clear();
+	}
+
+	public DecimatingWaveform(int capacity) {
+		this(capacity, DEFAULT_LEVEL_COUNT);
+	}
+
+	public synchronized void add(int value) {
+		count++;
+		put(0, value, value);
+		for (int k = 1; k < levelCount; k++) {
+			if (pendingCount[k] == 0) {
+				pendingMin[k] = value;
+				pendingMax[k] = value;
+			} else {
+				pendingMin[k] = Math.min(pendingMin[k], value);
+				pendingMax[k] = Math.max(pendingMax[k], value);
+			}
+			if (++pendingCount[k] == factor[k]) {
+				put(k, pendingMin[k], pendingMax[k]);
+				pendingCount[k] = 0;
+			}
+		}
+	}
+
+	private void put(int level, int min, int max) {
+		int top = levelCount - 1;
+		int index = (int) (written[level] % capacity);
+		mins[level][index] = min;
+		maxs[level][index] = max;
+		written[level]++;
+		if (level == top && written[level] == capacity) {
+			//Last level is never overwritten, its resolution is halved instead.
+			int[] lMin = mins[level];
+			int[] lMax = maxs[level];
+			for (int i = 0; i < capacity / 2; i++) {
+				lMin[i] = Math.min(lMin[2 * i], lMin[2 * i + 1]);
+				lMax[i] = Math.max(lMax[2 * i], lMax[2 * i + 1]);
+			}
+			written[level] = capacity / 2;
+			factor[level] *= 2;
+		}
+	}
+
+	public synchronized void clear() {
+		for (int k = 0; k < levelCount; k++) {
+			written[k] = 0;
+			factor[k] = 1L << k;
+			pendingCount[k] = 0;
+		}
+		count = 0;
+	}
+
+	/** Count of amplitudes added since start. */
+	public synchronized long size() {
+		return count;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Last amplitudes at full resolution, oldest first.
+	 * @param max max count of amplitudes, no more than capacity are kept.
+	 */
+	public synchronized int[] getRecent(int max) {
+		int n = (int) Math.min(Math.min(max, capacity), written[0]);
+		int[] result = new int[n];
+		long start = written[0] - n;
+		for (int i = 0; i < n; i++) {
+			result[i] = maxs[0][(int) ((start + i) % capacity)];
+		}
+		return result;
+	}
+
+	/** Max values of the finest level which still covers the whole recording. */
+	public synchronized int[] toWaveform() {
+		int level = coveringLevel();
+		return resize(level, storedCount(level));
+	}
+
+	/**
+	 * Max values of the whole recording resized to the count. Every value takes the max of the values it covers,
+	 * values are repeated when the recording has fewer of them. Takes O(count + capacity) time.
+	 */
+	public synchronized int[] toWaveform(int size) {
+		return resize(coveringLevel(), size);
+	}
+
+	/** Finest level which has all its values since start. */
+	private int coveringLevel() {
+		for (int k = 0; k < levelCount - 1; k++) {
+			if (written[k] + (pendingCount[k] > 0 ? 1 : 0) <= capacity) {
+				return k;
+			}
+		}
+		return levelCount - 1;
+	}
+
+	/** Count of values of the level including the pending one, when the level covers whole recording. */
+	private int storedCount(int level) {
+		return (int) (written[level] + (pendingCount[level] > 0 ? 1 : 0));
+	}
+
+	/** Value of covering level by index from start, pending value is the last one. */
+	private int maxAt(int level, int index) {
+		return index < written[level] ? maxs[level][index] : pendingMax[level];
+	}
+
+	private int[] resize(int level, int size) {
+		int total = storedCount(level);
+		int[] result = new int[size];
+		if (total == 0) {
+			return result;
+		}
+		for (int i = 0; i < size; i++) {
+			int start = (int) ((long) i * total / size);
+			int end = Math.max(start + 1, (int) ((long) (i + 1) * total / size));
+			int value = maxAt(level, start);
+			for (int j = start + 1; j < end; j++) {
+				value = Math.max(value, maxAt(level, j));
+			}
+			result[i] = value;
+		}
+		return result;
+	}
+
+	/**
+	 * Min and max of the amplitudes in the range of the recording, answered from the finest level which
+	 * still keeps the range in no more than capacity values. Values of a coarse level at the edges of the range
+	 * may include neighbouring amplitudes.
+	 * @param from index of the first amplitude since start.
+	 * @param to index after the last amplitude.
+	 * @return pair of min and max or null when the range is not covered by kept values.
+	 */
+	public synchronized int[] getMinMax(long from, long to) {
+		if (from >= to || from < 0 || to > count) {
+			return null;
+		}
+		for (int k = 0; k < levelCount; k++) {
+			long first = from / factor[k];
+			long last = (to - 1) / factor[k];
+			long complete = written[k];
+			long oldest = k < levelCount - 1 ? Math.max(0, complete - capacity) : 0;
+			if (first < oldest || last - first >= capacity) {
+				continue;
+			}
+			int min = Integer.MAX_VALUE;
+			int max = Integer.MIN_VALUE;
+			for (long i = first; i <= last; i++) {
+				if (i < complete) {
+					int index = (int) (k < levelCount - 1 ? i % capacity : i);
+					min = Math.min(min, mins[k][index]);
+					max = Math.max(max, maxs[k][index]);
+				} else {
+					min = Math.min(min, pendingMin[k]);
+					max = Math.max(max, pendingMax[k]);
+				}
+			}
+			return new int[] {min, max};
+		}
+		return null;
+	}
+}
@@ -21,6 +21,7 @@ import android.content.Context;
 
 import com.dimowner.audiorecorder.app.AppRecorder;
 import com.dimowner.audiorecorder.app.AppRecorderImpl;
+import com.dimowner.audiorecorder.app.StorageMonitor;
 import com.dimowner.audiorecorder.app.browser.FileBrowserContract;
 import com.dimowner.audiorecorder.app.browser.FileBrowserPresenter;
 import com.dimowner.audiorecorder.app.lostrecords.LostRecordsContract;
@@ -34,15 +35,26 @@ import com.dimowner.audiorecorder.app.trash.TrashPresenter;
 import com.dimowner.audiorecorder.audio.AudioWaveformVisualization;
 import com.dimowner.audiorecorder.audio.player.AudioPlayerNew;
 import com.dimowner.audiorecorder.audio.player.PlayerContractNew;
+import com.dimowner.audiorecorder.audio.dsp.DspChain;
+import com.dimowner.audiorecorder.audio.dsp.DspStage;
+import com.dimowner.audiorecorder.audio.dsp.Gain;
+import com.dimowner.audiorecorder.audio.dsp.HighPassFilter;
+import com.dimowner.audiorecorder.audio.dsp.LookAheadLimiter;
+import com.dimowner.audiorecorder.audio.dsp.NoiseGate;
+import com.dimowner.audiorecorder.audio.dsp.SpectrogramQueue;
 import com.dimowner.audiorecorder.audio.recorder.AudioRecorder;
 import com.dimowner.audiorecorder.audio.recorder.ThreeGpRecorder;
 import com.dimowner.audiorecorder.audio.recorder.RecorderContract;
+import com.dimowner.audiorecorder.audio.recorder.FlacRecorder;
+import com.dimowner.audiorecorder.audio.recorder.ImaAdpcmRecorder;
+import com.dimowner.audiorecorder.audio.recorder.PcmRecorder;
 import com.dimowner.audiorecorder.audio.recorder.WavRecorder;
 import com.dimowner.audiorecorder.data.RecordDataSource;
 import com.dimowner.audiorecorder.data.FileRepository;
 import com.dimowner.audiorecorder.data.FileRepositoryImpl;
 import com.dimowner.audiorecorder.data.Prefs;
 import com.dimowner.audiorecorder.data.PrefsImpl;
+import com.dimowner.audiorecorder.data.RecordingRecovery;
 import com.dimowner.audiorecorder.data.database.LocalRepository;
 import com.dimowner.audiorecorder.data.database.LocalRepositoryImpl;
 import com.dimowner.audiorecorder.data.database.RecordsDataSource;
@@ -54,6 +66,10 @@ import com.dimowner.audiorecorder.app.settings.SettingsContract;
 import com.dimowner.audiorecorder.app.settings.SettingsPresenter;
 import com.dimowner.audiorecorder.data.database.TrashDataSource;
 import com.dimowner.audiorecorder.data.database.TimestampDataSource;
+import com.dimowner.audiorecorder.util.AndroidUtils;
+
+import java.util.ArrayList;
+import java.util.List;
 
 public class Injector {
 
@@ -62,6 +78,7 @@ public class Injector {
 	private BackgroundQueue importTasks;
 	private BackgroundQueue processingTasks;
 	private BackgroundQueue copyTasks;
+	private BackgroundQueue storageTasks;
 
 	private MainContract.UserActionsListener mainPresenter;
 	private RecordDataSource recordDataSource;
@@ -75,6 +92,8 @@ public class Injector {
 	private MoveRecordsViewModel moveRecordsViewModel;
 
 	private AudioPlayerNew audioPlayer = null;
+	private SpectrogramQueue spectrogramQueue = null;
+	private StorageMonitor storageMonitor = null;
 
 	public Prefs providePrefs(Context context) {
 		return PrefsImpl.getInstance(context);
@@ -100,6 +119,10 @@ public class Injector {
 		return LocalRepositoryImpl.getInstance(provideRecordsDataSource(context), provideTrashDataSource(context), provideTimestampDataSource(context), provideFileRepository(context), providePrefs(context));
 	}
 
+	public RecordingRecovery provideRecordingRecovery(Context context) {
+		return new RecordingRecovery(provideLocalRepository(context));
+	}
+
 	public AppRecorder provideAppRecorder(Context context) {
 		return AppRecorderImpl.getInstance(provideAudioRecorder(context), provideLocalRepository(context),
 				provideLoadingTasksQueue(), provideRecordDataSource(context));
@@ -144,6 +167,22 @@ public class Injector {
 		return copyTasks;
 	}
 
+	public BackgroundQueue provideStorageTasksQueue() {
+		if (storageTasks == null) {
+			storageTasks = new BackgroundQueue("StorageTasks");
+		}
+		return storageTasks;
+	}
+
+	/** Storage checks of the active recording shared by the recording service and the recording screen. */
+	public StorageMonitor provideStorageMonitor(Context context) {
+		if (storageMonitor == null) {
+			storageMonitor = new StorageMonitor(context.getApplicationContext(), provideFileRepository(context),
+					provideStorageTasksQueue());
+		}
+		return storageMonitor;
+	}
+
 	public ColorMap provideColorMap(Context context) {
 		return ColorMap.getInstance(providePrefs(context));
 	}
@@ -163,18 +202,72 @@ public class Injector {
 		return audioPlayer;
 	}
 
+	/** Columns of the live spectrogram passed from PCM recorders to the recording screen. */
+	public SpectrogramQueue provideSpectrogramQueue() {
+		if (spectrogramQueue == null) {
+			spectrogramQueue = new SpectrogramQueue(AppConstants.SPECTROGRAM_QUEUE_CAPACITY,
+					AppConstants.SPECTROGRAM_FFT_SIZE / 2 + 1);
+		}
+		return spectrogramQueue;
+	}
+
 	public RecorderContract.Recorder provideAudioRecorder(Context context) {
-		switch (providePrefs(context).getSettingRecordingFormat()) {
+		Prefs prefs = providePrefs(context);
+		switch (prefs.getSettingRecordingFormat()) {
 			default:
 			case AppConstants.FORMAT_M4A:
 				return AudioRecorder.getInstance();
 			case AppConstants.FORMAT_WAV:
-				return WavRecorder.getInstance();
+				WavRecorder wavRecorder = WavRecorder.getInstance();
+				wavRecorder.setSegmentLimits(prefs.getSettingSegmentDurationMinutes(),
+						prefs.getSettingSegmentSizeMb() * 1024L * 1024L);
+				return configurePcmRecorder(wavRecorder, context, prefs);
 			case AppConstants.FORMAT_3GP:
 				return ThreeGpRecorder.getInstance();
+			case AppConstants.FORMAT_FLAC:
+				return configurePcmRecorder(FlacRecorder.getInstance(), context, prefs);
+			case AppConstants.FORMAT_WAV_ADPCM:
+				return configurePcmRecorder(ImaAdpcmRecorder.getInstance(), context, prefs);
 		}
 	}
 
+	private PcmRecorder configurePcmRecorder(PcmRecorder recorder, Context context, Prefs prefs) {
+		recorder.setNativeSampleRate(AndroidUtils.getNativeSampleRate(context));
+		recorder.setVoiceActivation(prefs.getSettingVoiceActivationDbfs());
+		recorder.setDspChainFactory(provideDspChainFactory(prefs));
+		recorder.setProxyEnabled(prefs.isSettingRecordProxyEnabled());
+		recorder.setSpectrogramQueue(provideSpectrogramQueue());
+		return recorder;
+	}
+
+	/** Processing of captured audio selected in settings or null when all processing is off. */
+	private DspChain.Factory provideDspChainFactory(Prefs prefs) {
+		final int highPassHz = prefs.getSettingHighPassHz();
+		final boolean noiseGate = prefs.isSettingNoiseGateEnabled();
+		final int gainDb = prefs.getSettingInputGainDb();
+		final boolean limiter = prefs.isSettingLimiterEnabled();
+		if (highPassHz <= 0 && !noiseGate && gainDb == 0 && !limiter) {
+			return null;
+		}
+		return () -> {
+			List<DspStage> stages = new ArrayList<>();
+			if (highPassHz > 0) {
+				stages.add(new HighPassFilter(highPassHz));
+			}
+			if (noiseGate) {
+				stages.add(new NoiseGate(AppConstants.NOISE_GATE_THRESHOLD_DBFS, AppConstants.NOISE_GATE_RANGE_DB));
+			}
+			if (gainDb != 0) {
+				stages.add(new Gain(gainDb));
+			}
+			if (limiter) {
+				stages.add(new LookAheadLimiter(AppConstants.LIMITER_CEILING_DBFS,
+						AppConstants.LIMITER_LOOK_AHEAD_MILLS, AppConstants.LIMITER_RELEASE_MILLS));
+			}
+			return new DspChain(stages.toArray(new DspStage[0]));
+		};
+	}
+
 	public RecordDataSource provideRecordDataSource(Context context) {
 		if (recordDataSource == null) {
 			recordDataSource = new RecordDataSource(
@@ -190,7 +283,8 @@ public class Injector {
 			mainPresenter = new MainPresenter(providePrefs(context), provideFileRepository(context),
 					provideLocalRepository(context), provideAudioPlayer(), provideAppRecorder(context),
 					provideRecordingTasksQueue(), provideLoadingTasksQueue(), provideProcessingTasksQueue(),
-					provideImportTasksQueue(), provideSettingsMapper(context), provideRecordDataSource(context));
+					provideImportTasksQueue(), provideSettingsMapper(context), provideRecordDataSource(context),
+					provideStorageMonitor(context));
 		}
 		return mainPresenter;
 	}
@@ -327,5 +421,9 @@ public class Injector {
 		processingTasks.close();
 		recordingTasks.cleanupQueue();
 		recordingTasks.close();
+		if (storageTasks != null) {
+			storageTasks.cleanupQueue();
+			storageTasks.close();
+		}
 	}
 }
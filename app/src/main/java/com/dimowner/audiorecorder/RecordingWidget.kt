@@ -1,5 +1,6 @@
 package com.dimowner.audiorecorder
 
+import android.Manifest
 import android.annotation.SuppressLint
 import android.app.PendingIntent
 import android.appwidget.AppWidgetManager
@@ -8,8 +9,15 @@ import android.content.BroadcastReceiver
 import android.content.Context
 import android.content.Intent
 import android.content.Intent.FLAG_ACTIVITY_NEW_TASK
+import android.content.pm.PackageManager
+import android.os.Build
 import android.widget.RemoteViews
+import androidx.core.content.ContextCompat
+import com.dimowner.audiorecorder.app.RecordingService
 import com.dimowner.audiorecorder.app.TransparentRecordingActivity
+import com.dimowner.audiorecorder.exception.CantCreateFileException
+import com.dimowner.audiorecorder.util.AndroidUtils
+import timber.log.Timber
 
 class RecordingWidget : AppWidgetProvider() {
 	override fun onUpdate(
@@ -52,8 +60,51 @@ private fun getRecordingPendingIntent(context: Context): PendingIntent {
 
 class WidgetReceiver : BroadcastReceiver() {
 	override fun onReceive(context: Context, intent: Intent) {
+		val requestNanos = System.nanoTime()
 		val activityIntent = Intent(context, TransparentRecordingActivity::class.java)
 		activityIntent.flags = FLAG_ACTIVITY_NEW_TASK
+		activityIntent.putExtra(RecordingService.EXTRAS_KEY_START_REQUEST_TIME, requestNanos)
+		val path = warmUp(context.applicationContext)
+		if (path != null) {
+			activityIntent.putExtra(RecordingService.EXTRAS_KEY_RECORD_PATH, path)
+		}
 		context.startActivity(activityIntent)
 	}
+
+	/**
+	 * Create the record file and prepare capture while the activity and the service are starting,
+	 * so recording starts on an initialized AudioRecord. Skipped when a permission has to be requested.
+	 * @return path of the created record file or null.
+	 */
+	@SuppressLint("MissingPermission")
+	private fun warmUp(context: Context): String? {
+		val injector = ARApplication.injector
+		val prefs = injector.providePrefs(context)
+		if (!hasPermission(context, Manifest.permission.RECORD_AUDIO)
+			|| (prefs.isStoreDirPublic && Build.VERSION.SDK_INT >= Build.VERSION_CODES.M
+					&& !hasPermission(context, Manifest.permission.WRITE_EXTERNAL_STORAGE))) {
+			return null
+		}
+		val appRecorder = injector.provideAppRecorder(context)
+		if (appRecorder.isRecording || appRecorder.isPaused) {
+			return null
+		}
+		val path = try {
+			injector.provideFileRepository(context).provideRecordFile().absolutePath
+		} catch (e: CantCreateFileException) {
+			Timber.e(e)
+			return null
+		}
+		appRecorder.setRecorder(injector.provideAudioRecorder(context))
+		//Posted, so the activity start is not delayed by the capture initialization.
+		//Recorder releases the capture if recording doesn't start on it in time.
+		AndroidUtils.runOnUIThread {
+			appRecorder.prepareCapture(prefs.settingChannelCount, prefs.settingSampleRate)
+		}
+		return path
+	}
+
+	private fun hasPermission(context: Context, permission: String): Boolean {
+		return ContextCompat.checkSelfPermission(context, permission) == PackageManager.PERMISSION_GRANTED
+	}
 }
@@ -16,7 +16,7 @@
 
 package com.dimowner.audiorecorder.app;
 
-import com.dimowner.audiorecorder.IntArrayList;
+import com.dimowner.audiorecorder.DecimatingWaveform;
 import com.dimowner.audiorecorder.audio.recorder.RecorderContract;
 
 import java.io.File;
@@ -26,11 +26,16 @@ public interface AppRecorder {
 	void addRecordingCallback(AppRecorderCallback recorderCallback);
 	void removeRecordingCallback(AppRecorderCallback recorderCallback);
 	void setRecorder(RecorderContract.Recorder recorder);
+	void armPreRoll(int seconds, int channelCount, int sampleRate);
+	void disarmPreRoll();
+	void prepareCapture(int channelCount, int sampleRate);
+	void releaseIdleCapture();
+	void setStartRequestTime(long nanos);
 	void startRecording(String filePath, int channelCount, int sampleRate, int bitrate);
 	void pauseRecording();
 	void resumeRecording();
 	void stopRecording();
-	IntArrayList getRecordingData();
+	DecimatingWaveform getRecordingData();
 	long getRecordingDuration();
 	boolean isRecording();
 	boolean isPaused();
@@ -26,6 +26,21 @@ public interface AppRecorderCallback {
 	void onRecordingPaused();
 	void onRecordingResumed();
 	void onRecordingStopped(File file, Record record);
-	void onRecordingProgress(long mills, int amp);
+	/**
+	 * Called on the main thread once per display frame while recording.
+	 * @param mills recording duration of the latest amplitude.
+	 * @param amps amplitudes since the previous call, oldest first,
+	 *             one per {@link com.dimowner.audiorecorder.AppConstants#PLAYBACK_VISUALIZATION_INTERVAL}.
+	 */
+	void onRecordingProgress(long mills, int[] amps);
+	/**
+	 * Called on the main thread after {@link #onRecordingProgress(long, int[])} while recording
+	 * when the recorder measures loudness.
+	 * @param momentaryLufs loudness of the last 400 ms in LUFS.
+	 * @param shortTermLufs loudness of the last 3 s in LUFS.
+	 * @param maxTruePeak max true peak of the recording in dBTP.
+	 * @param clipCount count of clipped samples of the recording.
+	 */
+	void onRecordingLoudness(float momentaryLufs, float shortTermLufs, float maxTruePeak, long clipCount);
 	void onError(AppException throwable);
 }
@@ -16,25 +16,32 @@
 
 package com.dimowner.audiorecorder.app;
 
+import android.view.Choreographer;
+
 import com.dimowner.audiorecorder.ARApplication;
+import com.dimowner.audiorecorder.AmplitudeQueue;
 import com.dimowner.audiorecorder.AppConstants;
 import com.dimowner.audiorecorder.BackgroundQueue;
-import com.dimowner.audiorecorder.IntArrayList;
+import com.dimowner.audiorecorder.DecimatingWaveform;
 import com.dimowner.audiorecorder.app.info.RecordInfo;
 import com.dimowner.audiorecorder.audio.AudioDecoder;
+import com.dimowner.audiorecorder.audio.dsp.LoudnessMeter;
+import com.dimowner.audiorecorder.audio.recorder.PcmRecorder;
+import com.dimowner.audiorecorder.audio.recorder.RecordedWaveform;
 import com.dimowner.audiorecorder.audio.recorder.RecorderContract;
+import com.dimowner.audiorecorder.audio.recorder.RecordingResult;
 import com.dimowner.audiorecorder.data.RecordDataSource;
 import com.dimowner.audiorecorder.data.database.LocalRepository;
 import com.dimowner.audiorecorder.data.database.Record;
 import com.dimowner.audiorecorder.exception.AppException;
 import com.dimowner.audiorecorder.exception.RecordingException;
 import com.dimowner.audiorecorder.util.AndroidUtils;
+import com.dimowner.audiorecorder.util.FileUtil;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
 
 import timber.log.Timber;
 
@@ -42,18 +49,34 @@ import static com.dimowner.audiorecorder.AppConstants.PLAYBACK_VISUALIZATION_INT
 
 public class AppRecorderImpl implements AppRecorder {
 
+	/** Count of amplitudes of the longest short record, they are all kept at full resolution. */
+	private static final int SHORT_RECORD_AMPLITUDES =
+			AppConstants.LONG_RECORD_THRESHOLD_SECONDS * 1000 / PLAYBACK_VISUALIZATION_INTERVAL + 1;
+	/** Amplitudes received from the recorder during a few seconds of a stalled main thread. */
+	private static final int AMPLITUDE_QUEUE_CAPACITY = 256;
+
 	private RecorderContract.Recorder audioRecorder;
 	private final BackgroundQueue recordingsTasks;
 
 	private final LocalRepository localRepository;
 	private final RecorderContract.RecorderCallback recorderCallback;
 	private final List<AppRecorderCallback> appCallbacks;
-	private final IntArrayList recordingData;
-	private final IntArrayList apmpPool;
-	private long durationMills = 0;
-	private long updateTime = 0;
-	private Timer timerProgress;
+	private final DecimatingWaveform recordingData;
+	/** Amplitudes passed from the recorder callback thread to the main thread. */
+	private final AmplitudeQueue amplitudes;
+	private final Choreographer.FrameCallback progressFrameCallback;
+	private final long[] drainedMills;
+	private final int[] drainedAmps;
+	/** State of progress updates, accessed only on the main thread. */
+	private boolean isProgressUpdating = false;
+	private long nextSampleMills = 0;
+	private int samplePeak = 0;
+	private int[] progressBatch = new int[16];
 	private String recordFilePath = null;
+	/** Time of the last start request, 0 when it is not known. */
+	private volatile long startRequestedNanos = 0;
+	/** Time of the last stop request, 0 when recording stops by itself. */
+	private volatile long stopRequestedNanos = 0;
 
 	private volatile static AppRecorderImpl instance;
 
@@ -83,47 +106,84 @@ public class AppRecorderImpl implements AppRecorder {
 		this.localRepository = localRep;
 		this.recordingsTasks = tasks;
 		this.appCallbacks = new ArrayList<>();
-		this.recordingData = new IntArrayList();
-		this.apmpPool = new IntArrayList();
+		this.recordingData = new DecimatingWaveform(
+				Math.max(SHORT_RECORD_AMPLITUDES, ARApplication.getLongWaveformSampleCount()));
+		this.amplitudes = new AmplitudeQueue(AMPLITUDE_QUEUE_CAPACITY);
+		this.drainedMills = new long[amplitudes.getCapacity()];
+		this.drainedAmps = new int[amplitudes.getCapacity()];
+		this.progressFrameCallback = new Choreographer.FrameCallback() {
+			@Override
+			public void doFrame(long frameTimeNanos) {
+				if (isProgressUpdating) {
+					readProgress();
+					Choreographer.getInstance().postFrameCallback(this);
+				}
+			}
+		};
 
 		recorderCallback = new RecorderContract.RecorderCallback() {
 
 			@Override
 			public void onStartRecord(File output) {
-				durationMills = 0;
-				scheduleRecordingTimeUpdate();
+				if (startRequestedNanos > 0) {
+					Timber.d("Time to capture start: %d ms", (System.nanoTime() - startRequestedNanos) / 1000000);
+					startRequestedNanos = 0;
+				}
+				startProgressUpdates(true);
 				onRecordingStarted(output);
 			}
 
 			@Override
 			public void onPauseRecord() {
 				onRecordingPaused();
-				pauseRecordingTimer();
+				stopProgressUpdates();
 			}
 
 			@Override
 			public void onResumeRecord() {
-				scheduleRecordingTimeUpdate();
+				startProgressUpdates(false);
 				onRecordingResumed();
 			}
 
 			@Override
 			public void onRecordProgress(final long mills, final int amplitude) {
-				apmpPool.add(amplitude);
+				if (!amplitudes.offer(mills, amplitude)) {
+					Timber.w("Recording amplitude dropped, dropped count = %d", amplitudes.getDroppedCount());
+				}
 			}
 
 			@Override
 			public void onStopRecord(final File output) {
-				stopRecordingTimer();
+				final long stoppedNanos = System.nanoTime();
+				final long requestedNanos = stopRequestedNanos > 0 ? stopRequestedNanos : stoppedNanos;
+				stopRequestedNanos = 0;
+				stopProgressUpdates();
+				final long recordedMicros = audioRecorder.getRecordingDurationMicros();
+				final RecordingResult result = audioRecorder.getRecordingResult();
+				final RecordedWaveform recordedWaveform = audioRecorder instanceof PcmRecorder
+						? ((PcmRecorder) audioRecorder).getRecordedWaveform() : null;
 				recordingsTasks.postRunnable(() -> {
-					RecordInfo info = AudioDecoder.readRecordInfo(output);
+					final long startedNanos = System.nanoTime();
+					RecordInfo info;
+					if (result != null) {
+						//Recorder knows what it has written, the file is probed only for MediaRecorder formats.
+						info = toRecordInfo(output, result);
+					} else {
+						info = AudioDecoder.readRecordInfo(output);
+					}
 					long duration = info.getDuration();
 					if (duration <= 0) {
-						duration = durationMills;
+						duration = recordedMicros;
 					}
-					durationMills = 0;
+					final long describedNanos = System.nanoTime();
 
-					int[] waveForm = convertRecordingData(recordingData, (int) (duration / 1000000f));
+					int[] waveForm;
+					if (recordedWaveform != null) {
+						//Waveform of the written PCM is final, the record doesn't need to be decoded.
+						waveForm = convertRecordedWaveform(recordedWaveform, duration);
+					} else {
+						waveForm = convertRecordingData(recordingData, (int) (duration / 1000000f));
+					}
 					final Record record = recordDataSource.getRecordingRecord();
 					if (record != null) {
 						final Record update = new Record(
@@ -139,23 +199,31 @@ public class AppRecorderImpl implements AppRecorder {
 								info.getSampleRate(),
 								info.getChannelCount(),
 								info.getBitrate(),
+								result != null ? result.getIntegratedLoudness() : Float.NaN,
+								result != null ? result.getMaxTruePeak() : Float.NaN,
 								record.isBookmarked(),
-								record.isWaveformProcessed(),
+								recordedWaveform != null || record.isWaveformProcessed(),
 								waveForm);
-						if (localRepository.updateRecord(update)) {
+						//Updated record is the same as stored, so it is not read back from the database.
+						final Record stopped;
+						if (localRepository.finishRecording(update)) {
 							recordingData.clear();
-							final Record rec = localRepository.getRecord(update.getId());
-							AndroidUtils.runOnUIThread(() -> onRecordingStopped(output, rec));
+							stopped = update;
 						} else {
 							//Try to update record again if failed.
-							if (localRepository.updateRecord(update)) {
+							if (localRepository.finishRecording(update)) {
 								recordingData.clear();
-								final Record rec = localRepository.getRecord(update.getId());
-								AndroidUtils.runOnUIThread(() -> onRecordingStopped(output, rec));
+								stopped = update;
 							} else {
-								AndroidUtils.runOnUIThread(() -> onRecordingStopped(output, record));
+								stopped = record;
 							}
 						}
+						final long savedNanos = System.nanoTime();
+						AndroidUtils.runOnUIThread(() -> {
+							onRecordingStopped(output, stopped);
+							logStopLatency(requestedNanos, stoppedNanos, startedNanos, describedNanos, savedNanos,
+									result == null);
+						});
 						recordDataSource.setRecordingRecord(null);
 					} else {
 						AndroidUtils.runOnUIThread(() -> onRecordingError(new RecordingException()));
@@ -172,35 +240,62 @@ public class AppRecorderImpl implements AppRecorder {
 		audioRecorder.setRecorderCallback(recorderCallback);
 	}
 
-	private int[] convertRecordingData(IntArrayList list, int durationSec) {
+	private int[] convertRecordingData(DecimatingWaveform data, int durationSec) {
+		int[] waveForm;
 		if (durationSec > AppConstants.LONG_RECORD_THRESHOLD_SECONDS) {
-			int sampleCount = ARApplication.getLongWaveformSampleCount();
-			int[] waveForm = new int[sampleCount];
-			if (list.size() < sampleCount*2) {
-				float scale = (float) list.size() / (float) sampleCount;
-				for (int i = 0; i < sampleCount; i++) {
-					waveForm[i] = convertAmp(list.get((int) Math.floor(i*scale)));
-				}
-			} else {
-				float scale = (float) list.size() / (float) sampleCount;
-				for (int i = 0; i < sampleCount; i++) {
-					int val = 0;
-					int step = (int) Math.ceil(scale);
-					for (int j = 0; j < step; j++) {
-						val += list.get((int)(i * scale + j));
-					}
-					val = (int) ((float) val / scale);
-					waveForm[i] = convertAmp(val);
-				}
-			}
-			return waveForm;
+			waveForm = data.toWaveform(ARApplication.getLongWaveformSampleCount());
 		} else {
-			int[] waveForm = new int[list.size()];
-			for (int i = 0; i < list.size(); i++) {
-				waveForm[i] = convertAmp(list.get(i));
-			}
-			return waveForm;
+			waveForm = data.toWaveform();
+		}
+		for (int i = 0; i < waveForm.length; i++) {
+			waveForm[i] = convertAmp(waveForm[i]);
 		}
+		return waveForm;
+	}
+
+	/**
+	 * Convert waveform of the recorded PCM to the same gains as {@link AudioDecoder} produces for the record:
+	 * fixed dp per second for short records and a fixed count of gains for long records.
+	 */
+	private int[] convertRecordedWaveform(RecordedWaveform waveform, long durationMicros) {
+		if (durationMicros / 1000000f > AppConstants.LONG_RECORD_THRESHOLD_SECONDS) {
+			return waveform.toGains(ARApplication.getLongWaveformSampleCount());
+		}
+		return waveform.toGains();
+	}
+
+	/** Describe the stopped record from the recorder result, so the file is not probed again. */
+	private static RecordInfo toRecordInfo(File file, RecordingResult result) {
+		return new RecordInfo(
+				FileUtil.removeFileExtension(file.getName()),
+				result.getFormat(),
+				result.getDurationMicros(),
+				result.getSize(),
+				file.getAbsolutePath(),
+				file.lastModified(),
+				result.getSampleRate(),
+				result.getChannelCount(),
+				result.getBitrate(),
+				false
+		);
+	}
+
+	/**
+	 * Log time from the stop request until the stopped record is delivered to callbacks on the main thread,
+	 * split into stages: recorder writes the remaining data, task waits in the queue, record is described,
+	 * waveform is converted and saved, result waits for the main thread.
+	 */
+	private static void logStopLatency(long requestedNanos, long stoppedNanos, long startedNanos,
+												  long describedNanos, long savedNanos, boolean isProbed) {
+		long visibleNanos = System.nanoTime();
+		Timber.d("Stop to visible %d ms: recorder %d ms, queue %d ms, %s %d ms, save %d ms, main thread %d ms",
+				(visibleNanos - requestedNanos) / 1000000,
+				(stoppedNanos - requestedNanos) / 1000000,
+				(startedNanos - stoppedNanos) / 1000000,
+				isProbed ? "probe" : "describe",
+				(describedNanos - startedNanos) / 1000000,
+				(savedNanos - describedNanos) / 1000000,
+				(visibleNanos - savedNanos) / 1000000);
 	}
 
 	/**
@@ -222,10 +317,52 @@ public class AppRecorderImpl implements AppRecorder {
 
 	@Override
 	public void setRecorder(RecorderContract.Recorder recorder) {
+		if (audioRecorder != recorder) {
+			disarmPreRoll();
+			releaseIdleCapture();
+		}
 		this.audioRecorder = recorder;
 		this.audioRecorder.setRecorderCallback(recorderCallback);
 	}
 
+	/** Pre-roll is available only for recorders which capture PCM, other recorders ignore it. */
+	@Override
+	public void armPreRoll(int seconds, int channelCount, int sampleRate) {
+		if (audioRecorder instanceof PcmRecorder) {
+			((PcmRecorder) audioRecorder).armPreRoll(seconds, channelCount, sampleRate);
+		}
+	}
+
+	@Override
+	public void disarmPreRoll() {
+		if (audioRecorder instanceof PcmRecorder) {
+			((PcmRecorder) audioRecorder).disarmPreRoll();
+		}
+	}
+
+	/** Capture can be prepared only by recorders which capture PCM, other recorders ignore it. */
+	@Override
+	public void prepareCapture(int channelCount, int sampleRate) {
+		if (audioRecorder instanceof PcmRecorder) {
+			((PcmRecorder) audioRecorder).prepareCapture(channelCount, sampleRate);
+		}
+	}
+
+	@Override
+	public void releaseIdleCapture() {
+		if (audioRecorder instanceof PcmRecorder) {
+			((PcmRecorder) audioRecorder).releaseIdleCapture();
+		}
+	}
+
+	@Override
+	public void setStartRequestTime(long nanos) {
+		startRequestedNanos = nanos;
+		if (audioRecorder instanceof PcmRecorder) {
+			((PcmRecorder) audioRecorder).setStartRequestTime(nanos);
+		}
+	}
+
 	@Override
 	public void startRecording(String filePath, int channelCount, int sampleRate, int bitrate) {
 		if (!audioRecorder.isRecording()) {
@@ -251,18 +388,20 @@ public class AppRecorderImpl implements AppRecorder {
 	@Override
 	public void stopRecording() {
 		if (audioRecorder.isRecording()) {
+			stopRequestedNanos = System.nanoTime();
 			audioRecorder.stopRecording();
 		}
 	}
 
 	@Override
-	public IntArrayList getRecordingData() {
+	public DecimatingWaveform getRecordingData() {
 		return recordingData;
 	}
 
+	/** Duration of the current recording counted by the recorder clock. */
 	@Override
 	public long getRecordingDuration() {
-		return durationMills;
+		return audioRecorder.getRecordingDurationMicros() / 1000;
 	}
 
 	@Override
@@ -285,9 +424,10 @@ public class AppRecorderImpl implements AppRecorder {
 
 	@Override
 	public void release() {
-		stopRecordingTimer();
+		stopProgressUpdates();
 		recordingData.clear();
-		apmpPool.clear();
+		disarmPreRoll();
+		releaseIdleCapture();
 		audioRecorder.stopRecording();
 		appCallbacks.clear();
 	}
@@ -324,59 +464,89 @@ public class AppRecorderImpl implements AppRecorder {
 		}
 	}
 
-	private void onRecordingProgress(long mills, int amp) {
+	private void onRecordingProgress(long mills, int[] amps) {
 		if (!appCallbacks.isEmpty()) {
 			for (int i = appCallbacks.size() - 1; i >= 0; i--) {
-				appCallbacks.get(i).onRecordingProgress(mills, amp);
+				appCallbacks.get(i).onRecordingProgress(mills, amps);
 			}
 		}
 	}
 
-	private void onRecordingError(AppException e) {
+	private void onRecordingLoudness(LoudnessMeter meter) {
 		if (!appCallbacks.isEmpty()) {
+			float momentary = meter.getMomentaryLoudness();
+			float shortTerm = meter.getShortTermLoudness();
+			float truePeak = meter.getMaxTruePeak();
+			long clipCount = meter.getClipCount();
 			for (int i = appCallbacks.size() - 1; i >= 0; i--) {
-				appCallbacks.get(i).onError(e);
+				appCallbacks.get(i).onRecordingLoudness(momentary, shortTerm, truePeak, clipCount);
 			}
 		}
 	}
 
-	private void scheduleRecordingTimeUpdate() {
-		updateTime = System.currentTimeMillis();
-		timerProgress = new Timer();
-		timerProgress.schedule(new TimerTask() {
-			@Override
-			public void run() {
-				try {
-					readProgress();
-				} catch (IllegalStateException e) {
-					Timber.e(e);
-				}
-				long curTime = System.currentTimeMillis();
-				durationMills += curTime - updateTime;
-				updateTime = curTime;
+	private void onRecordingError(AppException e) {
+		if (!appCallbacks.isEmpty()) {
+			for (int i = appCallbacks.size() - 1; i >= 0; i--) {
+				appCallbacks.get(i).onError(e);
 			}
-		}, 0, PLAYBACK_VISUALIZATION_INTERVAL);
+		}
 	}
 
-	private void readProgress() {
-		if (apmpPool.size() > 0) {
-			int amp = apmpPool.get(apmpPool.size()-1);
-			apmpPool.clear();
-			apmpPool.add(amp);
-			recordingData.add(amp);
-			onRecordingProgress(durationMills, amp);
-		}
+	/**
+	 * Start draining amplitudes once per display frame on the main thread.
+	 * @param isNewRecording skip amplitudes left from the previous recording and start sampling from zero.
+	 */
+	private void startProgressUpdates(boolean isNewRecording) {
+		AndroidUtils.runOnUIThread(() -> {
+			if (isNewRecording) {
+				amplitudes.clear();
+				nextSampleMills = 0;
+				samplePeak = 0;
+			}
+			if (!isProgressUpdating) {
+				isProgressUpdating = true;
+				Choreographer.getInstance().postFrameCallback(progressFrameCallback);
+			}
+		});
 	}
 
-	private void stopRecordingTimer() {
-		timerProgress.cancel();
-		timerProgress.purge();
-		updateTime = 0;
+	private void stopProgressUpdates() {
+		AndroidUtils.runOnUIThread(() -> {
+			isProgressUpdating = false;
+			Choreographer.getInstance().removeFrameCallback(progressFrameCallback);
+		});
 	}
 
-	private void pauseRecordingTimer() {
-		timerProgress.cancel();
-		timerProgress.purge();
-		updateTime = 0;
+	/**
+	 * Turn amplitudes received since the previous frame into one sample per visualization interval of
+	 * recording time and deliver them to callbacks in one batch. A sample takes the peak of its amplitudes,
+	 * it is repeated when no amplitudes were received for a few intervals.
+	 * Loudness measured by the recorder is delivered with every batch.
+	 */
+	private void readProgress() {
+		int count = amplitudes.drain(drainedMills, drainedAmps);
+		int samples = 0;
+		for (int i = 0; i < count; i++) {
+			samplePeak = Math.max(samplePeak, drainedAmps[i]);
+			if (drainedMills[i] >= nextSampleMills) {
+				while (drainedMills[i] >= nextSampleMills) {
+					if (samples == progressBatch.length) {
+						progressBatch = Arrays.copyOf(progressBatch, samples * 2);
+					}
+					progressBatch[samples++] = samplePeak;
+					recordingData.add(samplePeak);
+					nextSampleMills += PLAYBACK_VISUALIZATION_INTERVAL;
+				}
+				samplePeak = 0;
+			}
+		}
+		if (samples > 0) {
+			onRecordingProgress(drainedMills[count - 1], Arrays.copyOf(progressBatch, samples));
+			LoudnessMeter meter = audioRecorder instanceof PcmRecorder
+					? ((PcmRecorder) audioRecorder).getLoudnessMeter() : null;
+			if (meter != null) {
+				onRecordingLoudness(meter);
+			}
+		}
 	}
 }
@@ -170,6 +170,8 @@ class DecodeService : Service() {
 										rec1.sampleRate,
 										rec1.channelCount,
 										rec1.bitrate,
+										rec1.integratedLoudness,
+										rec1.maxTruePeak,
 										rec1.isBookmarked,
 										true,
 										data)
@@ -73,6 +73,8 @@ public class RecordingService extends Service {
 	private final static String CHANNEL_ID_ERRORS = "com.dimowner.audiorecorder.Errors";
 
 	public static final String EXTRAS_KEY_RECORD_PATH = "EXTRAS_KEY_RECORD_PATH";
+	/** Time by System.nanoTime() when the user asked to start recording. */
+	public static final String EXTRAS_KEY_START_REQUEST_TIME = "EXTRAS_KEY_START_REQUEST_TIME";
 	public static final String ACTION_START_RECORDING_SERVICE = "ACTION_START_RECORDING_SERVICE";
 
 	public static final String ACTION_STOP_RECORDING_SERVICE = "ACTION_STOP_RECORDING_SERVICE";
@@ -90,7 +92,7 @@ public class RecordingService extends Service {
 
 	private AppRecorder appRecorder;
 	private PlayerContractNew.Player audioPlayer;
-	private BackgroundQueue recordingsTasks;
+	private BackgroundQueue loadingTasks;
 	private LocalRepository localRepository;
 	private Prefs prefs;
 	private RecordDataSource recordDataSource;
@@ -99,6 +101,8 @@ public class RecordingService extends Service {
 	private ColorMap colorMap;
 	private boolean started = false;
 	private FileRepository fileRepository;
+	private StorageMonitor storageMonitor;
+	private StorageMonitor.Listener storageListener;
 
 	public RecordingService() {
 	}
@@ -113,7 +117,8 @@ public class RecordingService extends Service {
 		super.onCreate();
 		appRecorder = ARApplication.getInjector().provideAppRecorder(getApplicationContext());
 		audioPlayer = ARApplication.getInjector().provideAudioPlayer();
-		recordingsTasks = ARApplication.getInjector().provideRecordingTasksQueue();
+		//AppRecorder handles recording stop on this queue, so the record inserted on start is available by then.
+		loadingTasks = ARApplication.getInjector().provideLoadingTasksQueue();
 		localRepository = ARApplication.getInjector().provideLocalRepository(getApplicationContext());
 		prefs = ARApplication.getInjector().providePrefs(getApplicationContext());
 		recorder = ARApplication.getInjector().provideAudioRecorder(getApplicationContext());
@@ -121,18 +126,21 @@ public class RecordingService extends Service {
 
 		colorMap = ARApplication.getInjector().provideColorMap(getApplicationContext());
 		fileRepository = ARApplication.getInjector().provideFileRepository(getApplicationContext());
+		storageMonitor = ARApplication.getInjector().provideStorageMonitor(getApplicationContext());
 
 		appRecorderCallback = new AppRecorderCallback() {
-			boolean checkHasSpace = true;
 
 			@Override public void onRecordingStarted(File file) {
 				updateNotificationResume();
+				storageMonitor.start(file);
 			}
 			@Override public void onRecordingPaused() {
 				updateNotificationPause();
+				storageMonitor.pause();
 			}
 			@Override public void onRecordingResumed() {
 				updateNotificationResume();
+				storageMonitor.resume();
 			}
 			@Override public void onRecordingStopped(File file, Record rec) {
 				if (rec != null && rec.getDuration()/1000 < AppConstants.DECODE_DURATION && !rec.isWaveformProcessed()) {
@@ -142,27 +150,11 @@ public class RecordingService extends Service {
 			}
 
 			@Override
-			public void onRecordingProgress(long mills, int amp) {
-				try {
-					if (mills % 10000 < 1000) {
-						if (checkHasSpace && !fileRepository.hasAvailableSpace(getApplicationContext())) {
-							stopRecording();
-							AndroidUtils.runOnUIThread(() -> {
-								Toast.makeText(getApplicationContext(), R.string.error_no_available_space, Toast.LENGTH_LONG).show();
-							});
-							showNoSpaceNotification();
-						}
-						checkHasSpace = false;
-					} else {
-						checkHasSpace = true;
-					}
-				} catch (IllegalArgumentException e) {
-					stopRecording();
-					AndroidUtils.runOnUIThread(() -> {
-						Toast.makeText(getApplicationContext(), R.string.error_failed_access_to_storage, Toast.LENGTH_LONG).show();
-					});
-					showNoSpaceNotification();
-				}
+			public void onRecordingProgress(long mills, int[] amps) {
+			}
+
+			@Override
+			public void onRecordingLoudness(float momentaryLufs, float shortTermLufs, float maxTruePeak, long clipCount) {
 			}
 
 			@Override public void onError(AppException throwable) {
@@ -171,9 +163,34 @@ public class RecordingService extends Service {
 			}
 		};
 		appRecorder.addRecordingCallback(appRecorderCallback);
+
+		storageListener = new StorageMonitor.Listener() {
+			@Override public void onRemainingTimeChanged(long remainingMills) {
+			}
+			@Override public void onStorageWarning(long remainingMills) {
+				String message = getString(R.string.storage_almost_full, TimeUtils.formatTimeIntervalHourMinSec2(remainingMills));
+				Toast.makeText(getApplicationContext(), message, Toast.LENGTH_LONG).show();
+				showStorageNotification(message);
+			}
+			@Override public void onStorageFull() {
+				stopRecording();
+				showError(R.string.error_no_available_space);
+				showNoSpaceNotification();
+			}
+			@Override public void onStorageError() {
+				stopRecording();
+				showError(R.string.error_failed_access_to_storage);
+				showNoSpaceNotification();
+			}
+		};
+		storageMonitor.addListener(storageListener);
 	}
 
 	public void showNoSpaceNotification() {
+		showStorageNotification(getApplicationContext().getString(R.string.error_no_available_space));
+	}
+
+	private void showStorageNotification(String text) {
 		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
 			createNotificationChannel(CHANNEL_ID_ERRORS, CHANNEL_NAME_ERRORS);
 		}
@@ -181,7 +198,7 @@ public class RecordingService extends Service {
 				new NotificationCompat.Builder(getApplicationContext(), CHANNEL_ID)
 						.setSmallIcon(R.drawable.ic_record_rec)
 						.setContentTitle(getApplicationContext().getString(R.string.app_name))
-						.setContentText(getApplicationContext().getString(R.string.error_no_available_space))
+						.setContentText(text)
 						.setContentIntent(createContentIntent())
 						.setVibrate(new long[] { 1000, 1000, 1000, 1000, 1000 })
 						.setLights(Color.RED, 500, 500)
@@ -201,9 +218,13 @@ public class RecordingService extends Service {
 				switch (action) {
 					case ACTION_START_RECORDING_SERVICE:
 						if (!started) {
+							long requestNanos = intent.getLongExtra(EXTRAS_KEY_START_REQUEST_TIME, 0);
+							if (requestNanos <= 0) {
+								requestNanos = System.nanoTime();
+							}
 							startForegroundService();
 							if (intent.hasExtra(EXTRAS_KEY_RECORD_PATH)) {
-								startRecording(intent.getStringExtra(EXTRAS_KEY_RECORD_PATH));
+								startRecording(intent.getStringExtra(EXTRAS_KEY_RECORD_PATH), requestNanos);
 							} else {
 								showError(ErrorParser.parseException(new RecorderInitException()));
 								stopForegroundService();
@@ -342,6 +363,8 @@ public class RecordingService extends Service {
 
 	private void stopForegroundService() {
 		appRecorder.removeRecordingCallback(appRecorderCallback);
+		storageMonitor.removeListener(storageListener);
+		storageMonitor.stop();
 		stopForeground(true);
 		stopSelf();
 		started = false;
@@ -429,8 +452,9 @@ public class RecordingService extends Service {
 		}
 	}
 
-	private void startRecording(String path) {
+	private void startRecording(String path, long requestNanos) {
 		appRecorder.setRecorder(recorder);
+		appRecorder.setStartRequestTime(requestNanos);
 		try {
 			if (fileRepository.hasAvailableSpace(getApplicationContext())) {
 //				if (appRecorder.isPaused()) {
@@ -440,22 +464,26 @@ public class RecordingService extends Service {
 					if (audioPlayer.isPlaying() || audioPlayer.isPaused()) {
 						audioPlayer.stop();
 					}
-					recordingsTasks.postRunnable(() -> {
+					//Capture starts while the record is inserted into the database.
+					loadingTasks.postRunnable(() -> {
 						try {
 							Record record = localRepository.insertEmptyFile(path);
 							prefs.setActiveRecord(record.getId());
 							recordDataSource.setRecordingRecord(record);
-							AndroidUtils.runOnUIThread(() -> appRecorder.startRecording(
-									path,
-									prefs.getSettingChannelCount(),
-									prefs.getSettingSampleRate(),
-									prefs.getSettingBitrate()
-							));
 						} catch (IOException | OutOfMemoryError | IllegalStateException | NullPointerException e) {
 							Timber.e(e);
-							showError(R.string.error_failed_to_start_recording);
+							AndroidUtils.runOnUIThread(() -> {
+								appRecorder.stopRecording();
+								showError(R.string.error_failed_to_start_recording);
+							});
 						}
 					});
+					appRecorder.startRecording(
+							path,
+							prefs.getSettingChannelCount(),
+							prefs.getSettingSampleRate(),
+							prefs.getSettingBitrate()
+					);
 				}
 //				else {
 //					appRecorder.pauseRecording();
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.app;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import com.dimowner.audiorecorder.AppConstants;
+import com.dimowner.audiorecorder.BackgroundQueue;
+import com.dimowner.audiorecorder.audio.recorder.RecordingSegments;
+import com.dimowner.audiorecorder.audio.recorder.TeeOutput;
+import com.dimowner.audiorecorder.data.FileRepository;
+import com.dimowner.audiorecorder.data.StorageEstimator;
+import com.dimowner.audiorecorder.util.AndroidUtils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import timber.log.Timber;
+
+/**
+ * Checks storage of the active recording on its own queue every {@link AppConstants#STORAGE_CHECK_INTERVAL_MILLS}.
+ * Available space and the size of the record files are passed to {@link StorageEstimator}, which measures
+ * the actual write rate. Listeners receive the remaining recording time, staged warnings and a request
+ * to stop recording before storage is full. Checks are made only while recording is not paused.
+ * Methods and listeners are called on the main thread.
+ */
+public class StorageMonitor {
+
+	public interface Listener {
+		/** @param remainingMills estimated recording time until storage is full or {@link StorageEstimator#UNKNOWN}. */
+		void onRemainingTimeChanged(long remainingMills);
+		/** Remaining recording time fell below one of {@link AppConstants#STORAGE_WARNING_MILLS}. */
+		void onStorageWarning(long remainingMills);
+		/** Recording has to be stopped now, so the record is finished before storage is full. */
+		void onStorageFull();
+		/** Storage of the records directory can't be accessed. */
+		void onStorageError();
+	}
+
+	private final Context context;
+	private final FileRepository fileRepository;
+	private final BackgroundQueue queue;
+	/** Accessed only on the queue thread. */
+	private final StorageEstimator estimator;
+	private final List<Listener> listeners = new ArrayList<>();
+	private final Runnable checkRunnable = this::check;
+	/** Record checked on the queue thread or null when checks are stopped. */
+	private File recordFile = null;
+	private long remainingMills = StorageEstimator.UNKNOWN;
+
+	public StorageMonitor(Context context, FileRepository fileRepository, BackgroundQueue queue) {
+		this.context = context;
+		this.fileRepository = fileRepository;
+		this.queue = queue;
+		this.estimator = new StorageEstimator(AppConstants.STORAGE_RATE_WINDOW_SAMPLES,
+				AppConstants.STORAGE_RATE_MIN_WINDOW_MILLS, AppConstants.STORAGE_RESERVE_BYTES,
+				AppConstants.STORAGE_WARNING_MILLS, AppConstants.MIN_REMAIN_RECORDING_TIME);
+	}
+
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
+	/** Estimated recording time until storage is full or {@link StorageEstimator#UNKNOWN}. */
+	public long getRemainingMills() {
+		return remainingMills;
+	}
+
+	/** Start checking storage of the new recording. */
+	public void start(File file) {
+		queue.postRunnable(() -> {
+			queue.cancelRunnable(checkRunnable);
+			estimator.reset();
+			recordFile = file;
+			check();
+		});
+	}
+
+	/** Stop checks while recording is paused. */
+	public void pause() {
+		queue.postRunnable(() -> queue.cancelRunnable(checkRunnable));
+	}
+
+	/** Continue checks, the pause is not counted into the write rate. */
+	public void resume() {
+		queue.postRunnable(() -> {
+			queue.cancelRunnable(checkRunnable);
+			estimator.restartWindow();
+			check();
+		});
+	}
+
+	/** Stop checks when recording is stopped. */
+	public void stop() {
+		queue.postRunnable(() -> {
+			queue.cancelRunnable(checkRunnable);
+			recordFile = null;
+		});
+		updateRemainingTime(StorageEstimator.UNKNOWN);
+	}
+
+	/** Called on the queue thread. */
+	private void check() {
+		File file = recordFile;
+		if (file == null) {
+			return;
+		}
+		long available;
+		try {
+			available = fileRepository.getAvailableSpace(context);
+		} catch (IllegalArgumentException e) {
+			Timber.e(e);
+			recordFile = null;
+			AndroidUtils.runOnUIThread(this::onStorageError);
+			return;
+		}
+		long recorded = RecordingSegments.totalLength(file) + TeeOutput.proxyFile(file).length();
+		StorageEstimator.Event event = estimator.update(SystemClock.elapsedRealtime(), available, recorded);
+		long remaining = estimator.getRemainingMills();
+		switch (event) {
+			case FULL:
+				Timber.w("Storage is full: available %d bytes, write rate %d bytes/s", available,
+						estimator.getBytesPerSecond());
+				recordFile = null;
+				AndroidUtils.runOnUIThread(() -> {
+					updateRemainingTime(remaining);
+					onStorageFull();
+				});
+				return;
+			case WARNING:
+				Timber.w("Storage warning: %d s remaining at %d bytes/s", remaining / 1000, estimator.getBytesPerSecond());
+				AndroidUtils.runOnUIThread(() -> {
+					updateRemainingTime(remaining);
+					onStorageWarning(remaining);
+				});
+				break;
+			default:
+				AndroidUtils.runOnUIThread(() -> updateRemainingTime(remaining));
+		}
+		queue.postRunnable(checkRunnable, AppConstants.STORAGE_CHECK_INTERVAL_MILLS);
+	}
+
+	private void updateRemainingTime(long mills) {
+		remainingMills = mills;
+		for (int i = listeners.size() - 1; i >= 0; i--) {
+			listeners.get(i).onRemainingTimeChanged(mills);
+		}
+	}
+
+	private void onStorageWarning(long mills) {
+		for (int i = listeners.size() - 1; i >= 0; i--) {
+			listeners.get(i).onStorageWarning(mills);
+		}
+	}
+
+	private void onStorageFull() {
+		for (int i = listeners.size() - 1; i >= 0; i--) {
+			listeners.get(i).onStorageFull();
+		}
+	}
+
+	private void onStorageError() {
+		for (int i = listeners.size() - 1; i >= 0; i--) {
+			listeners.get(i).onStorageError();
+		}
+	}
+}
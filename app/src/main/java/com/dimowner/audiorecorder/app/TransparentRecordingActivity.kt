@@ -55,9 +55,13 @@ class TransparentRecordingActivity : Activity() {
     private fun startRecordingService() {
         try {
             val startIntent = Intent(applicationContext, RecordingService::class.java)
-            val path = fileRepository.provideRecordFile().absolutePath
+            //Record file is created by the widget when it could prepare recording ahead.
+            val path = intent.getStringExtra(RecordingService.EXTRAS_KEY_RECORD_PATH)
+                ?: fileRepository.provideRecordFile().absolutePath
             startIntent.action = RecordingService.ACTION_START_RECORDING_SERVICE
             startIntent.putExtra(RecordingService.EXTRAS_KEY_RECORD_PATH, path)
+            startIntent.putExtra(RecordingService.EXTRAS_KEY_START_REQUEST_TIME,
+                intent.getLongExtra(RecordingService.EXTRAS_KEY_START_REQUEST_TIME, System.nanoTime()))
             startService(startIntent)
         } catch (e: CantCreateFileException) {
             Toast.makeText(applicationContext, ErrorParser.parseException(e), Toast.LENGTH_LONG).show()
@@ -102,7 +102,11 @@ public class FileBrowserPresenter implements FileBrowserContract.UserActionsList
 				}
 
 				@Override
-				public void onRecordingProgress(final long mills, final int amp) {
+				public void onRecordingProgress(final long mills, final int[] amps) {
+				}
+
+				@Override
+				public void onRecordingLoudness(float momentaryLufs, float shortTermLufs, float maxTruePeak, long clipCount) {
 				}
 
 				@Override
@@ -229,6 +233,8 @@ public class FileBrowserPresenter implements FileBrowserContract.UserActionsList
 							info.getSampleRate(),
 							info.getChannelCount(),
 							info.getBitrate(),
+							Float.NaN,
+							Float.NaN,
 							false,
 							false,
 							new int[ARApplication.getLongWaveformSampleCount()]);
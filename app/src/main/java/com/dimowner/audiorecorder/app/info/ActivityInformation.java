@@ -23,10 +23,15 @@ import android.os.Bundle;
 import android.view.View;
 import android.widget.TextView;
 
+import java.io.File;
+
 import com.dimowner.audiorecorder.ARApplication;
 import com.dimowner.audiorecorder.AppConstants;
 import com.dimowner.audiorecorder.ColorMap;
 import com.dimowner.audiorecorder.R;
+import com.dimowner.audiorecorder.app.settings.SettingsMapper;
+import com.dimowner.audiorecorder.audio.recorder.CaptureTelemetry;
+import com.dimowner.audiorecorder.audio.recorder.SilenceGaps;
 import com.dimowner.audiorecorder.util.TimeUtils;
 
 public class ActivityInformation extends Activity {
@@ -57,6 +62,11 @@ public class ActivityInformation extends Activity {
 		TextView txtChannelsCount = findViewById(R.id.txt_channels_count);
 		TextView txtBitrate = findViewById(R.id.txt_bitrate);
 		TextView lblBitrate = findViewById(R.id.lbl_bitrate);
+		TextView txtSkippedSilence = findViewById(R.id.txt_skipped_silence);
+		TextView lblSkippedSilence = findViewById(R.id.lbl_skipped_silence);
+		TextView txtTelemetry = findViewById(R.id.txt_capture_telemetry);
+		TextView lblTelemetry = findViewById(R.id.lbl_capture_telemetry);
+		View btnExportTelemetry = findViewById(R.id.btn_export_telemetry);
 
 		if (extras != null) {
 			if (extras.containsKey(KEY_INFO)) {
@@ -65,7 +75,8 @@ public class ActivityInformation extends Activity {
 					txtName.setText(info.getName());
 					txtFormat.setText(info.getFormat());
 					txtDuration.setText(TimeUtils.formatTimeIntervalHourMinSec2(info.getDuration()/1000));
-					txtSize.setText(ARApplication.getInjector().provideSettingsMapper(getApplicationContext()).formatSize(info.getSize()));
+					SettingsMapper settingsMapper = ARApplication.getInjector().provideSettingsMapper(getApplicationContext());
+					txtSize.setText(settingsMapper.formatSize(info.getSize()));
 					txtLocation.setText(info.getLocation());
 					txtCreated.setText(TimeUtils.formatDateTimeLocale(info.getCreated()));
 					txtSampleRate.setText(getString(R.string.value_hz, info.getSampleRate()));
@@ -85,10 +96,44 @@ public class ActivityInformation extends Activity {
 						lblBitrate.setVisibility(View.VISIBLE);
 						txtBitrate.setText(getString(R.string.value_kbps, info.getBitrate()/1000));
 					}
+					SilenceGaps gaps = info.getLocation() != null ? SilenceGaps.read(new File(info.getLocation())) : null;
+					if (gaps != null && gaps.getSkippedFrames() > 0) {
+						long saved = gaps.getSkippedBytes();
+						if (info.getDuration() > 0) {
+							//Size of the skipped audio in the record format.
+							saved = (long) ((double) info.getSize() * gaps.getSkippedMicros() / info.getDuration());
+						}
+						txtSkippedSilence.setText(getString(R.string.skipped_silence_value,
+								TimeUtils.formatTimeIntervalHourMinSec2(gaps.getSkippedMicros()/1000),
+								gaps.getGapCount(), settingsMapper.formatSize(saved),
+								gaps.getDetectorCpuNanos()/1000000));
+						txtSkippedSilence.setVisibility(View.VISIBLE);
+						lblSkippedSilence.setVisibility(View.VISIBLE);
+					}
+					CaptureTelemetry telemetry = info.getLocation() != null
+							? CaptureTelemetry.read(new File(info.getLocation())) : null;
+					if (telemetry != null) {
+						String summary = telemetry.formatSummary();
+						txtTelemetry.setText(summary.trim());
+						txtTelemetry.setVisibility(View.VISIBLE);
+						lblTelemetry.setVisibility(View.VISIBLE);
+						btnExportTelemetry.setVisibility(View.VISIBLE);
+						btnExportTelemetry.setOnClickListener(v -> exportTelemetry(info.getName(), summary));
+					}
 				}
 			}
 		}
 
 		findViewById(R.id.btn_back).setOnClickListener(v -> finish());
 	}
+
+	/** Send capture telemetry of the record as plain text, e.g. attached to a bug report. */
+	private void exportTelemetry(String name, String summary) {
+		String subject = getString(R.string.capture_telemetry_subject, name);
+		Intent share = new Intent(Intent.ACTION_SEND);
+		share.setType("text/plain");
+		share.putExtra(Intent.EXTRA_SUBJECT, subject);
+		share.putExtra(Intent.EXTRA_TEXT, summary);
+		startActivity(Intent.createChooser(share, subject));
+	}
 }
@@ -54,7 +54,7 @@ import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
 import com.dimowner.audiorecorder.ARApplication;
 import com.dimowner.audiorecorder.ColorMap;
-import com.dimowner.audiorecorder.IntArrayList;
+import com.dimowner.audiorecorder.DecimatingWaveform;
 import com.dimowner.audiorecorder.R;
 import com.dimowner.audiorecorder.app.DecodeService;
 import com.dimowner.audiorecorder.app.DecodeServiceListener;
@@ -63,14 +63,17 @@ import com.dimowner.audiorecorder.app.PlaybackService;
 import com.dimowner.audiorecorder.app.RecordingService;
 import com.dimowner.audiorecorder.app.info.ActivityInformation;
 import com.dimowner.audiorecorder.app.info.RecordInfo;
+import com.dimowner.audiorecorder.audio.WaveformPyramid;
 import com.dimowner.audiorecorder.app.moverecords.MoveRecordsActivity;
 import com.dimowner.audiorecorder.app.records.RecordsActivity;
 import com.dimowner.audiorecorder.app.settings.SettingsActivity;
 import com.dimowner.audiorecorder.app.welcome.WelcomeActivity;
 import com.dimowner.audiorecorder.app.widget.RecordingWaveformView;
+import com.dimowner.audiorecorder.app.widget.SpectrogramView;
 import com.dimowner.audiorecorder.app.widget.WaveformViewNew;
 import com.dimowner.audiorecorder.audio.AudioDecoder;
 import com.dimowner.audiorecorder.data.FileRepository;
+import com.dimowner.audiorecorder.data.StorageEstimator;
 import com.dimowner.audiorecorder.data.database.Record;
 import com.dimowner.audiorecorder.exception.CantCreateFileException;
 import com.dimowner.audiorecorder.exception.ErrorParser;
@@ -107,11 +110,14 @@ public class MainActivity extends Activity implements MainContract.View, View.On
 
 	private WaveformViewNew waveformView;
 	private RecordingWaveformView recordingWaveformView;
+	private SpectrogramView spectrogramView;
 	private TextView txtProgress;
 	private TextView txtDuration;
 	private TextView txtZeroTime;
 	private TextView txtName;
 	private TextView txtRecordInfo;
+	private TextView txtLoudness;
+	private TextView txtRemainingTime;
 	private ImageButton btnPlay;
 	private ImageButton btnStop;
 	private ImageButton btnPreviousTimestamp;
@@ -201,11 +207,15 @@ public class MainActivity extends Activity implements MainContract.View, View.On
 
 		waveformView = findViewById(R.id.record);
 		recordingWaveformView = findViewById(R.id.recording_view);
+		spectrogramView = findViewById(R.id.spectrogram_view);
+		spectrogramView.setQueue(ARApplication.getInjector().provideSpectrogramQueue());
 		txtProgress = findViewById(R.id.txt_progress);
 		txtDuration = findViewById(R.id.txt_duration);
 		txtZeroTime = findViewById(R.id.txt_zero_time);
 		txtName = findViewById(R.id.txt_name);
 		txtRecordInfo = findViewById(R.id.txt_record_info);
+		txtLoudness = findViewById(R.id.txt_loudness);
+		txtRemainingTime = findViewById(R.id.txt_remaining_time);
 		btnPlay = findViewById(R.id.btn_play);
 		btnRecord = findViewById(R.id.btn_record);
 		btnRecordingStop = findViewById(R.id.btn_record_stop);
@@ -350,6 +360,9 @@ public class MainActivity extends Activity implements MainContract.View, View.On
 		}
 		presenter.checkFirstRun();
 		presenter.setAudioRecorder(ARApplication.getInjector().provideAudioRecorder(getApplicationContext()));
+		if (hasRecordPermission()) {
+			presenter.armPreRoll();
+		}
 		presenter.updateRecordingDir(getApplicationContext());
 		presenter.loadActiveRecord();
 
@@ -362,6 +375,7 @@ public class MainActivity extends Activity implements MainContract.View, View.On
 		super.onStop();
 		unbindService(connection);
 		if (presenter != null) {
+			presenter.disarmPreRoll();
 			presenter.unbindView();
 		}
 	}
@@ -571,6 +585,7 @@ public class MainActivity extends Activity implements MainContract.View, View.On
 		txtDuration.setText(R.string.zero_time);
 		waveformView.setVisibility(View.GONE);
 		recordingWaveformView.setVisibility(View.VISIBLE);
+		spectrogramView.setVisibility(View.VISIBLE);
 		ivPlaceholder.setVisibility(View.GONE);
 	}
 
@@ -598,6 +613,10 @@ public class MainActivity extends Activity implements MainContract.View, View.On
 		waveformView.setVisibility(View.VISIBLE);
 		recordingWaveformView.setVisibility(View.GONE);
 		recordingWaveformView.reset();
+		spectrogramView.setVisibility(View.GONE);
+		spectrogramView.reset();
+		txtLoudness.setVisibility(View.GONE);
+		txtRemainingTime.setVisibility(View.GONE);
 		txtProgress.setText(TimeUtils.formatTimeIntervalHourMinSec2(0));
 	}
 
@@ -621,6 +640,7 @@ public class MainActivity extends Activity implements MainContract.View, View.On
 		playProgress.setEnabled(false);
 		ivPlaceholder.setVisibility(View.GONE);
 		recordingWaveformView.setVisibility(View.VISIBLE);
+		spectrogramView.setVisibility(View.VISIBLE);
 	}
 
 	@Override
@@ -655,11 +675,31 @@ public class MainActivity extends Activity implements MainContract.View, View.On
 	}
 
 	@Override
-	public void onRecordingProgress(long mills, int amp) {
-		runOnUiThread(() ->{
-			txtProgress.setText(TimeUtils.formatTimeIntervalHourMinSec2(mills));
-			recordingWaveformView.addRecordAmp(amp, mills);
-		});
+	public void onRecordingProgress(long mills, int[] amps) {
+		txtProgress.setText(TimeUtils.formatTimeIntervalHourMinSec2(mills));
+		recordingWaveformView.addRecordAmps(amps, mills);
+	}
+
+	@Override
+	public void showRecordingLoudness(float shortTermLufs, float maxTruePeak, long clipCount) {
+		if (clipCount > 0) {
+			txtLoudness.setText(getString(R.string.recording_loudness_clipped, shortTermLufs, maxTruePeak, clipCount));
+			txtLoudness.setTextColor(getResources().getColor(R.color.md_red_500));
+		} else {
+			txtLoudness.setText(getString(R.string.recording_loudness, shortTermLufs, maxTruePeak));
+			txtLoudness.setTextColor(getResources().getColor(R.color.text_primary_light2));
+		}
+		txtLoudness.setVisibility(View.VISIBLE);
+	}
+
+	@Override
+	public void showRecordingRemainingTime(long mills) {
+		if (mills == StorageEstimator.UNKNOWN) {
+			txtRemainingTime.setVisibility(View.GONE);
+		} else {
+			txtRemainingTime.setText(getString(R.string.recording_time_left, TimeUtils.formatTimeIntervalHourMinSec2(mills)));
+			txtRemainingTime.setVisibility(View.VISIBLE);
+		}
 	}
 
 	@Override
@@ -671,10 +711,12 @@ public class MainActivity extends Activity implements MainContract.View, View.On
 	@Override
 	public void startRecordingService() {
 		try {
+			long requestNanos = System.nanoTime();
 			String path = fileRepository.provideRecordFile().getAbsolutePath();
 			Intent intent = new Intent(getApplicationContext(), RecordingService.class);
 			intent.setAction(RecordingService.ACTION_START_RECORDING_SERVICE);
 			intent.putExtra(RecordingService.EXTRAS_KEY_RECORD_PATH, path);
+			intent.putExtra(RecordingService.EXTRAS_KEY_START_REQUEST_TIME, requestNanos);
 			startService(intent);
 		} catch (CantCreateFileException e) {
 			showError(ErrorParser.parseException(e));
@@ -771,7 +813,7 @@ public class MainActivity extends Activity implements MainContract.View, View.On
 	}
 
 	@Override
-	public void showWaveForm(int[] waveForm, long duration, long playbackMills) {
+	public void showWaveForm(int[] waveForm, WaveformPyramid pyramid, long duration, long playbackMills) {
 		if (waveForm.length > 0) {
 			btnPlay.setVisibility(View.VISIBLE);
 			txtDuration.setVisibility(View.VISIBLE);
@@ -785,7 +827,7 @@ public class MainActivity extends Activity implements MainContract.View, View.On
 			ivPlaceholder.setVisibility(View.VISIBLE);
 			waveformView.setVisibility(View.INVISIBLE);
 		}
-		waveformView.setWaveform(waveForm, duration/1000, playbackMills);
+		waveformView.setWaveform(waveForm, pyramid, duration/1000, playbackMills);
 	}
 
 	@Override
@@ -853,7 +895,7 @@ public class MainActivity extends Activity implements MainContract.View, View.On
 	}
 
 	@Override
-	public void updateRecordingView(IntArrayList data, long durationMills) {
+	public void updateRecordingView(DecimatingWaveform data, long durationMills) {
 		if (data != null) {
 			recordingWaveformView.setRecordingData(data, durationMills);
 		}
@@ -1195,6 +1237,11 @@ public class MainActivity extends Activity implements MainContract.View, View.On
 		return true;
 	}
 
+	private boolean hasRecordPermission() {
+		return android.os.Build.VERSION.SDK_INT < Build.VERSION_CODES.M
+				|| checkSelfPermission(Manifest.permission.RECORD_AUDIO) == PackageManager.PERMISSION_GRANTED;
+	}
+
 	private boolean checkNotificationPermission() {
 		if (android.os.Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
 			if (checkSelfPermission(Manifest.permission.POST_NOTIFICATIONS) != PackageManager.PERMISSION_GRANTED) {
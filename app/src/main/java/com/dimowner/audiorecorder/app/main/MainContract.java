@@ -19,8 +19,9 @@ package com.dimowner.audiorecorder.app.main;
 import android.content.Context;
 import android.net.Uri;
 import com.dimowner.audiorecorder.Contract;
-import com.dimowner.audiorecorder.IntArrayList;
+import com.dimowner.audiorecorder.DecimatingWaveform;
 import com.dimowner.audiorecorder.app.info.RecordInfo;
+import com.dimowner.audiorecorder.audio.WaveformPyramid;
 import com.dimowner.audiorecorder.audio.recorder.RecorderContract;
 import com.dimowner.audiorecorder.data.database.Record;
 import com.dimowner.audiorecorder.data.database.Timestamp;
@@ -37,7 +38,10 @@ public interface MainContract {
 		void showRecordingStop();
 		void showRecordingPause();
 		void showRecordingResume();
-		void onRecordingProgress(long mills, int amp);
+		void onRecordingProgress(long mills, int[] amps);
+		void showRecordingLoudness(float shortTermLufs, float maxTruePeak, long clipCount);
+		/** @param mills estimated recording time until storage is full or {@link com.dimowner.audiorecorder.data.StorageEstimator#UNKNOWN}. */
+		void showRecordingRemainingTime(long mills);
 		void startWelcomeScreen();
 
 		void askRecordingNewName(long id, File file,  boolean showCheckbox);
@@ -60,7 +64,8 @@ public interface MainContract {
 		void showRecordProcessing();
 		void hideRecordProcessing();
 
-		void showWaveForm(int[] waveForm, long duration, long playbackMills);
+		/** @param pyramid waveform of the record drawn at the resolution of the view or null. */
+		void showWaveForm(int[] waveForm, WaveformPyramid pyramid, long duration, long playbackMills);
 		void showTimestamps(List<Timestamp> timestamps);
 		void onTimestampClick(Timestamp timestamp);
 		void waveFormToStart();
@@ -74,7 +79,7 @@ public interface MainContract {
 
 		void showRecordInfo(RecordInfo info);
 
-		void updateRecordingView(IntArrayList data, long durationMills);
+		void updateRecordingView(DecimatingWaveform data, long durationMills);
 
 		void showRecordsLostMessage(List<Record> list);
 
@@ -115,6 +120,10 @@ public interface MainContract {
 
 		void setAudioRecorder(RecorderContract.Recorder recorder);
 
+		/** Start capturing audio before recording start when pre-roll is enabled in settings. */
+		void armPreRoll();
+		void disarmPreRoll();
+
 		void pauseUnpauseRecording(Context context);
 		void stopRecording();
 
@@ -30,9 +30,12 @@ import com.dimowner.audiorecorder.Mapper;
 import com.dimowner.audiorecorder.R;
 import com.dimowner.audiorecorder.app.AppRecorder;
 import com.dimowner.audiorecorder.app.AppRecorderCallback;
+import com.dimowner.audiorecorder.app.StorageMonitor;
 import com.dimowner.audiorecorder.app.info.RecordInfo;
 import com.dimowner.audiorecorder.app.settings.SettingsMapper;
 import com.dimowner.audiorecorder.audio.AudioDecoder;
+import com.dimowner.audiorecorder.audio.WaveformPyramid;
+import com.dimowner.audiorecorder.audio.recorder.RecordingSegments;
 import com.dimowner.audiorecorder.audio.player.PlayerContractNew;
 import com.dimowner.audiorecorder.audio.recorder.RecorderContract;
 import com.dimowner.audiorecorder.data.RecordDataSource;
@@ -65,6 +68,8 @@ public class MainPresenter implements MainContract.UserActionsListener {
 	private final PlayerContractNew.Player audioPlayer;
 	private PlayerContractNew.PlayerCallback playerCallback;
 	private AppRecorderCallback appRecorderCallback;
+	private final StorageMonitor storageMonitor;
+	private StorageMonitor.Listener storageListener;
 	private final BackgroundQueue loadingTasks;
 	private final BackgroundQueue recordingsTasks;
 	private final BackgroundQueue importTasks;
@@ -101,7 +106,8 @@ public class MainPresenter implements MainContract.UserActionsListener {
 						 final BackgroundQueue processingTasks,
 						 final BackgroundQueue importTasks,
 						 SettingsMapper settingsMapper,
-						 RecordDataSource recordDataSource
+						 RecordDataSource recordDataSource,
+						 StorageMonitor storageMonitor
 						 ) {
 		this.prefs = prefs;
 		this.fileRepository = fileRepository;
@@ -114,6 +120,7 @@ public class MainPresenter implements MainContract.UserActionsListener {
 		this.appRecorder = appRecorder;
 		this.settingsMapper = settingsMapper;
 		this.recordDataSource = recordDataSource;
+		this.storageMonitor = storageMonitor;
 	}
 
 	@Override
@@ -180,7 +187,7 @@ public class MainPresenter implements MainContract.UserActionsListener {
 					prefs.setActiveRecord(rec.getId());
 					songDuration = rec.getDuration();
 					if (view != null) {
-						view.showWaveForm(rec.getAmps(), songDuration, 0);
+						view.showWaveForm(rec.getAmps(), WaveformPyramid.read(file), songDuration, 0);
 						view.showName(rec.getName());
 						view.showDuration(TimeUtils.formatTimeIntervalHourMinSec2(songDuration / 1000));
 						view.showOptionsMenu();
@@ -191,13 +198,14 @@ public class MainPresenter implements MainContract.UserActionsListener {
 						view.hideProgress();
 						view.showRecordingStop();
 						view.hideTimestampCounter(); // Hide counter when recording stops
+						armPreRoll();
 					}
 				}
 
 				@Override
-				public void onRecordingProgress(final long mills, final int amp) {
+				public void onRecordingProgress(final long mills, final int[] amps) {
 					if (view != null) {
-						view.onRecordingProgress(mills, amp);
+						view.onRecordingProgress(mills, amps);
 						File recFile = appRecorder.getRecordFile();
 						long curTime = System.currentTimeMillis();
 						if (recFile != null && curTime - prevTime > 3000) { //Update record info every second when recording.
@@ -211,6 +219,13 @@ public class MainPresenter implements MainContract.UserActionsListener {
 					}
 				}
 
+				@Override
+				public void onRecordingLoudness(float momentaryLufs, float shortTermLufs, float maxTruePeak, long clipCount) {
+					if (view != null) {
+						view.showRecordingLoudness(shortTermLufs, maxTruePeak, clipCount);
+					}
+				}
+
 				@Override
 				public void onError(AppException throwable) {
 					Timber.e(throwable);
@@ -224,6 +239,32 @@ public class MainPresenter implements MainContract.UserActionsListener {
 		}
 		appRecorder.addRecordingCallback(appRecorderCallback);
 
+		if (storageListener == null) {
+			//Warnings and stop on full storage are handled by RecordingService.
+			storageListener = new StorageMonitor.Listener() {
+				@Override
+				public void onRemainingTimeChanged(long remainingMills) {
+					if (view != null) {
+						view.showRecordingRemainingTime(remainingMills);
+					}
+				}
+
+				@Override
+				public void onStorageWarning(long remainingMills) {
+				}
+
+				@Override
+				public void onStorageFull() {
+				}
+
+				@Override
+				public void onStorageError() {
+				}
+			};
+		}
+		storageMonitor.addListener(storageListener);
+		view.showRecordingRemainingTime(storageMonitor.getRemainingMills());
+
 		if (playerCallback == null) {
 			playerCallback = new PlayerContractNew.PlayerCallback() {
 				@Override
@@ -356,6 +397,7 @@ public class MainPresenter implements MainContract.UserActionsListener {
 		if (view != null) {
 			audioPlayer.removePlayerCallback(playerCallback);
 			appRecorder.removeRecordingCallback(appRecorderCallback);
+			storageMonitor.removeListener(storageListener);
 			this.localRepository.setOnRecordsLostListener(null);
 			this.view = null;
 		}
@@ -396,6 +438,22 @@ public class MainPresenter implements MainContract.UserActionsListener {
 		appRecorder.setRecorder(recorder);
 	}
 
+	@Override
+	public void armPreRoll() {
+		if (!appRecorder.isRecording() && !appRecorder.isPaused()) {
+			//Disabled pre-roll releases its buffer.
+			appRecorder.armPreRoll(prefs.getSettingPreRollSeconds(), prefs.getSettingChannelCount(),
+					prefs.getSettingSampleRate());
+		}
+	}
+
+	@Override
+	public void disarmPreRoll() {
+		if (!appRecorder.isRecording() && !appRecorder.isPaused()) {
+			appRecorder.disarmPreRoll();
+		}
+	}
+
 	@Override
 	public void pauseUnpauseRecording(Context context) {
 		try {
@@ -829,6 +887,8 @@ public class MainPresenter implements MainContract.UserActionsListener {
 								record.getSampleRate(),
 								record.getChannelCount(),
 								record.getBitrate(),
+								record.getIntegratedLoudness(),
+								record.getMaxTruePeak(),
 								record.isBookmarked(),
 								record.isWaveformProcessed(),
 								record.getAmps());
@@ -855,6 +915,7 @@ public class MainPresenter implements MainContract.UserActionsListener {
 										renamed.renameTo(file);
 									}
 								}
+								RecordingSegments.renameSegments(renamed, file);
 							}
 						}
 
@@ -903,6 +964,7 @@ public class MainPresenter implements MainContract.UserActionsListener {
 					songDuration = rec.getDuration();
 					// Load timestamps for this record
 					final List<com.dimowner.audiorecorder.data.database.Timestamp> timestamps = localRepository.getTimestampsForRecord(rec.getId());
+					final WaveformPyramid pyramid = WaveformPyramid.read(new File(rec.getPath()));
 					AndroidUtils.runOnUIThread(() -> {
 						if (view != null) {
 							if (audioPlayer.isPaused()) {
@@ -910,10 +972,10 @@ public class MainPresenter implements MainContract.UserActionsListener {
 								if (duration > 0) {
 									long playProgressMills = audioPlayer.getPauseTime();
 									view.onPlayProgress(playProgressMills, (int) (1000 * playProgressMills / duration));
-									view.showWaveForm(rec.getAmps(), songDuration, playProgressMills);
+									view.showWaveForm(rec.getAmps(), pyramid, songDuration, playProgressMills);
 								}
 							} else {
-								view.showWaveForm(rec.getAmps(), songDuration, 0);
+								view.showWaveForm(rec.getAmps(), pyramid, songDuration, 0);
 							}
 
 							view.showName(rec.getName());
@@ -933,7 +995,7 @@ public class MainPresenter implements MainContract.UserActionsListener {
 					AndroidUtils.runOnUIThread(() -> {
 						if (view != null) {
 							view.hideProgress();
-							view.showWaveForm(new int[]{}, 0, 0);
+							view.showWaveForm(new int[]{}, null, 0, 0);
 							view.showTimestamps(new java.util.ArrayList<>());
 							
 							// Clear timestamps list and navigation
@@ -964,6 +1026,7 @@ public class MainPresenter implements MainContract.UserActionsListener {
 					songDuration = rec.getDuration();
 					// Load timestamps for this record
 					final List<com.dimowner.audiorecorder.data.database.Timestamp> timestamps = localRepository.getTimestampsForRecord(rec.getId());
+					final WaveformPyramid pyramid = WaveformPyramid.read(new File(rec.getPath()));
 					AndroidUtils.runOnUIThread(() -> {
 						if (view != null) {
 							// Stop any current playback
@@ -971,7 +1034,7 @@ public class MainPresenter implements MainContract.UserActionsListener {
 								audioPlayer.stop();
 							}
 							
-							view.showWaveForm(rec.getAmps(), songDuration, 0);
+							view.showWaveForm(rec.getAmps(), pyramid, songDuration, 0);
 							view.showName(rec.getName());
 							view.showDuration(TimeUtils.formatTimeIntervalHourMinSec2(songDuration / 1000));
 							view.showTimestamps(timestamps);
@@ -995,7 +1058,7 @@ public class MainPresenter implements MainContract.UserActionsListener {
 					AndroidUtils.runOnUIThread(() -> {
 						if (view != null) {
 							view.hideProgress();
-							view.showWaveForm(new int[]{}, 0, 0);
+							view.showWaveForm(new int[]{}, null, 0, 0);
 							view.showTimestamps(new java.util.ArrayList<>());
 							
 							// Clear timestamps list and navigation
@@ -1132,6 +1195,8 @@ public class MainPresenter implements MainContract.UserActionsListener {
 				switch (format) {
 					case AppConstants.FORMAT_M4A:
 					case AppConstants.FORMAT_WAV:
+					case AppConstants.FORMAT_FLAC:
+					case AppConstants.FORMAT_WAV_ADPCM:
 						view.showInformation(settingsMapper.formatSize(size) + AppConstants.SEPARATOR
 								+ settingsMapper.convertFormatsToString(format) + AppConstants.SEPARATOR
 								+ settingsMapper.convertSampleRateToString(sampleRate)
@@ -1161,7 +1226,7 @@ public class MainPresenter implements MainContract.UserActionsListener {
 				prefs.setActiveRecord(-1);
 				AndroidUtils.runOnUIThread(() -> {
 					if (view != null) {
-						view.showWaveForm(new int[]{}, 0, 0);
+						view.showWaveForm(new int[]{}, null, 0, 0);
 						view.showName("");
 						view.showDuration(TimeUtils.formatTimeIntervalHourMinSec2(0));
 						view.showMessage(R.string.record_moved_into_trash);
@@ -1239,6 +1304,8 @@ public class MainPresenter implements MainContract.UserActionsListener {
 								info.getSampleRate(),
 								info.getChannelCount(),
 								info.getBitrate(),
+								Float.NaN,
+								Float.NaN,
 								false,
 								false,
 								new int[ARApplication.getLongWaveformSampleCount()]);
@@ -1250,7 +1317,7 @@ public class MainPresenter implements MainContract.UserActionsListener {
 							AndroidUtils.runOnUIThread(() -> {
 								if (view != null) {
 									audioPlayer.stop();
-									view.showWaveForm(rec.getAmps(), songDuration, 0);
+									view.showWaveForm(rec.getAmps(), null, songDuration, 0);
 									view.showName(rec.getName());
 									view.showDuration(TimeUtils.formatTimeIntervalHourMinSec2(songDuration / 1000));
 									view.hideProgress();
@@ -1308,6 +1375,8 @@ public class MainPresenter implements MainContract.UserActionsListener {
 								info.getSampleRate(),
 								info.getChannelCount(),
 								info.getBitrate(),
+								rec.getIntegratedLoudness(),
+								rec.getMaxTruePeak(),
 								rec.isBookmarked(),
 								rec.isWaveformProcessed(),
 								rec.getAmps()));
@@ -1335,6 +1404,8 @@ public class MainPresenter implements MainContract.UserActionsListener {
 								info.getSampleRate(),
 								info.getChannelCount(),
 								info.getBitrate(),
+								trashRecord.getIntegratedLoudness(),
+								trashRecord.getMaxTruePeak(),
 								trashRecord.isBookmarked(),
 								trashRecord.isWaveformProcessed(),
 								trashRecord.getAmps()));
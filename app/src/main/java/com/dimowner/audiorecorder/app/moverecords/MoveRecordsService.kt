@@ -25,6 +25,7 @@ import com.dimowner.audiorecorder.BackgroundQueue
 import com.dimowner.audiorecorder.ColorMap
 import com.dimowner.audiorecorder.R
 import com.dimowner.audiorecorder.app.main.MainActivity
+import com.dimowner.audiorecorder.audio.recorder.RecordingSegments
 import com.dimowner.audiorecorder.data.FileRepository
 import com.dimowner.audiorecorder.data.Prefs
 import com.dimowner.audiorecorder.data.database.LocalRepository
@@ -158,6 +159,11 @@ class MoveRecordsService : Service() {
 								}
 
 								override fun onCopyFinish(message: String) {
+									if (!RecordingSegments.copySegments(File(sourceFilePath), destinationFile)) {
+										destinationFile.delete()
+										onError(message)
+										return
+									}
 									moveListener?.onRecordMoved()
 									copied++
 									copiedPercent += oneRecordProgress.toInt()
@@ -152,7 +152,8 @@ class MoveRecordsViewModel(
 				override fun onRecordingStarted(file: File) {}
 				override fun onRecordingPaused() {}
 				override fun onRecordingResumed() {}
-				override fun onRecordingProgress(mills: Long, amp: Int) {}
+				override fun onRecordingProgress(mills: Long, amps: IntArray) {}
+				override fun onRecordingLoudness(momentaryLufs: Float, shortTermLufs: Float, maxTruePeak: Float, clipCount: Long) {}
 				override fun onRecordingStopped(file: File, rec: Record) {
 					setState(uiState.value.copy(playState = PlayState.IDLE))
 				}
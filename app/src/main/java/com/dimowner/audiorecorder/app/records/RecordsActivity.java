@@ -49,6 +49,7 @@ import com.dimowner.audiorecorder.app.DownloadService;
 import com.dimowner.audiorecorder.app.PlaybackService;
 import com.dimowner.audiorecorder.app.info.ActivityInformation;
 import com.dimowner.audiorecorder.app.info.RecordInfo;
+import com.dimowner.audiorecorder.audio.WaveformPyramid;
 import com.dimowner.audiorecorder.app.trash.TrashActivity;
 import com.dimowner.audiorecorder.app.widget.SimpleWaveformView;
 import com.dimowner.audiorecorder.app.widget.TouchLayout;
@@ -522,7 +523,7 @@ public class RecordsActivity extends Activity implements RecordsContract.View, V
 		List<String> share = new ArrayList<>();
 		for (int i = 0; i < selected.size(); i++) {
 			ListItem item = adapter.getItem(selected.get(i));
-			share.add(item.getPath());
+			share.add(AndroidUtils.sharedFilePath(item.getPath()));
 		}
 		AndroidUtils.shareAudioFiles(getApplicationContext(), share);
 		cancelMultiSelect();
@@ -699,8 +700,8 @@ public class RecordsActivity extends Activity implements RecordsContract.View, V
 	}
 
 	@Override
-	public void showWaveForm(int[] waveForm, long duration, long playbackMills) {
-		waveformView.setWaveform(waveForm, duration/1000, playbackMills);
+	public void showWaveForm(int[] waveForm, WaveformPyramid pyramid, long duration, long playbackMills) {
+		waveformView.setWaveform(waveForm, pyramid, duration/1000, playbackMills);
 	}
 
 	@Override
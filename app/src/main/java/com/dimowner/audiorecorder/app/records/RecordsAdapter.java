@@ -466,6 +466,8 @@ public class RecordsAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
 			switch (format) {
 				case AppConstants.FORMAT_M4A:
 				case AppConstants.FORMAT_WAV:
+				case AppConstants.FORMAT_FLAC:
+				case AppConstants.FORMAT_WAV_ADPCM:
 					view.setText(settingsMapper.formatSize(size) + AppConstants.SEPARATOR
 							+ settingsMapper.convertFormatsToString(format) + AppConstants.SEPARATOR
 							+ settingsMapper.convertSampleRateToString(sampleRate)// + AppConstants.SEPARATOR
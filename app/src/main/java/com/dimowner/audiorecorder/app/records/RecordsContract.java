@@ -18,6 +18,7 @@ package com.dimowner.audiorecorder.app.records;
 
 import com.dimowner.audiorecorder.Contract;
 import com.dimowner.audiorecorder.app.info.RecordInfo;
+import com.dimowner.audiorecorder.audio.WaveformPyramid;
 import com.dimowner.audiorecorder.data.database.Record;
 
 import java.util.List;
@@ -41,7 +42,8 @@ public interface RecordsContract {
 
 		void startPlaybackService();
 
-		void showWaveForm(int[] waveForm, long duration, long playbackMills);
+		/** @param pyramid waveform of the record drawn at the resolution of the view or null. */
+		void showWaveForm(int[] waveForm, WaveformPyramid pyramid, long duration, long playbackMills);
 		void showDuration(String duration);
 
 		void showRecords(List<ListItem> records, int order);
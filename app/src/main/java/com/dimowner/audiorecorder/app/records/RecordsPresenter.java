@@ -23,7 +23,9 @@ import com.dimowner.audiorecorder.R;
 import com.dimowner.audiorecorder.app.AppRecorder;
 import com.dimowner.audiorecorder.app.AppRecorderCallback;
 import com.dimowner.audiorecorder.app.info.RecordInfo;
+import com.dimowner.audiorecorder.audio.WaveformPyramid;
 import com.dimowner.audiorecorder.audio.player.PlayerContractNew;
+import com.dimowner.audiorecorder.audio.recorder.RecordingSegments;
 import com.dimowner.audiorecorder.data.FileRepository;
 import com.dimowner.audiorecorder.data.Prefs;
 import com.dimowner.audiorecorder.data.database.LocalRepository;
@@ -80,7 +82,8 @@ public class RecordsPresenter implements RecordsContract.UserActionsListener {
 				@Override public void onRecordingPaused() {}
 				@Override public void onRecordingResumed() { }
 
-				@Override public void onRecordingProgress(long mills, int amp) {}
+				@Override public void onRecordingProgress(long mills, int[] amps) {}
+				@Override public void onRecordingLoudness(float momentaryLufs, float shortTermLufs, float maxTruePeak, long clipCount) {}
 
 				@Override
 				public void onRecordingStopped(File file, Record rec) {
@@ -334,6 +337,8 @@ public class RecordsPresenter implements RecordsContract.UserActionsListener {
 								rec2.getSampleRate(),
 								rec2.getChannelCount(),
 								rec2.getBitrate(),
+								rec2.getIntegratedLoudness(),
+								rec2.getMaxTruePeak(),
 								rec2.isBookmarked(),
 								rec2.isWaveformProcessed(),
 								rec2.getAmps());
@@ -358,6 +363,7 @@ public class RecordsPresenter implements RecordsContract.UserActionsListener {
 										renamed.renameTo(file);
 									}
 								}
+								RecordingSegments.renameSegments(renamed, file);
 							}
 						}
 
@@ -394,6 +400,7 @@ public class RecordsPresenter implements RecordsContract.UserActionsListener {
 				final List<Record> recordList = localRepository.getRecords(0, order);
 				final Record rec = localRepository.getRecord((int) prefs.getActiveRecord());
 				activeRecord = rec;
+				final WaveformPyramid pyramid = rec != null ? WaveformPyramid.read(new File(rec.getPath())) : null;
 				AndroidUtils.runOnUIThread(() -> {
 					if (view != null) {
 						view.showRecords(Mapper.recordsToListItems(recordList), order);
@@ -404,10 +411,10 @@ public class RecordsPresenter implements RecordsContract.UserActionsListener {
 									if (duration > 0) {
 										long playProgressMills = audioPlayer.getPauseTime();
 										view.onPlayProgress(playProgressMills, (int) (1000 * playProgressMills / duration));
-										view.showWaveForm(rec.getAmps(), rec.getDuration(), playProgressMills);
+										view.showWaveForm(rec.getAmps(), pyramid, rec.getDuration(), playProgressMills);
 									}
 								} else {
-									view.showWaveForm(rec.getAmps(), rec.getDuration(), 0);
+									view.showWaveForm(rec.getAmps(), pyramid, rec.getDuration(), 0);
 								}
 								view.showDuration(TimeUtils.formatTimeIntervalHourMinSec2(rec.getDuration() / 1000));
 								view.showRecordName(rec.getName());
@@ -571,9 +578,10 @@ public class RecordsPresenter implements RecordsContract.UserActionsListener {
 				final Record rec = localRepository.getRecord((int) id);
 				activeRecord = rec;
 				if (rec != null) {
+					final WaveformPyramid pyramid = WaveformPyramid.read(new File(rec.getPath()));
 					AndroidUtils.runOnUIThread(() -> {
 						if (view != null) {
-							view.showWaveForm(rec.getAmps(), rec.getDuration(), 0);
+							view.showWaveForm(rec.getAmps(), pyramid, rec.getDuration(), 0);
 							view.showDuration(TimeUtils.formatTimeIntervalHourMinSec2(rec.getDuration() / 1000));
 							view.showRecordName(rec.getName());
 							callback.onSuccess();
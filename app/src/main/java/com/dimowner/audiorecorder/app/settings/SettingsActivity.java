@@ -81,6 +81,15 @@ public class SettingsActivity extends Activity implements SettingsContract.View,
 	private SettingView sampleRateSetting;
 	private SettingView bitrateSetting;
 	private SettingView channelsSetting;
+	private SettingView preRollSetting;
+	private SettingView segmentDurationSetting;
+	private SettingView segmentSizeSetting;
+	private SettingView voiceActivationSetting;
+	private SettingView highPassSetting;
+	private SettingView inputGainSetting;
+	private SettingView noiseGateSetting;
+	private SettingView limiterSetting;
+	private SettingView recordProxySetting;
 	private Button btnReset;
 
 	private SettingsContract.UserActionsListener presenter;
@@ -106,6 +115,20 @@ public class SettingsActivity extends Activity implements SettingsContract.View,
 	private String[] rateKeys;
 	private String[] recChannels;
 	private String[] recChannelsKeys;
+	private String[] preRollDurations;
+	private String[] preRollKeys;
+	private String[] segmentDurations;
+	private String[] segmentDurationKeys;
+	private String[] segmentSizes;
+	private String[] segmentSizeKeys;
+	private String[] voiceActivationLevels;
+	private String[] voiceActivationKeys;
+	private String[] highPassNames;
+	private String[] highPassKeys;
+	private String[] inputGainNames;
+	private String[] inputGainKeys;
+	private String[] offOnNames;
+	private String[] offOnKeys;
 
 	public static Intent getStartIntent(Context context) {
 		Intent intent = new Intent(context, SettingsActivity.class);
@@ -164,7 +187,9 @@ public class SettingsActivity extends Activity implements SettingsContract.View,
 		formatsKeys = new String[] {
 				AppConstants.FORMAT_M4A,
 				AppConstants.FORMAT_WAV,
-				AppConstants.FORMAT_3GP
+				AppConstants.FORMAT_3GP,
+				AppConstants.FORMAT_FLAC,
+				AppConstants.FORMAT_WAV_ADPCM
 		};
 		formatSetting.setData(formats, formatsKeys);
 		formatSetting.setOnChipCheckListener((key, name, checked) -> presenter.setSettingRecordingFormat(key));
@@ -213,6 +238,104 @@ public class SettingsActivity extends Activity implements SettingsContract.View,
 		channelsSetting.setTitle(R.string.channels);
 		channelsSetting.setOnInfoClickListener(v -> AndroidUtils.showInfoDialog(SettingsActivity.this, R.string.info_channels));
 
+		preRollSetting = findViewById(R.id.setting_pre_roll);
+		preRollDurations = getResources().getStringArray(R.array.pre_roll_durations);
+		preRollKeys = new String[] {
+				SettingsMapper.PRE_ROLL_OFF,
+				SettingsMapper.PRE_ROLL_10,
+				SettingsMapper.PRE_ROLL_30,
+				SettingsMapper.PRE_ROLL_60
+		};
+		preRollSetting.setData(preRollDurations, preRollKeys);
+		preRollSetting.setOnChipCheckListener((key, name, checked) -> presenter.setSettingPreRollSeconds(SettingsMapper.keyToPreRollSeconds(key)));
+		preRollSetting.setTitle(R.string.pre_roll);
+		preRollSetting.setOnInfoClickListener(v -> AndroidUtils.showInfoDialog(SettingsActivity.this, R.string.info_pre_roll));
+
+		segmentDurationSetting = findViewById(R.id.setting_segment_duration);
+		segmentDurations = getResources().getStringArray(R.array.segment_durations);
+		segmentDurationKeys = new String[] {
+				SettingsMapper.SEGMENT_DURATION_OFF,
+				SettingsMapper.SEGMENT_DURATION_15,
+				SettingsMapper.SEGMENT_DURATION_30,
+				SettingsMapper.SEGMENT_DURATION_60
+		};
+		segmentDurationSetting.setData(segmentDurations, segmentDurationKeys);
+		segmentDurationSetting.setOnChipCheckListener((key, name, checked) -> presenter.setSettingSegmentDurationMinutes(SettingsMapper.keyToSegmentDurationMinutes(key)));
+		segmentDurationSetting.setTitle(R.string.segment_duration);
+		segmentDurationSetting.setOnInfoClickListener(v -> AndroidUtils.showInfoDialog(SettingsActivity.this, R.string.info_segments));
+
+		segmentSizeSetting = findViewById(R.id.setting_segment_size);
+		segmentSizes = getResources().getStringArray(R.array.segment_sizes);
+		segmentSizeKeys = new String[] {
+				SettingsMapper.SEGMENT_SIZE_OFF,
+				SettingsMapper.SEGMENT_SIZE_512,
+				SettingsMapper.SEGMENT_SIZE_1024,
+				SettingsMapper.SEGMENT_SIZE_2048
+		};
+		segmentSizeSetting.setData(segmentSizes, segmentSizeKeys);
+		segmentSizeSetting.setOnChipCheckListener((key, name, checked) -> presenter.setSettingSegmentSizeMb(SettingsMapper.keyToSegmentSizeMb(key)));
+		segmentSizeSetting.setTitle(R.string.segment_size);
+		segmentSizeSetting.setOnInfoClickListener(v -> AndroidUtils.showInfoDialog(SettingsActivity.this, R.string.info_segments));
+
+		voiceActivationSetting = findViewById(R.id.setting_voice_activation);
+		voiceActivationLevels = getResources().getStringArray(R.array.voice_activation_levels);
+		voiceActivationKeys = new String[] {
+				SettingsMapper.VOICE_ACTIVATION_OFF,
+				SettingsMapper.VOICE_ACTIVATION_QUIET,
+				SettingsMapper.VOICE_ACTIVATION_NOISY
+		};
+		voiceActivationSetting.setData(voiceActivationLevels, voiceActivationKeys);
+		voiceActivationSetting.setOnChipCheckListener((key, name, checked) -> presenter.setSettingVoiceActivationDbfs(SettingsMapper.keyToVoiceActivationDbfs(key)));
+		voiceActivationSetting.setTitle(R.string.skip_silence);
+		voiceActivationSetting.setOnInfoClickListener(v -> AndroidUtils.showInfoDialog(SettingsActivity.this, R.string.info_skip_silence));
+
+		highPassSetting = findViewById(R.id.setting_high_pass);
+		highPassNames = getResources().getStringArray(R.array.high_pass_frequencies);
+		highPassKeys = new String[] {
+				SettingsMapper.HIGH_PASS_OFF,
+				SettingsMapper.HIGH_PASS_80,
+				SettingsMapper.HIGH_PASS_150
+		};
+		highPassSetting.setData(highPassNames, highPassKeys);
+		highPassSetting.setOnChipCheckListener((key, name, checked) -> presenter.setSettingHighPassHz(SettingsMapper.keyToHighPassHz(key)));
+		highPassSetting.setTitle(R.string.high_pass);
+		highPassSetting.setOnInfoClickListener(v -> AndroidUtils.showInfoDialog(SettingsActivity.this, R.string.info_high_pass));
+
+		inputGainSetting = findViewById(R.id.setting_input_gain);
+		inputGainNames = getResources().getStringArray(R.array.input_gains);
+		inputGainKeys = new String[] {
+				SettingsMapper.INPUT_GAIN_0,
+				SettingsMapper.INPUT_GAIN_6,
+				SettingsMapper.INPUT_GAIN_12
+		};
+		inputGainSetting.setData(inputGainNames, inputGainKeys);
+		inputGainSetting.setOnChipCheckListener((key, name, checked) -> presenter.setSettingInputGainDb(SettingsMapper.keyToInputGainDb(key)));
+		inputGainSetting.setTitle(R.string.input_gain);
+		inputGainSetting.setOnInfoClickListener(v -> AndroidUtils.showInfoDialog(SettingsActivity.this, R.string.info_input_gain));
+
+		offOnNames = getResources().getStringArray(R.array.off_on);
+		offOnKeys = new String[] {
+				SettingsMapper.OFF,
+				SettingsMapper.ON
+		};
+		noiseGateSetting = findViewById(R.id.setting_noise_gate);
+		noiseGateSetting.setData(offOnNames, offOnKeys);
+		noiseGateSetting.setOnChipCheckListener((key, name, checked) -> presenter.setSettingNoiseGateEnabled(SettingsMapper.ON.equals(key)));
+		noiseGateSetting.setTitle(R.string.noise_gate);
+		noiseGateSetting.setOnInfoClickListener(v -> AndroidUtils.showInfoDialog(SettingsActivity.this, R.string.info_noise_gate));
+
+		limiterSetting = findViewById(R.id.setting_limiter);
+		limiterSetting.setData(offOnNames, offOnKeys);
+		limiterSetting.setOnChipCheckListener((key, name, checked) -> presenter.setSettingLimiterEnabled(SettingsMapper.ON.equals(key)));
+		limiterSetting.setTitle(R.string.limiter);
+		limiterSetting.setOnInfoClickListener(v -> AndroidUtils.showInfoDialog(SettingsActivity.this, R.string.info_limiter));
+
+		recordProxySetting = findViewById(R.id.setting_record_proxy);
+		recordProxySetting.setData(offOnNames, offOnKeys);
+		recordProxySetting.setOnChipCheckListener((key, name, checked) -> presenter.setSettingRecordProxyEnabled(SettingsMapper.ON.equals(key)));
+		recordProxySetting.setTitle(R.string.record_proxy);
+		recordProxySetting.setOnInfoClickListener(v -> AndroidUtils.showInfoDialog(SettingsActivity.this, R.string.info_record_proxy));
+
 		presenter = ARApplication.getInjector().provideSettingsPresenter(getApplicationContext());
 
 		LinearLayout pnlInfo = findViewById(R.id.info_panel);
@@ -430,6 +553,118 @@ public class SettingsActivity extends Activity implements SettingsContract.View,
 		channelsSetting.setSelected(SettingsMapper.channelCountToKey(count));
 	}
 
+	@Override
+	public void showPreRollSeconds(int seconds) {
+		preRollSetting.setSelected(SettingsMapper.preRollSecondsToKey(seconds));
+	}
+
+	@Override
+	public void showPreRollMemory(String size) {
+		if (size != null) {
+			preRollSetting.setTitle(getString(R.string.pre_roll_memory, size));
+		} else {
+			preRollSetting.setTitle(R.string.pre_roll);
+		}
+	}
+
+	@Override
+	public void showPreRollSelector() {
+		preRollSetting.setVisibility(View.VISIBLE);
+	}
+
+	@Override
+	public void hidePreRollSelector() {
+		preRollSetting.setVisibility(View.GONE);
+	}
+
+	@Override
+	public void showSegmentDurationMinutes(int minutes) {
+		segmentDurationSetting.setSelected(SettingsMapper.segmentDurationMinutesToKey(minutes));
+	}
+
+	@Override
+	public void showSegmentSizeMb(int megabytes) {
+		segmentSizeSetting.setSelected(SettingsMapper.segmentSizeMbToKey(megabytes));
+	}
+
+	@Override
+	public void showSegmentSelectors() {
+		segmentDurationSetting.setVisibility(View.VISIBLE);
+		segmentSizeSetting.setVisibility(View.VISIBLE);
+	}
+
+	@Override
+	public void hideSegmentSelectors() {
+		segmentDurationSetting.setVisibility(View.GONE);
+		segmentSizeSetting.setVisibility(View.GONE);
+	}
+
+	@Override
+	public void showVoiceActivationDbfs(int dbfs) {
+		voiceActivationSetting.setSelected(SettingsMapper.voiceActivationDbfsToKey(dbfs));
+	}
+
+	@Override
+	public void showVoiceActivationSelector() {
+		voiceActivationSetting.setVisibility(View.VISIBLE);
+	}
+
+	@Override
+	public void hideVoiceActivationSelector() {
+		voiceActivationSetting.setVisibility(View.GONE);
+	}
+
+	@Override
+	public void showHighPassHz(int hz) {
+		highPassSetting.setSelected(SettingsMapper.highPassHzToKey(hz));
+	}
+
+	@Override
+	public void showInputGainDb(int db) {
+		inputGainSetting.setSelected(SettingsMapper.inputGainDbToKey(db));
+	}
+
+	@Override
+	public void showNoiseGateEnabled(boolean enabled) {
+		noiseGateSetting.setSelected(enabled ? SettingsMapper.ON : SettingsMapper.OFF);
+	}
+
+	@Override
+	public void showLimiterEnabled(boolean enabled) {
+		limiterSetting.setSelected(enabled ? SettingsMapper.ON : SettingsMapper.OFF);
+	}
+
+	@Override
+	public void showDspSelectors() {
+		highPassSetting.setVisibility(View.VISIBLE);
+		inputGainSetting.setVisibility(View.VISIBLE);
+		noiseGateSetting.setVisibility(View.VISIBLE);
+		limiterSetting.setVisibility(View.VISIBLE);
+	}
+
+	@Override
+	public void hideDspSelectors() {
+		highPassSetting.setVisibility(View.GONE);
+		inputGainSetting.setVisibility(View.GONE);
+		noiseGateSetting.setVisibility(View.GONE);
+		limiterSetting.setVisibility(View.GONE);
+	}
+
+	@Override
+	public void showRecordProxyEnabled(boolean enabled) {
+		recordProxySetting.setSelected(enabled ? SettingsMapper.ON : SettingsMapper.OFF);
+	}
+
+	@Override
+	public void showRecordProxySelector() {
+		recordProxySetting.setVisibility(View.VISIBLE);
+	}
+
+	@Override
+	public void hideRecordProxySelector() {
+		recordProxySetting.setVisibility(View.GONE);
+	}
+
 	@Override
 	public void showAskToRenameAfterRecordingStop(boolean b) {
 		swAskToRename.setChecked(b);
@@ -579,6 +814,15 @@ public class SettingsActivity extends Activity implements SettingsContract.View,
 		sampleRateSetting.setEnabled(true);
 		bitrateSetting.setEnabled(true);
 		channelsSetting.setEnabled(true);
+		preRollSetting.setEnabled(true);
+		segmentDurationSetting.setEnabled(true);
+		segmentSizeSetting.setEnabled(true);
+		voiceActivationSetting.setEnabled(true);
+		highPassSetting.setEnabled(true);
+		inputGainSetting.setEnabled(true);
+		noiseGateSetting.setEnabled(true);
+		limiterSetting.setEnabled(true);
+		recordProxySetting.setEnabled(true);
 	}
 
 	@Override
@@ -588,6 +832,15 @@ public class SettingsActivity extends Activity implements SettingsContract.View,
 		sampleRateSetting.setEnabled(false);
 		bitrateSetting.setEnabled(false);
 		channelsSetting.setEnabled(false);
+		preRollSetting.setEnabled(false);
+		segmentDurationSetting.setEnabled(false);
+		segmentSizeSetting.setEnabled(false);
+		voiceActivationSetting.setEnabled(false);
+		highPassSetting.setEnabled(false);
+		inputGainSetting.setEnabled(false);
+		noiseGateSetting.setEnabled(false);
+		limiterSetting.setEnabled(false);
+		recordProxySetting.setEnabled(false);
 	}
 
 	@Override
@@ -46,6 +46,31 @@ public class SettingsContract {
 
 		void showChannelCount(int count);
 
+		void showPreRollSeconds(int seconds);
+		void showPreRollMemory(String size);
+		void showPreRollSelector();
+		void hidePreRollSelector();
+
+		void showSegmentDurationMinutes(int minutes);
+		void showSegmentSizeMb(int megabytes);
+		void showSegmentSelectors();
+		void hideSegmentSelectors();
+
+		void showVoiceActivationDbfs(int dbfs);
+		void showVoiceActivationSelector();
+		void hideVoiceActivationSelector();
+
+		void showHighPassHz(int hz);
+		void showInputGainDb(int db);
+		void showNoiseGateEnabled(boolean enabled);
+		void showLimiterEnabled(boolean enabled);
+		void showDspSelectors();
+		void hideDspSelectors();
+
+		void showRecordProxyEnabled(boolean enabled);
+		void showRecordProxySelector();
+		void hideRecordProxySelector();
+
 		void showAllRecordsDeleted();
 
 		void showFailDeleteAllRecords();
@@ -90,6 +115,24 @@ public class SettingsContract {
 
 		void setSettingChannelCount(int count);
 
+		void setSettingPreRollSeconds(int seconds);
+
+		void setSettingSegmentDurationMinutes(int minutes);
+
+		void setSettingSegmentSizeMb(int megabytes);
+
+		void setSettingVoiceActivationDbfs(int dbfs);
+
+		void setSettingHighPassHz(int hz);
+
+		void setSettingInputGainDb(int db);
+
+		void setSettingNoiseGateEnabled(boolean enabled);
+
+		void setSettingLimiterEnabled(boolean enabled);
+
+		void setSettingRecordProxyEnabled(boolean enabled);
+
 		void setSettingThemeColor(String colorKey);
 
 		void setSettingNamingFormat(String namingKey);
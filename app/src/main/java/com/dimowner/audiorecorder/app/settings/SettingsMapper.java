@@ -70,6 +70,41 @@ public class SettingsMapper {
 	public final static String CHANNEL_COUNT_STEREO = "stereo";
 	public final static String CHANNEL_COUNT_MONO = "mono";
 
+	public final static String PRE_ROLL_OFF = "pre_roll_off";
+	public final static String PRE_ROLL_10 = "pre_roll_10";
+	public final static String PRE_ROLL_30 = "pre_roll_30";
+	public final static String PRE_ROLL_60 = "pre_roll_60";
+
+	public final static String SEGMENT_DURATION_OFF = "segment_duration_off";
+	public final static String SEGMENT_DURATION_15 = "segment_duration_15";
+	public final static String SEGMENT_DURATION_30 = "segment_duration_30";
+	public final static String SEGMENT_DURATION_60 = "segment_duration_60";
+
+	public final static String SEGMENT_SIZE_OFF = "segment_size_off";
+	public final static String SEGMENT_SIZE_512 = "segment_size_512";
+	public final static String SEGMENT_SIZE_1024 = "segment_size_1024";
+	public final static String SEGMENT_SIZE_2048 = "segment_size_2048";
+
+	public final static String VOICE_ACTIVATION_OFF = "voice_activation_off";
+	public final static String VOICE_ACTIVATION_QUIET = "voice_activation_quiet";
+	public final static String VOICE_ACTIVATION_NOISY = "voice_activation_noisy";
+
+	/** Level which starts voice activity in a quiet room. */
+	public final static int VOICE_ACTIVATION_QUIET_DBFS = -50;
+	/** Level which starts voice activity in a noisy room. */
+	public final static int VOICE_ACTIVATION_NOISY_DBFS = -35;
+
+	public final static String HIGH_PASS_OFF = "high_pass_off";
+	public final static String HIGH_PASS_80 = "high_pass_80";
+	public final static String HIGH_PASS_150 = "high_pass_150";
+
+	public final static String INPUT_GAIN_0 = "input_gain_0";
+	public final static String INPUT_GAIN_6 = "input_gain_6";
+	public final static String INPUT_GAIN_12 = "input_gain_12";
+
+	public final static String OFF = "off";
+	public final static String ON = "on";
+
 	private Resources resources;
 	private String[] formats;
 	private String[] formatsKeys;
@@ -86,7 +121,9 @@ public class SettingsMapper {
 		formatsKeys = new String[] {
 				AppConstants.FORMAT_M4A,
 				AppConstants.FORMAT_WAV,
-				AppConstants.FORMAT_3GP
+				AppConstants.FORMAT_3GP,
+				AppConstants.FORMAT_FLAC,
+				AppConstants.FORMAT_WAV_ADPCM
 		};
 		sampleRates = resources.getStringArray(R.array.sample_rates2);
 		sampleRatesKeys = new String[] {
@@ -297,6 +334,162 @@ public class SettingsMapper {
 		}
 	}
 
+	public static int keyToPreRollSeconds(String key) {
+		switch (key) {
+			case PRE_ROLL_10:
+				return 10;
+			case PRE_ROLL_30:
+				return 30;
+			case PRE_ROLL_60:
+				return 60;
+			case PRE_ROLL_OFF:
+			default:
+				return 0;
+		}
+	}
+
+	public static String preRollSecondsToKey(int seconds) {
+		switch (seconds) {
+			case 10:
+				return PRE_ROLL_10;
+			case 30:
+				return PRE_ROLL_30;
+			case 60:
+				return PRE_ROLL_60;
+			case 0:
+			default:
+				return PRE_ROLL_OFF;
+		}
+	}
+
+	public static int keyToSegmentDurationMinutes(String key) {
+		switch (key) {
+			case SEGMENT_DURATION_15:
+				return 15;
+			case SEGMENT_DURATION_30:
+				return 30;
+			case SEGMENT_DURATION_60:
+				return 60;
+			case SEGMENT_DURATION_OFF:
+			default:
+				return 0;
+		}
+	}
+
+	public static String segmentDurationMinutesToKey(int minutes) {
+		switch (minutes) {
+			case 15:
+				return SEGMENT_DURATION_15;
+			case 30:
+				return SEGMENT_DURATION_30;
+			case 60:
+				return SEGMENT_DURATION_60;
+			case 0:
+			default:
+				return SEGMENT_DURATION_OFF;
+		}
+	}
+
+	public static int keyToSegmentSizeMb(String key) {
+		switch (key) {
+			case SEGMENT_SIZE_512:
+				return 512;
+			case SEGMENT_SIZE_1024:
+				return 1024;
+			case SEGMENT_SIZE_2048:
+				return 2048;
+			case SEGMENT_SIZE_OFF:
+			default:
+				return 0;
+		}
+	}
+
+	public static String segmentSizeMbToKey(int megabytes) {
+		switch (megabytes) {
+			case 512:
+				return SEGMENT_SIZE_512;
+			case 1024:
+				return SEGMENT_SIZE_1024;
+			case 2048:
+				return SEGMENT_SIZE_2048;
+			case 0:
+			default:
+				return SEGMENT_SIZE_OFF;
+		}
+	}
+
+	public static int keyToVoiceActivationDbfs(String key) {
+		switch (key) {
+			case VOICE_ACTIVATION_QUIET:
+				return VOICE_ACTIVATION_QUIET_DBFS;
+			case VOICE_ACTIVATION_NOISY:
+				return VOICE_ACTIVATION_NOISY_DBFS;
+			case VOICE_ACTIVATION_OFF:
+			default:
+				return 0;
+		}
+	}
+
+	public static String voiceActivationDbfsToKey(int dbfs) {
+		switch (dbfs) {
+			case VOICE_ACTIVATION_QUIET_DBFS:
+				return VOICE_ACTIVATION_QUIET;
+			case VOICE_ACTIVATION_NOISY_DBFS:
+				return VOICE_ACTIVATION_NOISY;
+			case 0:
+			default:
+				return VOICE_ACTIVATION_OFF;
+		}
+	}
+
+	public static int keyToHighPassHz(String key) {
+		switch (key) {
+			case HIGH_PASS_80:
+				return 80;
+			case HIGH_PASS_150:
+				return 150;
+			case HIGH_PASS_OFF:
+			default:
+				return 0;
+		}
+	}
+
+	public static String highPassHzToKey(int hz) {
+		switch (hz) {
+			case 80:
+				return HIGH_PASS_80;
+			case 150:
+				return HIGH_PASS_150;
+			case 0:
+			default:
+				return HIGH_PASS_OFF;
+		}
+	}
+
+	public static int keyToInputGainDb(String key) {
+		switch (key) {
+			case INPUT_GAIN_6:
+				return 6;
+			case INPUT_GAIN_12:
+				return 12;
+			case INPUT_GAIN_0:
+			default:
+				return 0;
+		}
+	}
+
+	public static String inputGainDbToKey(int db) {
+		switch (db) {
+			case 6:
+				return INPUT_GAIN_6;
+			case 12:
+				return INPUT_GAIN_12;
+			case 0:
+			default:
+				return INPUT_GAIN_0;
+		}
+	}
+
 	public String formatBitrate(int bitrate) {
 		return resources.getString(R.string.value_kbps, bitrate);
 	}
@@ -22,6 +22,8 @@ import com.dimowner.audiorecorder.AppConstants;
 import com.dimowner.audiorecorder.BackgroundQueue;
 import com.dimowner.audiorecorder.app.AppRecorder;
 import com.dimowner.audiorecorder.app.AppRecorderCallback;
+import com.dimowner.audiorecorder.audio.encoder.ImaAdpcmEncoder;
+import com.dimowner.audiorecorder.audio.recorder.PreRollBuffer;
 import com.dimowner.audiorecorder.data.FileRepository;
 import com.dimowner.audiorecorder.data.Prefs;
 import com.dimowner.audiorecorder.data.database.LocalRepository;
@@ -119,6 +121,16 @@ public class SettingsPresenter implements SettingsContract.UserActionsListener {
 			view.showNamingFormat(prefs.getSettingNamingFormat());
 			view.showRecordingBitrate(prefs.getSettingBitrate());
 			view.showRecordingSampleRate(prefs.getSettingSampleRate());
+			view.showPreRollSeconds(prefs.getSettingPreRollSeconds());
+			view.showSegmentDurationMinutes(prefs.getSettingSegmentDurationMinutes());
+			view.showSegmentSizeMb(prefs.getSettingSegmentSizeMb());
+			view.showVoiceActivationDbfs(prefs.getSettingVoiceActivationDbfs());
+			view.showHighPassHz(prefs.getSettingHighPassHz());
+			view.showInputGainDb(prefs.getSettingInputGainDb());
+			view.showNoiseGateEnabled(prefs.isSettingNoiseGateEnabled());
+			view.showLimiterEnabled(prefs.isSettingLimiterEnabled());
+			view.showRecordProxyEnabled(prefs.isSettingRecordProxyEnabled());
+			updatePreRollMemory();
 			//This is needed for scoped storage support
 			view.showDirectorySetting(prefs.isShowDirectorySetting());
 		}
@@ -155,12 +167,60 @@ public class SettingsPresenter implements SettingsContract.UserActionsListener {
 	public void setSettingSampleRate(int rate) {
 		prefs.setSettingSampleRate(rate);
 		updateAvailableSpace();
+		updatePreRollMemory();
 	}
 
 	@Override
 	public void setSettingChannelCount(int count) {
 		prefs.setSettingChannelCount(count);
 		updateAvailableSpace();
+		updatePreRollMemory();
+	}
+
+	@Override
+	public void setSettingPreRollSeconds(int seconds) {
+		prefs.setSettingPreRollSeconds(seconds);
+		updatePreRollMemory();
+	}
+
+	@Override
+	public void setSettingSegmentDurationMinutes(int minutes) {
+		prefs.setSettingSegmentDurationMinutes(minutes);
+	}
+
+	@Override
+	public void setSettingSegmentSizeMb(int megabytes) {
+		prefs.setSettingSegmentSizeMb(megabytes);
+	}
+
+	@Override
+	public void setSettingVoiceActivationDbfs(int dbfs) {
+		prefs.setSettingVoiceActivationDbfs(dbfs);
+	}
+
+	@Override
+	public void setSettingHighPassHz(int hz) {
+		prefs.setSettingHighPassHz(hz);
+	}
+
+	@Override
+	public void setSettingInputGainDb(int db) {
+		prefs.setSettingInputGainDb(db);
+	}
+
+	@Override
+	public void setSettingNoiseGateEnabled(boolean enabled) {
+		prefs.setSettingNoiseGateEnabled(enabled);
+	}
+
+	@Override
+	public void setSettingLimiterEnabled(boolean enabled) {
+		prefs.setSettingLimiterEnabled(enabled);
+	}
+
+	@Override
+	public void setSettingRecordProxyEnabled(boolean enabled) {
+		prefs.setSettingRecordProxyEnabled(enabled);
 	}
 
 	@Override
@@ -182,6 +242,7 @@ public class SettingsPresenter implements SettingsContract.UserActionsListener {
 		}
 		updateRecordingFormat(formatKey);
 		updateAvailableSpace();
+		updatePreRollMemory();
 	}
 
 	@Override
@@ -226,7 +287,8 @@ public class SettingsPresenter implements SettingsContract.UserActionsListener {
 				@Override public void onRecordingStopped(File file, Record record) {
 						view.enableAudioSettings();
 				}
-				@Override public void onRecordingProgress(long mills, int amp) { }
+				@Override public void onRecordingProgress(long mills, int[] amps) { }
+				@Override public void onRecordingLoudness(float momentaryLufs, float shortTermLufs, float maxTruePeak, long clipCount) { }
 				@Override public void onError(AppException throwable) { }
 			};
 			appRecorder.addRecordingCallback(appRecorderCallback);
@@ -301,6 +363,8 @@ public class SettingsPresenter implements SettingsContract.UserActionsListener {
 								+ settingsMapper.convertChannelsToString(channelsCount));
 						break;
 					case AppConstants.FORMAT_WAV:
+					case AppConstants.FORMAT_FLAC:
+					case AppConstants.FORMAT_WAV_ADPCM:
 						view.showInformation(settingsMapper.convertFormatsToString(format) + AppConstants.SEPARATOR
 								+ settingsMapper.convertSampleRateToString(sampleRate) + AppConstants.SEPARATOR
 								+ settingsMapper.convertChannelsToString(channelsCount));
@@ -310,6 +374,20 @@ public class SettingsPresenter implements SettingsContract.UserActionsListener {
 		}
 	}
 
+	/** Show memory used by pre-roll buffer of the selected duration and audio format. */
+	private void updatePreRollMemory() {
+		if (view != null) {
+			int seconds = prefs.getSettingPreRollSeconds();
+			if (seconds > 0) {
+				int bytes = PreRollBuffer.capacityForSeconds(seconds, prefs.getSettingSampleRate(),
+						prefs.getSettingChannelCount());
+				view.showPreRollMemory(decimalFormat.format(bytes / 1000000f));
+			} else {
+				view.showPreRollMemory(null);
+			}
+		}
+	}
+
 	private long spaceToTimeSecs(long spaceBytes, String recordingFormat, int sampleRate, int bitrate, int channels) {
 		switch (recordingFormat) {
 			case AppConstants.FORMAT_M4A:
@@ -317,6 +395,10 @@ public class SettingsPresenter implements SettingsContract.UserActionsListener {
 				return 1000 * (spaceBytes/(bitrate/8));
 			case AppConstants.FORMAT_WAV:
 				return 1000 * (spaceBytes/((long) sampleRate * channels * 2));
+			case AppConstants.FORMAT_FLAC:
+				return 1000 * (spaceBytes/(long) (sampleRate * channels * 2 * AppConstants.FLAC_COMPRESSION_RATIO));
+			case AppConstants.FORMAT_WAV_ADPCM:
+				return 1000 * (spaceBytes/ImaAdpcmEncoder.byteRate(sampleRate, channels));
 			default:
 				return 0;
 		}
@@ -329,6 +411,10 @@ public class SettingsPresenter implements SettingsContract.UserActionsListener {
 				return 60L * (bitrate/8);
 			case AppConstants.FORMAT_WAV:
 				return 60 * ((long) sampleRate * channels * 2);
+			case AppConstants.FORMAT_FLAC:
+				return (long) (60 * sampleRate * channels * 2 * AppConstants.FLAC_COMPRESSION_RATIO);
+			case AppConstants.FORMAT_WAV_ADPCM:
+				return 60 * ImaAdpcmEncoder.byteRate(sampleRate, channels);
 			default:
 				return 0;
 		}
@@ -338,11 +424,44 @@ public class SettingsPresenter implements SettingsContract.UserActionsListener {
 		switch (formatKey) {
 			case AppConstants.FORMAT_WAV:
 			case AppConstants.FORMAT_3GP:
+			case AppConstants.FORMAT_FLAC:
+			case AppConstants.FORMAT_WAV_ADPCM:
 				view.hideBitrateSelector();
 				break;
 			case AppConstants.FORMAT_M4A:
 			default:
 				view.showBitrateSelector();
 		}
+		//Pre-roll, skipping silence and processing need PCM capture which is not available with MediaRecorder formats.
+		switch (formatKey) {
+			case AppConstants.FORMAT_WAV:
+			case AppConstants.FORMAT_FLAC:
+			case AppConstants.FORMAT_WAV_ADPCM:
+				view.showPreRollSelector();
+				view.showVoiceActivationSelector();
+				view.showDspSelectors();
+				break;
+			case AppConstants.FORMAT_M4A:
+			case AppConstants.FORMAT_3GP:
+			default:
+				view.hidePreRollSelector();
+				view.hideVoiceActivationSelector();
+				view.hideDspSelectors();
+		}
+		//Only Wav recording is split into segment files.
+		if (AppConstants.FORMAT_WAV.equals(formatKey)) {
+			view.showSegmentSelectors();
+		} else {
+			view.hideSegmentSelectors();
+		}
+		//Wav ADPCM record is compact itself.
+		switch (formatKey) {
+			case AppConstants.FORMAT_WAV:
+			case AppConstants.FORMAT_FLAC:
+				view.showRecordProxySelector();
+				break;
+			default:
+				view.hideRecordProxySelector();
+		}
 	}
 }
@@ -94,7 +94,9 @@ public class SetupActivity extends Activity implements SetupContract.View, View.
 		final String[] formatsKeys = new String[] {
 				AppConstants.FORMAT_M4A,
 				AppConstants.FORMAT_WAV,
-				AppConstants.FORMAT_3GP
+				AppConstants.FORMAT_3GP,
+				AppConstants.FORMAT_FLAC,
+				AppConstants.FORMAT_WAV_ADPCM
 		};
 		formatSetting.setData(formats, formatsKeys);
 		formatSetting.setOnChipCheckListener((key, name, checked) -> presenter.setSettingRecordingFormat(key));
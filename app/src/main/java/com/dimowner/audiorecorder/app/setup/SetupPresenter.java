@@ -18,6 +18,7 @@ package com.dimowner.audiorecorder.app.setup;
 
 import com.dimowner.audiorecorder.AppConstants;
 import com.dimowner.audiorecorder.R;
+import com.dimowner.audiorecorder.audio.encoder.ImaAdpcmEncoder;
 import com.dimowner.audiorecorder.data.Prefs;
 
 import java.text.DecimalFormat;
@@ -168,6 +169,16 @@ public class SetupPresenter implements SetupContract.UserActionsListener {
 					view.showInformation(R.string.info_3gp);
 				}
 				break;
+			case AppConstants.FORMAT_FLAC:
+				if (view != null) {
+					view.showInformation(R.string.info_flac);
+				}
+				break;
+			case AppConstants.FORMAT_WAV_ADPCM:
+				if (view != null) {
+					view.showInformation(R.string.info_wav_adpcm);
+				}
+				break;
 		}
 		if (view != null) {
 			view.updateRecordingInfo(formatKey);
@@ -215,6 +226,18 @@ public class SetupPresenter implements SetupContract.UserActionsListener {
 					view.showInformation(R.string.info_wav);
 				}
 				break;
+			case AppConstants.FORMAT_FLAC:
+				if (view != null) {
+					view.hideBitrateSelector();
+					view.showInformation(R.string.info_flac);
+				}
+				break;
+			case AppConstants.FORMAT_WAV_ADPCM:
+				if (view != null) {
+					view.hideBitrateSelector();
+					view.showInformation(R.string.info_wav_adpcm);
+				}
+				break;
 			case AppConstants.FORMAT_M4A:
 				if (view != null) {
 					view.showInformation(R.string.info_m4a);
@@ -252,6 +275,10 @@ public class SetupPresenter implements SetupContract.UserActionsListener {
 				return 60 * (bitrate/8);
 			case AppConstants.FORMAT_WAV:
 				return 60 * (sampleRate * channels * 2);
+			case AppConstants.FORMAT_FLAC:
+				return (long) (60 * sampleRate * channels * 2 * AppConstants.FLAC_COMPRESSION_RATIO);
+			case AppConstants.FORMAT_WAV_ADPCM:
+				return 60 * ImaAdpcmEncoder.byteRate(sampleRate, channels);
 			default:
 				return 0;
 		}
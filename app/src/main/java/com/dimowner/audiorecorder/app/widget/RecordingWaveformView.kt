@@ -25,7 +25,7 @@ import android.util.AttributeSet
 import android.view.View
 import androidx.core.content.ContextCompat
 import com.dimowner.audiorecorder.AppConstants
-import com.dimowner.audiorecorder.IntArrayList
+import com.dimowner.audiorecorder.DecimatingWaveform
 import com.dimowner.audiorecorder.R
 import com.dimowner.audiorecorder.data.database.Timestamp
 import com.dimowner.audiorecorder.util.AndroidUtils
@@ -108,30 +108,27 @@ class RecordingWaveformView @JvmOverloads constructor(
 		timestampDrawable?.setTint(ContextCompat.getColor(context, R.color.md_deep_orange_A400))
 	}
 
-	fun addRecordAmp(amp: Int, mills: Long) {
-		recordingData.add(convertAmp(amp.toDouble()))
-		totalRecordingSize++
+	/** Add amplitudes received since the previous frame, the view is redrawn once. */
+	fun addRecordAmps(amps: IntArray, mills: Long) {
+		for (amp in amps) {
+			recordingData.add(convertAmp(amp.toDouble()))
+		}
+		totalRecordingSize += amps.size
 		updateValues(totalRecordingSize, mills)
-		if (recordingData.size > pxToSample(viewWidthPx / 2)) {
+		while (recordingData.size > pxToSample(viewWidthPx / 2)) {
 			recordingData.removeAt(0)
 		}
 		invalidate()
 	}
 
-	fun setRecordingData(data: IntArrayList, durationMills: Long) {
+	fun setRecordingData(data: DecimatingWaveform, durationMills: Long) {
 		post {
 			recordingData.clear()
-			totalRecordingSize = data.size()
+			totalRecordingSize = data.size().toInt()
 			updateValues(totalRecordingSize, durationMills)
-			val count = pxToSample(viewWidthPx / 2).toInt()
-			if (data.size() > count) {
-				for (i in data.size() - count until data.size()) {
-					recordingData.add(convertAmp(data[i].toDouble()))
-				}
-			} else {
-				for (i in 0 until data.size()) {
-					recordingData.add(convertAmp(data[i].toDouble()))
-				}
+			//Only the visible part of the recording is kept at full resolution.
+			for (amp in data.getRecent(pxToSample(viewWidthPx / 2).toInt())) {
+				recordingData.add(convertAmp(amp.toDouble()))
 			}
 			requestLayout()
 		}
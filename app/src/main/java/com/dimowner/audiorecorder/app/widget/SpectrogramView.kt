@@ -0,0 +1,186 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dimowner.audiorecorder.app.widget
+
+import android.content.Context
+import android.graphics.Bitmap
+import android.graphics.Canvas
+import android.graphics.Color
+import android.graphics.Paint
+import android.graphics.Rect
+import android.util.AttributeSet
+import android.view.View
+import androidx.core.content.ContextCompat
+import com.dimowner.audiorecorder.R
+import com.dimowner.audiorecorder.audio.dsp.SpectrogramQueue
+
+/**
+ * Live spectrogram of the recording. New columns are polled from [SpectrogramQueue] once per frame
+ * while the view is shown, one column per pixel scrolls from right to left.
+ * Low frequencies are at the bottom. Columns are stored in a bitmap with the width of the view
+ * which is used as a ring, so a new column costs one bitmap column write.
+ */
+class SpectrogramView @JvmOverloads constructor(
+		context: Context,
+		attrs: AttributeSet? = null,
+		defStyleAttr: Int = 0
+) : View(context, attrs, defStyleAttr) {
+
+	private var queue: SpectrogramQueue? = null
+	private var column = ByteArray(0)
+	private var columnPixels = IntArray(0)
+	private var bitmap: Bitmap? = null
+	/** Bitmap column where the next spectrogram column is written. */
+	private var writeX = 0
+	private var isRunning = false
+
+	private val palette = IntArray(SpectrogramQueue.MAX_LEVEL + 1)
+	private val bitmapPaint = Paint(Paint.FILTER_BITMAP_FLAG)
+	private val srcRect = Rect()
+	private val dstRect = Rect()
+
+	private val frameCallback = object : Runnable {
+		override fun run() {
+			if (isRunning) {
+				pollColumns()
+				postOnAnimation(this)
+			}
+		}
+	}
+
+	init {
+		isFocusable = false
+		//Silence is transparent, louder bins go through orange to yellow.
+		val middle = ContextCompat.getColor(context, R.color.md_deep_orange_A400)
+		val top = ContextCompat.getColor(context, R.color.md_yellow_A700)
+		val half = palette.size / 2
+		for (i in palette.indices) {
+			palette[i] = if (i < half) {
+				blend(Color.TRANSPARENT, middle, i / half.toFloat())
+			} else {
+				blend(middle, top, (i - half) / (palette.size - 1 - half).toFloat())
+			}
+		}
+	}
+
+	/** Set queue of columns computed while recording, null to show nothing. */
+	fun setQueue(queue: SpectrogramQueue?) {
+		this.queue?.setConsumerAttached(false)
+		this.queue = queue
+		if (queue != null) {
+			column = ByteArray(queue.binCount)
+			columnPixels = IntArray(queue.binCount)
+		}
+		bitmap = null
+		updateRunning()
+	}
+
+	/** Clear displayed columns. */
+	fun reset() {
+		bitmap?.eraseColor(Color.TRANSPARENT)
+		writeX = 0
+		invalidate()
+	}
+
+	override fun onAttachedToWindow() {
+		super.onAttachedToWindow()
+		updateRunning()
+	}
+
+	override fun onDetachedFromWindow() {
+		super.onDetachedFromWindow()
+		updateRunning()
+	}
+
+	override fun onVisibilityChanged(changedView: View, visibility: Int) {
+		super.onVisibilityChanged(changedView, visibility)
+		updateRunning()
+	}
+
+	override fun onSizeChanged(w: Int, h: Int, oldw: Int, oldh: Int) {
+		super.onSizeChanged(w, h, oldw, oldh)
+		if (w != oldw) {
+			bitmap = null
+		}
+	}
+
+	override fun onDraw(canvas: Canvas) {
+		super.onDraw(canvas)
+		val bitmap = bitmap ?: return
+		val w = bitmap.width
+		val h = bitmap.height
+		//Oldest columns are from writeX to the end of the bitmap, the newest ones are before writeX.
+		srcRect.set(writeX, 0, w, h)
+		dstRect.set(0, 0, w - writeX, height)
+		canvas.drawBitmap(bitmap, srcRect, dstRect, bitmapPaint)
+		if (writeX > 0) {
+			srcRect.set(0, 0, writeX, h)
+			dstRect.set(w - writeX, 0, w, height)
+			canvas.drawBitmap(bitmap, srcRect, dstRect, bitmapPaint)
+		}
+	}
+
+	/** Columns are analyzed only while they are displayed. */
+	private fun updateRunning() {
+		val running = queue != null && isAttachedToWindow && isShown
+		if (running == isRunning) {
+			return
+		}
+		isRunning = running
+		queue?.setConsumerAttached(running)
+		if (running) {
+			//Columns computed while the view was hidden are not displayed.
+			queue?.clear()
+			postOnAnimation(frameCallback)
+		} else {
+			removeCallbacks(frameCallback)
+		}
+	}
+
+	private fun pollColumns() {
+		val queue = queue ?: return
+		if (width <= 0) {
+			queue.clear()
+			return
+		}
+		val bitmap = bitmap ?: Bitmap.createBitmap(width, queue.binCount, Bitmap.Config.ARGB_8888).also {
+			this.bitmap = it
+			writeX = 0
+		}
+		var count = 0
+		while (queue.poll(column)) {
+			val rows = column.size
+			for (row in 0 until rows) {
+				columnPixels[row] = palette[column[rows - 1 - row].toInt() and 0xff]
+			}
+			bitmap.setPixels(columnPixels, 0, 1, writeX, 0, 1, rows)
+			writeX = (writeX + 1) % bitmap.width
+			count++
+		}
+		if (count > 0) {
+			invalidate()
+		}
+	}
+
+	private fun blend(from: Int, to: Int, fraction: Float): Int {
+		return Color.argb(
+				(Color.alpha(from) + (Color.alpha(to) - Color.alpha(from)) * fraction).toInt(),
+				(Color.red(from) + (Color.red(to) - Color.red(from)) * fraction).toInt(),
+				(Color.green(from) + (Color.green(to) - Color.green(from)) * fraction).toInt(),
+				(Color.blue(from) + (Color.blue(to) - Color.blue(from)) * fraction).toInt()
+		)
+	}
+}
@@ -29,7 +29,7 @@ import android.view.View;
 import android.view.animation.DecelerateInterpolator;
 
 import com.dimowner.audiorecorder.AppConstants;
-import com.dimowner.audiorecorder.IntArrayList;
+import com.dimowner.audiorecorder.DecimatingWaveform;
 import com.dimowner.audiorecorder.R;
 import com.dimowner.audiorecorder.util.AndroidUtils;
 import com.dimowner.audiorecorder.util.TimeUtils;
@@ -285,19 +285,12 @@ public class WaveformView extends View {
 		invalidate();
 	}
 
-	public void setRecordingData(final IntArrayList data) {
+	public void setRecordingData(final DecimatingWaveform data) {
 		post(() -> {
 			if (data != null) {
 				recordingData.clear();
-				int count = (int)AndroidUtils.pxToDp(viewWidth/2);
-				if (data.size() > count) {
-					for (int i = data.size() - count; i < data.size(); i++) {
-						recordingData.add(convertAmp(data.get(i)));
-					}
-				} else {
-					for (int i = 0; i < data.size(); i++) {
-						recordingData.add(convertAmp(data.get(i)));
-					}
+				for (int amp : data.getRecent((int) AndroidUtils.pxToDp(viewWidth/2))) {
+					recordingData.add(convertAmp(amp));
 				}
 				totalRecordingSize = data.size();
 				updateShifts((int) -AndroidUtils.dpToPx(totalRecordingSize));
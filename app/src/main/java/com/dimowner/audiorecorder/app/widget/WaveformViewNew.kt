@@ -29,9 +29,13 @@ import android.view.animation.DecelerateInterpolator
 import androidx.core.content.ContextCompat
 import com.dimowner.audiorecorder.AppConstants
 import com.dimowner.audiorecorder.R
+import com.dimowner.audiorecorder.audio.WaveformPyramid
 import com.dimowner.audiorecorder.data.database.Timestamp
 import com.dimowner.audiorecorder.util.AndroidUtils
 import com.dimowner.audiorecorder.util.TimeUtils
+import kotlin.math.max
+import kotlin.math.min
+import kotlin.math.sqrt
 
 private const val DEFAULT_GRID_STEP = 2000L //Milliseconds
 private const val SHORT_RECORD = 18000 //Milliseconds
@@ -72,6 +76,14 @@ class WaveformViewNew @JvmOverloads constructor(
 
 	private var originalData: IntArray = IntArray(0)
 	private var waveformData: IntArray = IntArray(0)
+	/** Waveform of the record drawn at the resolution of the view instead of frame gains or null. */
+	private var pyramid: WaveformPyramid? = null
+	private var pyramidRange: ShortArray = ShortArray(0)
+	/** Calibration of gains to heights made by [adjustWaveformHeights]. */
+	private var gainScaleFactor = 1.0f
+	private var gainMin = 0.0f
+	private var gainRange = 1.0f
+	private var gainHalfHeight = 0
 	lateinit var drawLinesArray: FloatArray
 
 	private var showTimeline: Boolean = true
@@ -218,8 +230,17 @@ class WaveformViewNew @JvmOverloads constructor(
 	}
 
 	fun setWaveform(frameGains: IntArray, durationMills: Long, playbackMills: Long) {
+		setWaveform(frameGains, null, durationMills, playbackMills)
+	}
+
+	/**
+	 * @param pyramid waveform of the record, visible part of it is drawn at one value per pixel
+	 * for any zoom. Frame gains are drawn when it is null.
+	 */
+	fun setWaveform(frameGains: IntArray, pyramid: WaveformPyramid?, durationMills: Long, playbackMills: Long) {
 		post {
 			originalData = frameGains
+			this.pyramid = pyramid
 			viewWidthPx = width
 			viewHeightPx = height
 			playProgressMills = playbackMills
@@ -403,6 +424,11 @@ class WaveformViewNew @JvmOverloads constructor(
 
 	private fun drawWaveForm(canvas: Canvas) {
 		if (waveformData.isNotEmpty()) {
+			val pyramid = pyramid
+			if (pyramid != null) {
+				drawPyramid(canvas, pyramid)
+				return
+			}
 			clearDrawLines()
 			val half = (height / 2).toFloat()
 			var step = 0
@@ -424,6 +450,55 @@ class WaveformViewNew @JvmOverloads constructor(
 		}
 	}
 
+	/**
+	 * Draw min and max of the visible part of the record. Pyramid answers from the level matching the zoom,
+	 * so drawing takes the same time for any record duration.
+	 */
+	private fun drawPyramid(canvas: Canvas, pyramid: WaveformPyramid) {
+		val first = max(0, -waveformShiftPx)
+		val last = min(durationPx.toInt(), viewWidthPx - waveformShiftPx + 1)
+		val count = min(last - first, drawLinesArray.size / 4)
+		if (count <= 0) {
+			return
+		}
+		val channels = pyramid.channelCount
+		if (pyramidRange.size < count * channels * 2) {
+			pyramidRange = ShortArray(count * channels * 2)
+		}
+		pyramid.getRange(pxToMill(first), pxToMill(first + count), count, pyramidRange)
+		val half = (height / 2).toFloat()
+		for (i in 0 until count) {
+			var top = 0
+			var bottom = 0
+			for (c in 0 until channels) {
+				val index = (i * channels + c) * 2
+				bottom = max(bottom, -pyramidRange[index])
+				top = max(top, pyramidRange[index + 1].toInt())
+			}
+			val xPos = (waveformShiftPx + first + i).toFloat()
+			val step = i * 4
+			drawLinesArray[step] = xPos
+			drawLinesArray[step + 1] = half + gainToHeight(sqrt(bottom.toFloat())) + 1
+			drawLinesArray[step + 2] = xPos
+			drawLinesArray[step + 3] = half - gainToHeight(sqrt(top.toFloat())) - 1
+		}
+		canvas.drawLines(drawLinesArray, 0, count * 4, waveformPaint)
+	}
+
+	/** Gains of the pyramid in the scale of frame gains: square root of the peak. */
+	private fun pyramidGains(pyramid: WaveformPyramid, count: Int): IntArray {
+		val channels = pyramid.channelCount
+		val range = pyramid.getRange(0, durationMills, count)
+		return IntArray(count) { i ->
+			var peak = 0
+			for (c in 0 until channels) {
+				val index = (i * channels + c) * 2
+				peak = max(peak, max(-range[index], range[index + 1].toInt()))
+			}
+			sqrt(peak.toFloat()).toInt()
+		}
+	}
+
 	private fun clearDrawLines() {
 		for (i in drawLinesArray.indices) {
 			drawLinesArray[i] = 0f
@@ -431,9 +506,16 @@ class WaveformViewNew @JvmOverloads constructor(
 	}
 
 	/**
-	 * Called once when a new sound file is added
+	 * Called once when a new sound file is added.
+	 * Heights are calibrated by the gains of the pyramid when it is set, so the pyramid is drawn in the same scale.
 	 */
-	private fun adjustWaveformHeights(frameGains: IntArray) {
+	private fun adjustWaveformHeights(originalGains: IntArray) {
+		val pyramid = pyramid
+		val frameGains = if (pyramid != null && originalGains.isNotEmpty()) {
+			pyramidGains(pyramid, originalGains.size)
+		} else {
+			originalGains
+		}
 		val numFrames = frameGains.size
 
 		//Find the highest gain
@@ -476,23 +558,26 @@ class WaveformViewNew @JvmOverloads constructor(
 		}
 
 		// Compute the heights
-		val heights = FloatArray(numFrames)
 		var range = maxGain - minGain
 		if (range <= 0) {
 			range = 1.0f
 		}
-		for (i in 0 until numFrames) {
-			var value = (frameGains[i] * scaleFactor - minGain) / range
-			if (value < 0.0) value = 0.0f
-			if (value > 1.0) value = 1.0f
-			heights[i] = value * value
-		}
-		val halfHeight = viewHeightPx / 2 - textIndent.toInt() - 1
-		waveformData = IntArray(numFrames)
-		for (i in 0 until numFrames) {
-			waveformData[i] = (heights[i] * halfHeight).toInt()
+		gainScaleFactor = scaleFactor
+		gainMin = minGain
+		gainRange = range
+		gainHalfHeight = viewHeightPx / 2 - textIndent.toInt() - 1
+		waveformData = IntArray(originalGains.size)
+		for (i in originalGains.indices) {
+			waveformData[i] = gainToHeight(originalGains[i].toFloat())
 		}
 	}
+
+	private fun gainToHeight(gain: Float): Int {
+		var value = (gain * gainScaleFactor - gainMin) / gainRange
+		if (value < 0.0) value = 0.0f
+		if (value > 1.0) value = 1.0f
+		return (value * value * gainHalfHeight).toInt()
+	}
 	
 	private fun drawTimestamps(canvas: Canvas) {
 		for (timestamp in timestamps) {
@@ -24,13 +24,20 @@ import com.dimowner.audiorecorder.ARApplication;
 import com.dimowner.audiorecorder.AppConstants;
 import com.dimowner.audiorecorder.IntArrayList;
 import com.dimowner.audiorecorder.app.info.RecordInfo;
+import com.dimowner.audiorecorder.audio.recorder.ImaAdpcmWavHeader;
+import com.dimowner.audiorecorder.audio.recorder.RecordingSegments;
+import com.dimowner.audiorecorder.audio.recorder.WavHeader;
 import com.dimowner.audiorecorder.util.FileUtil;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import androidx.annotation.NonNull;
 import timber.log.Timber;
@@ -54,8 +61,12 @@ public class AudioDecoder {
 
 	private long duration;
 	private static final String TRASH_EXT = "del";
+	/** Calculates gains of WAV files, idle threads of the pool are stopped. */
+	private static final ForkJoinPool GAINS_POOL = new ForkJoinPool();
 
 	private IntArrayList gains;
+	/** Writer of the waveform pyramid sidecar of the decoded record or null. */
+	private WaveformPyramid.Writer pyramid;
 
 	private AudioDecoder() {
 	}
@@ -75,12 +86,57 @@ public class AudioDecoder {
 				throw new IOException();
 			}
 			AudioDecoder decoder = new AudioDecoder();
-			decoder.decodeFile(file, decodeListener, QUEUE_INPUT_BUFFER_EFFECTIVE);
+			//PCM WAV is read directly, other formats and WAV encodings are decoded by MediaCodec.
+			WavDecoder wav = AppConstants.FORMAT_WAV.equals(components[components.length - 1])
+					? WavDecoder.open(file) : null;
+			if (RecordingSegments.hasSegments(file)) {
+				try {
+					decoder.decodeWavSegments(RecordingSegments.list(file), decodeListener);
+				} finally {
+					decoder.abortPyramid();
+				}
+			} else if (wav != null) {
+				try {
+					decoder.decodeWav(wav, file, decodeListener);
+				} finally {
+					decoder.abortPyramid();
+				}
+			} else {
+				decoder.decodeFile(file, decodeListener, QUEUE_INPUT_BUFFER_EFFECTIVE);
+			}
 		} catch (Exception e) {
 			decodeListener.onError(e);
 		}
 	}
 
+	/** Start writing the waveform pyramid of the record, decoding goes on without it when it can't be written. */
+	private void startPyramid(File recordFile) {
+		try {
+			pyramid = new WaveformPyramid.Writer(recordFile, sampleRate, channelCount);
+		} catch (IOException | IllegalArgumentException e) {
+			Timber.e(e, "Failed to create waveform pyramid");
+			pyramid = null;
+		}
+	}
+
+	private void finishPyramid() {
+		if (pyramid != null) {
+			try {
+				pyramid.finish();
+			} catch (IOException e) {
+				Timber.e(e, "Failed to write waveform pyramid");
+			}
+			pyramid = null;
+		}
+	}
+
+	private void abortPyramid() {
+		if (pyramid != null) {
+			pyramid.abort();
+			pyramid = null;
+		}
+	}
+
 	private int calculateSamplesPerFrame() {
 		return (int)(sampleRate / dpPerSec);
 	}
@@ -118,6 +174,7 @@ public class AudioDecoder {
 		String mimeType = format.getString(MediaFormat.KEY_MIME);
 		//Start decoding
 		MediaCodec decoder = MediaCodec.createDecoderByType(mimeType);
+		startPyramid(mInputFile);
 
 		decodeListener.onStartProcessing(duration, channelCount, sampleRate);
 		decoder.setCallback(new MediaCodec.Callback() {
@@ -131,6 +188,7 @@ public class AudioDecoder {
 			@Override
 			public void onError(@NonNull MediaCodec codec, @NonNull MediaCodec.CodecException exception) {
 				Timber.e(exception);
+				abortPyramid();
 				if (queueType == QUEUE_INPUT_BUFFER_EFFECTIVE) {
 					try {
 						AudioDecoder decoder = new AudioDecoder();
@@ -211,25 +269,7 @@ public class AudioDecoder {
 						outputBuffer.rewind();
 						outputBuffer.order(ByteOrder.LITTLE_ENDIAN);
 						while (outputBuffer.remaining() > 0) {
-							oneFrameAmps[frameIndex] = outputBuffer.getShort();
-							frameIndex++;
-							if (frameIndex >= oneFrameAmps.length - 1) {
-								int j;
-								int gain, value;
-								gain = -1;
-								for (j = 0; j < oneFrameAmps.length; j += channelCount) {
-									value = 0;
-									for (int k = 0; k < channelCount; k++) {
-										value += oneFrameAmps[j + k];
-									}
-									value /= channelCount;
-									if (gain < value) {
-										gain = value;
-									}
-								}
-								gains.add((int) Math.sqrt(gain));
-								frameIndex = 0;
-							}
+							addSample(outputBuffer.getShort());
 						}
 					}
 
@@ -238,8 +278,10 @@ public class AudioDecoder {
 
 					if (mOutputEOS) {
 						if (decodeListener.isCanceled()) {
+							abortPyramid();
 							decodeListener.onProcessingCancel();
 						} else {
+							finishPyramid();
 							decodeListener.onProcessingProgress(100);
 							decodeListener.onFinishProcessing(gains.getData(), duration);
 						}
@@ -256,6 +298,99 @@ public class AudioDecoder {
 		decoder.start();
 	}
 
+	/**
+	 * Decode segments of WAV recording as a single continuous recording.
+	 * PCM data is read directly from the files, gains are calculated the same way as for decoded audio.
+	 */
+	private void decodeWavSegments(@NonNull List<File> segments, @NonNull AudioDecodingListener decodeListener)
+			throws IOException {
+		List<WavHeader> headers = RecordingSegments.readHeaders(segments);
+		if (headers == null || headers.get(0).getBitsPerSample() != 16) {
+			throw new IOException("Not supported segments of " + segments.get(0));
+		}
+		gains = new IntArrayList();
+		channelCount = headers.get(0).getChannelCount();
+		sampleRate = headers.get(0).getSampleRate();
+		long totalSize = 0;
+		for (WavHeader header : headers) {
+			totalSize += header.getDataLength();
+		}
+		duration = new WavHeader(sampleRate, channelCount, 16, totalSize).getDurationMicros();
+		dpPerSec = ARApplication.getDpPerSecond((float) duration/1000000f);
+		oneFrameAmps = new int[calculateSamplesPerFrame() * channelCount];
+		startPyramid(segments.get(0));
+
+		decodeListener.onStartProcessing(duration, channelCount, sampleRate);
+		byte[] buffer = new byte[64 * 1024];
+		long decoded = 0;
+		int percent = 0;
+		for (int i = 0; i < segments.size(); i++) {
+			try (InputStream input = new FileInputStream(segments.get(i))) {
+				long skip = WavHeader.HEADER_SIZE;
+				while (skip > 0) {
+					long skipped = input.skip(skip);
+					if (skipped <= 0) {
+						throw new IOException("Segment is too short: " + segments.get(i));
+					}
+					skip -= skipped;
+				}
+				long remaining = headers.get(i).getDataLength();
+				while (remaining > 0) {
+					if (decodeListener.isCanceled()) {
+						decodeListener.onProcessingCancel();
+						return;
+					}
+					int read = input.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+					if (read < 0) {
+						break;
+					}
+					//Data length is a multiple of frame size, so samples are never split between reads.
+					for (int j = 0; j + 1 < read; j += 2) {
+						addSample((short) ((buffer[j] & 0xff) | (buffer[j + 1] << 8)));
+					}
+					remaining -= read;
+					decoded += read;
+					int curProgress = (int)(100*decoded/(float)totalSize);
+					if (curProgress != percent) {
+						percent = curProgress;
+						decodeListener.onProcessingProgress(percent);
+					}
+				}
+			}
+		}
+		finishPyramid();
+		decodeListener.onProcessingProgress(100);
+		decodeListener.onFinishProcessing(gains.getData(), duration);
+	}
+
+	/** Decode PCM WAV file directly from the memory mapped data, gains are calculated on {@link #GAINS_POOL}. */
+	private void decodeWav(@NonNull WavDecoder wav, @NonNull File file, @NonNull AudioDecodingListener decodeListener)
+			throws IOException {
+		channelCount = wav.getChannelCount();
+		sampleRate = wav.getSampleRate();
+		duration = wav.getDurationMicros();
+		dpPerSec = ARApplication.getDpPerSecond((float) duration/1000000f);
+		startPyramid(file);
+		int[] data = wav.decode(calculateSamplesPerFrame() * channelCount, pyramid, GAINS_POOL, decodeListener);
+		if (data != null) {
+			finishPyramid();
+			decodeListener.onProcessingProgress(100);
+			decodeListener.onFinishProcessing(data, duration);
+		}
+	}
+
+	private void addSample(int sample) {
+		if (pyramid != null) {
+			pyramid.add(sample);
+		}
+		oneFrameAmps[frameIndex] = sample;
+		frameIndex++;
+		if (frameIndex >= oneFrameAmps.length - 1) {
+			gains.add(WavDecoder.gain(oneFrameAmps, channelCount));
+			frameIndex = 0;
+		}
+	}
+
 	public static RecordInfo readRecordInfo(@NonNull final File inputFile)
 			throws OutOfMemoryError, IllegalStateException {
 
@@ -274,6 +409,43 @@ public class AudioDecoder {
 				throw new IOException();
 			}
 
+			if (RecordingSegments.hasSegments(inputFile)) {
+				WavHeader header = RecordingSegments.readJoinedHeader(inputFile);
+				if (header != null) {
+					return new RecordInfo(
+							FileUtil.removeFileExtension(inputFile.getName()),
+							AppConstants.FORMAT_WAV,
+							header.getDurationMicros(),
+							RecordingSegments.totalLength(inputFile),
+							inputFile.getAbsolutePath(),
+							inputFile.lastModified(),
+							header.getSampleRate(),
+							header.getChannelCount(),
+							header.getBitrate(),
+							isInTrash
+					);
+				}
+			}
+
+			//Platform extractors may not support IMA ADPCM, its header has all the information.
+			if (name.contains(AppConstants.EXTENSION_SEPARATOR + AppConstants.FORMAT_WAV)) {
+				ImaAdpcmWavHeader header = ImaAdpcmWavHeader.read(inputFile);
+				if (header != null) {
+					return new RecordInfo(
+							FileUtil.removeFileExtension(inputFile.getName()),
+							AppConstants.FORMAT_WAV,
+							header.getDurationMicros(),
+							inputFile.length(),
+							inputFile.getAbsolutePath(),
+							inputFile.lastModified(),
+							header.getSampleRate(),
+							header.getChannelCount(),
+							header.getBitrate(),
+							isInTrash
+					);
+				}
+			}
+
 			final MediaExtractor extractor = new MediaExtractor();
 			MediaFormat format = null;
 			int i;
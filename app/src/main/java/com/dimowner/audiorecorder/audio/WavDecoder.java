@@ -0,0 +1,278 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio;
+
+import com.dimowner.audiorecorder.audio.recorder.WavHeader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Decodes waveform of 16 bit PCM WAV files without MediaCodec.
+ * RIFF chunks are parsed to find the format and the data chunk, which is memory mapped in blocks.
+ * Gains of every block are calculated in parallel on a {@link ForkJoinPool} while the waveform pyramid
+ * is written from the same block on the calling thread. Tasks are split only at gain boundaries,
+ * so gains are identical to the serial decoding in {@link AudioDecoder}.
+ */
+public class WavDecoder {
+
+	private static final int FORMAT_PCM = 1;
+	private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+	/** Bytes of data mapped at once, progress and cancellation are checked once per block. */
+	private static final int BLOCK_SIZE = 4 * 1024 * 1024;
+	/** Samples scanned by one task without splitting it further. */
+	private static final int TASK_SAMPLES = 64 * 1024;
+
+	private final File file;
+	private final int sampleRate;
+	private final int channelCount;
+	private final long dataOffset;
+	private final long dataLength;
+
+	private WavDecoder(File file, int sampleRate, int channelCount, long dataOffset, long dataLength) {
+		this.file = file;
+		this.sampleRate = sampleRate;
+		this.channelCount = channelCount;
+		this.dataOffset = dataOffset;
+		this.dataLength = dataLength;
+	}
+
+	/**
+	 * Parse RIFF chunks of the WAV file.
+	 * Chunks before the data chunk are skipped, data chunk which is longer than the file is cut at the end of the file.
+	 * @return decoder or null when the file is not a 16 bit PCM WAV file.
+	 */
+	public static WavDecoder open(File file) throws IOException {
+		try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+			long length = input.length();
+			byte[] header = new byte[12];
+			if (length < header.length) {
+				return null;
+			}
+			input.readFully(header);
+			if (!matches(header, 0, "RIFF") || !matches(header, 8, "WAVE")) {
+				return null;
+			}
+			int channels = 0;
+			int sampleRate = 0;
+			long position = header.length;
+			byte[] chunk = new byte[40];
+			while (position + 8 <= length) {
+				input.seek(position);
+				input.readFully(chunk, 0, 8);
+				long size = readInt(chunk, 4);
+				position += 8;
+				if (matches(chunk, 0, "fmt ")) {
+					if (size < 16 || position + size > length) {
+						return null;
+					}
+					input.readFully(chunk, 0, (int) Math.min(size, chunk.length));
+					int format = readShort(chunk, 0);
+					if (format == FORMAT_EXTENSIBLE && size >= chunk.length) {
+						//Sub format GUID starts with the format code.
+						format = readShort(chunk, 24);
+					}
+					channels = readShort(chunk, 2);
+					sampleRate = (int) readInt(chunk, 4);
+					int blockAlign = readShort(chunk, 12);
+					int bitsPerSample = readShort(chunk, 14);
+					if (format != FORMAT_PCM || bitsPerSample != 16 || channels <= 0 || sampleRate <= 0
+							|| blockAlign != channels * 2) {
+						return null;
+					}
+				} else if (matches(chunk, 0, "data")) {
+					if (channels == 0) {
+						return null;
+					}
+					long dataLength = Math.min(size, length - position);
+					return new WavDecoder(file, sampleRate, channels, position, dataLength - dataLength % (channels * 2));
+				}
+				//Chunks are padded to even size.
+				position += size + (size & 1);
+			}
+			return null;
+		}
+	}
+
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	public int getChannelCount() {
+		return channelCount;
+	}
+
+	/** Position of PCM data in the file. */
+	public long getDataOffset() {
+		return dataOffset;
+	}
+
+	/** Length of PCM data in bytes. */
+	public long getDataLength() {
+		return dataLength;
+	}
+
+	public long getDurationMicros() {
+		return new WavHeader(sampleRate, channelCount, 16, dataLength).getDurationMicros();
+	}
+
+	/**
+	 * Decode gains of the waveform.
+	 * A gain is taken every {@code frameSamples - 1} samples, same as by {@link AudioDecoder}, the partial
+	 * frame at the end of data has no gain.
+	 * @param frameSamples count of samples in one waveform frame.
+	 * @param pyramid writer of the waveform pyramid or null, all data is added to it.
+	 * @param pool pool which calculates gains.
+	 * @param listener receives start, progress and cancellation of decoding.
+	 * @return gains or null when decoding is canceled.
+	 */
+	public int[] decode(int frameSamples, WaveformPyramid.Writer pyramid, ForkJoinPool pool,
+							  AudioDecodingListener listener) throws IOException {
+		if (frameSamples <= 0) {
+			throw new IllegalArgumentException("frameSamples = " + frameSamples);
+		}
+		int step = Math.max(frameSamples - 1, 1);
+		long gainCount = dataLength / 2 / step;
+		if (gainCount > Integer.MAX_VALUE) {
+			throw new IOException("Too long record: " + file);
+		}
+		int[] gains = new int[(int) gainCount];
+		int blockGains = Math.max(BLOCK_SIZE / (step * 2), 1);
+		long blockSize = (long) blockGains * step * 2;
+		listener.onStartProcessing(getDurationMicros(), channelCount, sampleRate);
+		int percent = 0;
+		try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+			FileChannel channel = input.getChannel();
+			long position = 0;
+			int gainIndex = 0;
+			while (position < dataLength) {
+				if (listener.isCanceled()) {
+					listener.onProcessingCancel();
+					return null;
+				}
+				int size = (int) Math.min(blockSize, dataLength - position);
+				ByteBuffer block = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset + position, size)
+						.order(ByteOrder.LITTLE_ENDIAN);
+				int count = Math.min(size / 2 / step, gains.length - gainIndex);
+				ForkJoinTask<Void> task = pool.submit(
+						new GainTask(block, 0, count, gainIndex, gains, frameSamples, step, channelCount));
+				if (pyramid != null) {
+					pyramid.process(block, 0, size);
+				}
+				task.join();
+				gainIndex += count;
+				position += size;
+				int curProgress = (int)(100*position/(float)dataLength);
+				if (curProgress != percent) {
+					percent = curProgress;
+					listener.onProcessingProgress(percent);
+				}
+			}
+		}
+		return gains;
+	}
+
+	/**
+	 * Gain of one waveform frame: square root of the highest mean of the channels of a PCM frame.
+	 * @param frame interleaved samples of the waveform frame.
+	 */
+	static int gain(int[] frame, int channelCount) {
+		int gain = -1;
+		for (int j = 0; j < frame.length; j += channelCount) {
+			int value = 0;
+			for (int k = 0; k < channelCount; k++) {
+				value += frame[j + k];
+			}
+			value /= channelCount;
+			if (gain < value) {
+				gain = value;
+			}
+		}
+		return (int) Math.sqrt(gain);
+	}
+
+	/** Calculates gains of a range of waveform frames of the block, splitting the range in halves. */
+	private static class GainTask extends RecursiveAction {
+
+		private final ByteBuffer block;
+		private final int from;
+		private final int to;
+		private final int gainOffset;
+		private final int[] gains;
+		private final int frameSamples;
+		private final int step;
+		private final int channelCount;
+
+		GainTask(ByteBuffer block, int from, int to, int gainOffset, int[] gains, int frameSamples, int step,
+					int channelCount) {
+			this.block = block;
+			this.from = from;
+			this.to = to;
+			this.gainOffset = gainOffset;
+			this.gains = gains;
+			this.frameSamples = frameSamples;
+			this.step = step;
+			this.channelCount = channelCount;
+		}
+
+		@Override
+		protected void compute() {
+			if ((long) (to - from) * step > TASK_SAMPLES && to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new GainTask(block, from, middle, gainOffset, gains, frameSamples, step, channelCount),
+						new GainTask(block, middle, to, gainOffset, gains, frameSamples, step, channelCount));
+				return;
+			}
+			//Samples after the step stay 0, same as the last sample of the serial frame buffer.
+			int[] frame = new int[frameSamples];
+			for (int i = from; i < to; i++) {
+				int position = i * step * 2;
+				for (int j = 0; j < step; j++) {
+					frame[j] = block.getShort(position + j * 2);
+				}
+				gains[gainOffset + i] = gain(frame, channelCount);
+			}
+		}
+	}
+
+	private static long readInt(byte[] data, int offset) {
+		return (data[offset] & 0xffL)
+				| (data[offset + 1] & 0xffL) << 8
+				| (data[offset + 2] & 0xffL) << 16
+				| (data[offset + 3] & 0xffL) << 24;
+	}
+
+	private static int readShort(byte[] data, int offset) {
+		return (data[offset] & 0xff) | (data[offset + 1] & 0xff) << 8;
+	}
+
+	private static boolean matches(byte[] data, int offset, String id) {
+		for (int i = 0; i < id.length(); i++) {
+			if (data[offset + i] != id.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,458 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+import timber.log.Timber;
+
+/**
+ * Multi-resolution waveform of a record independent from screen size.
+ * Level 0 keeps min and max sample of every channel for values of about 1 / {@link #BASE_VALUES_PER_SECOND}
+ * of a second, every next level merges pairs of values of the previous level, the last level has one value.
+ * A range of the record is answered from the coarsest level which still has a value per bucket,
+ * so it takes O(buckets) time for any zoom.
+ * Pyramid is stored in a binary sidecar next to the record file: "record path" + {@link #SUFFIX}.
+ * The sidecar follows the record file together with its segments, see
+ * {@link com.dimowner.audiorecorder.audio.recorder.RecordingSegments}.
+ * The sidecar is memory-mapped, so the waveform is not read into the heap. Pyramid is immutable
+ * and may be read on any thread.
+ * <p>
+ * Sidecar is little-endian: header of {@link #HEADER_SIZE} bytes, count of values of {@link #MAX_LEVELS} levels,
+ * then values of all levels from level 0. Every value is min and max of every channel as 16 bit samples.
+ */
+public class WaveformPyramid {
+
+	public static final String SUFFIX = ".peaks";
+
+	/** Count of level 0 values per second of the record. */
+	public static final int BASE_VALUES_PER_SECOND = 200;
+
+	private static final String TEMP_SUFFIX = ".tmp";
+	/** "WFPK" */
+	private static final int MAGIC = 0x4b504657;
+	private static final int VERSION = 1;
+	/** Enough for any count of values which fits into int. */
+	private static final int MAX_LEVELS = 32;
+	/** Magic, version, channel count, sample rate, frames per level 0 value, frame count, level count. */
+	private static final int HEADER_SIZE = 32;
+	private static final int DATA_OFFSET = HEADER_SIZE + MAX_LEVELS * 4;
+	/** Size of min and max of one channel. */
+	private static final int VALUE_SIZE = 4;
+
+	private final ByteBuffer data;
+	private final int channelCount;
+	private final int sampleRate;
+	private final int framesPerValue;
+	private final long frameCount;
+	private final int levelCount;
+	private final int[] valueCounts;
+	/** Byte offsets of levels in the data. */
+	private final int[] offsets;
+
+	private WaveformPyramid(ByteBuffer data) throws IOException {
+		this.data = data.order(ByteOrder.LITTLE_ENDIAN);
+		if (data.getInt(0) != MAGIC || data.getShort(4) != VERSION) {
+			throw new IOException("Not a waveform pyramid");
+		}
+		channelCount = data.getShort(6);
+		sampleRate = data.getInt(8);
+		framesPerValue = data.getInt(12);
+		frameCount = data.getLong(16);
+		levelCount = data.getInt(24);
+		if (channelCount <= 0 || sampleRate <= 0 || framesPerValue <= 0 || frameCount < 0
+				|| levelCount <= 0 || levelCount > MAX_LEVELS) {
+			throw new IOException("Invalid waveform pyramid header");
+		}
+		valueCounts = new int[levelCount];
+		offsets = new int[levelCount];
+		long expected = (frameCount + framesPerValue - 1) / framesPerValue;
+		long offset = DATA_OFFSET;
+		for (int k = 0; k < levelCount; k++) {
+			valueCounts[k] = data.getInt(HEADER_SIZE + k * 4);
+			if (valueCounts[k] != expected) {
+				throw new IOException("Invalid count of values of level " + k);
+			}
+			offsets[k] = (int) offset;
+			offset += (long) valueCounts[k] * channelCount * VALUE_SIZE;
+			expected = (expected + 1) / 2;
+		}
+		if (offset != data.capacity()) {
+			throw new IOException("Invalid waveform pyramid size " + data.capacity() + ", expected " + offset);
+		}
+	}
+
+	public static File sidecarFile(File recordFile) {
+		return new File(recordFile.getPath() + SUFFIX);
+	}
+
+	/**
+	 * Open the sidecar of the record file.
+	 * @return pyramid or null when the record has no sidecar or it can't be read.
+	 */
+	public static WaveformPyramid read(File recordFile) {
+		File file = sidecarFile(recordFile);
+		if (!file.exists()) {
+			return null;
+		}
+		try {
+			return open(file);
+		} catch (IOException e) {
+			Timber.e(e, "Failed to read waveform pyramid");
+			return null;
+		}
+	}
+
+	/** Map the pyramid file into memory. The mapping stays valid after the file is closed. */
+	public static WaveformPyramid open(File file) throws IOException {
+		try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+			FileChannel channel = input.getChannel();
+			long size = channel.size();
+			if (size < DATA_OFFSET || size > Integer.MAX_VALUE) {
+				throw new IOException("Invalid waveform pyramid size " + size);
+			}
+			return new WaveformPyramid(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+		}
+	}
+
+	/**
+	 * Count of frames merged into one level 0 value.
+	 * @param sampleRate sample rate of the record.
+	 */
+	public static int framesPerValue(int sampleRate) {
+		return Math.max(1, Math.round(sampleRate / (float) BASE_VALUES_PER_SECOND));
+	}
+
+	public int getChannelCount() {
+		return channelCount;
+	}
+
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	/** Count of frames of the record. */
+	public long getFrameCount() {
+		return frameCount;
+	}
+
+	public long getDurationMills() {
+		return frameCount * 1000 / sampleRate;
+	}
+
+	public int getLevelCount() {
+		return levelCount;
+	}
+
+	public int getValueCount(int level) {
+		return valueCounts[level];
+	}
+
+	/** Count of frames merged into one value of the level. */
+	public long getFramesPerValue(int level) {
+		return (long) framesPerValue << level;
+	}
+
+	/** Coarsest level which has at least one value per bucket of the count of frames. */
+	public int selectLevel(long framesPerBucket) {
+		int level = 0;
+		while (level + 1 < levelCount && getFramesPerValue(level + 1) <= framesPerBucket) {
+			level++;
+		}
+		return level;
+	}
+
+	/**
+	 * Min and max of every channel in buckets of equal duration of the range of the record.
+	 * @return array of {@code buckets * channelCount * 2} values, see {@link #getRange(long, long, int, short[])}.
+	 */
+	public short[] getRange(long startMs, long endMs, int buckets) {
+		short[] result = new short[Math.max(0, buckets) * channelCount * 2];
+		getRange(startMs, endMs, buckets, result);
+		return result;
+	}
+
+	/**
+	 * Min and max of every channel in buckets of equal duration of the range of the record.
+	 * Every bucket is answered from the values of the level selected by {@link #selectLevel(long)},
+	 * so a bucket reads no more than 3 values and the range takes O(buckets) time.
+	 * Values of the coarse level at the edges of a bucket may include neighbouring frames.
+	 * Buckets out of the record are 0.
+	 * @param startMs start of the range, may be before the record.
+	 * @param endMs end of the range, may be after the record.
+	 * @param result min of channel c of bucket b at index {@code (b * channelCount + c) * 2}, max next to it.
+	 */
+	public void getRange(long startMs, long endMs, int buckets, short[] result) {
+		if (buckets <= 0) {
+			return;
+		}
+		long startFrame = startMs * sampleRate / 1000;
+		long span = Math.max(endMs * sampleRate / 1000 - startFrame, 1);
+		int level = selectLevel(span / buckets);
+		long valueFrames = getFramesPerValue(level);
+		int offset = offsets[level];
+		int valueSize = channelCount * VALUE_SIZE;
+		for (int b = 0; b < buckets; b++) {
+			long from = startFrame + span * b / buckets;
+			long to = Math.max(startFrame + span * (b + 1) / buckets, from + 1);
+			int index = b * channelCount * 2;
+			if (from >= frameCount || to <= 0) {
+				for (int c = 0; c < channelCount * 2; c++) {
+					result[index + c] = 0;
+				}
+				continue;
+			}
+			int first = (int) (Math.max(from, 0) / valueFrames);
+			int last = (int) ((Math.min(to, frameCount) - 1) / valueFrames);
+			for (int c = 0; c < channelCount; c++) {
+				int position = offset + first * valueSize + c * VALUE_SIZE;
+				short min = data.getShort(position);
+				short max = data.getShort(position + 2);
+				for (int i = first + 1; i <= last; i++) {
+					position += valueSize;
+					short valueMin = data.getShort(position);
+					short valueMax = data.getShort(position + 2);
+					if (valueMin < min) {
+						min = valueMin;
+					}
+					if (valueMax > max) {
+						max = valueMax;
+					}
+				}
+				result[index + c * 2] = min;
+				result[index + c * 2 + 1] = max;
+			}
+		}
+	}
+
+	/**
+	 * Writes the pyramid of interleaved 16 bit PCM into the sidecar of the record file.
+	 * Level 0 is streamed into a temporary file while PCM is added, so memory doesn't grow with the record length.
+	 * Next levels are built from it by {@link #finish()} through a memory map, then the file replaces the sidecar.
+	 * Frames may be split between added buffers. Write errors don't interrupt adding PCM, only the sidecar
+	 * is not written. All calls must be made on one thread.
+	 */
+	public static class Writer {
+
+		private static final int BUFFER_SIZE = 8 * 1024;
+
+		private final File recordFile;
+		private final File tempFile;
+		private final RandomAccessFile file;
+		private final FileChannel fileChannel;
+		private final ByteBuffer output = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		private final int sampleRate;
+		private final int channelCount;
+		private final int framesPerValue;
+
+		/** Value of level 0 which has not received all its frames yet. */
+		private final short[] mins;
+		private final short[] maxs;
+		private int valueFrames = 0;
+		private int channel = 0;
+
+		private long frameCount = 0;
+		private long valueCount = 0;
+		private IOException error = null;
+
+		/**
+		 * Start writing the pyramid of the record. The sidecar of a previous record with the same name is deleted.
+		 * @param recordFile file of the record.
+		 * @param sampleRate sample rate of the PCM.
+		 * @param channelCount channels of interleaved PCM.
+		 */
+		public Writer(File recordFile, int sampleRate, int channelCount) throws IOException {
+			if (sampleRate <= 0 || channelCount <= 0 || channelCount > Short.MAX_VALUE) {
+				throw new IllegalArgumentException("sampleRate = " + sampleRate + " channelCount = " + channelCount);
+			}
+			this.recordFile = recordFile;
+			this.sampleRate = sampleRate;
+			this.channelCount = channelCount;
+			this.framesPerValue = framesPerValue(sampleRate);
+			this.mins = new short[channelCount];
+			this.maxs = new short[channelCount];
+			File sidecar = sidecarFile(recordFile);
+			if (sidecar.exists() && !sidecar.delete()) {
+				Timber.e("Failed to delete waveform pyramid: %s", sidecar.getAbsolutePath());
+			}
+			tempFile = new File(sidecar.getPath() + TEMP_SUFFIX);
+			file = new RandomAccessFile(tempFile, "rw");
+			file.setLength(0);
+			fileChannel = file.getChannel();
+			fileChannel.position(DATA_OFFSET);
+		}
+
+		/** Add one sample of interleaved PCM. */
+		public void add(int sample) {
+			short value = (short) sample;
+			if (valueFrames == 0) {
+				mins[channel] = value;
+				maxs[channel] = value;
+			} else if (value < mins[channel]) {
+				mins[channel] = value;
+			} else if (value > maxs[channel]) {
+				maxs[channel] = value;
+			}
+			if (++channel == channelCount) {
+				channel = 0;
+				frameCount++;
+				if (++valueFrames == framesPerValue) {
+					putValue();
+					valueFrames = 0;
+				}
+			}
+		}
+
+		/**
+		 * Add little-endian PCM from {@code from} to {@code to} (exclusive) byte index of the buffer.
+		 * Buffer position is not changed.
+		 */
+		public void process(ByteBuffer buffer, int from, int to) {
+			if (buffer.order() != ByteOrder.LITTLE_ENDIAN) {
+				throw new IllegalArgumentException("PCM buffer must be little-endian");
+			}
+			for (int i = from; i + 1 < to; i += 2) {
+				add(buffer.getShort(i));
+			}
+		}
+
+		/** Count of complete frames added. */
+		public long getFrameCount() {
+			return frameCount;
+		}
+
+		private void putValue() {
+			if (output.remaining() < channelCount * VALUE_SIZE) {
+				flush();
+			}
+			for (int c = 0; c < channelCount; c++) {
+				output.putShort(mins[c]);
+				output.putShort(maxs[c]);
+			}
+			valueCount++;
+		}
+
+		private void flush() {
+			output.flip();
+			try {
+				while (error == null && output.hasRemaining()) {
+					fileChannel.write(output);
+				}
+			} catch (IOException e) {
+				Timber.e(e, "Failed to write waveform pyramid");
+				error = e;
+			}
+			output.clear();
+		}
+
+		/** Build all levels and replace the sidecar of the record. */
+		public void finish() throws IOException {
+			try {
+				if (valueFrames > 0) {
+					putValue();
+					valueFrames = 0;
+				}
+				flush();
+				if (error != null) {
+					throw error;
+				}
+				if (valueCount > Integer.MAX_VALUE) {
+					throw new IOException("Too long record for waveform pyramid: " + frameCount + " frames");
+				}
+				int[] counts = levelCounts((int) valueCount);
+				long total = 0;
+				for (int count : counts) {
+					total += count;
+				}
+				long size = DATA_OFFSET + total * channelCount * VALUE_SIZE;
+				if (size > Integer.MAX_VALUE) {
+					throw new IOException("Too large waveform pyramid: " + size + " bytes");
+				}
+				ByteBuffer map = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+				int valueSize = channelCount * VALUE_SIZE;
+				int source = DATA_OFFSET;
+				for (int k = 1; k < counts.length; k++) {
+					int target = source + counts[k - 1] * valueSize;
+					int last = counts[k - 1] - 1;
+					for (int i = 0; i < counts[k]; i++) {
+						int first = source + 2 * i * valueSize;
+						int second = source + Math.min(2 * i + 1, last) * valueSize;
+						int position = target + i * valueSize;
+						for (int c = 0; c < valueSize; c += VALUE_SIZE) {
+							map.putShort(position + c, (short) Math.min(map.getShort(first + c), map.getShort(second + c)));
+							map.putShort(position + c + 2,
+									(short) Math.max(map.getShort(first + c + 2), map.getShort(second + c + 2)));
+						}
+					}
+					source = target;
+				}
+				map.putInt(0, MAGIC);
+				map.putShort(4, (short) VERSION);
+				map.putShort(6, (short) channelCount);
+				map.putInt(8, sampleRate);
+				map.putInt(12, framesPerValue);
+				map.putLong(16, frameCount);
+				map.putInt(24, counts.length);
+				map.putInt(28, 0);
+				for (int k = 0; k < MAX_LEVELS; k++) {
+					map.putInt(HEADER_SIZE + k * 4, k < counts.length ? counts[k] : 0);
+				}
+				close();
+				if (!tempFile.renameTo(sidecarFile(recordFile))) {
+					throw new IOException("Failed to rename waveform pyramid: " + tempFile.getAbsolutePath());
+				}
+			} finally {
+				abort();
+			}
+		}
+
+		/** Stop writing, the sidecar is not written. */
+		public void abort() {
+			close();
+			if (tempFile.exists() && !tempFile.delete()) {
+				Timber.e("Failed to delete waveform pyramid: %s", tempFile.getAbsolutePath());
+			}
+		}
+
+		private void close() {
+			try {
+				file.close();
+			} catch (IOException e) {
+				Timber.e(e);
+			}
+		}
+
+		/** Count of values of every level down to the level of one value. */
+		private static int[] levelCounts(int count) {
+			int levels = 1;
+			for (int n = count; n > 1; n = (n + 1) / 2) {
+				levels++;
+			}
+			int[] counts = new int[levels];
+			counts[0] = count;
+			for (int k = 1; k < levels; k++) {
+				counts[k] = (counts[k - 1] + 1) / 2;
+			}
+			return counts;
+		}
+	}
+}
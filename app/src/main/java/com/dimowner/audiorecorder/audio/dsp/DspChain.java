@@ -0,0 +1,156 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.dsp;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Sequence of {@link DspStage} applied to blocks of 16 bit interleaved PCM in place.
+ * Block is converted to floats in a buffer allocated by {@link #prepare(int, int, int)},
+ * processed by all stages in order and converted back with saturation.
+ * Processing does not allocate memory. Used by a single thread.
+ */
+public class DspChain {
+
+	private static final float TO_FLOAT = 1f / PcmLevelMeter.FULL_SCALE;
+
+	private final DspStage[] stages;
+	private int channelCount = 1;
+	private int maxFrames = 0;
+	private float[] samples = new float[0];
+
+	public DspChain(DspStage... stages) {
+		this.stages = stages;
+	}
+
+	/**
+	 * Prepare all stages for a new recording.
+	 * @param maxFrames max count of frames processed at once. Larger blocks are processed in parts.
+	 */
+	public void prepare(int sampleRate, int channelCount, int maxFrames) {
+		this.channelCount = channelCount;
+		this.maxFrames = maxFrames;
+		if (samples.length != maxFrames * channelCount) {
+			samples = new float[maxFrames * channelCount];
+		}
+		for (DspStage stage : stages) {
+			stage.prepare(sampleRate, channelCount, maxFrames);
+		}
+	}
+
+	public boolean isEmpty() {
+		return stages.length == 0;
+	}
+
+	public int getStageCount() {
+		return stages.length;
+	}
+
+	/** Count of frames the output of the chain is delayed by, sum of latencies of all stages. */
+	public int getLatencyFrames() {
+		int latency = 0;
+		for (DspStage stage : stages) {
+			latency += stage.getLatencyFrames();
+		}
+		return latency;
+	}
+
+	/**
+	 * Fill {@code block} from its position to its limit with the audio delayed by the stages:
+	 * silence is processed in place of new audio. Called at the end of the stream
+	 * until {@link #getLatencyFrames()} frames are flushed. Buffer position is not changed.
+	 */
+	public void flush(ByteBuffer block) {
+		for (int i = block.position(); i < block.limit(); i++) {
+			block.put(i, (byte) 0);
+		}
+		process(block);
+	}
+
+	/**
+	 * Process PCM from {@code block.position()} to {@code block.limit()} in place.
+	 * Buffer must be in little-endian byte order. Buffer position is not changed.
+	 */
+	public void process(ByteBuffer block) {
+		if (stages.length == 0) {
+			return;
+		}
+		if (block.order() != ByteOrder.LITTLE_ENDIAN) {
+			throw new IllegalArgumentException("PCM buffer must be little-endian");
+		}
+		int index = block.position();
+		int frames = ((block.limit() - index) >> 1) / channelCount;
+		while (frames > 0) {
+			int count = Math.min(frames, maxFrames);
+			int sampleCount = count * channelCount;
+			for (int i = 0; i < sampleCount; i++) {
+				samples[i] = block.getShort(index + 2 * i) * TO_FLOAT;
+			}
+			processSamples(count);
+			for (int i = 0; i < sampleCount; i++) {
+				block.putShort(index + 2 * i, toShort(samples[i]));
+			}
+			index += sampleCount * 2;
+			frames -= count;
+		}
+	}
+
+	/** Process {@code count} samples of {@code data} starting at {@code offset} in place. */
+	public void process(short[] data, int offset, int count) {
+		if (stages.length == 0) {
+			return;
+		}
+		int frames = count / channelCount;
+		int index = offset;
+		while (frames > 0) {
+			int framesPart = Math.min(frames, maxFrames);
+			int sampleCount = framesPart * channelCount;
+			for (int i = 0; i < sampleCount; i++) {
+				samples[i] = data[index + i] * TO_FLOAT;
+			}
+			processSamples(framesPart);
+			for (int i = 0; i < sampleCount; i++) {
+				data[index + i] = toShort(samples[i]);
+			}
+			index += sampleCount;
+			frames -= framesPart;
+		}
+	}
+
+	private void processSamples(int frames) {
+		for (DspStage stage : stages) {
+			stage.process(samples, frames);
+		}
+	}
+
+	/** Sample in range [-1, 1) rounded to 16 bit with saturation. */
+	static short toShort(float sample) {
+		int value = Math.round(sample * PcmLevelMeter.FULL_SCALE);
+		if (value > Short.MAX_VALUE) {
+			return Short.MAX_VALUE;
+		} else if (value < Short.MIN_VALUE) {
+			return Short.MIN_VALUE;
+		}
+		return (short) value;
+	}
+
+	/** Creates a chain with its own state for every recording. */
+	public interface Factory {
+		DspChain create();
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.dsp;
+
+/**
+ * Processing step of {@link DspChain} which modifies blocks of audio in place.
+ * Samples are interleaved floats normalized to range -1..1, values outside of the range are allowed between stages.
+ */
+public interface DspStage {
+
+	/**
+	 * Prepare for a new stream of audio. Called before the first block of every recording,
+	 * state left from the previous stream is dropped. May allocate memory.
+	 * @param maxFrames max count of frames in one block.
+	 */
+	void prepare(int sampleRate, int channelCount, int maxFrames);
+
+	/**
+	 * Process block of interleaved samples in place. Must not allocate memory.
+	 * @param frames count of frames in the block.
+	 */
+	void process(float[] samples, int frames);
+
+	/**
+	 * Count of frames the output of the stage is delayed by.
+	 * Delayed audio is pushed out by silence processed after the end of the stream.
+	 */
+	default int getLatencyFrames() {
+		return 0;
+	}
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.dsp;
+
+/** Fixed gain. Put {@link LookAheadLimiter} after it when gain is positive, so peaks are not clipped. */
+public class Gain implements DspStage {
+
+	private final float gainDb;
+	private final float factor;
+	private int channelCount = 1;
+
+	public Gain(float gainDb) {
+		this.gainDb = gainDb;
+		this.factor = (float) Math.pow(10, gainDb / 20.0);
+	}
+
+	@Override
+	public void prepare(int sampleRate, int channelCount, int maxFrames) {
+		this.channelCount = channelCount;
+	}
+
+	@Override
+	public void process(float[] samples, int frames) {
+		int end = frames * channelCount;
+		for (int i = 0; i < end; i++) {
+			samples[i] *= factor;
+		}
+	}
+
+	public float getGainDb() {
+		return gainDb;
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.dsp;
+
+/**
+ * Second order Butterworth high-pass biquad which removes wind rumble, handling noise and DC offset.
+ * Coefficients from the Audio EQ Cookbook, transposed direct form II with state in double precision
+ * so low cutoff frequencies stay stable.
+ */
+public class HighPassFilter implements DspStage {
+
+	private static final double Q = 1 / Math.sqrt(2);
+
+	private final float cutoffHz;
+
+	private double b0, b1, b2, a1, a2;
+	/** Filter state per channel. */
+	private double[] z1 = new double[0];
+	private double[] z2 = new double[0];
+	private int channelCount = 1;
+
+	/** @param cutoffHz frequency where response is 3 dB down. */
+	public HighPassFilter(float cutoffHz) {
+		this.cutoffHz = cutoffHz;
+	}
+
+	@Override
+	public void prepare(int sampleRate, int channelCount, int maxFrames) {
+		double w0 = 2 * Math.PI * Math.min(cutoffHz, sampleRate * 0.45) / sampleRate;
+		double cos = Math.cos(w0);
+		double alpha = Math.sin(w0) / (2 * Q);
+		double a0 = 1 + alpha;
+		b0 = (1 + cos) / 2 / a0;
+		b1 = -(1 + cos) / a0;
+		b2 = b0;
+		a1 = -2 * cos / a0;
+		a2 = (1 - alpha) / a0;
+		this.channelCount = channelCount;
+		z1 = new double[channelCount];
+		z2 = new double[channelCount];
+	}
+
+	@Override
+	public void process(float[] samples, int frames) {
+		for (int ch = 0; ch < channelCount; ch++) {
+			double s1 = z1[ch];
+			double s2 = z2[ch];
+			int end = frames * channelCount;
+			for (int i = ch; i < end; i += channelCount) {
+				double x = samples[i];
+				double y = b0 * x + s1;
+				s1 = b1 * x - a1 * y + s2;
+				s2 = b2 * x - a2 * y;
+				samples[i] = (float) y;
+			}
+			z1[ch] = s1;
+			z2[ch] = s2;
+		}
+	}
+
+	public float getCutoffHz() {
+		return cutoffHz;
+	}
+}
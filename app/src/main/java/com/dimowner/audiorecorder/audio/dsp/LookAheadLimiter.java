@@ -0,0 +1,162 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.dsp;
+
+import java.util.Arrays;
+
+/**
+ * Peak limiter which keeps samples of all channels under the ceiling without clipping.
+ * Audio is delayed by the look-ahead time, so gain is lowered smoothly before a peak arrives.
+ * Gain needed by every frame is tracked as minimum over the look-ahead window with a monotonic queue,
+ * released with a time constant and smoothed by a moving average of the window length.
+ * Average of values which are each no larger than the gain needed by the delayed frame is no larger too,
+ * so output never exceeds the ceiling. All buffers are allocated in {@link #prepare(int, int, int)}.
+ */
+public class LookAheadLimiter implements DspStage {
+
+	private final float ceilingDbfs;
+	private final float ceiling;
+	private final float lookAheadMills;
+	private final float releaseMills;
+
+	private int channelCount = 1;
+	/** Look-ahead in frames. Output is delayed by this count of frames. */
+	private int delay = 0;
+	private float releaseCoefficient = 1;
+
+	/** Delayed interleaved samples. */
+	private float[] delayLine = new float[0];
+	private int delayPosition = 0;
+
+	/** Monotonic queue of frame indexes with increasing required gain, minimum is at the head. */
+	private long[] queueFrames = new long[0];
+	private float[] queueGains = new float[0];
+	private int queueHead = 0;
+	private int queueSize = 0;
+
+	/** Released gains of the last delay + 1 frames summed by the moving average. */
+	private float[] averageWindow = new float[0];
+	private int averagePosition = 0;
+	private double averageSum = 0;
+
+	private long frame = 0;
+	private float releasedGain = 1;
+	private float minGain = 1;
+
+	/**
+	 * @param ceilingDbfs max level of output samples.
+	 * @param lookAheadMills time gain is lowered before a peak. Output is delayed by this time.
+	 * @param releaseMills time constant of gain recovery after a peak.
+	 */
+	public LookAheadLimiter(float ceilingDbfs, float lookAheadMills, float releaseMills) {
+		this.ceilingDbfs = ceilingDbfs;
+		this.ceiling = (float) Math.pow(10, ceilingDbfs / 20.0);
+		this.lookAheadMills = lookAheadMills;
+		this.releaseMills = releaseMills;
+	}
+
+	@Override
+	public void prepare(int sampleRate, int channelCount, int maxFrames) {
+		this.channelCount = channelCount;
+		delay = Math.max(1, (int) (lookAheadMills * sampleRate / 1000));
+		releaseCoefficient = NoiseGate.coefficient(releaseMills, sampleRate);
+		delayLine = new float[delay * channelCount];
+		delayPosition = 0;
+		queueFrames = new long[delay + 1];
+		queueGains = new float[delay + 1];
+		queueHead = 0;
+		queueSize = 0;
+		averageWindow = new float[delay + 1];
+		Arrays.fill(averageWindow, 1f);
+		averagePosition = 0;
+		averageSum = delay + 1;
+		frame = 0;
+		releasedGain = 1;
+		minGain = 1;
+	}
+
+	@Override
+	public void process(float[] samples, int frames) {
+		int index = 0;
+		int window = delay + 1;
+		for (int f = 0; f < frames; f++) {
+			float peak = 0;
+			for (int ch = 0; ch < channelCount; ch++) {
+				float abs = Math.abs(samples[index + ch]);
+				if (abs > peak) {
+					peak = abs;
+				}
+			}
+			float required = peak > ceiling ? ceiling / peak : 1f;
+
+			//Minimum of required gain over the frames in the delay line and the new one.
+			if (queueSize > 0 && queueFrames[queueHead] <= frame - window) {
+				queueHead = queueHead + 1 == window ? 0 : queueHead + 1;
+				queueSize--;
+			}
+			while (queueSize > 0 && queueGains[(queueHead + queueSize - 1) % window] >= required) {
+				queueSize--;
+			}
+			int tail = (queueHead + queueSize) % window;
+			queueFrames[tail] = frame;
+			queueGains[tail] = required;
+			queueSize++;
+			float windowMin = queueGains[queueHead];
+
+			//Falls at once, recovers with the release time constant.
+			if (windowMin < releasedGain) {
+				releasedGain = windowMin;
+			} else {
+				releasedGain += (windowMin - releasedGain) * releaseCoefficient;
+			}
+
+			averageSum += releasedGain - averageWindow[averagePosition];
+			averageWindow[averagePosition] = releasedGain;
+			averagePosition = averagePosition + 1 == window ? 0 : averagePosition + 1;
+			float gain = (float) (averageSum / window);
+			if (gain < minGain) {
+				minGain = gain;
+			}
+
+			for (int ch = 0; ch < channelCount; ch++) {
+				float delayed = delayLine[delayPosition + ch];
+				delayLine[delayPosition + ch] = samples[index];
+				samples[index++] = delayed * gain;
+			}
+			delayPosition += channelCount;
+			if (delayPosition == delayLine.length) {
+				delayPosition = 0;
+			}
+			frame++;
+		}
+	}
+
+	/** Delay of output in frames. */
+	@Override
+	public int getLatencyFrames() {
+		return delay;
+	}
+
+	/** Lowest gain applied since {@link #prepare(int, int, int)}. 1 when no peak was limited. */
+	public float getMinGain() {
+		return minGain;
+	}
+
+	public float getCeilingDbfs() {
+		return ceilingDbfs;
+	}
+}
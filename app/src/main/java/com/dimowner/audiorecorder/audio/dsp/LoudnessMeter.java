@@ -0,0 +1,323 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.dsp;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Streaming loudness meter of 16 bit interleaved PCM as defined by ITU-R BS.1770 and EBU R128.
+ * Samples are K-weighted by two biquads per channel, their mean square is accumulated in 100 ms steps.
+ * Momentary loudness covers the last 400 ms, short-term loudness the last 3 s.
+ * Every 400 ms gating block is counted in a histogram of 0.1 LU bins, so integrated loudness with absolute
+ * and relative gates is computed from constant memory for a recording of any length.
+ * True peak is estimated by 4x oversampling with a polyphase interpolation filter.
+ * Samples at full scale are counted as clipped.
+ * Processing does not allocate memory. Meter is processed by one thread, values which may be read by
+ * other threads while processing are noted.
+ */
+public class LoudnessMeter {
+
+	/** Absolute gate. Loudness reported for silence. */
+	public static final float MIN_LUFS = -70f;
+
+	private static final int STEPS_PER_SECOND = 10;
+	/** Count of 100 ms steps of momentary loudness and a gating block. */
+	private static final int MOMENTARY_STEPS = 4;
+	/** Count of 100 ms steps of short-term loudness. */
+	private static final int SHORT_TERM_STEPS = 30;
+	private static final float RELATIVE_GATE_LU = -10f;
+	private static final float HISTOGRAM_MAX_LUFS = 5f;
+	private static final float HISTOGRAM_STEP_LU = 0.1f;
+	private static final int HISTOGRAM_SIZE = Math.round((HISTOGRAM_MAX_LUFS - MIN_LUFS) / HISTOGRAM_STEP_LU);
+	private static final int OVERSAMPLING = 4;
+	private static final int TAPS_PER_PHASE = 12;
+
+	private final int channelCount;
+	private final int stepFrames;
+
+	/** K-weighting high shelf and high-pass coefficients, b of the high-pass are 1, -2, 1. */
+	private final double shelfB0, shelfB1, shelfB2, shelfA1, shelfA2;
+	private final double highPassA1, highPassA2;
+	/** Filter states of every channel: two per biquad. */
+	private final double[] shelfZ1, shelfZ2, highPassZ1, highPassZ2;
+
+	/** Interpolation filter of every output phase. */
+	private final float[][] phases;
+	/**
+	 * Last TAPS_PER_PHASE samples of every channel, newest at historyIndex.
+	 * Every sample is stored twice, so the filter reads TAPS_PER_PHASE values in a row without wrapping.
+	 */
+	private final float[] history;
+	private int historyIndex = 0;
+
+	private double stepSum = 0;
+	private int stepFrameCount = 0;
+	/** Mean square of the last 100 ms steps. */
+	private final double[] steps = new double[SHORT_TERM_STEPS];
+	private long stepCount = 0;
+
+	private final long[] histogramCounts = new long[HISTOGRAM_SIZE];
+	private final double[] histogramEnergy = new double[HISTOGRAM_SIZE];
+
+	private float maxTruePeakAbs = 0;
+
+	private volatile float momentaryLoudness = MIN_LUFS;
+	private volatile float shortTermLoudness = MIN_LUFS;
+	private volatile float maxTruePeak = PcmLevelMeter.MIN_DBFS;
+	private volatile long clipCount = 0;
+
+	/**
+	 * @param sampleRate sample rate of measured audio.
+	 * @param channelCount channel count of measured audio, every channel has the weight 1.
+	 */
+	public LoudnessMeter(int sampleRate, int channelCount) {
+		if (sampleRate <= 0 || channelCount <= 0) {
+			throw new IllegalArgumentException("sampleRate = " + sampleRate + " channelCount = " + channelCount);
+		}
+		this.channelCount = channelCount;
+		this.stepFrames = Math.max(1, sampleRate / STEPS_PER_SECOND);
+
+		//Analog prototypes of BS.1770 filters, bilinear transformed for the sample rate.
+		double k = Math.tan(Math.PI * 1681.974450955533 / sampleRate);
+		double q = 0.7071752369554196;
+		double vh = Math.pow(10, 3.999843853973347 / 20);
+		double vb = Math.pow(vh, 0.4996667741545416);
+		double a0 = 1 + k / q + k * k;
+		shelfB0 = (vh + vb * k / q + k * k) / a0;
+		shelfB1 = 2 * (k * k - vh) / a0;
+		shelfB2 = (vh - vb * k / q + k * k) / a0;
+		shelfA1 = 2 * (k * k - 1) / a0;
+		shelfA2 = (1 - k / q + k * k) / a0;
+		k = Math.tan(Math.PI * 38.13547087602444 / sampleRate);
+		q = 0.5003270373238773;
+		a0 = 1 + k / q + k * k;
+		highPassA1 = 2 * (k * k - 1) / a0;
+		highPassA2 = (1 - k / q + k * k) / a0;
+		shelfZ1 = new double[channelCount];
+		shelfZ2 = new double[channelCount];
+		highPassZ1 = new double[channelCount];
+		highPassZ2 = new double[channelCount];
+
+		//Hann windowed sinc low-pass at the input Nyquist frequency, split into phases with unity DC gain.
+		int taps = OVERSAMPLING * TAPS_PER_PHASE;
+		phases = new float[OVERSAMPLING][TAPS_PER_PHASE];
+		for (int p = 0; p < OVERSAMPLING; p++) {
+			double sum = 0;
+			double[] phase = new double[TAPS_PER_PHASE];
+			for (int t = 0; t < TAPS_PER_PHASE; t++) {
+				int n = t * OVERSAMPLING + p;
+				double x = (n - (taps - 1) / 2.0) / OVERSAMPLING;
+				double sinc = x == 0 ? 1 : Math.sin(Math.PI * x) / (Math.PI * x);
+				double window = 0.5 - 0.5 * Math.cos(2 * Math.PI * (n + 0.5) / taps);
+				phase[t] = sinc * window;
+				sum += phase[t];
+			}
+			for (int t = 0; t < TAPS_PER_PHASE; t++) {
+				phases[p][t] = (float) (phase[t] / sum);
+			}
+		}
+		history = new float[channelCount * TAPS_PER_PHASE * 2];
+	}
+
+	/**
+	 * Measure block of PCM from {@code block.position()} to {@code block.limit()}.
+	 * Buffer must be in little-endian byte order. Buffer position is not changed.
+	 */
+	public void process(ByteBuffer block) {
+		if (block.order() != ByteOrder.LITTLE_ENDIAN) {
+			throw new IllegalArgumentException("PCM buffer must be little-endian");
+		}
+		int start = block.position();
+		int frames = (block.limit() - start) / (channelCount * 2);
+		int index = start;
+		long clipped = 0;
+		float peak = maxTruePeakAbs;
+		for (int f = 0; f < frames; f++) {
+			double sum = 0;
+			historyIndex = historyIndex == 0 ? TAPS_PER_PHASE - 1 : historyIndex - 1;
+			for (int ch = 0; ch < channelCount; ch++) {
+				int sample = block.getShort(index);
+				index += 2;
+				if (sample == Short.MAX_VALUE || sample == Short.MIN_VALUE) {
+					clipped++;
+				}
+				double x = sample / PcmLevelMeter.FULL_SCALE;
+
+				//Transposed direct form II.
+				double y = shelfB0 * x + shelfZ1[ch];
+				shelfZ1[ch] = shelfB1 * x - shelfA1 * y + shelfZ2[ch];
+				shelfZ2[ch] = shelfB2 * x - shelfA2 * y;
+				double z = y + highPassZ1[ch];
+				highPassZ1[ch] = -2 * y - highPassA1 * z + highPassZ2[ch];
+				highPassZ2[ch] = y - highPassA2 * z;
+				sum += z * z;
+
+				float abs = truePeak(ch, (float) x);
+				if (abs > peak) {
+					peak = abs;
+				}
+			}
+			stepSum += sum;
+			if (++stepFrameCount == stepFrames) {
+				finishStep();
+			}
+		}
+		if (clipped > 0) {
+			clipCount += clipped;
+		}
+		if (peak > maxTruePeakAbs) {
+			maxTruePeakAbs = peak;
+			maxTruePeak = PcmLevelMeter.toDbfs(peak * PcmLevelMeter.FULL_SCALE);
+		}
+	}
+
+	/** Put sample into history of the channel and return the max magnitude of the oversampled values. */
+	private float truePeak(int ch, float x) {
+		int offset = ch * TAPS_PER_PHASE * 2;
+		history[offset + historyIndex] = x;
+		history[offset + historyIndex + TAPS_PER_PHASE] = x;
+		offset += historyIndex;
+		float max = 0;
+		for (int p = 0; p < OVERSAMPLING; p++) {
+			float[] phase = phases[p];
+			float y = 0;
+			for (int t = 0; t < TAPS_PER_PHASE; t++) {
+				y += phase[t] * history[offset + t];
+			}
+			float abs = y < 0 ? -y : y;
+			if (abs > max) {
+				max = abs;
+			}
+		}
+		return max;
+	}
+
+	private void finishStep() {
+		steps[(int) (stepCount % SHORT_TERM_STEPS)] = stepSum / stepFrames;
+		stepCount++;
+		stepSum = 0;
+		stepFrameCount = 0;
+		double momentary = meanOfLastSteps(MOMENTARY_STEPS);
+		momentaryLoudness = toLoudness(momentary);
+		shortTermLoudness = toLoudness(meanOfLastSteps(SHORT_TERM_STEPS));
+		if (stepCount >= MOMENTARY_STEPS) {
+			//Gating blocks of 400 ms overlap by 75%.
+			float loudness = toLoudness(momentary);
+			if (loudness > MIN_LUFS) {
+				int bin = Math.min(HISTOGRAM_SIZE - 1, (int) ((loudness - MIN_LUFS) / HISTOGRAM_STEP_LU));
+				histogramCounts[bin]++;
+				histogramEnergy[bin] += momentary;
+			}
+		}
+	}
+
+	/** Mean of the last {@code count} steps or of all steps when there are fewer. */
+	private double meanOfLastSteps(int count) {
+		int n = (int) Math.min(count, stepCount);
+		double sum = 0;
+		for (int i = 1; i <= n; i++) {
+			sum += steps[(int) ((stepCount - i) % SHORT_TERM_STEPS)];
+		}
+		return n > 0 ? sum / n : 0;
+	}
+
+	private static float toLoudness(double meanSquare) {
+		if (meanSquare <= 0) {
+			return MIN_LUFS;
+		}
+		return Math.max(MIN_LUFS, (float) (-0.691 + 10 * Math.log10(meanSquare)));
+	}
+
+	/** Reset all measurements. */
+	public void reset() {
+		for (int ch = 0; ch < channelCount; ch++) {
+			shelfZ1[ch] = 0;
+			shelfZ2[ch] = 0;
+			highPassZ1[ch] = 0;
+			highPassZ2[ch] = 0;
+		}
+		for (int i = 0; i < history.length; i++) {
+			history[i] = 0;
+		}
+		for (int i = 0; i < HISTOGRAM_SIZE; i++) {
+			histogramCounts[i] = 0;
+			histogramEnergy[i] = 0;
+		}
+		historyIndex = 0;
+		stepSum = 0;
+		stepFrameCount = 0;
+		stepCount = 0;
+		maxTruePeakAbs = 0;
+		momentaryLoudness = MIN_LUFS;
+		shortTermLoudness = MIN_LUFS;
+		maxTruePeak = PcmLevelMeter.MIN_DBFS;
+		clipCount = 0;
+	}
+
+	/**
+	 * Integrated loudness of all gating blocks since {@link #reset()} in LUFS.
+	 * Blocks below {@link #MIN_LUFS} and blocks 10 LU below the loudness of the remaining ones are not counted.
+	 * Called by the processing thread or after processing is finished.
+	 * @return loudness or {@link #MIN_LUFS} when no block passed the gates.
+	 */
+	public float getIntegratedLoudness() {
+		long count = 0;
+		double energy = 0;
+		for (int i = 0; i < HISTOGRAM_SIZE; i++) {
+			count += histogramCounts[i];
+			energy += histogramEnergy[i];
+		}
+		if (count == 0) {
+			return MIN_LUFS;
+		}
+		float relativeGate = toLoudness(energy / count) + RELATIVE_GATE_LU;
+		//Blocks of the bin which contains the gate are counted. Error is less than the bin width.
+		int first = Math.max(0, (int) ((relativeGate - MIN_LUFS) / HISTOGRAM_STEP_LU));
+		count = 0;
+		energy = 0;
+		for (int i = first; i < HISTOGRAM_SIZE; i++) {
+			count += histogramCounts[i];
+			energy += histogramEnergy[i];
+		}
+		return count > 0 ? toLoudness(energy / count) : MIN_LUFS;
+	}
+
+	/** Loudness of the last 400 ms in LUFS. May be read by other threads. */
+	public float getMomentaryLoudness() {
+		return momentaryLoudness;
+	}
+
+	/** Loudness of the last 3 s in LUFS. May be read by other threads. */
+	public float getShortTermLoudness() {
+		return shortTermLoudness;
+	}
+
+	/** Max true peak since {@link #reset()} in dBTP. May be read by other threads. */
+	public float getMaxTruePeak() {
+		return maxTruePeak;
+	}
+
+	/** Count of samples at full scale since {@link #reset()}. May be read by other threads. */
+	public long getClipCount() {
+		return clipCount;
+	}
+
+	public int getChannelCount() {
+		return channelCount;
+	}
+}
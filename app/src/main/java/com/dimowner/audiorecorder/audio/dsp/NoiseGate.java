@@ -0,0 +1,97 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.dsp;
+
+/**
+ * Attenuates audio which stays below the threshold, so background noise between sounds is quieter.
+ * Gate opens on the first sample of any channel above the threshold and stays open for the hold time
+ * after the last one. Gain moves between full and attenuated with attack and release time constants,
+ * so opening and closing do not click.
+ */
+public class NoiseGate implements DspStage {
+
+	private static final float ATTACK_MILLS = 1;
+	private static final float HOLD_MILLS = 50;
+	private static final float RELEASE_MILLS = 150;
+
+	private final float thresholdDbfs;
+	private final float threshold;
+	/** Gain of the closed gate. */
+	private final float floorGain;
+
+	private int channelCount = 1;
+	private int holdFrames = 0;
+	private float attackCoefficient = 1;
+	private float releaseCoefficient = 1;
+
+	private int holdLeft = 0;
+	private float gain = 1;
+
+	/**
+	 * @param thresholdDbfs level below which audio is attenuated.
+	 * @param rangeDb attenuation of the closed gate.
+	 */
+	public NoiseGate(float thresholdDbfs, float rangeDb) {
+		this.thresholdDbfs = thresholdDbfs;
+		this.threshold = (float) Math.pow(10, thresholdDbfs / 20.0);
+		this.floorGain = (float) Math.pow(10, -Math.abs(rangeDb) / 20.0);
+	}
+
+	@Override
+	public void prepare(int sampleRate, int channelCount, int maxFrames) {
+		this.channelCount = channelCount;
+		this.holdFrames = (int) (HOLD_MILLS * sampleRate / 1000);
+		this.attackCoefficient = coefficient(ATTACK_MILLS, sampleRate);
+		this.releaseCoefficient = coefficient(RELEASE_MILLS, sampleRate);
+		//Stream starts open, so the first sound is not faded in.
+		holdLeft = holdFrames;
+		gain = 1;
+	}
+
+	@Override
+	public void process(float[] samples, int frames) {
+		int index = 0;
+		for (int f = 0; f < frames; f++) {
+			float peak = 0;
+			for (int ch = 0; ch < channelCount; ch++) {
+				float abs = Math.abs(samples[index + ch]);
+				if (abs > peak) {
+					peak = abs;
+				}
+			}
+			if (peak >= threshold) {
+				holdLeft = holdFrames;
+			} else if (holdLeft > 0) {
+				holdLeft--;
+			}
+			float target = holdLeft > 0 ? 1 : floorGain;
+			gain += (target - gain) * (target > gain ? attackCoefficient : releaseCoefficient);
+			for (int ch = 0; ch < channelCount; ch++) {
+				samples[index++] *= gain;
+			}
+		}
+	}
+
+	public float getThresholdDbfs() {
+		return thresholdDbfs;
+	}
+
+	/** Coefficient of one pole smoothing which covers 63% of a step in the time. */
+	static float coefficient(float mills, int sampleRate) {
+		return (float) (1 - Math.exp(-1000.0 / (mills * sampleRate)));
+	}
+}
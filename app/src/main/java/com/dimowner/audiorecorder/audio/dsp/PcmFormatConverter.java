@@ -0,0 +1,157 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.dsp;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Converts blocks of 16 bit little-endian PCM between sample rates and channel layouts.
+ * Stereo is downmixed to mono by averaging the channels before resampling, so only one channel is resampled.
+ * Mono is duplicated to both channels of stereo after resampling.
+ * Rate is converted by {@link PolyphaseResampler}, which keeps its state between blocks.
+ * Conversion does not allocate memory. Used by a single thread.
+ */
+public class PcmFormatConverter {
+
+	private static final float TO_FLOAT = 1f / PcmLevelMeter.FULL_SCALE;
+
+	private final int inputRate;
+	private final int inputChannels;
+	private final int outputRate;
+	private final int outputChannels;
+	/** Channels of audio passed to resampler. */
+	private final int mixChannels;
+	private final int maxInputFrames;
+	/** Null when sample rates are equal. */
+	private final PolyphaseResampler resampler;
+	private final float[] mixed;
+	private final float[] resampled;
+
+	/**
+	 * @param maxInputSize max size in bytes of one input block.
+	 */
+	public PcmFormatConverter(int inputRate, int inputChannels, int outputRate, int outputChannels, int maxInputSize) {
+		if (inputChannels < 1 || inputChannels > 2 || outputChannels < 1 || outputChannels > 2) {
+			throw new IllegalArgumentException("Unsupported channels: " + inputChannels + " -> " + outputChannels);
+		}
+		this.inputRate = inputRate;
+		this.inputChannels = inputChannels;
+		this.outputRate = outputRate;
+		this.outputChannels = outputChannels;
+		this.mixChannels = Math.min(inputChannels, outputChannels);
+		this.maxInputFrames = maxInputSize / (inputChannels * 2);
+		this.mixed = new float[maxInputFrames * mixChannels];
+		if (inputRate != outputRate) {
+			resampler = new PolyphaseResampler(inputRate, outputRate, mixChannels, maxInputFrames);
+			resampled = new float[resampler.maxOutputFrames(maxInputFrames) * mixChannels];
+		} else {
+			resampler = null;
+			resampled = mixed;
+		}
+	}
+
+	/** True when input and output formats are equal and conversion only copies data. */
+	public boolean isPassThrough() {
+		return resampler == null && inputChannels == outputChannels;
+	}
+
+	/** Max size in bytes of output converted from input of the size. */
+	public int maxOutputSize(int inputSize) {
+		int frames = Math.min(inputSize / (inputChannels * 2), maxInputFrames);
+		if (resampler != null) {
+			frames = resampler.maxOutputFrames(frames);
+		}
+		return frames * outputChannels * 2;
+	}
+
+	/** Max size in bytes of input which is converted to no more than the output size. */
+	public int maxInputSize(int outputSize) {
+		int frames = outputSize / (outputChannels * 2);
+		if (resampler != null) {
+			frames = resampler.maxInputFrames(frames);
+		}
+		return Math.min(frames, maxInputFrames) * inputChannels * 2;
+	}
+
+	/**
+	 * Convert PCM from {@code input.position()} to {@code input.limit()}
+	 * and write it to output starting at {@code output.position()}. Positions of buffers are not changed.
+	 * Both buffers must be in little-endian byte order.
+	 * @param output buffer which has space for {@link #maxOutputSize(int)} bytes after position.
+	 * @return count of bytes written to output.
+	 */
+	public int convert(ByteBuffer input, ByteBuffer output) {
+		if (input.order() != ByteOrder.LITTLE_ENDIAN || output.order() != ByteOrder.LITTLE_ENDIAN) {
+			throw new IllegalArgumentException("PCM buffer must be little-endian");
+		}
+		int frames = Math.min((input.remaining() >> 1) / inputChannels, maxInputFrames);
+		int index = input.position();
+		if (inputChannels == 2 && mixChannels == 1) {
+			float half = TO_FLOAT / 2;
+			for (int i = 0; i < frames; i++) {
+				mixed[i] = (input.getShort(index) + input.getShort(index + 2)) * half;
+				index += 4;
+			}
+		} else {
+			int samples = frames * inputChannels;
+			for (int i = 0; i < samples; i++) {
+				mixed[i] = input.getShort(index) * TO_FLOAT;
+				index += 2;
+			}
+		}
+		int outputFrames = resampler != null ? resampler.process(mixed, frames, resampled) : frames;
+
+		index = output.position();
+		if (outputChannels == 2 && mixChannels == 1) {
+			for (int i = 0; i < outputFrames; i++) {
+				short sample = DspChain.toShort(resampled[i]);
+				output.putShort(index, sample);
+				output.putShort(index + 2, sample);
+				index += 4;
+			}
+		} else {
+			int samples = outputFrames * outputChannels;
+			for (int i = 0; i < samples; i++) {
+				output.putShort(index, DspChain.toShort(resampled[i]));
+				index += 2;
+			}
+		}
+		return outputFrames * outputChannels * 2;
+	}
+
+	/** Count of the last input frames which are delayed by the resampler and are not in the output yet. */
+	public int getLatencyFrames() {
+		return resampler != null ? resampler.getLatencyFrames() : 0;
+	}
+
+	public int getInputRate() {
+		return inputRate;
+	}
+
+	public int getInputChannels() {
+		return inputChannels;
+	}
+
+	public int getOutputRate() {
+		return outputRate;
+	}
+
+	public int getOutputChannels() {
+		return outputChannels;
+	}
+}
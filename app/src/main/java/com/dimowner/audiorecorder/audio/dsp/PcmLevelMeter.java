@@ -0,0 +1,159 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.dsp;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Peak, RMS and dBFS level meter for 16 bit interleaved PCM blocks.
+ * Levels of the last processed block are kept per channel.
+ * Processing does not allocate memory.
+ */
+public class PcmLevelMeter {
+
+	/** Full scale value of 16 bit sample. */
+	public static final float FULL_SCALE = 32768f;
+	/** Level reported for digital silence. Noise floor of 16 bit PCM. */
+	public static final float MIN_DBFS = -96f;
+
+	private final int channelCount;
+
+	private final int[] blockPeak;
+	private final long[] blockSumSquares;
+	private int blockFrames = 0;
+
+	public PcmLevelMeter(int channelCount) {
+		if (channelCount <= 0) {
+			throw new IllegalArgumentException("channelCount = " + channelCount);
+		}
+		this.channelCount = channelCount;
+		this.blockPeak = new int[channelCount];
+		this.blockSumSquares = new long[channelCount];
+	}
+
+	/**
+	 * Measure block of PCM from {@code block.position()} to {@code block.limit()}.
+	 * Buffer must be in little-endian byte order. Buffer position is not changed.
+	 */
+	public void process(ByteBuffer block) {
+		if (block.order() != ByteOrder.LITTLE_ENDIAN) {
+			throw new IllegalArgumentException("PCM buffer must be little-endian");
+		}
+		startBlock();
+		int start = block.position();
+		int sampleCount = (block.limit() - start) >> 1;
+		int frames = sampleCount / channelCount;
+		int index = start;
+		for (int f = 0; f < frames; f++) {
+			for (int ch = 0; ch < channelCount; ch++) {
+				int sample = block.getShort(index);
+				index += 2;
+				accumulate(ch, sample);
+			}
+		}
+		finishBlock(frames);
+	}
+
+	/** Measure {@code length} bytes of little-endian PCM from {@code data} starting at {@code offset}. */
+	public void process(byte[] data, int offset, int length) {
+		startBlock();
+		int frames = (length >> 1) / channelCount;
+		int index = offset;
+		for (int f = 0; f < frames; f++) {
+			for (int ch = 0; ch < channelCount; ch++) {
+				int sample = (short) ((data[index] & 0xff) | (data[index + 1] << 8));
+				index += 2;
+				accumulate(ch, sample);
+			}
+		}
+		finishBlock(frames);
+	}
+
+	/** Measure {@code count} samples from {@code samples} starting at {@code offset}. */
+	public void process(short[] samples, int offset, int count) {
+		startBlock();
+		int frames = count / channelCount;
+		int index = offset;
+		for (int f = 0; f < frames; f++) {
+			for (int ch = 0; ch < channelCount; ch++) {
+				accumulate(ch, samples[index++]);
+			}
+		}
+		finishBlock(frames);
+	}
+
+	private void startBlock() {
+		for (int ch = 0; ch < channelCount; ch++) {
+			blockPeak[ch] = 0;
+			blockSumSquares[ch] = 0;
+		}
+	}
+
+	private void accumulate(int ch, int sample) {
+		int abs = sample < 0 ? -sample : sample;
+		if (abs > blockPeak[ch]) {
+			blockPeak[ch] = abs;
+		}
+		blockSumSquares[ch] += (long) sample * sample;
+	}
+
+	private void finishBlock(int frames) {
+		blockFrames = frames;
+	}
+
+	public int getChannelCount() {
+		return channelCount;
+	}
+
+	/** Peak absolute sample value of the last block in channel. Range 0..32768 */
+	public int getPeak(int channel) {
+		return blockPeak[channel];
+	}
+
+	/** Peak absolute sample value of the last block over all channels. Range 0..32768 */
+	public int getPeak() {
+		int peak = 0;
+		for (int ch = 0; ch < channelCount; ch++) {
+			if (blockPeak[ch] > peak) {
+				peak = blockPeak[ch];
+			}
+		}
+		return peak;
+	}
+
+	/** RMS sample value of the last block in channel. Range 0..32768 */
+	public float getRms(int channel) {
+		return blockFrames > 0 ? (float) Math.sqrt((double) blockSumSquares[channel] / blockFrames) : 0;
+	}
+
+	public float getPeakDbfs(int channel) {
+		return toDbfs(getPeak(channel));
+	}
+
+	public float getRmsDbfs(int channel) {
+		return toDbfs(getRms(channel));
+	}
+
+	/** Convert sample magnitude to dB relative to full scale. */
+	public static float toDbfs(float value) {
+		if (value <= 0) {
+			return MIN_DBFS;
+		}
+		return Math.max(MIN_DBFS, (float) (20 * Math.log10(value / FULL_SCALE)));
+	}
+}
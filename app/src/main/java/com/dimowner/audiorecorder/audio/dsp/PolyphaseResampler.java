@@ -0,0 +1,229 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.dsp;
+
+import java.util.Arrays;
+
+/**
+ * Streaming sample rate converter of interleaved float audio with rational ratio up/down.
+ * Every output sample is computed by one phase of a polyphase Kaiser windowed sinc filter,
+ * so only input samples are multiplied and no zero stuffed samples are processed.
+ * Cutoff is below the Nyquist frequency of the lower rate, so downsampling does not alias
+ * and upsampling does not leave images. First output sample is aligned with the first input sample.
+ * All buffers are allocated in constructor. Used by a single thread.
+ */
+public class PolyphaseResampler {
+
+	/** Zero crossings of the windowed sinc on each side, in periods of the lower sample rate. */
+	private static final int ZERO_CROSSINGS = 32;
+	/** Attenuation of the stopband. */
+	private static final double STOPBAND_DB = 80;
+
+	private final int inputRate;
+	private final int outputRate;
+	private final int channelCount;
+	private final int maxInputFrames;
+	/** Interpolation factor. */
+	private final int up;
+	/** Decimation factor. */
+	private final int down;
+	/** Count of input frames used by one output frame. */
+	private final int taps;
+	/** Filter phases one after another, taps coefficients each. */
+	private final float[] coefficients;
+
+	/** Input frames not consumed yet followed by space for the next block. */
+	private final float[] history;
+	/** Count of frames in history. */
+	private int frames;
+	/** Phase of the next output frame. Its first tap is the first frame of history. */
+	private int phase;
+
+	/**
+	 * @param maxInputFrames max count of frames passed to one {@link #process(float[], int, float[])} call.
+	 */
+	public PolyphaseResampler(int inputRate, int outputRate, int channelCount, int maxInputFrames) {
+		if (inputRate <= 0 || outputRate <= 0) {
+			throw new IllegalArgumentException("Invalid sample rate: " + inputRate + " -> " + outputRate);
+		}
+		this.inputRate = inputRate;
+		this.outputRate = outputRate;
+		this.channelCount = channelCount;
+		this.maxInputFrames = maxInputFrames;
+		int gcd = gcd(inputRate, outputRate);
+		this.up = outputRate / gcd;
+		this.down = inputRate / gcd;
+
+		//Input samples per output sample when downsampling. Filter gets longer to keep the same transition band.
+		double ratio = Math.max(1.0, (double) down / up);
+		this.taps = 2 * (int) Math.ceil(ZERO_CROSSINGS * ratio);
+		//Kaiser estimate of the transition band for the filter length, relative to the lower rate.
+		double transition = (STOPBAND_DB - 7.95) / (14.36 * 2 * ZERO_CROSSINGS);
+		double cutoff = (0.5 - transition / 2) / ratio;
+		this.coefficients = designFilter(up, taps, cutoff, 0.1102 * (STOPBAND_DB - 8.7));
+
+		this.history = new float[(taps + maxInputFrames) * channelCount];
+		reset();
+	}
+
+	/** Forget all processed audio. Next output frame is aligned with the next input frame. */
+	public void reset() {
+		//Silence before the first input frame so the first output frame has history for the left half of the filter.
+		frames = taps / 2 - 1;
+		Arrays.fill(history, 0, frames * channelCount, 0f);
+		phase = 0;
+	}
+
+	/**
+	 * Resample frames of interleaved input.
+	 * @param inputFrames count of frames, no more than max frames passed to constructor.
+	 * @param output buffer which can hold {@link #maxOutputFrames(int)} frames.
+	 * @return count of frames written to output.
+	 */
+	public int process(float[] input, int inputFrames, float[] output) {
+		if (inputFrames > maxInputFrames) {
+			throw new IllegalArgumentException("Too many input frames: " + inputFrames);
+		}
+		System.arraycopy(input, 0, history, frames * channelCount, inputFrames * channelCount);
+		frames += inputFrames;
+		int start = 0;
+		int outputFrames = 0;
+		int o = 0;
+		while (start + taps <= frames) {
+			int c = phase * taps;
+			int h = start * channelCount;
+			if (channelCount == 1) {
+				//Independent sums of even and odd taps (count of taps is even), so additions do not wait for each other.
+				float even = 0;
+				float odd = 0;
+				for (int k = 0; k < taps; k += 2) {
+					even += coefficients[c + k] * history[h + k];
+					odd += coefficients[c + k + 1] * history[h + k + 1];
+				}
+				output[o++] = even + odd;
+			} else if (channelCount == 2) {
+				float left = 0;
+				float right = 0;
+				for (int k = 0; k < taps; k++) {
+					float coefficient = coefficients[c + k];
+					left += coefficient * history[h];
+					right += coefficient * history[h + 1];
+					h += 2;
+				}
+				output[o++] = left;
+				output[o++] = right;
+			} else {
+				for (int ch = 0; ch < channelCount; ch++) {
+					float sum = 0;
+					for (int k = 0; k < taps; k++) {
+						sum += coefficients[c + k] * history[h + k * channelCount + ch];
+					}
+					output[o++] = sum;
+				}
+			}
+			outputFrames++;
+			phase += down;
+			start += phase / up;
+			phase %= up;
+		}
+		//Keep frames needed by the next output frames.
+		frames -= start;
+		System.arraycopy(history, start * channelCount, history, 0, frames * channelCount);
+		return outputFrames;
+	}
+
+	/** Max count of frames produced from the count of input frames. */
+	public int maxOutputFrames(int inputFrames) {
+		return (int) (((long) inputFrames * up + down - 1) / down);
+	}
+
+	/** Max count of input frames which produce no more than the count of output frames. */
+	public int maxInputFrames(int outputFrames) {
+		return (int) Math.min(maxInputFrames, (long) outputFrames * down / up);
+	}
+
+	/** Delay of the last input frames which wait for the right half of the filter. */
+	public int getLatencyFrames() {
+		return taps / 2;
+	}
+
+	public int getTaps() {
+		return taps;
+	}
+
+	public int getInputRate() {
+		return inputRate;
+	}
+
+	public int getOutputRate() {
+		return outputRate;
+	}
+
+	/**
+	 * Windowed sinc sampled at positions of every phase. Coefficient k of phase p weights the input frame
+	 * which is (taps / 2 - 1 + p / up - k) input periods before the output frame.
+	 * @param cutoff cutoff frequency in cycles per input sample.
+	 */
+	private static float[] designFilter(int up, int taps, double cutoff, double beta) {
+		float[] result = new float[up * taps];
+		double halfLength = taps / 2.0;
+		double i0Beta = besselI0(beta);
+		for (int p = 0; p < up; p++) {
+			double sum = 0;
+			double[] phase = new double[taps];
+			for (int k = 0; k < taps; k++) {
+				double x = halfLength - 1 + (double) p / up - k;
+				double t = x / halfLength;
+				if (Math.abs(t) >= 1) {
+					continue;
+				}
+				double sinc = x == 0 ? 1 : Math.sin(2 * Math.PI * cutoff * x) / (2 * Math.PI * cutoff * x);
+				phase[k] = 2 * cutoff * sinc * besselI0(beta * Math.sqrt(1 - t * t)) / i0Beta;
+				sum += phase[k];
+			}
+			//Every phase has unity gain at DC, so resampled silence and DC have no ripple.
+			for (int k = 0; k < taps; k++) {
+				result[p * taps + k] = (float) (phase[k] / sum);
+			}
+		}
+		return result;
+	}
+
+	/** Modified Bessel function of the first kind and order zero. */
+	private static double besselI0(double x) {
+		double sum = 1;
+		double term = 1;
+		double half = x / 2;
+		for (int k = 1; k < 50; k++) {
+			term *= (half / k) * (half / k);
+			sum += term;
+			if (term < sum * 1e-12) {
+				break;
+			}
+		}
+		return sum;
+	}
+
+	private static int gcd(int a, int b) {
+		while (b != 0) {
+			int t = a % b;
+			a = b;
+			b = t;
+		}
+		return a;
+	}
+}
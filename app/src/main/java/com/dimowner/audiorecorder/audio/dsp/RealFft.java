@@ -0,0 +1,159 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.dsp;
+
+/**
+ * Radix-2 FFT of real input with power of 2 size N.
+ * Even and odd samples are packed into one complex sequence of N/2 values, transformed by an in-place
+ * complex FFT and split into bins 0..N/2 of the real spectrum, so a transform costs about half of a complex one.
+ * Twiddles and bit reversal permutation are computed once. Transforms do not allocate memory.
+ * Instance is not thread safe.
+ */
+public class RealFft {
+
+	private final int size;
+	/** Size of the complex FFT. */
+	private final int half;
+	private final int[] bitReverse;
+	/** Twiddles of the complex FFT: e^(-2*pi*i*k/half). */
+	private final float[] cos;
+	private final float[] sin;
+	/** Twiddles of the split into the real spectrum: e^(-2*pi*i*k/size). */
+	private final float[] splitCos;
+	private final float[] splitSin;
+	private final float[] re;
+	private final float[] im;
+
+	/** @param size transform size, power of 2 not less than 4. */
+	public RealFft(int size) {
+		if (size < 4 || Integer.bitCount(size) != 1) {
+			throw new IllegalArgumentException("size = " + size);
+		}
+		this.size = size;
+		this.half = size / 2;
+		this.bitReverse = new int[half];
+		int bits = Integer.numberOfTrailingZeros(half);
+		for (int i = 0; i < half; i++) {
+			bitReverse[i] = Integer.reverse(i) >>> (32 - bits);
+		}
+		this.cos = new float[half / 2];
+		this.sin = new float[half / 2];
+		for (int k = 0; k < half / 2; k++) {
+			double angle = -2 * Math.PI * k / half;
+			cos[k] = (float) Math.cos(angle);
+			sin[k] = (float) Math.sin(angle);
+		}
+		this.splitCos = new float[half + 1];
+		this.splitSin = new float[half + 1];
+		for (int k = 0; k <= half; k++) {
+			double angle = -2 * Math.PI * k / size;
+			splitCos[k] = (float) Math.cos(angle);
+			splitSin[k] = (float) Math.sin(angle);
+		}
+		this.re = new float[half];
+		this.im = new float[half];
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	/** Count of bins of the real spectrum: N/2 + 1 from DC to Nyquist frequency. */
+	public int getBinCount() {
+		return half + 1;
+	}
+
+	/**
+	 * Transform {@code size} real samples.
+	 * @param outRe real parts of bins 0..N/2, length not less than {@link #getBinCount()}.
+	 * @param outIm imaginary parts of bins 0..N/2, length not less than {@link #getBinCount()}.
+	 */
+	public void forward(float[] input, float[] outRe, float[] outIm) {
+		transformPacked(input);
+		//Z[k] = E[k] + i*O[k], where E and O are spectra of even and odd samples.
+		//X[k] = E[k] + e^(-2*pi*i*k/N) * O[k], Z[N/2] = Z[0].
+		for (int k = 0; k <= half; k++) {
+			int a = k == half ? 0 : k;
+			int b = k == 0 ? 0 : half - k;
+			float zr = re[a];
+			float zi = im[a];
+			float cr = re[b];
+			float ci = -im[b];
+			float er = (zr + cr) * 0.5f;
+			float ei = (zi + ci) * 0.5f;
+			//O[k] = -i * (Z[k] - conj(Z[N/2-k])) / 2
+			float or = (zi - ci) * 0.5f;
+			float oi = -(zr - cr) * 0.5f;
+			float wr = splitCos[k];
+			float wi = splitSin[k];
+			outRe[k] = er + wr * or - wi * oi;
+			outIm[k] = ei + wr * oi + wi * or;
+		}
+	}
+
+	/**
+	 * Squared magnitudes of bins 0..N/2 of {@code size} real samples.
+	 * @param out length not less than {@link #getBinCount()}.
+	 */
+	public void powerSpectrum(float[] input, float[] out) {
+		transformPacked(input);
+		for (int k = 0; k <= half; k++) {
+			int a = k == half ? 0 : k;
+			int b = k == 0 ? 0 : half - k;
+			float zr = re[a];
+			float zi = im[a];
+			float cr = re[b];
+			float ci = -im[b];
+			float er = (zr + cr) * 0.5f;
+			float ei = (zi + ci) * 0.5f;
+			float or = (zi - ci) * 0.5f;
+			float oi = -(zr - cr) * 0.5f;
+			float wr = splitCos[k];
+			float wi = splitSin[k];
+			float xr = er + wr * or - wi * oi;
+			float xi = ei + wr * oi + wi * or;
+			out[k] = xr * xr + xi * xi;
+		}
+	}
+
+	/** Pack even samples into real and odd samples into imaginary parts in bit reversed order and transform them. */
+	private void transformPacked(float[] input) {
+		for (int i = 0; i < half; i++) {
+			int j = bitReverse[i];
+			re[j] = input[2 * i];
+			im[j] = input[2 * i + 1];
+		}
+		for (int length = 2; length <= half; length <<= 1) {
+			int halfLength = length >> 1;
+			int step = half / length;
+			for (int start = 0; start < half; start += length) {
+				for (int k = 0; k < halfLength; k++) {
+					float wr = cos[k * step];
+					float wi = sin[k * step];
+					int p = start + k;
+					int q = p + halfLength;
+					float tr = re[q] * wr - im[q] * wi;
+					float ti = re[q] * wi + im[q] * wr;
+					re[q] = re[p] - tr;
+					im[q] = im[p] - ti;
+					re[p] += tr;
+					im[p] += ti;
+				}
+			}
+		}
+	}
+}
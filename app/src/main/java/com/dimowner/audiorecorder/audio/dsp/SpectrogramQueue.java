@@ -0,0 +1,131 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.dsp;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free fixed-size queue of spectrogram columns passed from the analyzer thread to the view.
+ * Column is a level of every frequency bin from DC to Nyquist frequency, 0 is {@link #MIN_DB} and 255 is 0 dBFS.
+ * Columns are stored in one preallocated array. When the consumer falls behind and the queue is full
+ * new columns are dropped and counted.
+ * Producer skips analysis while no consumer is attached, see {@link #setConsumerAttached(boolean)}.
+ */
+public class SpectrogramQueue {
+
+	/** Level of column value 0. */
+	public static final float MIN_DB = -96f;
+	public static final int MAX_LEVEL = 255;
+
+	private final int capacity;
+	private final int binCount;
+	private final byte[] columns;
+
+	/** Index of the next column to read, written by the consumer. */
+	private final AtomicLong head = new AtomicLong();
+	/** Index of the next column to write, written by the producer. */
+	private final AtomicLong tail = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private volatile boolean isConsumerAttached = false;
+
+	/**
+	 * @param capacity max count of columns not polled yet.
+	 * @param binCount count of values in a column.
+	 */
+	public SpectrogramQueue(int capacity, int binCount) {
+		if (capacity <= 0 || binCount <= 0) {
+			throw new IllegalArgumentException("capacity = " + capacity + " binCount = " + binCount);
+		}
+		this.capacity = capacity;
+		this.binCount = binCount;
+		this.columns = new byte[capacity * binCount];
+	}
+
+	/** Convert level in dB relative to full scale into column value. */
+	public static int toLevel(float db) {
+		if (db <= MIN_DB) {
+			return 0;
+		}
+		if (db >= 0) {
+			return MAX_LEVEL;
+		}
+		return Math.round((db - MIN_DB) * MAX_LEVEL / -MIN_DB);
+	}
+
+	/**
+	 * Add column. Called only by the producer thread.
+	 * @param column {@link #getBinCount()} levels.
+	 * @return false when the queue is full and the column is dropped.
+	 */
+	public boolean offer(byte[] column) {
+		long t = tail.get();
+		if (t - head.get() >= capacity) {
+			dropped.incrementAndGet();
+			return false;
+		}
+		System.arraycopy(column, 0, columns, (int) (t % capacity) * binCount, binCount);
+		tail.lazySet(t + 1);
+		return true;
+	}
+
+	/**
+	 * Move the oldest column into {@code out}. Called only by the consumer thread.
+	 * @return false when there is no new column.
+	 */
+	public boolean poll(byte[] out) {
+		long h = head.get();
+		if (h == tail.get()) {
+			return false;
+		}
+		System.arraycopy(columns, (int) (h % capacity) * binCount, out, 0, binCount);
+		head.lazySet(h + 1);
+		return true;
+	}
+
+	/** Skip all columns not polled yet. Called only by the consumer thread. */
+	public void clear() {
+		head.lazySet(tail.get());
+	}
+
+	/** Tell producer that columns are displayed. */
+	public void setConsumerAttached(boolean attached) {
+		isConsumerAttached = attached;
+	}
+
+	public boolean isConsumerAttached() {
+		return isConsumerAttached;
+	}
+
+	/** Count of columns added and not polled yet. */
+	public int size() {
+		long h = head.get();
+		return (int) (tail.get() - h);
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public int getBinCount() {
+		return binCount;
+	}
+
+	/** Count of columns dropped because the queue was full. */
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.dsp;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Computes spectrogram columns of recorded audio on a separate low priority thread.
+ * Recording thread copies every block as mono samples into a lock-free ring with {@link #write(ByteBuffer)},
+ * it never waits for the analysis. Analyzer thread takes frames of FFT size every hop, applies Hann window,
+ * transforms them with {@link RealFft} and offers levels of bins into {@link SpectrogramQueue}.
+ * When analysis falls behind and the ring is full new samples are dropped and counted.
+ * All buffers are allocated once.
+ */
+public class SpectrumAnalyzer {
+
+	/** Time analyzer thread waits for more samples. */
+	private static final long ANALYSIS_INTERVAL_NANOS = 20_000_000; //20 mills
+	/** Duration of samples the ring can hold while analysis falls behind. */
+	private static final float RING_DEPTH_SECONDS = 0.5f;
+
+	private final SpectrogramQueue queue;
+	private final RealFft fft;
+	private final int fftSize;
+	private final int hop;
+	private final int channelCount;
+	private final float[] window;
+	private final float[] frame;
+	private final float[] power;
+	private final byte[] column;
+	/** Level of a bin of full scale sine wave in dB of its power. */
+	private final float fullScaleDb;
+
+	private final float[] ring;
+	private final int mask;
+	/** Index of the first sample of the next frame, written by the analyzer thread. */
+	private final AtomicLong head = new AtomicLong();
+	/** Index of the next sample to write, written by the recording thread. */
+	private final AtomicLong tail = new AtomicLong();
+	private final AtomicLong droppedFrames = new AtomicLong();
+
+	private Thread thread;
+	private volatile boolean isRunning = false;
+
+	/**
+	 * @param sampleRate sample rate of recorded audio.
+	 * @param channelCount channel count of recorded audio, channels are mixed into mono.
+	 * @param columnsPerSecond count of columns per second of audio.
+	 * @param queue receives columns. FFT size is defined by its bin count.
+	 */
+	public SpectrumAnalyzer(int sampleRate, int channelCount, int columnsPerSecond, SpectrogramQueue queue) {
+		if (sampleRate <= 0 || channelCount <= 0 || columnsPerSecond <= 0) {
+			throw new IllegalArgumentException("sampleRate = " + sampleRate + " channelCount = " + channelCount
+					+ " columnsPerSecond = " + columnsPerSecond);
+		}
+		this.queue = queue;
+		this.fftSize = (queue.getBinCount() - 1) * 2;
+		this.fft = new RealFft(fftSize);
+		this.hop = Math.max(1, sampleRate / columnsPerSecond);
+		this.channelCount = channelCount;
+		this.window = new float[fftSize];
+		for (int i = 0; i < fftSize; i++) {
+			window[i] = (float) (0.5 - 0.5 * Math.cos(2 * Math.PI * i / fftSize));
+		}
+		this.frame = new float[fftSize];
+		this.power = new float[fft.getBinCount()];
+		this.column = new byte[fft.getBinCount()];
+		//Amplitude of full scale sine in its bin is the sum of the window divided by 2, which is N/4 for Hann.
+		this.fullScaleDb = (float) (20 * Math.log10(fftSize / 4.0));
+		int ringSize = Integer.highestOneBit(Math.max(fftSize + hop, (int) (sampleRate * RING_DEPTH_SECONDS)) - 1) << 1;
+		this.ring = new float[ringSize];
+		this.mask = ringSize - 1;
+	}
+
+	/** Start the analyzer thread. */
+	public void start() {
+		if (isRunning) {
+			return;
+		}
+		isRunning = true;
+		thread = new Thread(this::analyze, "AudioRecorder Spectrum Thread");
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.start();
+	}
+
+	/** Stop the analyzer thread and wait until it finishes the current column. */
+	public void stop() {
+		if (!isRunning) {
+			return;
+		}
+		isRunning = false;
+		LockSupport.unpark(thread);
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		thread = null;
+	}
+
+	/**
+	 * Copy little-endian 16 bit PCM from {@code block.position()} to {@code block.limit()} into the ring.
+	 * Called only by the recording thread. Buffer position is not changed.
+	 */
+	public void write(ByteBuffer block) {
+		if (block.order() != ByteOrder.LITTLE_ENDIAN) {
+			throw new IllegalArgumentException("PCM buffer must be little-endian");
+		}
+		int frameSize = channelCount * 2;
+		int start = block.position();
+		int frames = (block.limit() - start) / frameSize;
+		long t = tail.get();
+		int count = (int) Math.min(frames, ring.length - (t - head.get()));
+		if (count < frames) {
+			droppedFrames.addAndGet(frames - count);
+		}
+		float scale = 1f / (PcmLevelMeter.FULL_SCALE * channelCount);
+		int index = start;
+		for (int f = 0; f < count; f++) {
+			int sum = 0;
+			for (int ch = 0; ch < channelCount; ch++) {
+				sum += block.getShort(index);
+				index += 2;
+			}
+			ring[(int) ((t + f) & mask)] = sum * scale;
+		}
+		tail.lazySet(t + count);
+	}
+
+	/**
+	 * Compute the next column when the ring holds a whole frame. Called only by the analyzer thread,
+	 * which is started by {@link #start()}. Frame is skipped without analysis while no consumer is attached.
+	 * @return false when there are not enough samples for a frame.
+	 */
+	public boolean analyzeNext() {
+		long h = head.get();
+		//Samples between frames are skipped when hop is longer than a frame.
+		if (tail.get() - h < Math.max(fftSize, hop)) {
+			return false;
+		}
+		if (queue.isConsumerAttached()) {
+			for (int i = 0; i < fftSize; i++) {
+				frame[i] = ring[(int) ((h + i) & mask)] * window[i];
+			}
+			fft.powerSpectrum(frame, power);
+			for (int k = 0; k < power.length; k++) {
+				float db = power[k] > 0 ? (float) (10 * Math.log10(power[k])) - fullScaleDb : SpectrogramQueue.MIN_DB;
+				column[k] = (byte) SpectrogramQueue.toLevel(db);
+			}
+			queue.offer(column);
+		}
+		head.lazySet(h + hop);
+		return true;
+	}
+
+	public int getFftSize() {
+		return fftSize;
+	}
+
+	/** Count of samples between the starts of adjacent frames. */
+	public int getHop() {
+		return hop;
+	}
+
+	/** Count of PCM frames dropped without analysis because the ring was full. */
+	public long getDroppedFrames() {
+		return droppedFrames.get();
+	}
+
+	private void analyze() {
+		while (isRunning) {
+			if (!analyzeNext()) {
+				LockSupport.parkNanos(this, ANALYSIS_INTERVAL_NANOS);
+			}
+		}
+	}
+}
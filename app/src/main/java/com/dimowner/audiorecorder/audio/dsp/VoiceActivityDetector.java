@@ -0,0 +1,149 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.dsp;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Per block voice activity detector for 16 bit interleaved PCM based on energy and zero-crossing rate.
+ * Activity starts when block energy reaches the on threshold, or the lower off threshold
+ * while zero-crossing rate is in the range of unvoiced speech (fricatives are quiet but cross zero often).
+ * Activity continues while energy stays above the off threshold and ends after the hangover of quieter audio,
+ * so pauses between words do not end it.
+ * Processing does not allocate memory.
+ */
+public class VoiceActivityDetector {
+
+	/** Lowest zero-crossing frequency of unvoiced speech. */
+	private static final int MIN_FRICATIVE_CROSSINGS_HZ = 2000;
+	/** Highest zero-crossing frequency of unvoiced speech. Broadband noise crosses zero more often. */
+	private static final int MAX_FRICATIVE_CROSSINGS_HZ = 8000;
+
+	private final int sampleRate;
+	private final int channelCount;
+	/** Mean square sample value of the on threshold. */
+	private final double onMeanSquare;
+	/** Mean square sample value of the off threshold. */
+	private final double offMeanSquare;
+	private final long hangoverFrames;
+
+	private boolean isActive = false;
+	private long hangoverLeft = 0;
+	private double lastMeanSquare = 0;
+	private int lastCrossingsHz = 0;
+
+	/**
+	 * @param onDbfs block RMS level which starts activity.
+	 * @param offDbfs block RMS level below which activity ends after the hangover. Must not be above onDbfs.
+	 * @param hangoverMills duration of audio below the off threshold after which activity ends.
+	 */
+	public VoiceActivityDetector(int sampleRate, int channelCount, float onDbfs, float offDbfs, int hangoverMills) {
+		if (channelCount <= 0 || sampleRate <= 0) {
+			throw new IllegalArgumentException("sampleRate = " + sampleRate + " channelCount = " + channelCount);
+		}
+		if (offDbfs > onDbfs) {
+			throw new IllegalArgumentException("offDbfs = " + offDbfs + " is above onDbfs = " + onDbfs);
+		}
+		this.sampleRate = sampleRate;
+		this.channelCount = channelCount;
+		this.onMeanSquare = toMeanSquare(onDbfs);
+		this.offMeanSquare = toMeanSquare(offDbfs);
+		this.hangoverFrames = (long) hangoverMills * sampleRate / 1000;
+	}
+
+	/**
+	 * Process block of PCM from {@code block.position()} to {@code block.limit()}.
+	 * Buffer must be in little-endian byte order. Buffer position is not changed.
+	 * @return true when the block is voice activity, including the hangover after it.
+	 */
+	public boolean process(ByteBuffer block) {
+		if (block.order() != ByteOrder.LITTLE_ENDIAN) {
+			throw new IllegalArgumentException("PCM buffer must be little-endian");
+		}
+		int start = block.position();
+		int frames = ((block.limit() - start) >> 1) / channelCount;
+		if (frames == 0) {
+			return isActive;
+		}
+		long sumSquares = 0;
+		int crossings = 0;
+		int index = start;
+		boolean wasNegative = block.getShort(index) < 0;
+		for (int f = 0; f < frames; f++) {
+			//Zero crossings are counted in the first channel only.
+			boolean isNegative = block.getShort(index) < 0;
+			if (isNegative != wasNegative) {
+				crossings++;
+				wasNegative = isNegative;
+			}
+			for (int ch = 0; ch < channelCount; ch++) {
+				int sample = block.getShort(index);
+				index += 2;
+				sumSquares += (long) sample * sample;
+			}
+		}
+		lastMeanSquare = (double) sumSquares / (frames * channelCount);
+		//Two crossings per period of a tone.
+		lastCrossingsHz = (int) ((long) crossings * sampleRate / (2L * frames));
+		update(frames);
+		return isActive;
+	}
+
+	private void update(int frames) {
+		boolean isOnset = lastMeanSquare >= onMeanSquare
+				|| (lastMeanSquare >= offMeanSquare
+						&& lastCrossingsHz >= MIN_FRICATIVE_CROSSINGS_HZ
+						&& lastCrossingsHz < MAX_FRICATIVE_CROSSINGS_HZ);
+		if (isOnset || (isActive && lastMeanSquare >= offMeanSquare)) {
+			isActive = true;
+			hangoverLeft = hangoverFrames;
+		} else if (isActive) {
+			hangoverLeft -= frames;
+			if (hangoverLeft <= 0) {
+				isActive = false;
+			}
+		}
+	}
+
+	/** Forget activity of the processed blocks. */
+	public void reset() {
+		isActive = false;
+		hangoverLeft = 0;
+		lastMeanSquare = 0;
+		lastCrossingsHz = 0;
+	}
+
+	public boolean isActive() {
+		return isActive;
+	}
+
+	/** RMS level of the last processed block. */
+	public float getLastDbfs() {
+		return PcmLevelMeter.toDbfs((float) Math.sqrt(lastMeanSquare));
+	}
+
+	/** Zero-crossing frequency of the last processed block, half of zero crossings per second. */
+	public int getLastCrossingsHz() {
+		return lastCrossingsHz;
+	}
+
+	private static double toMeanSquare(float dbfs) {
+		double rms = PcmLevelMeter.FULL_SCALE * Math.pow(10, dbfs / 20.0);
+		return rms * rms;
+	}
+}
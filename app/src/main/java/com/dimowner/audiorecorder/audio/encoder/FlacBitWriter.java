@@ -0,0 +1,160 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.encoder;
+
+import java.util.Arrays;
+
+/**
+ * Big-endian bit writer of FLAC frames with CRC-8 and CRC-16 used by frame header and footer.
+ * Buffer grows when needed and is reused between frames.
+ */
+public class FlacBitWriter {
+
+	private static final int[] CRC8_TABLE = new int[256];
+	private static final int[] CRC16_TABLE = new int[256];
+
+	static {
+		for (int i = 0; i < 256; i++) {
+			int crc8 = i;
+			int crc16 = i << 8;
+			for (int j = 0; j < 8; j++) {
+				crc8 = (crc8 & 0x80) != 0 ? (crc8 << 1) ^ 0x07 : crc8 << 1;
+				crc16 = (crc16 & 0x8000) != 0 ? (crc16 << 1) ^ 0x8005 : crc16 << 1;
+			}
+			CRC8_TABLE[i] = crc8 & 0xFF;
+			CRC16_TABLE[i] = crc16 & 0xFFFF;
+		}
+	}
+
+	private byte[] buffer;
+	private int length = 0;
+	/** Bits which are not yet written into the buffer, less than 8 between writes. */
+	private long cache = 0;
+	private int cacheBits = 0;
+
+	public FlacBitWriter(int capacity) {
+		buffer = new byte[Math.max(capacity, 16)];
+	}
+
+	public void reset() {
+		length = 0;
+		cache = 0;
+		cacheBits = 0;
+	}
+
+	/** Write low bits of the value. Count is from 0 to 32. */
+	public void writeBits(long value, int count) {
+		if (count == 0) {
+			return;
+		}
+		cache = (cache << count) | (value & ((1L << count) - 1));
+		cacheBits += count;
+		if (length + 5 > buffer.length) {
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		}
+		while (cacheBits >= 8) {
+			cacheBits -= 8;
+			buffer[length++] = (byte) (cache >>> cacheBits);
+		}
+	}
+
+	/** Write value in two's complement of the given bits count. */
+	public void writeSigned(int value, int count) {
+		writeBits(value, count);
+	}
+
+	/** Write the value as unary code: the value count of zero bits followed by one bit. */
+	public void writeUnary(int value) {
+		while (value >= 32) {
+			writeBits(0, 32);
+			value -= 32;
+		}
+		writeBits(1, value + 1);
+	}
+
+	/** Write Rice code of folded residual with the parameter. */
+	public void writeRice(int folded, int parameter) {
+		int quotient = folded >>> parameter;
+		if (quotient + 1 + parameter <= 32) {
+			writeBits((1L << parameter) | (folded & ((1L << parameter) - 1)), quotient + 1 + parameter);
+		} else {
+			writeUnary(quotient);
+			writeBits(folded, parameter);
+		}
+	}
+
+	/** Write value in the UTF-8 like coding used for frame numbers. Value is less than 2^31. */
+	public void writeUtf8(long value) {
+		if (value < 0x80) {
+			writeBits(value, 8);
+			return;
+		}
+		int bytes = value < 0x800 ? 2 : value < 0x10000 ? 3 : value < 0x200000 ? 4 : value < 0x4000000 ? 5 : 6;
+		int shift = (bytes - 1) * 6;
+		writeBits((0xFF00 >> bytes) | (value >>> shift), 8);
+		while (shift > 0) {
+			shift -= 6;
+			writeBits(0x80 | ((value >>> shift) & 0x3F), 8);
+		}
+	}
+
+	/** Pad with zero bits to the byte boundary. */
+	public void alignToByte() {
+		if (cacheBits > 0) {
+			writeBits(0, 8 - cacheBits);
+		}
+	}
+
+	public boolean isByteAligned() {
+		return cacheBits == 0;
+	}
+
+	/** Count of complete bytes written. */
+	public int getLength() {
+		return length;
+	}
+
+	public byte[] getBuffer() {
+		return buffer;
+	}
+
+	/** CRC-8 of the bytes from start of the buffer. */
+	public int crc8(int count) {
+		return crc8(buffer, 0, count);
+	}
+
+	/** CRC-16 of the bytes from start of the buffer. */
+	public int crc16(int count) {
+		return crc16(buffer, 0, count);
+	}
+
+	public static int crc8(byte[] data, int offset, int count) {
+		int crc = 0;
+		for (int i = offset; i < offset + count; i++) {
+			crc = CRC8_TABLE[(crc ^ data[i]) & 0xFF];
+		}
+		return crc;
+	}
+
+	public static int crc16(byte[] data, int offset, int count) {
+		int crc = 0;
+		for (int i = offset; i < offset + count; i++) {
+			crc = ((crc << 8) ^ CRC16_TABLE[((crc >> 8) ^ data[i]) & 0xFF]) & 0xFFFF;
+		}
+		return crc;
+	}
+}
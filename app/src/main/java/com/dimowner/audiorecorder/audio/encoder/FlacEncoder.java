@@ -0,0 +1,663 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.encoder;
+
+/**
+ * Encodes blocks of 16 bit PCM into FLAC frames with fixed block size.
+ * Every channel is encoded with the smallest of constant, verbatim, fixed (orders 0-4)
+ * and LPC (up to order {@link #MAX_LPC_ORDER}) subframes. Residual is coded with partitioned Rice coding.
+ * Stereo is encoded as independent, left/side, side/right or mid/side pair, whichever is estimated smaller.
+ * All buffers are allocated in constructor, so encoding does not allocate memory.
+ * Not thread safe.
+ */
+public class FlacEncoder {
+
+	public static final int BITS_PER_SAMPLE = 16;
+	public static final int MAX_FIXED_ORDER = 4;
+	public static final int MAX_LPC_ORDER = 8;
+	public static final int MAX_PARTITION_ORDER = 8;
+	/** Precision of quantized LPC coefficients. The same as the reference encoder uses for 4096 blocks. */
+	private static final int QLP_PRECISION = 12;
+	private static final int MAX_QLP_SHIFT = 15;
+	private static final int MAX_RICE_PARAMETER = 14;
+	private static final int MAX_RICE2_PARAMETER = 30;
+	/** Residual which does not fit into Rice codes of the reference decoder. */
+	private static final int MAX_RESIDUAL = 1 << 30;
+
+	private static final int SUBFRAME_CONSTANT = 0;
+	private static final int SUBFRAME_VERBATIM = 1;
+	private static final int SUBFRAME_FIXED = 2;
+	private static final int SUBFRAME_LPC = 3;
+
+	private static final int CHANNELS_LEFT_SIDE = 8;
+	private static final int CHANNELS_SIDE_RIGHT = 9;
+	private static final int CHANNELS_MID_SIDE = 10;
+
+	private final int sampleRate;
+	private final int channels;
+	private final int blockSize;
+	private final FlacBitWriter writer;
+
+	/** Deinterleaved samples: left (or mono), right, mid and side. */
+	private final int[][] samples;
+	private final double[] window;
+	private final double[] windowed;
+	private final double[] autocorrelation = new double[MAX_LPC_ORDER + 1];
+	private final double[][] lpc = new double[MAX_LPC_ORDER][MAX_LPC_ORDER];
+	private final double[] lpcError = new double[MAX_LPC_ORDER];
+	private final double[] reflection = new double[MAX_LPC_ORDER];
+	private final double[] reflectionTmp = new double[MAX_LPC_ORDER];
+	private final int[] qlp = new int[MAX_LPC_ORDER];
+	private final long[] fixedErrors = new long[MAX_FIXED_ORDER + 1];
+	private final Residual fixedResidual;
+	private final Residual lpcResidual;
+	private final long[] partitionSums = new long[1 << MAX_PARTITION_ORDER];
+	private final int[] partitionParameters = new int[1 << MAX_PARTITION_ORDER];
+
+	private int windowLength = 0;
+	private long encodedFrames = 0;
+
+	/**
+	 * @param channels 1 or 2.
+	 * @param blockSize count of samples per channel in a frame, from 16 to 65535.
+	 */
+	public FlacEncoder(int sampleRate, int channels, int blockSize) {
+		if (channels < 1 || channels > 2) {
+			throw new IllegalArgumentException("Unsupported channels count: " + channels);
+		}
+		if (blockSize < 16 || blockSize > 65535) {
+			throw new IllegalArgumentException("Unsupported block size: " + blockSize);
+		}
+		this.sampleRate = sampleRate;
+		this.channels = channels;
+		this.blockSize = blockSize;
+		this.samples = new int[channels == 2 ? 4 : 1][blockSize];
+		this.window = new double[blockSize];
+		this.windowed = new double[blockSize];
+		this.fixedResidual = new Residual(blockSize);
+		this.lpcResidual = new Residual(blockSize);
+		this.writer = new FlacBitWriter(blockSize * channels * 2 + 64);
+	}
+
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	/** Count of frames encoded so far. Frame number of the next frame. */
+	public long getEncodedFrames() {
+		return encodedFrames;
+	}
+
+	/**
+	 * Encode one frame. Only the last frame of a stream may be shorter than block size.
+	 * Encoded frame is available by {@link #getFrame()} and {@link #getFrameLength()} until the next call.
+	 * @param pcm interleaved 16 bit samples.
+	 * @param offset index of the first sample in the array.
+	 * @param frames count of samples per channel, from 1 to block size.
+	 * @return length of the encoded frame in bytes.
+	 */
+	public int encodeFrame(short[] pcm, int offset, int frames) {
+		if (frames < 1 || frames > blockSize) {
+			throw new IllegalArgumentException("Wrong frames count: " + frames);
+		}
+		deinterleave(pcm, offset, frames);
+		writer.reset();
+		int assignment = channels - 1;
+		if (channels == 2) {
+			assignment = chooseChannelAssignment(frames);
+		}
+		writeFrameHeader(frames, assignment);
+		switch (assignment) {
+			case CHANNELS_LEFT_SIDE:
+				writeSubframe(samples[0], frames, BITS_PER_SAMPLE);
+				writeSubframe(samples[3], frames, BITS_PER_SAMPLE + 1);
+				break;
+			case CHANNELS_SIDE_RIGHT:
+				writeSubframe(samples[3], frames, BITS_PER_SAMPLE + 1);
+				writeSubframe(samples[1], frames, BITS_PER_SAMPLE);
+				break;
+			case CHANNELS_MID_SIDE:
+				writeSubframe(samples[2], frames, BITS_PER_SAMPLE);
+				writeSubframe(samples[3], frames, BITS_PER_SAMPLE + 1);
+				break;
+			default:
+				for (int ch = 0; ch < channels; ch++) {
+					writeSubframe(samples[ch], frames, BITS_PER_SAMPLE);
+				}
+		}
+		writer.alignToByte();
+		writer.writeBits(writer.crc16(writer.getLength()), 16);
+		encodedFrames++;
+		return writer.getLength();
+	}
+
+	public byte[] getFrame() {
+		return writer.getBuffer();
+	}
+
+	public int getFrameLength() {
+		return writer.getLength();
+	}
+
+	private void deinterleave(short[] pcm, int offset, int frames) {
+		if (channels == 1) {
+			int[] mono = samples[0];
+			for (int i = 0; i < frames; i++) {
+				mono[i] = pcm[offset + i];
+			}
+		} else {
+			int[] left = samples[0];
+			int[] right = samples[1];
+			int[] mid = samples[2];
+			int[] side = samples[3];
+			for (int i = 0, j = offset; i < frames; i++, j += 2) {
+				int l = pcm[j];
+				int r = pcm[j + 1];
+				left[i] = l;
+				right[i] = r;
+				mid[i] = (l + r) >> 1;
+				side[i] = l - r;
+			}
+		}
+	}
+
+	/** Choose stereo decorrelation by residual of the best fixed predictor of every channel. */
+	private int chooseChannelAssignment(int frames) {
+		double left = estimateBits(samples[0], frames);
+		double right = estimateBits(samples[1], frames);
+		double mid = estimateBits(samples[2], frames);
+		double side = estimateBits(samples[3], frames);
+		int assignment = 1;
+		double best = left + right;
+		if (left + side < best) {
+			best = left + side;
+			assignment = CHANNELS_LEFT_SIDE;
+		}
+		if (side + right < best) {
+			best = side + right;
+			assignment = CHANNELS_SIDE_RIGHT;
+		}
+		if (mid + side < best) {
+			assignment = CHANNELS_MID_SIDE;
+		}
+		return assignment;
+	}
+
+	private double estimateBits(int[] x, int n) {
+		int order = computeFixedErrors(x, n);
+		double mean = (double) fixedErrors[order] / Math.max(n - order, 1);
+		return (n - order) * (Math.log(mean + 1) / Math.log(2) + 1);
+	}
+
+	private void writeFrameHeader(int frames, int assignment) {
+		int blockSizeCode;
+		if (frames == 4096) {
+			blockSizeCode = 12;
+		} else if (frames == 1152) {
+			blockSizeCode = 3;
+		} else if (frames <= 256) {
+			blockSizeCode = 6;
+		} else {
+			blockSizeCode = 7;
+		}
+		int sampleRateCode = sampleRateCode(sampleRate);
+		//Sync code, reserved bit and fixed block size strategy.
+		writer.writeBits(0xFFF8, 16);
+		writer.writeBits(blockSizeCode, 4);
+		writer.writeBits(sampleRateCode, 4);
+		writer.writeBits(assignment, 4);
+		writer.writeBits(4, 3); //16 bits per sample
+		writer.writeBits(0, 1);
+		writer.writeUtf8(encodedFrames);
+		if (blockSizeCode == 6) {
+			writer.writeBits(frames - 1, 8);
+		} else if (blockSizeCode == 7) {
+			writer.writeBits(frames - 1, 16);
+		}
+		if (sampleRateCode == 12) {
+			writer.writeBits(sampleRate / 1000, 8);
+		} else if (sampleRateCode == 13) {
+			writer.writeBits(sampleRate, 16);
+		}
+		writer.writeBits(writer.crc8(writer.getLength()), 8);
+	}
+
+	static int sampleRateCode(int sampleRate) {
+		switch (sampleRate) {
+			case 88200: return 1;
+			case 176400: return 2;
+			case 192000: return 3;
+			case 8000: return 4;
+			case 16000: return 5;
+			case 22050: return 6;
+			case 24000: return 7;
+			case 32000: return 8;
+			case 44100: return 9;
+			case 48000: return 10;
+			case 96000: return 11;
+			default:
+				if (sampleRate % 1000 == 0 && sampleRate <= 255000) {
+					return 12;
+				} else if (sampleRate <= 65535) {
+					return 13;
+				}
+				//Taken from STREAMINFO.
+				return 0;
+		}
+	}
+
+	private void writeSubframe(int[] x, int n, int bps) {
+		if (isConstant(x, n)) {
+			writeSubframeHeader(SUBFRAME_CONSTANT, 0);
+			writer.writeSigned(x[0], bps);
+			return;
+		}
+		long verbatimBits = (long) n * bps;
+
+		int fixedOrder = computeFixedErrors(x, n);
+		computeFixedResidual(x, n, fixedOrder, fixedResidual);
+		long fixedBits = (long) fixedOrder * bps + chooseRiceParameters(fixedResidual, n, fixedOrder);
+
+		long lpcBits = Long.MAX_VALUE;
+		if (n > MAX_LPC_ORDER * 2) {
+			int lpcOrder = computeLpc(x, n);
+			if (lpcOrder > 0 && computeLpcResidual(x, n, lpcOrder, lpcResidual)) {
+				lpcBits = (long) lpcOrder * (bps + QLP_PRECISION) + 9
+						+ chooseRiceParameters(lpcResidual, n, lpcOrder);
+			}
+		}
+
+		if (verbatimBits <= fixedBits && verbatimBits <= lpcBits) {
+			writeSubframeHeader(SUBFRAME_VERBATIM, 0);
+			for (int i = 0; i < n; i++) {
+				writer.writeSigned(x[i], bps);
+			}
+		} else if (fixedBits <= lpcBits) {
+			writeSubframeHeader(SUBFRAME_FIXED, fixedOrder);
+			for (int i = 0; i < fixedOrder; i++) {
+				writer.writeSigned(x[i], bps);
+			}
+			writeResidual(fixedResidual, n);
+		} else {
+			int order = lpcResidual.order;
+			writeSubframeHeader(SUBFRAME_LPC, order);
+			for (int i = 0; i < order; i++) {
+				writer.writeSigned(x[i], bps);
+			}
+			writer.writeBits(QLP_PRECISION - 1, 4);
+			writer.writeSigned(lpcResidual.shift, 5);
+			for (int i = 0; i < order; i++) {
+				writer.writeSigned(lpcResidual.coefficients[i], QLP_PRECISION);
+			}
+			writeResidual(lpcResidual, n);
+		}
+	}
+
+	private void writeSubframeHeader(int type, int order) {
+		int code;
+		switch (type) {
+			case SUBFRAME_CONSTANT:
+				code = 0;
+				break;
+			case SUBFRAME_VERBATIM:
+				code = 1;
+				break;
+			case SUBFRAME_FIXED:
+				code = 0x08 | order;
+				break;
+			default:
+				code = 0x20 | (order - 1);
+		}
+		//Zero padding bit, subframe type and no wasted bits.
+		writer.writeBits(code << 1, 8);
+	}
+
+	private static boolean isConstant(int[] x, int n) {
+		int first = x[0];
+		for (int i = 1; i < n; i++) {
+			if (x[i] != first) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Compute sums of absolute residuals of fixed predictors of all orders in one pass.
+	 * @return order of the predictor with the smallest sum.
+	 */
+	private int computeFixedErrors(int[] x, int n) {
+		long e0 = 0, e1 = 0, e2 = 0, e3 = 0, e4 = 0;
+		if (n > MAX_FIXED_ORDER) {
+			int last0 = x[3];
+			int last1 = x[3] - x[2];
+			int last2 = last1 - (x[2] - x[1]);
+			int last3 = last2 - (x[2] - 2 * x[1] + x[0]);
+			for (int i = MAX_FIXED_ORDER; i < n; i++) {
+				int r0 = x[i];
+				int r1 = r0 - last0;
+				int r2 = r1 - last1;
+				int r3 = r2 - last2;
+				int r4 = r3 - last3;
+				e0 += Math.abs(r0);
+				e1 += Math.abs(r1);
+				e2 += Math.abs(r2);
+				e3 += Math.abs(r3);
+				e4 += Math.abs(r4);
+				last0 = r0;
+				last1 = r1;
+				last2 = r2;
+				last3 = r3;
+			}
+		} else {
+			fixedErrors[0] = 0;
+			fixedErrors[1] = fixedErrors[2] = fixedErrors[3] = fixedErrors[4] = Long.MAX_VALUE;
+			return 0;
+		}
+		fixedErrors[0] = e0;
+		fixedErrors[1] = e1;
+		fixedErrors[2] = e2;
+		fixedErrors[3] = e3;
+		fixedErrors[4] = e4;
+		int order = 0;
+		for (int i = 1; i <= MAX_FIXED_ORDER; i++) {
+			if (fixedErrors[i] < fixedErrors[order]) {
+				order = i;
+			}
+		}
+		return order;
+	}
+
+	private static void computeFixedResidual(int[] x, int n, int order, Residual residual) {
+		int[] r = residual.values;
+		residual.order = order;
+		switch (order) {
+			case 0:
+				for (int i = 0; i < n; i++) {
+					r[i] = x[i];
+				}
+				break;
+			case 1:
+				for (int i = 1; i < n; i++) {
+					r[i] = x[i] - x[i-1];
+				}
+				break;
+			case 2:
+				for (int i = 2; i < n; i++) {
+					r[i] = x[i] - 2 * x[i-1] + x[i-2];
+				}
+				break;
+			case 3:
+				for (int i = 3; i < n; i++) {
+					r[i] = x[i] - 3 * x[i-1] + 3 * x[i-2] - x[i-3];
+				}
+				break;
+			default:
+				for (int i = 4; i < n; i++) {
+					r[i] = x[i] - 4 * x[i-1] + 6 * x[i-2] - 4 * x[i-3] + x[i-4];
+				}
+		}
+	}
+
+	/**
+	 * Compute LPC coefficients of all orders with Tukey window and Levinson-Durbin recursion.
+	 * @return estimated best order or 0 when the signal can't be predicted.
+	 */
+	private int computeLpc(int[] x, int n) {
+		if (windowLength != n) {
+			tukeyWindow(window, n, 0.5);
+			windowLength = n;
+		}
+		for (int i = 0; i < n; i++) {
+			windowed[i] = x[i] * window[i];
+		}
+		for (int lag = 0; lag <= MAX_LPC_ORDER; lag++) {
+			double sum = 0;
+			for (int i = lag; i < n; i++) {
+				sum += windowed[i] * windowed[i - lag];
+			}
+			autocorrelation[lag] = sum;
+		}
+		if (autocorrelation[0] <= 0) {
+			return 0;
+		}
+		int maxOrder = levinsonDurbin(autocorrelation, MAX_LPC_ORDER, lpc, lpcError, reflection, reflectionTmp);
+
+		//Expected bits of the residual and coefficients of every order, see the reference encoder.
+		int bestOrder = 0;
+		double bestBits = Double.MAX_VALUE;
+		double errorScale = 0.5 / n;
+		for (int order = 1; order <= maxOrder; order++) {
+			double error = lpcError[order - 1] * errorScale;
+			double bitsPerSample = error > 0 ? Math.max(0.5 * Math.log(error) / Math.log(2), 0) : 0;
+			double bits = bitsPerSample * (n - order) + order * (double) (QLP_PRECISION + BITS_PER_SAMPLE);
+			if (bits < bestBits) {
+				bestBits = bits;
+				bestOrder = order;
+			}
+		}
+		return bestOrder;
+	}
+
+	/**
+	 * Levinson-Durbin recursion.
+	 * @param coefficients predictor coefficients of every order, x[i] is predicted as sum(c[j] * x[i-j-1]).
+	 * @param errors prediction error of every order.
+	 * @param a buffer for coefficients of the current order.
+	 * @param tmp buffer for coefficients of the next order.
+	 * @return max order which was computed.
+	 */
+	static int levinsonDurbin(double[] autocorrelation, int maxOrder, double[][] coefficients, double[] errors,
+									  double[] a, double[] tmp) {
+		double error = autocorrelation[0];
+		for (int m = 0; m < maxOrder; m++) {
+			double k = autocorrelation[m + 1];
+			for (int j = 0; j < m; j++) {
+				k -= a[j] * autocorrelation[m - j];
+			}
+			k /= error;
+			for (int j = 0; j < m; j++) {
+				tmp[j] = a[j] - k * a[m - 1 - j];
+			}
+			System.arraycopy(tmp, 0, a, 0, m);
+			a[m] = k;
+			error *= 1 - k * k;
+			System.arraycopy(a, 0, coefficients[m], 0, m + 1);
+			errors[m] = error;
+			if (error <= 0 || Double.isNaN(error)) {
+				return m + 1;
+			}
+		}
+		return maxOrder;
+	}
+
+	static void tukeyWindow(double[] window, int n, double ratio) {
+		int taper = (int) (ratio / 2 * n);
+		for (int i = 0; i < n; i++) {
+			window[i] = 1;
+		}
+		if (taper > 1) {
+			for (int i = 0; i < taper; i++) {
+				double w = 0.5 - 0.5 * Math.cos(Math.PI * i / taper);
+				window[i] = w;
+				window[n - 1 - i] = w;
+			}
+		}
+	}
+
+	/**
+	 * Quantize coefficients of the order and compute residual.
+	 * @return false when coefficients can't be quantized or residual is too large.
+	 */
+	private boolean computeLpcResidual(int[] x, int n, int order, Residual residual) {
+		double[] c = lpc[order - 1];
+		double max = 0;
+		for (int i = 0; i < order; i++) {
+			max = Math.max(max, Math.abs(c[i]));
+		}
+		if (max <= 0 || Double.isNaN(max) || Double.isInfinite(max)) {
+			return false;
+		}
+		int shift = QLP_PRECISION - 2 - Math.getExponent(max);
+		if (shift < 0) {
+			return false;
+		}
+		shift = Math.min(shift, MAX_QLP_SHIFT);
+		int qmax = (1 << (QLP_PRECISION - 1)) - 1;
+		int qmin = -(1 << (QLP_PRECISION - 1));
+		//Quantization error is carried to the next coefficient.
+		double error = 0;
+		for (int i = 0; i < order; i++) {
+			error += c[i] * (1 << shift);
+			long q = Math.round(error);
+			q = Math.max(qmin, Math.min(qmax, q));
+			error -= q;
+			qlp[i] = (int) q;
+		}
+
+		int[] r = residual.values;
+		for (int i = order; i < n; i++) {
+			long sum = 0;
+			for (int j = 0; j < order; j++) {
+				sum += (long) qlp[j] * x[i - j - 1];
+			}
+			long value = x[i] - (sum >> shift);
+			if (value >= MAX_RESIDUAL || value <= -MAX_RESIDUAL) {
+				return false;
+			}
+			r[i] = (int) value;
+		}
+		residual.order = order;
+		residual.shift = shift;
+		System.arraycopy(qlp, 0, residual.coefficients, 0, order);
+		return true;
+	}
+
+	/**
+	 * Choose partition order and Rice parameters of the residual.
+	 * Parameters are stored in the residual.
+	 * @return estimated size of the coded residual in bits.
+	 */
+	private long chooseRiceParameters(Residual residual, int n, int predictorOrder) {
+		int[] r = residual.values;
+		int maxOrder = 0;
+		while (maxOrder < MAX_PARTITION_ORDER && (n & (1 << (maxOrder + 1)) - 1) == 0
+				&& (n >> (maxOrder + 1)) > predictorOrder) {
+			maxOrder++;
+		}
+		//Sums of folded residuals of partitions of the max order.
+		int partitions = 1 << maxOrder;
+		int partitionSize = n >> maxOrder;
+		int start = predictorOrder;
+		for (int p = 0; p < partitions; p++) {
+			int end = (p + 1) * partitionSize;
+			long sum = 0;
+			for (int i = start; i < end; i++) {
+				int v = r[i];
+				sum += (v << 1) ^ (v >> 31);
+			}
+			partitionSums[p] = sum;
+			start = end;
+		}
+
+		long bestBits = Long.MAX_VALUE;
+		for (int order = maxOrder; order >= 0; order--) {
+			partitions = 1 << order;
+			partitionSize = n >> order;
+			long bits = 6;
+			int maxParameter = 0;
+			for (int p = 0; p < partitions; p++) {
+				int count = p == 0 ? partitionSize - predictorOrder : partitionSize;
+				int parameter = riceParameter(partitionSums[p], count);
+				partitionParameters[p] = parameter;
+				maxParameter = Math.max(maxParameter, parameter);
+				bits += (long) count * (parameter + 1) + (partitionSums[p] >>> parameter);
+			}
+			bits += (long) partitions * (maxParameter > MAX_RICE_PARAMETER ? 5 : 4);
+			if (bits < bestBits) {
+				bestBits = bits;
+				residual.partitionOrder = order;
+				residual.rice2 = maxParameter > MAX_RICE_PARAMETER;
+				System.arraycopy(partitionParameters, 0, residual.parameters, 0, partitions);
+			}
+			//Merge sums for the lower order.
+			for (int p = 0; p < partitions / 2; p++) {
+				partitionSums[p] = partitionSums[2 * p] + partitionSums[2 * p + 1];
+			}
+		}
+		return bestBits;
+	}
+
+	/** Rice parameter with the smallest estimated size of the partition. */
+	private static int riceParameter(long sum, int count) {
+		if (count <= 0 || sum <= count) {
+			return 0;
+		}
+		int parameter = 63 - Long.numberOfLeadingZeros(sum / count);
+		parameter = Math.min(parameter, MAX_RICE2_PARAMETER);
+		if (parameter > 0) {
+			long bits = (long) count * parameter + (sum >>> parameter);
+			long lower = (long) count * (parameter - 1) + (sum >>> (parameter - 1));
+			if (lower < bits) {
+				parameter--;
+			}
+		}
+		if (parameter < MAX_RICE2_PARAMETER) {
+			long bits = (long) count * parameter + (sum >>> parameter);
+			long higher = (long) count * (parameter + 1) + (sum >>> (parameter + 1));
+			if (higher < bits) {
+				parameter++;
+			}
+		}
+		return parameter;
+	}
+
+	private void writeResidual(Residual residual, int n) {
+		int[] r = residual.values;
+		int order = residual.partitionOrder;
+		int partitionSize = n >> order;
+		int parameterBits = residual.rice2 ? 5 : 4;
+		writer.writeBits(residual.rice2 ? 1 : 0, 2);
+		writer.writeBits(order, 4);
+		int start = residual.order;
+		for (int p = 0; p < (1 << order); p++) {
+			int parameter = residual.parameters[p];
+			writer.writeBits(parameter, parameterBits);
+			int end = (p + 1) * partitionSize;
+			for (int i = start; i < end; i++) {
+				int v = r[i];
+				writer.writeRice((v << 1) ^ (v >> 31), parameter);
+			}
+			start = end;
+		}
+	}
+
+	/** Residual of a predictor with its coding parameters. */
+	private static class Residual {
+		final int[] values;
+		final int[] coefficients = new int[MAX_LPC_ORDER];
+		final int[] parameters = new int[1 << MAX_PARTITION_ORDER];
+		int order;
+		int shift;
+		int partitionOrder;
+		boolean rice2;
+
+		Residual(int blockSize) {
+			values = new int[blockSize];
+		}
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.encoder;
+
+import static com.dimowner.audiorecorder.audio.encoder.ImaAdpcmEncoder.INDEX_TABLE;
+import static com.dimowner.audiorecorder.audio.encoder.ImaAdpcmEncoder.SAMPLES_PER_WORD;
+import static com.dimowner.audiorecorder.audio.encoder.ImaAdpcmEncoder.STEP_TABLE;
+
+/**
+ * Decodes IMA ADPCM blocks written by {@link ImaAdpcmEncoder} into 16 bit little endian PCM.
+ * Every block starts from the state stored in its header, so blocks are decoded independently
+ * in any order. Decoder does not allocate memory. Not thread safe.
+ */
+public class ImaAdpcmDecoder {
+
+	private final int channels;
+	private final int blockAlign;
+	private final int samplesPerBlock;
+	private final int[] predictors;
+	private final int[] indexes;
+
+	public ImaAdpcmDecoder(int sampleRate, int channels) {
+		this.channels = channels;
+		this.blockAlign = ImaAdpcmEncoder.blockAlign(sampleRate, channels);
+		this.samplesPerBlock = ImaAdpcmEncoder.samplesPerBlock(blockAlign, channels);
+		this.predictors = new int[channels];
+		this.indexes = new int[channels];
+	}
+
+	public int getBlockAlign() {
+		return blockAlign;
+	}
+
+	public int getSamplesPerBlock() {
+		return samplesPerBlock;
+	}
+
+	/**
+	 * Decode one block of {@link #getBlockAlign()} bytes.
+	 * @param pcm array for {@link #getSamplesPerBlock()} interleaved frames of 16 bit little endian PCM.
+	 */
+	public void decodeBlock(byte[] block, int offset, byte[] pcm, int pcmOffset) {
+		int frameSize = channels * 2;
+		for (int ch = 0; ch < channels; ch++) {
+			int pos = offset + ch * 4;
+			predictors[ch] = (short) ((block[pos] & 0xFF) | block[pos + 1] << 8);
+			indexes[ch] = Math.max(0, Math.min(STEP_TABLE.length - 1, block[pos + 2]));
+			writeSample(pcm, pcmOffset + ch * 2, predictors[ch]);
+		}
+		int position = offset + channels * 4;
+		int words = (samplesPerBlock - 1) / SAMPLES_PER_WORD;
+		for (int w = 0; w < words; w++) {
+			int frameOffset = pcmOffset + (1 + w * SAMPLES_PER_WORD) * frameSize;
+			for (int ch = 0; ch < channels; ch++) {
+				for (int i = 0; i < SAMPLES_PER_WORD; i += 2) {
+					int value = block[position++];
+					writeSample(pcm, frameOffset + i * frameSize + ch * 2, decodeSample(ch, value & 0xF));
+					writeSample(pcm, frameOffset + (i + 1) * frameSize + ch * 2, decodeSample(ch, (value >> 4) & 0xF));
+				}
+			}
+		}
+	}
+
+	/** Update the predictor by the 4 bit difference the same way as the encoder does. */
+	private int decodeSample(int ch, int nibble) {
+		int step = STEP_TABLE[indexes[ch]];
+		int delta = step >> 3;
+		if ((nibble & 4) != 0) {
+			delta += step;
+		}
+		if ((nibble & 2) != 0) {
+			delta += step >> 1;
+		}
+		if ((nibble & 1) != 0) {
+			delta += step >> 2;
+		}
+		int predictor = (nibble & 8) != 0 ? predictors[ch] - delta : predictors[ch] + delta;
+		predictors[ch] = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, predictor));
+		indexes[ch] = Math.max(0, Math.min(STEP_TABLE.length - 1, indexes[ch] + INDEX_TABLE[nibble]));
+		return predictors[ch];
+	}
+
+	private static void writeSample(byte[] pcm, int position, int sample) {
+		pcm[position] = (byte) sample;
+		pcm[position + 1] = (byte) (sample >> 8);
+	}
+}
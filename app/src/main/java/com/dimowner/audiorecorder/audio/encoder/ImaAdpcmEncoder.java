@@ -0,0 +1,180 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.encoder;
+
+/**
+ * Encodes 16 bit little endian PCM into IMA ADPCM blocks of WAV files (WAVE_FORMAT_IMA_ADPCM).
+ * Every block starts with 4 byte header per channel: the first sample and step index.
+ * The rest of samples are coded by 4 bits, interleaved by 4 bytes (8 samples) per channel.
+ * Encoder is table driven and does not allocate memory. Not thread safe.
+ */
+public class ImaAdpcmEncoder {
+
+	public static final int WAVE_FORMAT_IMA_ADPCM = 0x0011;
+	public static final int BITS_PER_SAMPLE = 4;
+	/** Samples of a channel coded by 4 bytes of interleaved block data. */
+	static final int SAMPLES_PER_WORD = 8;
+
+	static final int[] INDEX_TABLE = {
+			-1, -1, -1, -1, 2, 4, 6, 8,
+			-1, -1, -1, -1, 2, 4, 6, 8
+	};
+
+	static final int[] STEP_TABLE = {
+			7, 8, 9, 10, 11, 12, 13, 14, 16, 17,
+			19, 21, 23, 25, 28, 31, 34, 37, 41, 45,
+			50, 55, 60, 66, 73, 80, 88, 97, 107, 118,
+			130, 143, 157, 173, 190, 209, 230, 253, 279, 307,
+			337, 371, 408, 449, 494, 544, 598, 658, 724, 796,
+			876, 963, 1060, 1166, 1282, 1411, 1552, 1707, 1878, 2066,
+			2272, 2499, 2749, 3024, 3327, 3660, 4026, 4428, 4871, 5358,
+			5894, 6484, 7132, 7845, 8630, 9493, 10442, 11487, 12635, 13899,
+			15289, 16818, 18500, 20350, 22385, 24623, 27086, 29794, 32767
+	};
+
+	private final int channels;
+	private final int blockAlign;
+	private final int samplesPerBlock;
+	private final int[] predictors;
+	private final int[] indexes;
+	/** Samples of one word of every channel, read before the word is written over them. */
+	private final int[] word;
+
+	public ImaAdpcmEncoder(int sampleRate, int channels) {
+		this.channels = channels;
+		this.blockAlign = blockAlign(sampleRate, channels);
+		this.samplesPerBlock = samplesPerBlock(blockAlign, channels);
+		this.predictors = new int[channels];
+		this.indexes = new int[channels];
+		this.word = new int[channels * SAMPLES_PER_WORD];
+	}
+
+	/** Block size in bytes, the same as other encoders use for the sample rate. */
+	public static int blockAlign(int sampleRate, int channels) {
+		if (sampleRate <= 11025) {
+			return 256 * channels;
+		} else if (sampleRate <= 22050) {
+			return 512 * channels;
+		} else {
+			return 1024 * channels;
+		}
+	}
+
+	/** Samples per channel coded in a block: one in the header and two per byte of the rest. */
+	public static int samplesPerBlock(int blockAlign, int channels) {
+		return (blockAlign / channels - 4) * 2 + 1;
+	}
+
+	/** Bytes of encoded audio per second. */
+	public static long byteRate(int sampleRate, int channels) {
+		int blockAlign = blockAlign(sampleRate, channels);
+		return (long) sampleRate * blockAlign / samplesPerBlock(blockAlign, channels);
+	}
+
+	public int getBlockAlign() {
+		return blockAlign;
+	}
+
+	public int getSamplesPerBlock() {
+		return samplesPerBlock;
+	}
+
+	/**
+	 * Encode one block of {@link #getSamplesPerBlock()} interleaved PCM frames.
+	 * Encoded block is 4 times smaller than PCM, so output can be the same array as input
+	 * at the same offset: the block is encoded in place.
+	 * @param pcm 16 bit little endian interleaved PCM.
+	 * @param out array for {@link #getBlockAlign()} bytes of the encoded block.
+	 */
+	public void encodeBlock(byte[] pcm, int offset, byte[] out, int outOffset) {
+		int frameSize = channels * 2;
+		for (int ch = 0; ch < channels; ch++) {
+			predictors[ch] = readSample(pcm, offset + ch * 2);
+		}
+		int position = offset + frameSize;
+		int outPosition = outOffset + channels * 4;
+		int words = (samplesPerBlock - 1) / SAMPLES_PER_WORD;
+		for (int w = 0; w < words; w++) {
+			//All samples of the word are read before the output is written, the output may overwrite them.
+			for (int i = 0; i < SAMPLES_PER_WORD; i++) {
+				for (int ch = 0; ch < channels; ch++) {
+					word[ch * SAMPLES_PER_WORD + i] = readSample(pcm, position + ch * 2);
+				}
+				position += frameSize;
+			}
+			if (w == 0) {
+				writeHeader(out, outOffset);
+			}
+			for (int ch = 0; ch < channels; ch++) {
+				int base = ch * SAMPLES_PER_WORD;
+				for (int i = 0; i < SAMPLES_PER_WORD; i += 2) {
+					int low = encodeSample(ch, word[base + i]);
+					int high = encodeSample(ch, word[base + i + 1]);
+					out[outPosition++] = (byte) (low | high << 4);
+				}
+			}
+		}
+	}
+
+	private void writeHeader(byte[] out, int outOffset) {
+		for (int ch = 0; ch < channels; ch++) {
+			int pos = outOffset + ch * 4;
+			out[pos] = (byte) predictors[ch];
+			out[pos + 1] = (byte) (predictors[ch] >> 8);
+			out[pos + 2] = (byte) indexes[ch];
+			out[pos + 3] = 0;
+		}
+	}
+
+	/** Quantize difference from the predicted sample into 4 bits and update the predictor as decoder does. */
+	private int encodeSample(int ch, int sample) {
+		int index = indexes[ch];
+		int step = STEP_TABLE[index];
+		int diff = sample - predictors[ch];
+		int nibble = 0;
+		if (diff < 0) {
+			nibble = 8;
+			diff = -diff;
+		}
+		int delta = step >> 3;
+		if (diff >= step) {
+			nibble |= 4;
+			diff -= step;
+			delta += step;
+		}
+		step >>= 1;
+		if (diff >= step) {
+			nibble |= 2;
+			diff -= step;
+			delta += step;
+		}
+		step >>= 1;
+		if (diff >= step) {
+			nibble |= 1;
+			delta += step;
+		}
+		int predictor = (nibble & 8) != 0 ? predictors[ch] - delta : predictors[ch] + delta;
+		predictors[ch] = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, predictor));
+		index += INDEX_TABLE[nibble];
+		indexes[ch] = Math.max(0, Math.min(STEP_TABLE.length - 1, index));
+		return nibble;
+	}
+
+	private static int readSample(byte[] pcm, int position) {
+		return (short) ((pcm[position] & 0xFF) | pcm[position + 1] << 8);
+	}
+}
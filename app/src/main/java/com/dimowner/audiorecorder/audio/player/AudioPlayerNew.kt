@@ -16,16 +16,19 @@
 package com.dimowner.audiorecorder.audio.player
 
 import android.media.AudioManager
+import android.media.MediaDataSource
 import android.media.MediaPlayer
 import android.media.MediaPlayer.OnPreparedListener
 import android.media.PlaybackParams
 import android.os.Build
 import android.os.Handler
 import com.dimowner.audiorecorder.AppConstants
+import com.dimowner.audiorecorder.audio.recorder.RecordingSegments
 import com.dimowner.audiorecorder.exception.AppException
 import com.dimowner.audiorecorder.exception.PlayerDataSourceException
 import com.dimowner.audiorecorder.exception.PlayerInitException
 import timber.log.Timber
+import java.io.File
 import java.util.*
 
 class AudioPlayerNew: PlayerContractNew.Player, OnPreparedListener {
@@ -39,6 +42,14 @@ class AudioPlayerNew: PlayerContractNew.Player, OnPreparedListener {
 	private var playbackSpeed: Float = 1.0f
 	private val handler = Handler()
 
+	/** Files of the played record, see [RecordingSegments]. */
+	private var segments: List<File> = emptyList()
+	/** Start time of every segment from the start of the record. */
+	private var segmentStartMills = longArrayOf(0)
+	private var segmentIndex = 0
+	/** Next segment is being prepared, playback continues without start notification. */
+	private var isSwitchingSegment = false
+
 	override fun addPlayerCallback(callback: PlayerContractNew.PlayerCallback) {
 		actionsListeners.add(callback)
 	}
@@ -51,7 +62,12 @@ class AudioPlayerNew: PlayerContractNew.Player, OnPreparedListener {
 		try {
 			playerState = PlayerState.STOPPED
 			mediaPlayer.reset()
-			mediaPlayer.setDataSource(dataSource)
+			val adpcm = ImaAdpcmWavReader.open(File(dataSource))
+			if (adpcm != null) {
+				mediaPlayer.setDataSource(ImaAdpcmDataSource(adpcm))
+			} else {
+				mediaPlayer.setDataSource(dataSource)
+			}
 			mediaPlayer.setAudioStreamType(AudioManager.STREAM_MUSIC)
 		} catch (e: Exception) {
 			Timber.e(e)
@@ -62,49 +78,97 @@ class AudioPlayerNew: PlayerContractNew.Player, OnPreparedListener {
 	override fun play(filePath: String) {
 		try {
 			if (playerState != PlayerState.PLAYING) {
-				restartPlayer(filePath)
-				try {
-					mediaPlayer.setOnPreparedListener(this)
-					mediaPlayer.prepareAsync()
-				} catch (ex: IllegalStateException) {
-					Timber.e(ex)
-					restartPlayer(filePath)
-					mediaPlayer.setOnPreparedListener(this)
-					try {
-						mediaPlayer.prepareAsync()
-					} catch (e: IllegalStateException) {
-						Timber.e(e)
-						restartPlayer(filePath)
-					}
-				}
+				segments = RecordingSegments.list(File(filePath))
+				segmentStartMills = RecordingSegments.readStartTimesMills(segments)
+				segmentIndex = findSegment(pauseTimeMills)
+				prepareSegment()
 			}
 		} catch (e: IllegalStateException) {
 			Timber.e(e, "Player is not initialized!")
 		}
 	}
 
+	private fun prepareSegment() {
+		val dataSource = segments[segmentIndex].path
+		restartPlayer(dataSource)
+		try {
+			mediaPlayer.setOnPreparedListener(this)
+			mediaPlayer.prepareAsync()
+		} catch (ex: IllegalStateException) {
+			Timber.e(ex)
+			restartPlayer(dataSource)
+			mediaPlayer.setOnPreparedListener(this)
+			try {
+				mediaPlayer.prepareAsync()
+			} catch (e: IllegalStateException) {
+				Timber.e(e)
+				restartPlayer(dataSource)
+			}
+		}
+	}
+
+	/** Continue playback in another segment of the record from the record position. */
+	private fun switchSegment(index: Int, mills: Long) {
+		stopPlaybackTimeUpdate()
+		mediaPlayer.setOnCompletionListener(null)
+		segmentIndex = index
+		pauseTimeMills = mills
+		isSwitchingSegment = true
+		prepareSegment()
+	}
+
+	private fun findSegment(mills: Long): Int {
+		var index = segmentStartMills.size - 1
+		while (index > 0 && segmentStartMills[index] > mills) {
+			index--
+		}
+		return index
+	}
+
+	/** Playback position from the start of the record. */
+	private fun currentPositionMills(): Long {
+		return segmentStartMills[segmentIndex] + mediaPlayer.currentPosition
+	}
+
 	override fun onPrepared(mp: MediaPlayer) {
 		mediaPlayer.start()
-		mediaPlayer.seekTo(pauseTimeMills.toInt())
+		mediaPlayer.seekTo((pauseTimeMills - segmentStartMills[segmentIndex]).toInt())
 		pauseTimeMills = 0
 		playerState = PlayerState.PLAYING
 		
 		// Apply current playback speed
 		applyPlaybackSpeed()
-		
-		onStartPlay()
+
+		if (isSwitchingSegment) {
+			isSwitchingSegment = false
+		} else {
+			onStartPlay()
+		}
 		mediaPlayer.setOnCompletionListener {
-			stop()
+			onSegmentCompleted()
 		}
 		schedulePlaybackTimeUpdate()
 	}
 
+	private fun onSegmentCompleted() {
+		if (segmentIndex < segmentStartMills.size - 1) {
+			switchSegment(segmentIndex + 1, segmentStartMills[segmentIndex + 1])
+		} else {
+			stop()
+		}
+	}
+
 	override fun seek(mills: Long) {
 		pauseTimeMills = mills
 		prevPosMills = 0
 		try {
 			if (playerState == PlayerState.PLAYING) {
-				mediaPlayer.seekTo(mills.toInt())
+				val index = findSegment(mills)
+				if (index != segmentIndex) {
+					switchSegment(index, mills)
+				} else {
+					mediaPlayer.seekTo((mills - segmentStartMills[segmentIndex]).toInt())
+				}
 				onSeek(mills)
 			}
 		} catch (e: IllegalStateException) {
@@ -116,7 +180,7 @@ class AudioPlayerNew: PlayerContractNew.Player, OnPreparedListener {
 		stopPlaybackTimeUpdate()
 		if (playerState == PlayerState.PLAYING) {
 			mediaPlayer.pause()
-			pauseTimeMills = mediaPlayer.currentPosition.toLong()
+			pauseTimeMills = currentPositionMills()
 			prevPosMills = 0
 			playerState = PlayerState.PAUSED
 			onPausePlay()
@@ -125,8 +189,15 @@ class AudioPlayerNew: PlayerContractNew.Player, OnPreparedListener {
 
 	override fun unpause() {
 		if (playerState == PlayerState.PAUSED) {
+			val index = findSegment(pauseTimeMills)
+			if (index != segmentIndex) {
+				//Position was moved into another segment while paused.
+				segmentIndex = index
+				prepareSegment()
+				return
+			}
 			mediaPlayer.start()
-			mediaPlayer.seekTo(pauseTimeMills.toInt())
+			mediaPlayer.seekTo((pauseTimeMills - segmentStartMills[segmentIndex]).toInt())
 			pauseTimeMills = 0
 			playerState = PlayerState.PLAYING
 			
@@ -135,7 +206,7 @@ class AudioPlayerNew: PlayerContractNew.Player, OnPreparedListener {
 			
 			onStartPlay()
 			mediaPlayer.setOnCompletionListener {
-				stop()
+				onSegmentCompleted()
 			}
 			schedulePlaybackTimeUpdate()
 		}
@@ -150,6 +221,8 @@ class AudioPlayerNew: PlayerContractNew.Player, OnPreparedListener {
 		playerState = PlayerState.STOPPED
 		pauseTimeMills = 0
 		prevPosMills = 0
+		segmentIndex = 0
+		isSwitchingSegment = false
 	}
 
 	override fun release() {
@@ -197,7 +270,7 @@ class AudioPlayerNew: PlayerContractNew.Player, OnPreparedListener {
 		handler.postDelayed({
 			try {
 				if (playerState == PlayerState.PLAYING) {
-					var pos = mediaPlayer.currentPosition.toLong()
+					var pos = currentPositionMills()
 					if (pos < prevPosMills) {
 						pos = prevPosMills
 					} else {
@@ -253,4 +326,22 @@ class AudioPlayerNew: PlayerContractNew.Player, OnPreparedListener {
 			actionsListeners[i].onError(throwable)
 		}
 	}
+
+	/** Plays IMA ADPCM WAV as PCM WAV, platform WAV extractor doesn't support IMA ADPCM. */
+	private class ImaAdpcmDataSource(private val reader: ImaAdpcmWavReader): MediaDataSource() {
+
+		override fun readAt(position: Long, buffer: ByteArray, offset: Int, size: Int): Int {
+			synchronized(reader) {
+				return reader.readAt(position, buffer, offset, size)
+			}
+		}
+
+		override fun getSize(): Long = reader.size
+
+		override fun close() {
+			synchronized(reader) {
+				reader.close()
+			}
+		}
+	}
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.player;
+
+import com.dimowner.audiorecorder.audio.encoder.ImaAdpcmDecoder;
+import com.dimowner.audiorecorder.audio.recorder.ImaAdpcmWavHeader;
+import com.dimowner.audiorecorder.audio.recorder.WavHeader;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Reads IMA ADPCM WAV file as 16 bit PCM WAV file, which platform extractors of MediaPlayer support.
+ * PCM file is not stored: bytes at any position are decoded from the ADPCM block which holds them,
+ * so seeking doesn't decode the record from the start. The last decoded block is kept. Not thread safe.
+ */
+public class ImaAdpcmWavReader implements Closeable {
+
+	/** Max length of PCM data of 32 bit RIFF chunk with 44 byte header. */
+	private static final long MAX_DATA_LENGTH = 0xFFFFFFFFL - 36;
+
+	private final RandomAccessFile file;
+	private final ImaAdpcmDecoder decoder;
+	private final byte[] pcmHeader;
+	private final long pcmLength;
+	private final int pcmBlockSize;
+	private final byte[] block;
+	private final byte[] pcmBlock;
+	/** Index of the block decoded into {@link #pcmBlock} or -1. */
+	private long decodedBlock = -1;
+
+	private ImaAdpcmWavReader(RandomAccessFile file, ImaAdpcmWavHeader header) {
+		this.file = file;
+		this.decoder = new ImaAdpcmDecoder(header.getSampleRate(), header.getChannelCount());
+		int frameSize = header.getChannelCount() * 2;
+		this.pcmBlockSize = decoder.getSamplesPerBlock() * frameSize;
+		//Samples which pad the last block are not a part of the record.
+		long blocks = header.getDataLength() / decoder.getBlockAlign();
+		long frames = Math.min(header.getSampleLength(), blocks * decoder.getSamplesPerBlock());
+		this.pcmLength = Math.min(frames * frameSize, MAX_DATA_LENGTH - MAX_DATA_LENGTH % frameSize);
+		this.pcmHeader = WavHeader.generate(pcmLength, header.getSampleRate(), header.getChannelCount(), 16);
+		this.block = new byte[decoder.getBlockAlign()];
+		this.pcmBlock = new byte[pcmBlockSize];
+	}
+
+	/** @return reader or null when the file is not an IMA ADPCM WAV written by this app. */
+	public static ImaAdpcmWavReader open(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			ImaAdpcmWavHeader header = ImaAdpcmWavHeader.read(raf);
+			if (header == null) {
+				raf.close();
+				return null;
+			}
+			return new ImaAdpcmWavReader(raf, header);
+		} catch (IOException e) {
+			raf.close();
+			throw e;
+		}
+	}
+
+	/** Size of the PCM WAV file in bytes. */
+	public long getSize() {
+		return pcmHeader.length + pcmLength;
+	}
+
+	/**
+	 * Read bytes of the PCM WAV file.
+	 * @param position position in the PCM WAV file.
+	 * @return count of bytes read or -1 at the end of the file.
+	 */
+	public int readAt(long position, byte[] buffer, int offset, int size) throws IOException {
+		if (position >= getSize()) {
+			return -1;
+		}
+		int count = (int) Math.min(size, getSize() - position);
+		int read = 0;
+		if (position < pcmHeader.length) {
+			read = Math.min(count, (int) (pcmHeader.length - position));
+			System.arraycopy(pcmHeader, (int) position, buffer, offset, read);
+		}
+		while (read < count) {
+			long pcmPosition = position + read - pcmHeader.length;
+			long index = pcmPosition / pcmBlockSize;
+			decode(index);
+			int blockOffset = (int) (pcmPosition - index * pcmBlockSize);
+			int length = Math.min(count - read, pcmBlockSize - blockOffset);
+			System.arraycopy(pcmBlock, blockOffset, buffer, offset + read, length);
+			read += length;
+		}
+		return count;
+	}
+
+	private void decode(long index) throws IOException {
+		if (index != decodedBlock) {
+			file.seek(ImaAdpcmWavHeader.HEADER_SIZE + index * block.length);
+			file.readFully(block);
+			decoder.decodeBlock(block, 0, pcmBlock, 0);
+			decodedBlock = index;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+}
@@ -25,7 +25,6 @@ import com.dimowner.audiorecorder.exception.RecorderInitException;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 import timber.log.Timber;
 
@@ -38,8 +37,8 @@ public class AudioRecorder implements RecorderContract.Recorder {
 	private long updateTime = 0;
 	private long durationMills = 0;
 
-	private final AtomicBoolean isRecording = new AtomicBoolean(false);
-	private final AtomicBoolean isPaused = new AtomicBoolean(false);
+	/** MediaRecorder captures on its own native threads, so there is no capture thread CPU time to account. */
+	private final RecorderStateMachine stateMachine = new RecorderStateMachine(RecorderStateMachine.NO_CPU_CLOCK);
 	private final Handler handler = new Handler();
 
 	private RecorderContract.RecorderCallback recorderCallback;
@@ -65,6 +64,10 @@ public class AudioRecorder implements RecorderContract.Recorder {
 
 	@Override
 	public void startRecording(String outputFile, int channelCount, int sampleRate, int bitrate) {
+		if (!stateMachine.canPrepare()) {
+			Timber.e("Recording has already started");
+			return;
+		}
 		recordFile = new File(outputFile);
 		if (recordFile.exists() && recordFile.isFile()) {
 			recorder = new MediaRecorder();
@@ -78,16 +81,19 @@ public class AudioRecorder implements RecorderContract.Recorder {
 			recorder.setOutputFile(recordFile.getAbsolutePath());
 			try {
 				recorder.prepare();
+				stateMachine.moveTo(RecorderStateMachine.State.PREPARED);
 				recorder.start();
 				updateTime = System.currentTimeMillis();
-				isRecording.set(true);
+				stateMachine.moveTo(RecorderStateMachine.State.RECORDING);
 				scheduleRecordingTimeUpdate();
 				if (recorderCallback != null) {
 					recorderCallback.onStartRecord(recordFile);
 				}
-				isPaused.set(false);
 			} catch (IOException | IllegalStateException e) {
 				Timber.e(e, "prepare() failed");
+				recorder.release();
+				recorder = null;
+				stateMachine.moveTo(RecorderStateMachine.State.RELEASED);
 				if (recorderCallback != null) {
 					recorderCallback.onError(new RecorderInitException());
 				}
@@ -101,15 +107,15 @@ public class AudioRecorder implements RecorderContract.Recorder {
 
 	@Override
 	public void resumeRecording() {
-		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N && isPaused.get()) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N && stateMachine.isPaused()) {
 			try {
 				recorder.resume();
+				stateMachine.moveTo(RecorderStateMachine.State.RECORDING);
 				updateTime = System.currentTimeMillis();
 				scheduleRecordingTimeUpdate();
 				if (recorderCallback != null) {
 					recorderCallback.onResumeRecord();
 				}
-				isPaused.set(false);
 			} catch (IllegalStateException e) {
 				Timber.e(e, "unpauseRecording() failed");
 				if (recorderCallback != null) {
@@ -121,17 +127,17 @@ public class AudioRecorder implements RecorderContract.Recorder {
 
 	@Override
 	public void pauseRecording() {
-		if (isRecording.get()) {
+		if (stateMachine.isRecording()) {
 			if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
-				if (!isPaused.get()) {
+				if (!stateMachine.isPaused()) {
 					try {
 						recorder.pause();
+						stateMachine.moveTo(RecorderStateMachine.State.PAUSED);
 						durationMills += System.currentTimeMillis() - updateTime;
 						pauseRecordingTimer();
 						if (recorderCallback != null) {
 							recorderCallback.onPauseRecord();
 						}
-						isPaused.set(true);
 					} catch (IllegalStateException e) {
 						Timber.e(e, "pauseRecording() failed");
 						if (recorderCallback != null) {
@@ -148,7 +154,7 @@ public class AudioRecorder implements RecorderContract.Recorder {
 
 	@Override
 	public void stopRecording() {
-		if (isRecording.get()) {
+		if (stateMachine.moveTo(RecorderStateMachine.State.STOPPING)) {
 			stopRecordingTimer();
 			try {
 				recorder.stop();
@@ -156,19 +162,34 @@ public class AudioRecorder implements RecorderContract.Recorder {
 				Timber.e(e, "stopRecording() problems");
 			}
 			recorder.release();
+			stateMachine.moveTo(RecorderStateMachine.State.RELEASED);
 			if (recorderCallback != null) {
 				recorderCallback.onStopRecord(recordFile);
 			}
 			durationMills = 0;
 			recordFile = null;
-			isRecording.set(false);
-			isPaused.set(false);
 			recorder = null;
 		} else {
 			Timber.e("Recording has already stopped or hasn't started");
 		}
 	}
 
+	/** MediaRecorder does not report recorded frames, so duration is measured by wall clock. */
+	@Override
+	public long getRecordingDurationMicros() {
+		long mills = durationMills;
+		if (stateMachine.isRecording() && updateTime > 0) {
+			mills += System.currentTimeMillis() - updateTime;
+		}
+		return mills * 1000;
+	}
+
+	/** MediaRecorder doesn't report what it has written, the record file is probed instead. */
+	@Override
+	public RecordingResult getRecordingResult() {
+		return null;
+	}
+
 	private void scheduleRecordingTimeUpdate() {
 		handler.postDelayed(() -> {
 			if (recorderCallback != null && recorder != null) {
@@ -197,11 +218,11 @@ public class AudioRecorder implements RecorderContract.Recorder {
 
 	@Override
 	public boolean isRecording() {
-		return isRecording.get();
+		return stateMachine.isRecording();
 	}
 
 	@Override
 	public boolean isPaused() {
-		return isPaused.get();
+		return stateMachine.isPaused();
 	}
 }
@@ -0,0 +1,398 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.recorder;
+
+import com.dimowner.audiorecorder.audio.dsp.DspChain;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.GatheringByteChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Two stage PCM recording pipeline.
+ * Capture stage only reads PCM from {@link PcmSource} into preallocated slots of {@link PcmRingBuffer}.
+ * Writer stage drains filled slots on a separate thread and writes them to the output
+ * with gathering writes, so storage stalls never delay the next read from the source.
+ * When the ring is full captured data is discarded and counted as dropped frames.
+ * Every read and write is accounted in {@link CaptureTelemetry}.
+ * Writer stage runs {@link DspChain} on every block before it is measured and written,
+ * audio delayed by the chain is flushed when capture is finished.
+ * With {@link VoiceActivityGate} set writer stage writes only blocks with voice activity.
+ * While {@link RecorderStateMachine} is paused capture thread is parked.
+ */
+public class CapturePipeline {
+
+	/** Max count of slots written to output by one gathering write. */
+	private static final int MAX_BATCH_SLOTS = 32;
+	/** Time writer waits for more slots to be filled before the next batch. */
+	private static final long WRITE_INTERVAL_NANOS = 50_000_000; //50 mills
+	/** Time writer waits for new data while recording is paused. */
+	private static final long PAUSED_WRITE_INTERVAL_NANOS = 1_000_000_000; //1 sec
+
+	private final RecorderStateMachine stateMachine;
+
+	private final PcmSource source;
+	private final GatheringByteChannel output;
+	private final PcmRingBuffer ring;
+	private final int frameSize;
+
+	/** Buffer where data is read when the ring is full. Its content is discarded. */
+	private final ByteBuffer overflowBuffer;
+	private final ByteBuffer[] batch;
+
+	private final AtomicBoolean isRunning = new AtomicBoolean(false);
+	private final CaptureTelemetry telemetry;
+	private volatile boolean isCaptureFinished = false;
+	private volatile long bytesWritten = 0;
+
+	private Thread captureThread;
+	private Thread writerThread;
+	private Listener listener;
+	private PreRollBuffer preRoll;
+	private RecordingClock clock;
+	private VoiceActivityGate gate;
+	private DspChain dspChain;
+
+	/**
+	 * @param stateMachine lifecycle of the recording session. Capture is parked while it is paused.
+	 * @param source PCM data source.
+	 * @param output channel where captured PCM is written.
+	 * @param blockSize size of one read from the source in bytes.
+	 * @param slotCount count of blocks the ring can hold.
+	 * @param frameSize bytes per one frame (all channels of one sample).
+	 */
+	public CapturePipeline(RecorderStateMachine stateMachine, PcmSource source, GatheringByteChannel output,
+								  int blockSize, int slotCount, int frameSize) {
+		this.stateMachine = stateMachine;
+		this.source = source;
+		this.output = output;
+		this.frameSize = frameSize;
+		this.ring = new PcmRingBuffer(slotCount, blockSize);
+		this.overflowBuffer = ByteBuffer.allocateDirect(blockSize).order(ByteOrder.LITTLE_ENDIAN);
+		this.batch = new ByteBuffer[Math.min(slotCount, MAX_BATCH_SLOTS)];
+		this.telemetry = new CaptureTelemetry(frameSize, blockSize, slotCount);
+	}
+
+	/**
+	 * Calculate count of ring slots needed to hold specified duration of audio.
+	 * @param depthSeconds duration of audio the ring should hold.
+	 * @param blockSize size of one slot in bytes.
+	 */
+	public static int slotCountForDepth(float depthSeconds, int sampleRate, int channelCount, int blockSize) {
+		long bytesPerSecond = (long) sampleRate * channelCount * 2;
+		return Math.max(2, (int) Math.ceil(depthSeconds * bytesPerSecond / blockSize));
+	}
+
+	public void setListener(Listener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Set audio captured before the start of this pipeline. It is written to output before the first captured block.
+	 * Ring must not be used by other threads after this call.
+	 */
+	public void setPreRoll(PreRollBuffer preRoll) {
+		this.preRoll = preRoll;
+	}
+
+	/**
+	 * Set clock which is advanced on capture thread by every block of frames put into the ring.
+	 * With {@link VoiceActivityGate} set it is advanced on writer thread by frames written to output.
+	 */
+	public void setClock(RecordingClock clock) {
+		this.clock = clock;
+	}
+
+	/**
+	 * Set processing applied in place to pre-roll and every captured block on writer thread.
+	 * Chain must be prepared for the audio format. Must be called before start.
+	 */
+	public void setDspChain(DspChain dspChain) {
+		this.dspChain = dspChain;
+	}
+
+	/** Set gate which decides which blocks are written to output. Must be called before start. */
+	public void setVoiceActivityGate(VoiceActivityGate gate) {
+		this.gate = gate;
+	}
+
+	public void start() {
+		if (isRunning.getAndSet(true)) {
+			return;
+		}
+		isCaptureFinished = false;
+		captureThread = new Thread(this::capture, "AudioRecorder Thread");
+		writerThread = new Thread(this::write, "AudioWriter Thread");
+		captureThread.setPriority(Thread.MAX_PRIORITY);
+		writerThread.start();
+		captureThread.start();
+	}
+
+	/**
+	 * Request both stages to stop. Returns immediately.
+	 * Writer stage writes all captured data before {@link Listener#onFinished()} is called.
+	 * Parked capture thread finishes when state machine leaves paused state.
+	 */
+	public void stop() {
+		isRunning.set(false);
+	}
+
+	/**
+	 * Wait until both stages are finished.
+	 * @return true if stages finished in the given time.
+	 */
+	public boolean awaitTermination(long timeoutMills) throws InterruptedException {
+		if (captureThread != null) {
+			captureThread.join(timeoutMills);
+		}
+		if (writerThread != null) {
+			writerThread.join(timeoutMills);
+			return !writerThread.isAlive();
+		}
+		return true;
+	}
+
+	/** Max count of ring slots that were filled at the same time. */
+	public int getHighWaterMark() {
+		return ring.getHighWaterMark();
+	}
+
+	public int getRingCapacity() {
+		return ring.getCapacity();
+	}
+
+	/** Count of frames that were read from the source but discarded because the ring was full. */
+	public long getDroppedFrames() {
+		return telemetry.getOverflowFrames();
+	}
+
+	/** Health of the capture. Ring high-water mark is updated when both stages are finished. */
+	public CaptureTelemetry getTelemetry() {
+		return telemetry;
+	}
+
+	/** Count of frames that were read from the source and put into the ring. */
+	public long getCapturedFrames() {
+		return telemetry.getCapturedFrames();
+	}
+
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	private void capture() {
+		try {
+			while (isRunning.get()) {
+				if (stateMachine.awaitWhilePaused()) {
+					telemetry.onCaptureResumed();
+					continue;
+				}
+				ByteBuffer slot = ring.acquireWriteSlot();
+				if (slot != null) {
+					long start = System.nanoTime();
+					int read = source.read(slot, slot.capacity());
+					telemetry.onRead(read, slot.capacity(), start, System.nanoTime());
+					if (read > 0) {
+						ring.commitWrite(read);
+						telemetry.onCaptured(read / frameSize);
+						if (clock != null && gate == null) {
+							clock.advance(read / frameSize);
+						}
+					}
+				} else {
+					overflowBuffer.clear();
+					long start = System.nanoTime();
+					int read = source.read(overflowBuffer, overflowBuffer.capacity());
+					telemetry.onRead(read, overflowBuffer.capacity(), start, System.nanoTime());
+					if (read > 0) {
+						telemetry.onOverflow(read / frameSize);
+					}
+				}
+				stateMachine.accountCpuTime();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			isCaptureFinished = true;
+			LockSupport.unpark(writerThread);
+		}
+	}
+
+	private void write() {
+		boolean pauseHandled = false;
+		try {
+			if (preRoll != null && !preRoll.isEmpty()) {
+				if (dspChain != null) {
+					preRoll.process(dspChain);
+				}
+				bytesWritten += preRoll.drainTo(output);
+				if (listener != null) {
+					listener.onBatchWritten(bytesWritten);
+				}
+			}
+			while (true) {
+				boolean finished = isCaptureFinished;
+				boolean parked = stateMachine.isCaptureParked();
+				int count = ring.drain(batch);
+				if (count > 0) {
+					writeBatch(count);
+				}
+				if (count < batch.length) {
+					if (finished && ring.isEmpty()) {
+						if (dspChain != null) {
+							flushDspChain();
+						}
+						break;
+					}
+					if (!parked) {
+						pauseHandled = false;
+					} else if (!pauseHandled && ring.isEmpty()) {
+						pauseHandled = true;
+						if (listener != null) {
+							listener.onPaused();
+						}
+					}
+					LockSupport.parkNanos(this, stateMachine.isPaused() ? PAUSED_WRITE_INTERVAL_NANOS : WRITE_INTERVAL_NANOS);
+				}
+			}
+		} catch (IOException e) {
+			isRunning.set(false);
+			if (listener != null) {
+				listener.onWriteError(e);
+			}
+		}
+		try {
+			captureThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (gate != null) {
+			gate.finish();
+		}
+		telemetry.setRingHighWater(ring.getHighWaterMark());
+		if (listener != null) {
+			listener.onFinished();
+		}
+	}
+
+	private void writeBatch(int count) throws IOException {
+		for (int i = 0; i < count; i++) {
+			if (dspChain != null) {
+				dspChain.process(batch[i]);
+			}
+		}
+		writeProcessed(count);
+		ring.release(count);
+	}
+
+	/**
+	 * Write the last frames delayed by the DSP chain, so the look-ahead window at the end of the recording
+	 * is not lost, also when it is stopped while paused. Overflow buffer is free since capture is finished.
+	 */
+	private void flushDspChain() throws IOException {
+		int remaining = dspChain.getLatencyFrames() * frameSize;
+		int maxSize = overflowBuffer.capacity() - overflowBuffer.capacity() % frameSize;
+		while (remaining > 0) {
+			overflowBuffer.clear();
+			overflowBuffer.limit(Math.min(remaining, maxSize));
+			dspChain.flush(overflowBuffer);
+			remaining -= overflowBuffer.remaining();
+			batch[0] = overflowBuffer;
+			writeProcessed(1);
+		}
+	}
+
+	/** Pass processed blocks of the batch to the listener and write them. */
+	private void writeProcessed(int count) throws IOException {
+		if (listener != null) {
+			for (int i = 0; i < count; i++) {
+				listener.onBlock(batch[i]);
+				batch[i].rewind();
+			}
+		}
+		long written;
+		if (gate == null) {
+			written = writeBlocks(0, count);
+		} else {
+			written = writeVoiceBlocks(count);
+			if (clock != null) {
+				clock.advance(written / frameSize);
+			}
+		}
+		bytesWritten += written;
+		if (listener != null) {
+			listener.onBatchWritten(bytesWritten);
+		}
+	}
+
+	/**
+	 * Write runs of blocks with voice activity. Look-back of the silence is written before the first block of a run.
+	 * @return count of written bytes.
+	 */
+	private long writeVoiceBlocks(int count) throws IOException {
+		long written = 0;
+		int runStart = 0;
+		for (int i = 0; i < count; i++) {
+			if (!gate.isVoice(batch[i])) {
+				written += writeBlocks(runStart, i);
+				gate.skip(batch[i], bytesWritten + written);
+				runStart = i + 1;
+			} else if (gate.isSkipping()) {
+				written += gate.resume(output);
+			}
+		}
+		return written + writeBlocks(runStart, count);
+	}
+
+	/** Write blocks of the batch from start to end (exclusive) with gathering writes. */
+	private long writeBlocks(int start, int end) throws IOException {
+		long total = 0;
+		for (int i = start; i < end; i++) {
+			total += batch[i].remaining();
+		}
+		long written = 0;
+		while (written < total) {
+			long writeStart = System.nanoTime();
+			written += output.write(batch, start, end - start);
+			telemetry.onWrite(System.nanoTime() - writeStart);
+		}
+		return written;
+	}
+
+	public interface Listener {
+		/**
+		 * Called on writer thread for every captured block before it is written to output.
+		 * Block position is reset after the call.
+		 */
+		void onBlock(ByteBuffer block);
+
+		/** Called on writer thread after every batch of blocks is written to output. */
+		void onBatchWritten(long totalBytes);
+
+		/** Called on writer thread once per pause, when all data captured before the pause is written. */
+		void onPaused() throws IOException;
+
+		/** Called on writer thread when write to output failed. Capture stage is stopped after that. */
+		void onWriteError(IOException e);
+
+		/** Called on writer thread when both stages are finished and all captured data is written. */
+		void onFinished();
+	}
+}
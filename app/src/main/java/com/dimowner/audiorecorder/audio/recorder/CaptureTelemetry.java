@@ -0,0 +1,409 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.recorder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+import timber.log.Timber;
+
+/**
+ * Health of the audio capture of one recording, collected by {@link CapturePipeline}.
+ * Counts reads from {@link PcmSource} which returned less data than requested or an error,
+ * frames discarded because the ring was full and frames the source most likely lost
+ * because capture thread did not read it in time. Durations of output writes and of the time
+ * between reads are collected into {@link LatencyHistogram}s.
+ * Read counters are changed only by capture thread, write latency only by writer thread.
+ * Telemetry is stored in a text sidecar next to the record file: "record path" + {@link #SUFFIX}.
+ * The sidecar follows the record file together with its segments, see {@link RecordingSegments}.
+ */
+public class CaptureTelemetry {
+
+	public static final String SUFFIX = ".telemetry";
+
+	private static final String HEADER = "# AudioRecorder capture telemetry v1";
+	private static final String KEY_DEVICE = "device";
+	private static final String KEY_SAMPLE_RATE = "sample_rate";
+	private static final String KEY_FRAME_SIZE = "frame_size";
+	private static final String KEY_BLOCK_SIZE = "block_size";
+	private static final String KEY_SOURCE_BUFFER = "source_buffer_nanos";
+	private static final String KEY_RING_SLOTS = "ring_slots";
+	private static final String KEY_RING_HIGH_WATER = "ring_high_water";
+	private static final String KEY_READS = "reads";
+	private static final String KEY_SHORT_READS = "short_reads";
+	private static final String KEY_EMPTY_READS = "empty_reads";
+	private static final String KEY_FAILED_READS = "failed_reads";
+	private static final String KEY_LAST_ERROR = "last_error";
+	private static final String KEY_CAPTURED_FRAMES = "captured_frames";
+	private static final String KEY_OVERFLOW_FRAMES = "overflow_frames";
+	private static final String KEY_STALLS = "stalls";
+	private static final String KEY_LOST_FRAMES = "lost_frames";
+	private static final String PREFIX_WRITE = "write";
+	private static final String PREFIX_READ_GAP = "read_gap";
+	private static final String KEY_TOTAL_NANOS = "_total_nanos";
+	private static final String KEY_MAX_NANOS = "_max_nanos";
+	private static final String KEY_BUCKET = "_bucket";
+
+	private final int frameSize;
+	private final int blockSize;
+	private final int ringSlots;
+
+	private String device = "";
+	private int sampleRate = 0;
+	/** Duration of audio the source buffers between reads. Longer gap between reads loses data. */
+	private long sourceBufferNanos = 0;
+
+	private volatile int ringHighWater = 0;
+	private volatile long reads = 0;
+	private volatile long shortReads = 0;
+	private volatile long emptyReads = 0;
+	private volatile long failedReads = 0;
+	private volatile int lastError = 0;
+	private volatile long capturedFrames = 0;
+	private volatile long overflowFrames = 0;
+	private volatile long stalls = 0;
+	private volatile long lostFrames = 0;
+	/** End of the previous read or 0 when capture just started or resumed. Accessed only by capture thread. */
+	private long lastReadEndNanos = 0;
+
+	private final LatencyHistogram writeLatency = new LatencyHistogram();
+	private final LatencyHistogram readGaps = new LatencyHistogram();
+
+	/**
+	 * @param frameSize bytes per one frame (all channels of one sample).
+	 * @param blockSize size of one read from the source in bytes.
+	 * @param ringSlots count of blocks the ring can hold.
+	 */
+	public CaptureTelemetry(int frameSize, int blockSize, int ringSlots) {
+		this.frameSize = frameSize;
+		this.blockSize = blockSize;
+		this.ringSlots = ringSlots;
+	}
+
+	public static File sidecarFile(File recordFile) {
+		return new File(recordFile.getPath() + SUFFIX);
+	}
+
+	/** Device model, telemetry is used to tune buffer sizes per device. */
+	public void setDevice(String device) {
+		this.device = device != null ? device.replace('\n', ' ') : "";
+	}
+
+	/**
+	 * Set format of the source needed to estimate frames lost by the source.
+	 * @param sampleRate sample rate of the recording.
+	 * @param sourceBufferNanos duration of audio the source holds until it is read.
+	 */
+	public void setSource(int sampleRate, long sourceBufferNanos) {
+		this.sampleRate = sampleRate;
+		this.sourceBufferNanos = sourceBufferNanos;
+	}
+
+	/**
+	 * Capture thread. Account one read from the source.
+	 * @param result count of bytes read or negative error code.
+	 * @param requested count of requested bytes.
+	 * @param startNanos time when read was called.
+	 * @param endNanos time when read returned.
+	 */
+	public void onRead(int result, int requested, long startNanos, long endNanos) {
+		reads++;
+		if (result < 0) {
+			failedReads++;
+			lastError = result;
+		} else if (result == 0) {
+			emptyReads++;
+		} else if (result < requested) {
+			shortReads++;
+		}
+		if (lastReadEndNanos != 0) {
+			long gap = startNanos - lastReadEndNanos;
+			readGaps.record(gap);
+			if (sampleRate > 0 && sourceBufferNanos > 0 && gap > sourceBufferNanos) {
+				stalls++;
+				lostFrames += (gap - sourceBufferNanos) * sampleRate / 1_000_000_000L;
+			}
+		}
+		lastReadEndNanos = endNanos;
+	}
+
+	/** Capture thread. Source was stopped, so the time until the next read is not a stall. */
+	public void onCaptureResumed() {
+		lastReadEndNanos = 0;
+	}
+
+	/** Capture thread. Count frames put into the ring. */
+	public void onCaptured(int frames) {
+		capturedFrames += frames;
+	}
+
+	/** Capture thread. Count frames discarded because the ring was full. */
+	public void onOverflow(int frames) {
+		overflowFrames += frames;
+	}
+
+	/** Writer thread. Account duration of one write to output. */
+	public void onWrite(long nanos) {
+		writeLatency.record(nanos);
+	}
+
+	public void setRingHighWater(int slots) {
+		this.ringHighWater = slots;
+	}
+
+	public String getDevice() {
+		return device;
+	}
+
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	public int getFrameSize() {
+		return frameSize;
+	}
+
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	public long getSourceBufferNanos() {
+		return sourceBufferNanos;
+	}
+
+	public int getRingSlots() {
+		return ringSlots;
+	}
+
+	public int getRingHighWater() {
+		return ringHighWater;
+	}
+
+	public long getReads() {
+		return reads;
+	}
+
+	/** Count of reads which returned less data than requested, but not zero. */
+	public long getShortReads() {
+		return shortReads;
+	}
+
+	public long getEmptyReads() {
+		return emptyReads;
+	}
+
+	/** Count of reads which returned an error code. */
+	public long getFailedReads() {
+		return failedReads;
+	}
+
+	/** Error code returned by the last failed read or 0. */
+	public int getLastError() {
+		return lastError;
+	}
+
+	public long getCapturedFrames() {
+		return capturedFrames;
+	}
+
+	/** Count of frames read from the source but discarded because the ring was full. */
+	public long getOverflowFrames() {
+		return overflowFrames;
+	}
+
+	/** Count of gaps between reads longer than the source buffer. */
+	public long getStalls() {
+		return stalls;
+	}
+
+	/** Estimated count of frames the source lost during stalls. */
+	public long getLostFrames() {
+		return lostFrames;
+	}
+
+	/** Estimated count of frames missing in the recording: discarded by the pipeline or lost by the source. */
+	public long getDroppedFrames() {
+		return overflowFrames + lostFrames;
+	}
+
+	public LatencyHistogram getWriteLatency() {
+		return writeLatency;
+	}
+
+	/** Time capture thread spent between reads from the source. */
+	public LatencyHistogram getReadGaps() {
+		return readGaps;
+	}
+
+	/** Human readable summary for logs and the debug screen. */
+	public String formatSummary() {
+		StringBuilder sb = new StringBuilder();
+		if (!device.isEmpty()) {
+			sb.append("Device: ").append(device).append('\n');
+		}
+		sb.append(String.format(Locale.US, "Format: %d Hz, %d bytes per frame\n", sampleRate, frameSize));
+		sb.append(String.format(Locale.US, "Block: %d bytes, source buffer: %.1f ms\n", blockSize,
+				sourceBufferNanos / 1_000_000f));
+		sb.append(String.format(Locale.US, "Ring: %d of %d slots used\n", ringHighWater, ringSlots));
+		sb.append(String.format(Locale.US, "Reads: %d, short: %d, empty: %d, failed: %d", reads, shortReads,
+				emptyReads, failedReads));
+		if (failedReads > 0) {
+			sb.append(String.format(Locale.US, " (last error %d)", lastError));
+		}
+		sb.append('\n');
+		sb.append(String.format(Locale.US, "Captured: %d frames, dropped: %d (ring full: %d, stalls: %d lost %d)\n",
+				capturedFrames, getDroppedFrames(), overflowFrames, stalls, lostFrames));
+		appendHistogram(sb, "Write", writeLatency);
+		appendHistogram(sb, "Read gap", readGaps);
+		return sb.toString();
+	}
+
+	private static void appendHistogram(StringBuilder sb, String name, LatencyHistogram histogram) {
+		sb.append(String.format(Locale.US, "%s: %d, mean %d us, p50 <%d us, p99 <%d us, max %d us\n", name,
+				histogram.getCount(), histogram.getMeanNanos() / 1000, histogram.getPercentileMicros(50),
+				histogram.getPercentileMicros(99), histogram.getMaxNanos() / 1000));
+	}
+
+	/** Write the sidecar of the record file. */
+	public void write(File recordFile) throws IOException {
+		try (Writer writer = new FileWriter(sidecarFile(recordFile))) {
+			writer.write(HEADER + "\n");
+			writer.write(KEY_DEVICE + " " + device + "\n");
+			writer.write(KEY_SAMPLE_RATE + " " + sampleRate + "\n");
+			writer.write(KEY_FRAME_SIZE + " " + frameSize + "\n");
+			writer.write(KEY_BLOCK_SIZE + " " + blockSize + "\n");
+			writer.write(KEY_SOURCE_BUFFER + " " + sourceBufferNanos + "\n");
+			writer.write(KEY_RING_SLOTS + " " + ringSlots + "\n");
+			writer.write(KEY_RING_HIGH_WATER + " " + ringHighWater + "\n");
+			writer.write(KEY_READS + " " + reads + "\n");
+			writer.write(KEY_SHORT_READS + " " + shortReads + "\n");
+			writer.write(KEY_EMPTY_READS + " " + emptyReads + "\n");
+			writer.write(KEY_FAILED_READS + " " + failedReads + "\n");
+			writer.write(KEY_LAST_ERROR + " " + lastError + "\n");
+			writer.write(KEY_CAPTURED_FRAMES + " " + capturedFrames + "\n");
+			writer.write(KEY_OVERFLOW_FRAMES + " " + overflowFrames + "\n");
+			writer.write(KEY_STALLS + " " + stalls + "\n");
+			writer.write(KEY_LOST_FRAMES + " " + lostFrames + "\n");
+			writeHistogram(writer, PREFIX_WRITE, writeLatency);
+			writeHistogram(writer, PREFIX_READ_GAP, readGaps);
+		}
+	}
+
+	private static void writeHistogram(Writer writer, String prefix, LatencyHistogram histogram) throws IOException {
+		writer.write(prefix + KEY_TOTAL_NANOS + " " + histogram.getTotalNanos() + "\n");
+		writer.write(prefix + KEY_MAX_NANOS + " " + histogram.getMaxNanos() + "\n");
+		for (int i = 0; i < LatencyHistogram.BUCKET_COUNT; i++) {
+			if (histogram.getBucketCount(i) > 0) {
+				writer.write(prefix + KEY_BUCKET + " " + i + " " + histogram.getBucketCount(i) + "\n");
+			}
+		}
+	}
+
+	/**
+	 * Read the sidecar of the record file.
+	 * @return telemetry or null when the record has no sidecar or it can't be read.
+	 */
+	public static CaptureTelemetry read(File recordFile) {
+		File file = sidecarFile(recordFile);
+		if (!file.isFile()) {
+			return null;
+		}
+		try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+			if (!HEADER.equals(reader.readLine())) {
+				return null;
+			}
+			String device = "";
+			long[] values = new long[KEYS.length];
+			long[] writeTotals = new long[2];
+			long[] gapTotals = new long[2];
+			long[] writeBuckets = new long[LatencyHistogram.BUCKET_COUNT];
+			long[] gapBuckets = new long[LatencyHistogram.BUCKET_COUNT];
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] parts = line.split(" ");
+				String key = parts[0];
+				if (KEY_DEVICE.equals(key)) {
+					device = line.length() > key.length() ? line.substring(key.length() + 1) : "";
+				} else if (!readHistogram(parts, PREFIX_WRITE, writeTotals, writeBuckets)
+						&& !readHistogram(parts, PREFIX_READ_GAP, gapTotals, gapBuckets)) {
+					for (int i = 0; i < KEYS.length; i++) {
+						if (KEYS[i].equals(key)) {
+							values[i] = Long.parseLong(parts[1]);
+							break;
+						}
+					}
+				}
+			}
+			if (values[1] <= 0 || values[2] <= 0) {
+				return null;
+			}
+			CaptureTelemetry result = new CaptureTelemetry((int) values[1], (int) values[2], (int) values[4]);
+			result.setDevice(device);
+			result.setSource((int) values[0], values[3]);
+			result.ringHighWater = (int) values[5];
+			result.reads = values[6];
+			result.shortReads = values[7];
+			result.emptyReads = values[8];
+			result.failedReads = values[9];
+			result.lastError = (int) values[10];
+			result.capturedFrames = values[11];
+			result.overflowFrames = values[12];
+			result.stalls = values[13];
+			result.lostFrames = values[14];
+			restoreHistogram(result.writeLatency, writeTotals, writeBuckets);
+			restoreHistogram(result.readGaps, gapTotals, gapBuckets);
+			return result;
+		} catch (IOException | RuntimeException e) {
+			Timber.e(e, "Failed to read capture telemetry: %s", file.getAbsolutePath());
+			return null;
+		}
+	}
+
+	/** Numeric keys in the order they are restored by {@link #read(File)}. */
+	private static final String[] KEYS = new String[] {KEY_SAMPLE_RATE, KEY_FRAME_SIZE, KEY_BLOCK_SIZE,
+			KEY_SOURCE_BUFFER, KEY_RING_SLOTS, KEY_RING_HIGH_WATER, KEY_READS, KEY_SHORT_READS, KEY_EMPTY_READS,
+			KEY_FAILED_READS, KEY_LAST_ERROR, KEY_CAPTURED_FRAMES, KEY_OVERFLOW_FRAMES, KEY_STALLS, KEY_LOST_FRAMES};
+
+	/** @return true if the line belongs to the histogram with the prefix. */
+	private static boolean readHistogram(String[] parts, String prefix, long[] totals, long[] buckets) {
+		String key = parts[0];
+		if (key.equals(prefix + KEY_TOTAL_NANOS)) {
+			totals[0] = Long.parseLong(parts[1]);
+		} else if (key.equals(prefix + KEY_MAX_NANOS)) {
+			totals[1] = Long.parseLong(parts[1]);
+		} else if (key.equals(prefix + KEY_BUCKET)) {
+			buckets[Integer.parseInt(parts[1])] = Long.parseLong(parts[2]);
+		} else {
+			return false;
+		}
+		return true;
+	}
+
+	private static void restoreHistogram(LatencyHistogram histogram, long[] totals, long[] buckets) {
+		for (int i = 0; i < buckets.length; i++) {
+			if (buckets[i] > 0) {
+				histogram.addBucket(i, buckets[i]);
+			}
+		}
+		histogram.setTotals(totals[0], totals[1]);
+	}
+}
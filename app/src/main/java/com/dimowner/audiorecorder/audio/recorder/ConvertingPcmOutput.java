@@ -0,0 +1,144 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.recorder;
+
+import com.dimowner.audiorecorder.audio.dsp.PcmFormatConverter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Output which converts written PCM to the format of another output, the counterpart of {@link ConvertingPcmSource}.
+ * Written data may end in the middle of a frame, the incomplete frame waits for the next write.
+ * Conversion runs on the thread which writes the output and does not allocate memory.
+ */
+public class ConvertingPcmOutput implements PcmOutput {
+
+	private final PcmOutput output;
+	private final PcmFormatConverter converter;
+	private final int frameSize;
+	/** PCM in the input format of the converter which is not converted yet. */
+	private final ByteBuffer input;
+	private final ByteBuffer converted;
+
+	/**
+	 * @param output output in the output format of the converter.
+	 * @param blockSize size in bytes of input converted at once.
+	 */
+	public ConvertingPcmOutput(PcmOutput output, PcmFormatConverter converter, int blockSize) {
+		this.output = output;
+		this.converter = converter;
+		this.frameSize = converter.getInputChannels() * 2;
+		this.input = ByteBuffer.allocate(Math.max(blockSize - blockSize % frameSize, frameSize))
+				.order(ByteOrder.LITTLE_ENDIAN);
+		this.converted = ByteBuffer.allocate(converter.maxOutputSize(input.capacity())).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	@Override
+	public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+		long total = 0;
+		for (int i = offset; i < offset + length; i++) {
+			total += write(srcs[i]);
+		}
+		return total;
+	}
+
+	@Override
+	public long write(ByteBuffer[] srcs) throws IOException {
+		return write(srcs, 0, srcs.length);
+	}
+
+	@Override
+	public int write(ByteBuffer src) throws IOException {
+		int total = src.remaining();
+		while (src.hasRemaining()) {
+			int count = Math.min(src.remaining(), input.remaining());
+			int limit = src.limit();
+			src.limit(src.position() + count);
+			input.put(src);
+			src.limit(limit);
+			if (input.position() >= frameSize) {
+				convert();
+			}
+		}
+		return total;
+	}
+
+	@Override
+	public void onBatchWritten() throws IOException {
+		output.onBatchWritten();
+	}
+
+	@Override
+	public void onPause() throws IOException {
+		output.onPause();
+	}
+
+	/** Push silence through the converter, so the last input frames delayed by its filter reach the output. */
+	@Override
+	public void finish() throws IOException {
+		//Incomplete frame at the end of the recording is dropped.
+		input.position(input.position() - input.position() % frameSize);
+		int latencyBytes = converter.getLatencyFrames() * frameSize;
+		while (latencyBytes > 0) {
+			int count = Math.min(latencyBytes, input.remaining() - input.remaining() % frameSize);
+			for (int i = 0; i < count; i++) {
+				input.put((byte) 0);
+			}
+			latencyBytes -= count;
+			convert();
+		}
+		output.finish();
+	}
+
+	@Override
+	public boolean isOpen() {
+		return output.isOpen();
+	}
+
+	@Override
+	public void close() throws IOException {
+		output.close();
+	}
+
+	@Override
+	public long getWriteCount() {
+		return output.getWriteCount();
+	}
+
+	@Override
+	public long getSyncCount() {
+		return output.getSyncCount();
+	}
+
+	/** Convert whole frames of input and write them, the incomplete frame is kept. */
+	private void convert() throws IOException {
+		int end = input.position();
+		int size = end - end % frameSize;
+		input.flip();
+		input.limit(size);
+		converted.clear();
+		converted.limit(converter.convert(input, converted));
+		while (converted.hasRemaining()) {
+			output.write(converted);
+		}
+		input.limit(end);
+		input.position(size);
+		input.compact();
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.recorder;
+
+import com.dimowner.audiorecorder.audio.dsp.PcmFormatConverter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Source which reads PCM captured in the device format and returns it converted to the format of the recording.
+ * Lets audio be captured at the native rate of the device, so the audio HAL does not resample it.
+ * Conversion runs on the thread which reads the source and does not allocate memory.
+ */
+public class ConvertingPcmSource implements PcmSource {
+
+	private final PcmSource source;
+	private final PcmFormatConverter converter;
+	/** Block captured in the device format. */
+	private final ByteBuffer input;
+
+	/**
+	 * @param source PCM in the input format of the converter.
+	 * @param blockSize size in bytes of one read from the source.
+	 */
+	public ConvertingPcmSource(PcmSource source, PcmFormatConverter converter, int blockSize) {
+		this.source = source;
+		this.converter = converter;
+		this.input = ByteBuffer.allocateDirect(blockSize).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/** Max size in bytes of data returned by one read. Use it as the block size of readers. */
+	public int getBlockSize() {
+		return converter.maxOutputSize(input.capacity());
+	}
+
+	public PcmFormatConverter getConverter() {
+		return converter;
+	}
+
+	/** Buffer must be in little-endian byte order. */
+	@Override
+	public int read(ByteBuffer buffer, int sizeInBytes) {
+		int size = Math.min(input.capacity(), converter.maxInputSize(sizeInBytes));
+		input.clear();
+		int read = source.read(input, size);
+		if (read <= 0) {
+			return read;
+		}
+		input.limit(read);
+		return converter.convert(input, buffer);
+	}
+}
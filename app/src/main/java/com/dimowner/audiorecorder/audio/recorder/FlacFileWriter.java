@@ -0,0 +1,530 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.recorder;
+
+import com.dimowner.audiorecorder.audio.encoder.FlacBitWriter;
+import com.dimowner.audiorecorder.audio.encoder.FlacEncoder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Encodes captured 16 bit PCM into FLAC file.
+ * PCM is collected into blocks which are encoded by {@link FlacEncoder} on writer thread of {@link CapturePipeline},
+ * so encoding never blocks capture.
+ * File starts with fixed size metadata: STREAMINFO and SEEKTABLE of {@link #SEEK_POINT_CAPACITY} points.
+ * Metadata is written with unknown length when recording starts and updated with total samples count,
+ * MD5 of PCM and seek points when recording is finished, so an interrupted recording stays decodable
+ * and can be completed by {@link #repair(File)}.
+ */
+public class FlacFileWriter implements PcmOutput {
+
+	public static final int DEFAULT_BLOCK_SIZE = 4096;
+	public static final int SEEK_POINT_CAPACITY = 128;
+	/** Interval of seek points until the seek table is full. Interval is doubled when the table is full. */
+	public static final int SEEK_INTERVAL_SECONDS = 10;
+
+	private static final byte[] MARKER = {'f', 'L', 'a', 'C'};
+	private static final int METADATA_HEADER_LENGTH = 4;
+	private static final int STREAMINFO_LENGTH = 34;
+	private static final int SEEK_POINT_LENGTH = 18;
+	private static final int TYPE_STREAMINFO = 0;
+	private static final int TYPE_SEEKTABLE = 3;
+	private static final long PLACEHOLDER_POINT = 0xFFFFFFFFFFFFFFFFL;
+
+	/** Size of the metadata written before the first frame. */
+	public static final int HEADER_SIZE = MARKER.length + METADATA_HEADER_LENGTH + STREAMINFO_LENGTH
+			+ METADATA_HEADER_LENGTH + SEEK_POINT_CAPACITY * SEEK_POINT_LENGTH;
+
+	private final PreallocatedFileWriter output;
+	private final FlacEncoder encoder;
+	private final int sampleRate;
+	private final int channels;
+	private final int frameSize;
+	private final ByteBuffer block;
+	private final ShortBuffer blockSamples;
+	private final short[] pcm;
+	private final MessageDigest md5;
+	private final SeekTable seekTable;
+	private ByteBuffer frame;
+
+	private long totalSamples = 0;
+	private long framesLength = 0;
+	private int minFrameLength = Integer.MAX_VALUE;
+	private int maxFrameLength = 0;
+
+	/**
+	 * @param output file writer positioned after the metadata generated by {@link #generateHeader(int, int, int)}.
+	 * @param channels 1 or 2.
+	 */
+	public FlacFileWriter(PreallocatedFileWriter output, int sampleRate, int channels, int blockSize) {
+		this.output = output;
+		this.sampleRate = sampleRate;
+		this.channels = channels;
+		this.frameSize = channels * 2;
+		this.encoder = new FlacEncoder(sampleRate, channels, blockSize);
+		this.block = ByteBuffer.allocate(blockSize * frameSize).order(ByteOrder.LITTLE_ENDIAN);
+		this.blockSamples = block.asShortBuffer();
+		this.pcm = new short[blockSize * channels];
+		this.seekTable = new SeekTable(SEEK_POINT_CAPACITY, (long) SEEK_INTERVAL_SECONDS * sampleRate);
+		this.frame = ByteBuffer.wrap(encoder.getFrame());
+		try {
+			this.md5 = MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/** Metadata of a stream with unknown length, written before recording starts. */
+	public static byte[] generateHeader(int sampleRate, int channels, int blockSize) {
+		return generateHeader(sampleRate, channels, blockSize, 0, 0, 0, new byte[16],
+				new SeekTable(SEEK_POINT_CAPACITY, Long.MAX_VALUE));
+	}
+
+	static byte[] generateHeader(int sampleRate, int channels, int blockSize, long totalSamples,
+										  int minFrameLength, int maxFrameLength, byte[] md5, SeekTable seekTable) {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.put(MARKER);
+		header.putInt(TYPE_STREAMINFO << 24 | STREAMINFO_LENGTH);
+		header.putShort((short) blockSize);
+		header.putShort((short) blockSize);
+		putInt24(header, minFrameLength);
+		putInt24(header, maxFrameLength);
+		header.putLong((long) sampleRate << 44 | (long) (channels - 1) << 41
+				| (long) (FlacEncoder.BITS_PER_SAMPLE - 1) << 36 | (totalSamples & 0xFFFFFFFFFL));
+		header.put(md5);
+		//The last metadata block.
+		header.putInt(0x80000000 | TYPE_SEEKTABLE << 24 | SEEK_POINT_CAPACITY * SEEK_POINT_LENGTH);
+		seekTable.write(header);
+		return header.array();
+	}
+
+	private static void putInt24(ByteBuffer buffer, int value) {
+		buffer.put((byte) (value >> 16));
+		buffer.put((byte) (value >> 8));
+		buffer.put((byte) value);
+	}
+
+	@Override
+	public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+		long total = 0;
+		for (int i = offset; i < offset + length; i++) {
+			total += write(srcs[i]);
+		}
+		return total;
+	}
+
+	@Override
+	public long write(ByteBuffer[] srcs) throws IOException {
+		return write(srcs, 0, srcs.length);
+	}
+
+	@Override
+	public int write(ByteBuffer src) throws IOException {
+		int total = src.remaining();
+		while (src.hasRemaining()) {
+			int count = Math.min(src.remaining(), block.remaining());
+			int limit = src.limit();
+			src.limit(src.position() + count);
+			block.put(src);
+			src.limit(limit);
+			if (!block.hasRemaining()) {
+				encodeBlock();
+			}
+		}
+		return total;
+	}
+
+	@Override
+	public void onBatchWritten() {
+		//Every frame is complete, nothing to commit.
+	}
+
+	/** Frames encoded before the pause are written. Samples of incomplete block stay in memory. */
+	@Override
+	public void onPause() throws IOException {
+		output.onPause();
+	}
+
+	/** Encode remaining samples into the last frame, truncate preallocated space and write final metadata. */
+	@Override
+	public void finish() throws IOException {
+		if (block.position() >= frameSize) {
+			encodeBlock();
+		}
+		output.finish();
+		output.writeAt(ByteBuffer.wrap(generateHeader(sampleRate, channels, encoder.getBlockSize(), totalSamples,
+				totalSamples > 0 ? minFrameLength : 0, maxFrameLength, md5.digest(), seekTable)), 0);
+	}
+
+	@Override
+	public boolean isOpen() {
+		return output.isOpen();
+	}
+
+	@Override
+	public void close() throws IOException {
+		output.close();
+	}
+
+	/** Count of samples per channel encoded into frames. */
+	public long getTotalSamples() {
+		return totalSamples;
+	}
+
+	/** Length of encoded frames in bytes. */
+	public long getFramesLength() {
+		return framesLength;
+	}
+
+	@Override
+	public long getWriteCount() {
+		return output.getWriteCount();
+	}
+
+	@Override
+	public long getSyncCount() {
+		return output.getSyncCount();
+	}
+
+	private void encodeBlock() throws IOException {
+		int frames = block.position() / frameSize;
+		int length = frames * frameSize;
+		md5.update(block.array(), block.arrayOffset(), length);
+		blockSamples.clear();
+		blockSamples.get(pcm, 0, frames * channels);
+		block.clear();
+
+		int frameLength = encoder.encodeFrame(pcm, 0, frames);
+		if (frame.array() != encoder.getFrame()) {
+			frame = ByteBuffer.wrap(encoder.getFrame());
+		}
+		frame.clear();
+		frame.limit(frameLength);
+		seekTable.onFrame(totalSamples, framesLength, frames);
+		output.write(frame);
+		totalSamples += frames;
+		framesLength += frameLength;
+		minFrameLength = Math.min(minFrameLength, frameLength);
+		maxFrameLength = Math.max(maxFrameLength, frameLength);
+	}
+
+	/**
+	 * Complete metadata of interrupted recording: drop incomplete frame and preallocated space
+	 * at the end of the file and write total samples count into STREAMINFO. MD5 stays unknown.
+	 * @return total samples count per channel or -1 when the file is not a FLAC file written by this writer.
+	 */
+	public static long repair(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			long length = raf.length();
+			if (length < HEADER_SIZE) {
+				return -1;
+			}
+			byte[] header = new byte[HEADER_SIZE];
+			raf.readFully(header);
+			ByteBuffer metadata = ByteBuffer.wrap(header);
+			for (byte b : MARKER) {
+				if (metadata.get() != b) {
+					return -1;
+				}
+			}
+			if ((metadata.getInt() >>> 24 & 0x7F) != TYPE_STREAMINFO) {
+				return -1;
+			}
+			int blockSize = metadata.getShort() & 0xFFFF;
+			//Verbatim stereo frame with side channel.
+			int maxFrameLength = blockSize * (2 * FlacEncoder.BITS_PER_SAMPLE + 1) / 8 + 64;
+
+			//Only the last frame can be incomplete, the last complete frame starts within two frames from the end.
+			long end = PreallocatedFileWriter.findWrittenEnd(raf, HEADER_SIZE, length);
+			long readStart = Math.max(HEADER_SIZE, end - 2L * maxFrameLength);
+			byte[] tail = new byte[(int) (Math.min(length, end + maxFrameLength) - readStart)];
+			raf.seek(readStart);
+			raf.readFully(tail);
+			long totalSamples = 0;
+			long dataEnd = HEADER_SIZE;
+			for (int start = (int) (end - readStart) - 1; start >= 0; start--) {
+				int[] frameHeader = readFrameHeader(tail, start);
+				if (frameHeader == null) {
+					continue;
+				}
+				int frameEnd = scanFrame(tail, start, frameHeader);
+				if (frameEnd > 0 && FlacBitWriter.crc16(tail, start, frameEnd - start) == 0) {
+					totalSamples = (long) frameHeader[0] * blockSize + frameHeader[1];
+					dataEnd = readStart + frameEnd;
+					break;
+				}
+			}
+			raf.setLength(dataEnd);
+			//Total samples is stored in low 36 bits of the 8 bytes after frame sizes.
+			int position = MARKER.length + METADATA_HEADER_LENGTH + 10;
+			long packed = (metadata.getLong(position) & ~0xFFFFFFFFFL) | totalSamples;
+			raf.seek(position);
+			raf.write(ByteBuffer.allocate(8).putLong(packed).array());
+			return totalSamples;
+		}
+	}
+
+	/**
+	 * Parse header of fixed block size frame at the position.
+	 * @return frame number, block size, header length, channel assignment and bits per sample
+	 * or null when there is no valid frame header.
+	 */
+	private static int[] readFrameHeader(byte[] data, int start) {
+		if (data.length - start < 6 || (data[start] & 0xFF) != 0xFF || (data[start + 1] & 0xFF) != 0xF8) {
+			return null;
+		}
+		int blockSizeCode = (data[start + 2] & 0xF0) >> 4;
+		int sampleRateCode = data[start + 2] & 0x0F;
+		int assignment = (data[start + 3] & 0xF0) >> 4;
+		int sampleSizeCode = (data[start + 3] & 0x0E) >> 1;
+		int position = start + 4;
+		int first = data[position++] & 0xFF;
+		int extraBytes = first < 0x80 ? 0 : first >= 0xFE ? -1 : first >= 0xFC ? 5 : first >= 0xF8 ? 4
+				: first >= 0xF0 ? 3 : first >= 0xE0 ? 2 : first >= 0xC0 ? 1 : -1;
+		if (extraBytes < 0 || blockSizeCode == 0 || sampleRateCode == 15 || assignment > 10
+				|| (sampleSizeCode != 0 && sampleSizeCode != 4)) {
+			return null;
+		}
+		int needed = extraBytes + (blockSizeCode == 6 ? 1 : blockSizeCode == 7 ? 2 : 0)
+				+ (sampleRateCode == 12 ? 1 : sampleRateCode > 12 ? 2 : 0) + 1;
+		if (position + needed > data.length) {
+			return null;
+		}
+		int number = first & (0x7F >> extraBytes);
+		for (int i = 0; i < extraBytes; i++) {
+			number = number << 6 | (data[position++] & 0x3F);
+		}
+		int blockSize;
+		if (blockSizeCode == 1) {
+			blockSize = 192;
+		} else if (blockSizeCode <= 5) {
+			blockSize = 576 << (blockSizeCode - 2);
+		} else if (blockSizeCode == 6) {
+			blockSize = (data[position++] & 0xFF) + 1;
+		} else if (blockSizeCode == 7) {
+			blockSize = ((data[position] & 0xFF) << 8 | (data[position + 1] & 0xFF)) + 1;
+			position += 2;
+		} else {
+			blockSize = 256 << (blockSizeCode - 8);
+		}
+		position += sampleRateCode == 12 ? 1 : sampleRateCode > 12 ? 2 : 0;
+		if (FlacBitWriter.crc8(data, start, position - start) != (data[position] & 0xFF)) {
+			return null;
+		}
+		return new int[] { number, blockSize, position + 1 - start, assignment, FlacEncoder.BITS_PER_SAMPLE };
+	}
+
+	/**
+	 * Walk subframes of the frame without decoding samples.
+	 * @return end of the frame including CRC-16 or -1 when the frame is broken or incomplete.
+	 */
+	private static int scanFrame(byte[] data, int start, int[] frameHeader) {
+		int blockSize = frameHeader[1];
+		int assignment = frameHeader[3];
+		int channels = assignment < 8 ? assignment + 1 : 2;
+		BitReader reader = new BitReader(data, start + frameHeader[2]);
+		try {
+			for (int ch = 0; ch < channels; ch++) {
+				boolean side = (assignment == 9 && ch == 0) || (assignment >= 8 && ch == 1 && assignment != 9);
+				int bps = frameHeader[4] + (side ? 1 : 0);
+				if (reader.read(1) != 0) {
+					return -1;
+				}
+				int type = reader.read(6);
+				if (reader.read(1) == 1) {
+					bps -= reader.readUnary() + 1;
+				}
+				if (type == 0) {
+					reader.skip(bps);
+				} else if (type == 1) {
+					reader.skip((long) blockSize * bps);
+				} else if (type >= 8 && type <= 12) {
+					reader.skip((long) (type - 8) * bps);
+					scanResidual(reader, blockSize, type - 8);
+				} else if (type >= 32) {
+					int order = type - 31;
+					reader.skip((long) order * bps);
+					int precision = reader.read(4) + 1;
+					if (precision == 16) {
+						return -1;
+					}
+					reader.skip(5 + (long) order * precision);
+					scanResidual(reader, blockSize, order);
+				} else {
+					return -1;
+				}
+			}
+			reader.alignToByte();
+			int end = reader.getBytePosition() + 2;
+			return end <= data.length ? end : -1;
+		} catch (IndexOutOfBoundsException e) {
+			return -1;
+		}
+	}
+
+	private static void scanResidual(BitReader reader, int blockSize, int predictorOrder) {
+		int method = reader.read(2);
+		if (method > 1) {
+			throw new IndexOutOfBoundsException("Reserved residual coding method");
+		}
+		int parameterBits = method == 0 ? 4 : 5;
+		int escape = (1 << parameterBits) - 1;
+		int partitionOrder = reader.read(4);
+		int partitionSize = blockSize >> partitionOrder;
+		for (int p = 0; p < (1 << partitionOrder); p++) {
+			int count = p == 0 ? partitionSize - predictorOrder : partitionSize;
+			int parameter = reader.read(parameterBits);
+			if (parameter == escape) {
+				reader.skip((long) count * reader.read(5));
+			} else {
+				for (int i = 0; i < count; i++) {
+					reader.readUnary();
+					reader.skip(parameter);
+				}
+			}
+		}
+	}
+
+	/** Big-endian bit reader which throws {@link IndexOutOfBoundsException} at the end of data. */
+	private static class BitReader {
+
+		private final byte[] data;
+		private long position;
+
+		BitReader(byte[] data, int byteOffset) {
+			this.data = data;
+			this.position = byteOffset * 8L;
+		}
+
+		int read(int count) {
+			int value = 0;
+			for (int i = 0; i < count; i++) {
+				value = value << 1 | bit();
+			}
+			return value;
+		}
+
+		int readUnary() {
+			int count = 0;
+			while (bit() == 0) {
+				count++;
+			}
+			return count;
+		}
+
+		void skip(long count) {
+			position += count;
+			if (position > data.length * 8L) {
+				throw new IndexOutOfBoundsException("End of data");
+			}
+		}
+
+		void alignToByte() {
+			position = (position + 7) & ~7L;
+		}
+
+		int getBytePosition() {
+			return (int) (position >> 3);
+		}
+
+		private int bit() {
+			int index = (int) (position >> 3);
+			if (index >= data.length) {
+				throw new IndexOutOfBoundsException("End of data");
+			}
+			int bit = (data[index] >> (7 - (int) (position & 7))) & 1;
+			position++;
+			return bit;
+		}
+	}
+
+	/**
+	 * Seek points placed at the first frame after every interval.
+	 * When the table is full every second point is removed and the interval is doubled.
+	 */
+	static class SeekTable {
+
+		private final long[] samples;
+		private final long[] offsets;
+		private final int[] frameSamples;
+		private long interval;
+		private long nextSample = 0;
+		private int count = 0;
+
+		SeekTable(int capacity, long interval) {
+			this.samples = new long[capacity];
+			this.offsets = new long[capacity];
+			this.frameSamples = new int[capacity];
+			this.interval = Math.max(interval, 1);
+		}
+
+		/**
+		 * @param sample first sample of the frame.
+		 * @param offset offset of the frame from the first frame in bytes.
+		 * @param samplesCount samples count in the frame.
+		 */
+		void onFrame(long sample, long offset, int samplesCount) {
+			if (sample < nextSample) {
+				return;
+			}
+			if (count == samples.length) {
+				for (int i = 0; i < (count + 1) / 2; i++) {
+					samples[i] = samples[2 * i];
+					offsets[i] = offsets[2 * i];
+					frameSamples[i] = frameSamples[2 * i];
+				}
+				count = (count + 1) / 2;
+				interval *= 2;
+				nextSample = (samples[count - 1] / interval + 1) * interval;
+				if (sample < nextSample) {
+					return;
+				}
+			}
+			samples[count] = sample;
+			offsets[count] = offset;
+			frameSamples[count] = samplesCount;
+			count++;
+			nextSample = (sample / interval + 1) * interval;
+		}
+
+		int getCount() {
+			return count;
+		}
+
+		/** Write all points of the capacity, unused points are placeholders. */
+		void write(ByteBuffer buffer) {
+			for (int i = 0; i < samples.length; i++) {
+				if (i < count) {
+					buffer.putLong(samples[i]);
+					buffer.putLong(offsets[i]);
+					buffer.putShort((short) frameSamples[i]);
+				} else {
+					buffer.putLong(PLACEHOLDER_POINT);
+					buffer.putLong(0);
+					buffer.putShort((short) 0);
+				}
+			}
+		}
+	}
+}
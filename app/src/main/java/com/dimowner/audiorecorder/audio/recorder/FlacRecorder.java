@@ -0,0 +1,58 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.recorder;
+
+import com.dimowner.audiorecorder.AppConstants;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Records lossless FLAC. Captured PCM is encoded by {@link FlacFileWriter} on writer thread of the pipeline.
+ */
+public class FlacRecorder extends PcmRecorder {
+
+	private static class FlacRecorderSingletonHolder {
+		private static final FlacRecorder singleton = new FlacRecorder();
+
+		public static FlacRecorder getSingleton() {
+			return FlacRecorderSingletonHolder.singleton;
+		}
+	}
+
+	public static FlacRecorder getInstance() {
+		return FlacRecorderSingletonHolder.getSingleton();
+	}
+
+	private FlacRecorder() { }
+
+	@Override
+	protected PcmOutput openOutput(File recordFile, int sampleRate, int channelCount) throws IOException {
+		int blockSize = FlacFileWriter.DEFAULT_BLOCK_SIZE;
+		return new FlacFileWriter(openFileWriter(recordFile,
+				FlacFileWriter.generateHeader(sampleRate, channelCount, blockSize)),
+				sampleRate, channelCount, blockSize);
+	}
+
+	/** Compressed stream has no fixed bitrate, average bitrate of the record is used. */
+	@Override
+	protected RecordingResult createResult(File recordFile, int sampleRate, int channelCount, long frameCount) {
+		long size = recordFile.length();
+		int bitrate = frameCount > 0 ? (int) (size * 8 * sampleRate / frameCount) : 0;
+		return new RecordingResult(AppConstants.FORMAT_FLAC, sampleRate, channelCount, bitrate, frameCount, size);
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.recorder;
+
+import com.dimowner.audiorecorder.AppConstants;
+import com.dimowner.audiorecorder.audio.encoder.ImaAdpcmEncoder;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Records IMA ADPCM WAV, 4 times smaller than PCM WAV for low CPU cost.
+ * Captured PCM is encoded by {@link ImaAdpcmWavWriter} on writer thread of the pipeline.
+ */
+public class ImaAdpcmRecorder extends PcmRecorder {
+
+	private static class ImaAdpcmRecorderSingletonHolder {
+		private static final ImaAdpcmRecorder singleton = new ImaAdpcmRecorder();
+
+		public static ImaAdpcmRecorder getSingleton() {
+			return ImaAdpcmRecorderSingletonHolder.singleton;
+		}
+	}
+
+	public static ImaAdpcmRecorder getInstance() {
+		return ImaAdpcmRecorderSingletonHolder.getSingleton();
+	}
+
+	private ImaAdpcmRecorder() { }
+
+	@Override
+	protected PcmOutput openOutput(File recordFile, int sampleRate, int channelCount) throws IOException {
+		ImaAdpcmWavWriter output = new ImaAdpcmWavWriter(openFileWriter(recordFile,
+				ImaAdpcmWavHeader.generate(0, 0, sampleRate, channelCount)), sampleRate, channelCount);
+		output.setHeaderCommitInterval(AppConstants.WAV_HEADER_COMMIT_INTERVAL_SECONDS
+				* ImaAdpcmEncoder.byteRate(sampleRate, channelCount));
+		return output;
+	}
+
+	/** Record is compact itself, no proxy is written. */
+	@Override
+	protected PcmOutput openProxy(File proxyFile, int sampleRate, int channelCount, int blockSize) {
+		return null;
+	}
+
+	@Override
+	protected RecordingResult createResult(File recordFile, int sampleRate, int channelCount, long frameCount) {
+		return new RecordingResult(AppConstants.FORMAT_WAV, sampleRate, channelCount,
+				(int) (ImaAdpcmEncoder.byteRate(sampleRate, channelCount) * 8), frameCount, recordFile.length());
+	}
+}
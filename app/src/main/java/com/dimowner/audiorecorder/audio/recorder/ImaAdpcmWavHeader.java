@@ -0,0 +1,200 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.recorder;
+
+import com.dimowner.audiorecorder.audio.encoder.ImaAdpcmEncoder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 60 byte header of IMA ADPCM WAV file: 'fmt ' chunk with samples per block extension,
+ * 'fact' chunk with samples count per channel and 'data' chunk header.
+ * Used to write the header while recording and to repair headers of recordings which were interrupted.
+ */
+public class ImaAdpcmWavHeader {
+
+	public static final int HEADER_SIZE = 60;
+	private static final int FMT_SIZE = 20;
+	private static final int EXTENSION_SIZE = 2;
+	private static final int FACT_SIZE = 4;
+	/** Max value of 32 bit RIFF chunk size. */
+	private static final long MAX_CHUNK_SIZE = 0xFFFFFFFFL;
+	private static final long MAX_DATA_LENGTH = MAX_CHUNK_SIZE - (HEADER_SIZE - 8);
+
+	private final int sampleRate;
+	private final int channelCount;
+	private final long sampleLength;
+	private final long dataLength;
+
+	public ImaAdpcmWavHeader(int sampleRate, int channelCount, long sampleLength, long dataLength) {
+		this.sampleRate = sampleRate;
+		this.channelCount = channelCount;
+		this.sampleLength = sampleLength;
+		this.dataLength = dataLength;
+	}
+
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	public int getChannelCount() {
+		return channelCount;
+	}
+
+	/** Count of samples per channel from 'fact' chunk. */
+	public long getSampleLength() {
+		return sampleLength;
+	}
+
+	/** Length of ADPCM data in bytes. */
+	public long getDataLength() {
+		return dataLength;
+	}
+
+	public int getBlockAlign() {
+		return ImaAdpcmEncoder.blockAlign(sampleRate, channelCount);
+	}
+
+	public int getSamplesPerBlock() {
+		return ImaAdpcmEncoder.samplesPerBlock(getBlockAlign(), channelCount);
+	}
+
+	public long getDurationMicros() {
+		return sampleRate > 0 ? sampleLength * 1000000 / sampleRate : 0;
+	}
+
+	/** Bitrate in bits per second. */
+	public int getBitrate() {
+		return (int) (ImaAdpcmEncoder.byteRate(sampleRate, channelCount) * 8);
+	}
+
+	public static byte[] generate(long sampleLength, long dataLength, int sampleRate, int channels) {
+		int blockAlign = ImaAdpcmEncoder.blockAlign(sampleRate, channels);
+		long audioLength = Math.min(dataLength, MAX_DATA_LENGTH);
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		header.put(ascii("RIFF"));
+		header.putInt((int) (audioLength + HEADER_SIZE - 8));
+		header.put(ascii("WAVE"));
+		header.put(ascii("fmt "));
+		header.putInt(FMT_SIZE);
+		header.putShort((short) ImaAdpcmEncoder.WAVE_FORMAT_IMA_ADPCM);
+		header.putShort((short) channels);
+		header.putInt(sampleRate);
+		header.putInt((int) ImaAdpcmEncoder.byteRate(sampleRate, channels));
+		header.putShort((short) blockAlign);
+		header.putShort((short) ImaAdpcmEncoder.BITS_PER_SAMPLE);
+		header.putShort((short) EXTENSION_SIZE);
+		header.putShort((short) ImaAdpcmEncoder.samplesPerBlock(blockAlign, channels));
+		header.put(ascii("fact"));
+		header.putInt(FACT_SIZE);
+		header.putInt((int) Math.min(sampleLength, MAX_CHUNK_SIZE));
+		header.put(ascii("data"));
+		header.putInt((int) audioLength);
+		return header.array();
+	}
+
+	/**
+	 * Read header of IMA ADPCM WAV file.
+	 * @return header or null when the file is not an IMA ADPCM WAV written by this app.
+	 */
+	public static ImaAdpcmWavHeader read(RandomAccessFile file) throws IOException {
+		if (file.length() < HEADER_SIZE) {
+			return null;
+		}
+		byte[] bytes = new byte[HEADER_SIZE];
+		file.seek(0);
+		file.readFully(bytes);
+		ByteBuffer header = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+		if (!matches(bytes, 0, "RIFF") || !matches(bytes, 8, "WAVE") || !matches(bytes, 12, "fmt ")
+				|| header.getInt(16) != FMT_SIZE || header.getShort(20) != ImaAdpcmEncoder.WAVE_FORMAT_IMA_ADPCM
+				|| !matches(bytes, 40, "fact") || !matches(bytes, 52, "data")) {
+			return null;
+		}
+		int channels = header.getShort(22);
+		int sampleRate = header.getInt(24);
+		if (channels <= 0 || sampleRate <= 0
+				|| header.getShort(32) != ImaAdpcmEncoder.blockAlign(sampleRate, channels)) {
+			return null;
+		}
+		return new ImaAdpcmWavHeader(sampleRate, channels,
+				header.getInt(48) & MAX_CHUNK_SIZE, header.getInt(56) & MAX_CHUNK_SIZE);
+	}
+
+	/** @return header or null when the file is not an IMA ADPCM WAV written by this app. */
+	public static ImaAdpcmWavHeader read(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			return read(raf);
+		}
+	}
+
+	/**
+	 * Make header of IMA ADPCM WAV file consistent with the actual file length.
+	 * Data is cut after the last written block, see {@link PreallocatedFileWriter#findWrittenEnd}.
+	 * @return repaired header or null when the file is not an IMA ADPCM WAV file.
+	 */
+	public static ImaAdpcmWavHeader repair(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			ImaAdpcmWavHeader header = read(raf);
+			if (header == null) {
+				return null;
+			}
+			int blockAlign = header.getBlockAlign();
+			long fileDataLength = raf.length() - HEADER_SIZE;
+			long actualLength = fileDataLength;
+			if (actualLength > header.getDataLength()) {
+				//File may end with preallocated space which was never written.
+				actualLength = PreallocatedFileWriter.findWrittenEnd(raf, HEADER_SIZE + header.getDataLength(),
+						HEADER_SIZE + actualLength) - HEADER_SIZE;
+				//The last written block may end with zero bytes, it is kept whole.
+				actualLength = Math.min(actualLength + (blockAlign - actualLength % blockAlign) % blockAlign, fileDataLength);
+			}
+			long maxLength = MAX_DATA_LENGTH - MAX_DATA_LENGTH % blockAlign;
+			long dataLength = Math.min(actualLength - actualLength % blockAlign, maxLength);
+			if (dataLength == header.getDataLength() && dataLength == fileDataLength) {
+				return header;
+			}
+			if (dataLength != fileDataLength) {
+				raf.setLength(HEADER_SIZE + dataLength);
+			}
+			long sampleLength = dataLength / blockAlign * header.getSamplesPerBlock();
+			raf.seek(0);
+			raf.write(generate(sampleLength, dataLength, header.getSampleRate(), header.getChannelCount()));
+			return new ImaAdpcmWavHeader(header.getSampleRate(), header.getChannelCount(), sampleLength, dataLength);
+		}
+	}
+
+	private static byte[] ascii(String value) {
+		byte[] bytes = new byte[value.length()];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) value.charAt(i);
+		}
+		return bytes;
+	}
+
+	private static boolean matches(byte[] bytes, int offset, String value) {
+		for (int i = 0; i < value.length(); i++) {
+			if (bytes[offset + i] != value.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
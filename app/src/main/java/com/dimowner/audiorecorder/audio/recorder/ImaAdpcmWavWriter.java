@@ -0,0 +1,186 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.recorder;
+
+import com.dimowner.audiorecorder.audio.encoder.ImaAdpcmEncoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes captured PCM into IMA ADPCM WAV file.
+ * PCM is collected into a block of {@link ImaAdpcmEncoder#getSamplesPerBlock()} frames
+ * which is encoded in place and written by {@link PreallocatedFileWriter}.
+ * Header is committed periodically, so interrupted recording can be repaired by {@link ImaAdpcmWavHeader#repair}.
+ */
+public class ImaAdpcmWavWriter implements PcmOutput {
+
+	private final PreallocatedFileWriter output;
+	private final ImaAdpcmEncoder encoder;
+	private final int sampleRate;
+	private final int channels;
+	private final int frameSize;
+	private final int blockAlign;
+	private final ByteBuffer block;
+	/** View of encoded data at the start of the block. */
+	private final ByteBuffer encoded;
+
+	private long headerCommitIntervalBytes = 0;
+	private long committedLength = 0;
+	private long totalSamples = 0;
+
+	/**
+	 * @param output file writer positioned after the header generated by {@link ImaAdpcmWavHeader#generate}.
+	 */
+	public ImaAdpcmWavWriter(PreallocatedFileWriter output, int sampleRate, int channels) {
+		this.output = output;
+		this.sampleRate = sampleRate;
+		this.channels = channels;
+		this.frameSize = channels * 2;
+		this.encoder = new ImaAdpcmEncoder(sampleRate, channels);
+		this.blockAlign = encoder.getBlockAlign();
+		this.block = ByteBuffer.allocate(encoder.getSamplesPerBlock() * frameSize);
+		this.encoded = ByteBuffer.wrap(block.array());
+	}
+
+	/**
+	 * Set length of encoded data which is written before the header is updated with the current data length.
+	 * 0 disables periodic header commits.
+	 */
+	public void setHeaderCommitInterval(long bytes) {
+		this.headerCommitIntervalBytes = bytes;
+	}
+
+	@Override
+	public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+		long total = 0;
+		for (int i = offset; i < offset + length; i++) {
+			total += write(srcs[i]);
+		}
+		return total;
+	}
+
+	@Override
+	public long write(ByteBuffer[] srcs) throws IOException {
+		return write(srcs, 0, srcs.length);
+	}
+
+	@Override
+	public int write(ByteBuffer src) throws IOException {
+		int total = src.remaining();
+		while (src.hasRemaining()) {
+			int count = Math.min(src.remaining(), block.remaining());
+			int limit = src.limit();
+			src.limit(src.position() + count);
+			block.put(src);
+			src.limit(limit);
+			if (!block.hasRemaining()) {
+				encodeBlock();
+			}
+		}
+		return total;
+	}
+
+	/** Write header for whole blocks of data which reached the file. */
+	public void commitHeader() throws IOException {
+		long dataLength = getFlushedDataLength();
+		dataLength -= dataLength % blockAlign;
+		long samples = dataLength / blockAlign * encoder.getSamplesPerBlock();
+		output.writeAt(ByteBuffer.wrap(ImaAdpcmWavHeader.generate(samples, dataLength, sampleRate, channels)), 0);
+		committedLength = dataLength;
+	}
+
+	@Override
+	public void onBatchWritten() throws IOException {
+		//Only data which reached the file is committed, staged data is not.
+		if (headerCommitIntervalBytes > 0 && getFlushedDataLength() - committedLength >= headerCommitIntervalBytes) {
+			commitHeader();
+		}
+	}
+
+	/** Blocks encoded before the pause are written. Samples of incomplete block stay in memory. */
+	@Override
+	public void onPause() throws IOException {
+		output.flush();
+		commitHeader();
+		output.onPause();
+	}
+
+	/**
+	 * Encode remaining samples into the last block padded with silence, truncate preallocated space
+	 * and write the final header. Samples count in 'fact' chunk excludes the padding.
+	 */
+	@Override
+	public void finish() throws IOException {
+		if (block.position() >= frameSize) {
+			int samples = block.position() / frameSize;
+			while (block.hasRemaining()) {
+				block.put((byte) 0);
+			}
+			encodeBlock();
+			totalSamples -= encoder.getSamplesPerBlock() - samples;
+		}
+		output.finish();
+		long dataLength = getFlushedDataLength();
+		output.writeAt(ByteBuffer.wrap(ImaAdpcmWavHeader.generate(totalSamples, dataLength, sampleRate, channels)), 0);
+		committedLength = dataLength;
+	}
+
+	@Override
+	public boolean isOpen() {
+		return output.isOpen();
+	}
+
+	@Override
+	public void close() throws IOException {
+		output.close();
+	}
+
+	/** Count of samples per channel encoded into blocks. */
+	public long getTotalSamples() {
+		return totalSamples;
+	}
+
+	/** Length of encoded data which reached the file. */
+	public long getFlushedDataLength() {
+		return output.getFlushedPosition() - ImaAdpcmWavHeader.HEADER_SIZE;
+	}
+
+	/** Data length in the last committed header. */
+	public long getCommittedDataLength() {
+		return committedLength;
+	}
+
+	@Override
+	public long getWriteCount() {
+		return output.getWriteCount();
+	}
+
+	@Override
+	public long getSyncCount() {
+		return output.getSyncCount();
+	}
+
+	private void encodeBlock() throws IOException {
+		encoder.encodeBlock(block.array(), block.arrayOffset(), block.array(), block.arrayOffset());
+		block.clear();
+		encoded.clear();
+		encoded.limit(blockAlign);
+		output.write(encoded);
+		totalSamples += encoder.getSamplesPerBlock();
+	}
+}
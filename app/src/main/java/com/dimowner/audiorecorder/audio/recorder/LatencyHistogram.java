@@ -0,0 +1,114 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.recorder;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations with power of two buckets in microseconds.
+ * Bucket 0 counts durations shorter than 1 us, bucket i counts durations from 2^(i-1) us up to 2^i us,
+ * the last bucket counts everything longer. Recording never allocates, so it can be used on audio threads.
+ */
+public class LatencyHistogram {
+
+	/** Last bucket starts at 2^30 us, about 18 minutes. */
+	public static final int BUCKET_COUNT = 32;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+	private final AtomicLong count = new AtomicLong(0);
+	private final AtomicLong totalNanos = new AtomicLong(0);
+	private final AtomicLong maxNanos = new AtomicLong(0);
+
+	/** Index of the bucket which counts the duration. */
+	public static int bucketOf(long nanos) {
+		long micros = nanos / 1000;
+		return Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros));
+	}
+
+	/** Upper bound of the bucket in microseconds. The last bucket has no bound. */
+	public static long bucketUpperMicros(int bucket) {
+		return bucket >= BUCKET_COUNT - 1 ? Long.MAX_VALUE : 1L << bucket;
+	}
+
+	public void record(long nanos) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+		buckets.incrementAndGet(bucketOf(nanos));
+		count.incrementAndGet();
+		totalNanos.addAndGet(nanos);
+		long max = maxNanos.get();
+		while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+			max = maxNanos.get();
+		}
+	}
+
+	/** Add counts of a bucket, used to restore a stored histogram. */
+	void addBucket(int bucket, long bucketCount) {
+		buckets.addAndGet(bucket, bucketCount);
+		count.addAndGet(bucketCount);
+	}
+
+	/** Restore totals of a stored histogram. */
+	void setTotals(long totalNanos, long maxNanos) {
+		this.totalNanos.set(totalNanos);
+		this.maxNanos.set(maxNanos);
+	}
+
+	public long getCount() {
+		return count.get();
+	}
+
+	public long getBucketCount(int bucket) {
+		return buckets.get(bucket);
+	}
+
+	public long getTotalNanos() {
+		return totalNanos.get();
+	}
+
+	public long getMaxNanos() {
+		return maxNanos.get();
+	}
+
+	public long getMeanNanos() {
+		long n = count.get();
+		return n > 0 ? totalNanos.get() / n : 0;
+	}
+
+	/**
+	 * Upper bound of the bucket which holds the percentile, so the real value is at most 2 times lower.
+	 * @param percentile from 0 to 100.
+	 * @return bound in microseconds or 0 when histogram is empty.
+	 */
+	public long getPercentileMicros(double percentile) {
+		long n = count.get();
+		if (n == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(n * percentile / 100));
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += buckets.get(i);
+			if (seen >= rank) {
+				return Math.min(bucketUpperMicros(i), Math.max(1, maxNanos.get() / 1000));
+			}
+		}
+		return maxNanos.get() / 1000;
+	}
+}
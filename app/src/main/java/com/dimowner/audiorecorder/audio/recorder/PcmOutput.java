@@ -0,0 +1,42 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.recorder;
+
+import java.io.IOException;
+import java.nio.channels.GatheringByteChannel;
+
+/**
+ * Recording file which receives captured PCM data on writer thread of {@link CapturePipeline}.
+ * Implementations store PCM in a file format, all calls are made on the writer thread.
+ */
+public interface PcmOutput extends GatheringByteChannel {
+
+	/** Called after every batch of captured blocks is written. */
+	void onBatchWritten() throws IOException;
+
+	/** Called when recording is paused and all data captured before the pause is written. */
+	void onPause() throws IOException;
+
+	/** Write all remaining data and final metadata of the file. Output is closed after that. */
+	void finish() throws IOException;
+
+	/** Count of write calls made to the file system. */
+	long getWriteCount();
+
+	/** Count of syncs of written data to storage. */
+	long getSyncCount();
+}
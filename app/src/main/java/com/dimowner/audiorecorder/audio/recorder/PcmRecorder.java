@@ -0,0 +1,954 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.recorder;
+
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+import android.os.Build;
+import android.os.Debug;
+import android.os.Handler;
+import com.dimowner.audiorecorder.AppConstants;
+import com.dimowner.audiorecorder.audio.WaveformPyramid;
+import com.dimowner.audiorecorder.audio.dsp.DspChain;
+import com.dimowner.audiorecorder.audio.dsp.PcmFormatConverter;
+import com.dimowner.audiorecorder.audio.dsp.LoudnessMeter;
+import com.dimowner.audiorecorder.audio.dsp.PcmLevelMeter;
+import com.dimowner.audiorecorder.audio.dsp.SpectrogramQueue;
+import com.dimowner.audiorecorder.audio.dsp.SpectrumAnalyzer;
+import com.dimowner.audiorecorder.audio.dsp.VoiceActivityDetector;
+import com.dimowner.audiorecorder.exception.InvalidOutputFile;
+import com.dimowner.audiorecorder.exception.NoSpaceAvailableException;
+import com.dimowner.audiorecorder.exception.RecorderInitException;
+import com.dimowner.audiorecorder.exception.RecordingException;
+import com.dimowner.audiorecorder.util.AndroidUtils;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import timber.log.Timber;
+import static com.dimowner.audiorecorder.AppConstants.RECORDING_VISUALIZATION_INTERVAL;
+import androidx.annotation.RequiresPermission;
+
+/**
+ * Base of recorders which capture 16 bit PCM with {@link AudioRecord} into {@link CapturePipeline}
+ * and store it in a file format implemented by {@link PcmOutput}.
+ */
+public abstract class PcmRecorder implements RecorderContract.Recorder {
+
+	private AudioRecord recorder = null;
+
+	protected static final int RECORDER_BPP = 16; //bits per sample
+
+	private File recordFile = null;
+	/**
+	 * Min buffer size of the last created AudioRecord in bytes of its format.
+	 * Valid only while the source of that AudioRecord is created.
+	 */
+	private int bufferSize = 0;
+	/** Sample rate the device captures at without resampling. 0 when unknown. */
+	private int nativeSampleRate = 0;
+	private float bufferDepthSeconds = AppConstants.RECORDING_BUFFER_DEPTH_SECONDS;
+	private long preallocationChunkSize = AppConstants.WAV_PREALLOCATION_CHUNK_SIZE;
+	private PreallocatedFileWriter.Durability durability = AppConstants.DEFAULT_WAV_DURABILITY;
+	private int syncIntervalSeconds = AppConstants.WAV_SYNC_INTERVAL_SECONDS;
+	/** Level in dBFS which starts voice activity. 0 when all captured audio is recorded. */
+	private int voiceActivationDbfs = AppConstants.DEFAULT_VOICE_ACTIVATION_DBFS;
+	/** Creates processing applied to captured audio before it is written or null. */
+	private DspChain.Factory dspChainFactory;
+	/** Write a compact proxy of the record together with it. */
+	private boolean isProxyEnabled = AppConstants.DEFAULT_RECORD_PROXY_ENABLED;
+	/** Receives live spectrogram of recorded audio or null. */
+	private SpectrogramQueue spectrogramQueue;
+
+	private CapturePipeline pipeline;
+	/** Clock of the current or the last recording. */
+	private RecordingClock clock = new RecordingClock(AppConstants.RECORD_SAMPLE_RATE_44100);
+
+	/**
+	 * Ring of audio captured before recording start. Allocated on the first arm.
+	 * Null while the recording pipeline writes it to the file.
+	 */
+	private PreRollBuffer preRollBuffer;
+	/** AudioRecord which captures into pre-roll buffer while pre-roll is armed. */
+	private AudioRecord preRollRecorder;
+	/** Source which reads preRollRecorder in the format of the pre-roll. */
+	private PcmSource preRollSource;
+	private Thread preRollThread;
+	private volatile boolean isPreRollRunning = false;
+	private int preRollBlockSize = 0;
+	private int preRollSampleRate = 0;
+	private int preRollChannelCount = 0;
+
+	/** Initialized AudioRecord which is not started yet, the next recording in its format starts on it. */
+	private AudioRecord idleRecorder;
+	private PcmSource idleSource;
+	private int idleBlockSize = 0;
+	private int idleSampleRate = 0;
+	private int idleChannelCount = 0;
+	/** Releases the idle AudioRecord when no recording starts on it in time. */
+	private final Runnable idleCaptureTimeout = this::releaseIdleCapture;
+	/** Time of the request to start the next recording, 0 if not known. */
+	private long startRequestedNanos = 0;
+
+	/** Lifecycle of the current or the last recording session. New instance is created for every session. */
+	private RecorderStateMachine stateMachine = new RecorderStateMachine(Debug::threadCpuTimeNanos);
+	private final Handler handler = new Handler();
+
+	private int channelCount = 1;
+
+	/** Value for recording used visualisation. */
+	private volatile int lastVal = 0;
+	/** Waveform of the last finished recording or null while recording. */
+	private volatile RecordedWaveform recordedWaveform = null;
+	/** Loudness of the current or the last recording. */
+	private volatile LoudnessMeter loudnessMeter = null;
+	/** Result of the last finished recording, set on the writer thread. */
+	private volatile RecordingResult recordingResult = null;
+
+	private int sampleRate = AppConstants.RECORD_SAMPLE_RATE_44100;
+
+	private RecorderContract.RecorderCallback recorderCallback;
+
+	protected PcmRecorder() { }
+
+	@Override
+	public void setRecorderCallback(RecorderContract.RecorderCallback callback) {
+		recorderCallback = callback;
+	}
+
+	/**
+	 * Set duration of audio which can be buffered between capture and file write.
+	 * Applied on the next recording start.
+	 */
+	public void setBufferDepthSeconds(float seconds) {
+		this.bufferDepthSeconds = seconds;
+	}
+
+	/**
+	 * Set size of file space chunks preallocated ahead of write position. 0 disables preallocation.
+	 * Applied on the next recording start.
+	 */
+	public void setPreallocationChunkSize(long bytes) {
+		this.preallocationChunkSize = bytes;
+	}
+
+	/**
+	 * Set when recorded data is synced to storage.
+	 * @param syncIntervalSeconds interval of {@link PreallocatedFileWriter.Durability#PERIODIC} sync.
+	 */
+	public void setDurability(PreallocatedFileWriter.Durability durability, int syncIntervalSeconds) {
+		this.durability = durability;
+		this.syncIntervalSeconds = syncIntervalSeconds;
+	}
+
+	/**
+	 * Record only stretches with voice activity, silence between them is cut out and stored as {@link SilenceGaps}.
+	 * Applied on the next recording start.
+	 * @param onDbfs level which starts voice activity. 0 to record all captured audio.
+	 */
+	public void setVoiceActivation(int onDbfs) {
+		this.voiceActivationDbfs = onDbfs;
+	}
+
+	/**
+	 * Set sample rate the device captures at without resampling. Audio is captured at this rate
+	 * and converted to the rate of the recording by {@link ConvertingPcmSource}.
+	 * Applied on the next recording start.
+	 * @param sampleRate native sample rate or 0 to capture at the rate of the recording.
+	 */
+	public void setNativeSampleRate(int sampleRate) {
+		this.nativeSampleRate = sampleRate;
+	}
+
+	/**
+	 * Set processing applied to captured audio before it is written. Every recording gets a new chain.
+	 * Applied on the next recording start.
+	 * @param factory creates the chain or null to record unprocessed audio.
+	 */
+	public void setDspChainFactory(DspChain.Factory factory) {
+		this.dspChainFactory = factory;
+	}
+
+	/**
+	 * Write a compact proxy next to the record from the same captured audio, see {@link TeeOutput}.
+	 * Ignored by recorders which already record a compact format. Applied on the next recording start.
+	 */
+	public void setProxyEnabled(boolean enabled) {
+		this.isProxyEnabled = enabled;
+	}
+
+	/**
+	 * Set queue which receives live spectrogram of recorded audio computed by {@link SpectrumAnalyzer}.
+	 * Applied on the next recording start.
+	 * @param queue receives columns or null when the spectrogram is not shown.
+	 */
+	public void setSpectrogramQueue(SpectrogramQueue queue) {
+		this.spectrogramQueue = queue;
+	}
+
+	@Override
+	@RequiresPermission(value = "android.permission.RECORD_AUDIO")
+	public void startRecording(String outputFile, int channelCount, int sampleRate, int bitrate) {
+		if (stateMachine.isRecording()) {
+			Timber.e("Recording has already started");
+			return;
+		}
+		this.sampleRate = sampleRate;
+//		this.framesPerVisInterval = (int)((VISUALIZATION_INTERVAL/1000f)/(1f/sampleRate));
+		this.channelCount = channelCount;
+		recordFile = new File(outputFile);
+		if (recordFile.exists() && recordFile.isFile()) {
+			PreRollBuffer history = null;
+			PcmSource source = null;
+			int blockSize = 0;
+			if (isPreRollCapturing(channelCount, sampleRate)) {
+				//Capture continues on the same AudioRecord and converter, so live audio follows the history without a gap.
+				stopPreRollCapture();
+				recorder = preRollRecorder;
+				source = preRollSource;
+				blockSize = preRollBlockSize;
+				preRollRecorder = null;
+				preRollSource = null;
+				//Pipeline owns the buffer until all data is written.
+				history = preRollBuffer;
+				preRollBuffer = null;
+				releaseIdleCapture();
+			} else if (idleRecorder != null && idleSampleRate == sampleRate && idleChannelCount == channelCount) {
+				//AudioRecord and converter were created ahead of time, capture starts without initialization.
+				disarmPreRoll();
+				recorder = idleRecorder;
+				source = idleSource;
+				blockSize = idleBlockSize;
+				idleRecorder = null;
+				idleSource = null;
+				AndroidUtils.cancelRunOnUIThread(idleCaptureTimeout);
+			} else {
+				disarmPreRoll();
+				releaseIdleCapture();
+				recorder = openCapture(channelCount, sampleRate);
+				if (recorder != null) {
+					source = createSource(recorder, channelCount, sampleRate);
+					blockSize = blockSize(source);
+				}
+			}
+			if (recorder != null) {
+				PcmOutput output;
+				try {
+					output = openOutput(recordFile, sampleRate, channelCount);
+				} catch (IOException e) {
+					Timber.e(e);
+					recorder.release();
+					recorder = null;
+					if (recorderCallback != null) {
+						recorderCallback.onError(new InvalidOutputFile());
+					}
+					return;
+				}
+				TeeOutput tee = openTee(output, recordFile, sampleRate, channelCount, blockSize);
+				if (tee != null) {
+					output = tee;
+				}
+				RecorderStateMachine session = new RecorderStateMachine(Debug::threadCpuTimeNanos);
+				session.moveTo(RecorderStateMachine.State.PREPARED);
+				recordedWaveform = null;
+				recordingResult = null;
+				RecordedWaveform waveform = new RecordedWaveform(channelCount,
+						sampleRate / AppConstants.SHORT_RECORD_DP_PER_SECOND);
+				WaveformPyramid.Writer pyramid;
+				try {
+					pyramid = new WaveformPyramid.Writer(recordFile, sampleRate, channelCount);
+				} catch (IOException e) {
+					//Record is shown with the waveform stored in the database.
+					Timber.e(e, "Failed to create waveform pyramid");
+					pyramid = null;
+				}
+				pipeline = new CapturePipeline(session, source, new WaveformTap(output, waveform, pyramid), blockSize,
+						CapturePipeline.slotCountForDepth(bufferDepthSeconds, sampleRate, channelCount, blockSize),
+						channelCount * (RECORDER_BPP/8));
+				CaptureTelemetry telemetry = pipeline.getTelemetry();
+				telemetry.setDevice(Build.MANUFACTURER + " " + Build.MODEL);
+				telemetry.setSource(sampleRate, sourceBufferNanos(recorder));
+				DspChain dspChain = dspChainFactory != null ? dspChainFactory.create() : null;
+				if (dspChain != null && !dspChain.isEmpty()) {
+					dspChain.prepare(sampleRate, channelCount, blockSize / (channelCount * (RECORDER_BPP/8)));
+					pipeline.setDspChain(dspChain);
+				}
+				VoiceActivityGate gate = createVoiceActivityGate(sampleRate, channelCount);
+				if (gate != null) {
+					pipeline.setVoiceActivityGate(gate);
+				} else {
+					//Gaps left from a previous record with the same name.
+					SilenceGaps.sidecarFile(recordFile).delete();
+				}
+				SpectrumAnalyzer analyzer = spectrogramQueue != null ? new SpectrumAnalyzer(sampleRate, channelCount,
+						AppConstants.SPECTROGRAM_COLUMNS_PER_SECOND, spectrogramQueue) : null;
+				LoudnessMeter loudness = new LoudnessMeter(sampleRate, channelCount);
+				loudnessMeter = loudness;
+				pipeline.setListener(new PipelineListener(session, recorder, output, recordFile, sampleRate,
+						new PcmLevelMeter(channelCount), loudness, history, gate, telemetry, waveform, pyramid, analyzer,
+						startRequestedNanos));
+				startRequestedNanos = 0;
+				RecordingClock sessionClock = new RecordingClock(sampleRate);
+				pipeline.setClock(sessionClock);
+				if (history != null) {
+					pipeline.setPreRoll(history);
+					sessionClock.advance(history.size() / (channelCount * (RECORDER_BPP/8)));
+				} else {
+					recorder.startRecording();
+				}
+				clock = sessionClock;
+				session.moveTo(RecorderStateMachine.State.RECORDING);
+				stateMachine = session;
+				if (tee != null) {
+					tee.start();
+				}
+				if (analyzer != null) {
+					analyzer.start();
+				}
+				pipeline.start();
+				scheduleRecordingTimeUpdate();
+				if (recorderCallback != null) {
+					recorderCallback.onStartRecord(recordFile);
+				}
+			} else {
+				Timber.e("prepare() failed");
+				if (recorderCallback != null) {
+					recorderCallback.onError(new RecorderInitException());
+				}
+			}
+		} else {
+			if (recorderCallback != null) {
+				recorderCallback.onError(new InvalidOutputFile());
+			}
+		}
+	}
+
+	/**
+	 * Start capturing audio into {@link PreRollBuffer} which holds the last seconds of audio before recording start.
+	 * Recording started with the same sample rate and channel count begins with the captured history.
+	 * Buffer is allocated once and reused while pre-roll duration and audio format stay the same.
+	 * @param seconds duration of the history. 0 disables pre-roll and releases the buffer.
+	 */
+	@RequiresPermission(value = "android.permission.RECORD_AUDIO")
+	public void armPreRoll(int seconds, int channelCount, int sampleRate) {
+		if (stateMachine.isRecording() || stateMachine.isPaused()) {
+			return;
+		}
+		int frameSize = channelCount * (RECORDER_BPP/8);
+		int capacity = PreRollBuffer.capacityForSeconds(seconds, sampleRate, channelCount);
+		capacity -= capacity % frameSize;
+		if (isPreRollCapturing(channelCount, sampleRate) && preRollBuffer.getCapacity() == capacity) {
+			return;
+		}
+		disarmPreRoll();
+		if (seconds <= 0) {
+			preRollBuffer = null;
+			return;
+		}
+		AudioRecord audioRecord = openCapture(channelCount, sampleRate);
+		if (audioRecord == null) {
+			Timber.e("Failed to init pre-roll capture");
+			return;
+		}
+		if (preRollBuffer == null || preRollBuffer.getCapacity() != capacity
+				|| preRollBuffer.getFrameSize() != frameSize) {
+			preRollBuffer = new PreRollBuffer(capacity, frameSize);
+		}
+		preRollBuffer.clear();
+		preRollRecorder = audioRecord;
+		preRollSource = createSource(audioRecord, channelCount, sampleRate);
+		preRollBlockSize = blockSize(preRollSource);
+		preRollSampleRate = sampleRate;
+		preRollChannelCount = channelCount;
+		isPreRollRunning = true;
+		preRollRecorder.startRecording();
+		final PreRollBuffer history = preRollBuffer;
+		final PcmSource source = preRollSource;
+		final ByteBuffer block = ByteBuffer.allocateDirect(preRollBlockSize).order(ByteOrder.LITTLE_ENDIAN);
+		preRollThread = new Thread(() -> {
+			while (isPreRollRunning) {
+				block.clear();
+				int read = source.read(block, block.capacity());
+				if (read > 0) {
+					block.limit(read);
+					history.write(block);
+				} else if (read < 0) {
+					Timber.e("Pre-roll capture failed: %d", read);
+					//Next recording opens a new capture instead of starting on the failed one.
+					isPreRollRunning = false;
+					AndroidUtils.runOnUIThread(() -> releaseFailedPreRoll(audioRecord));
+					break;
+				}
+			}
+		}, "AudioRecorder PreRoll Thread");
+		preRollThread.setPriority(Thread.MAX_PRIORITY);
+		preRollThread.start();
+		Timber.d("Pre-roll armed: %d sec, %d bytes", seconds, preRollBuffer.getCapacity());
+	}
+
+	/**
+	 * Create AudioRecord and converter for the next recording without starting capture, so the recording
+	 * starts without their initialization. Nothing is captured until the recording starts.
+	 * Prepared capture is released when no recording starts in {@link AppConstants#IDLE_CAPTURE_TIMEOUT_MILLS},
+	 * every call restarts the timeout. Ignored when pre-roll in the same format is armed.
+	 */
+	@RequiresPermission(value = "android.permission.RECORD_AUDIO")
+	public void prepareCapture(int channelCount, int sampleRate) {
+		if (stateMachine.isRecording() || stateMachine.isPaused()) {
+			return;
+		}
+		if (isPreRollCapturing(channelCount, sampleRate)) {
+			return;
+		}
+		if (idleRecorder != null && idleSampleRate == sampleRate && idleChannelCount == channelCount) {
+			scheduleIdleCaptureTimeout();
+			return;
+		}
+		releaseIdleCapture();
+		AudioRecord audioRecord = openCapture(channelCount, sampleRate);
+		if (audioRecord == null) {
+			Timber.e("Failed to prepare capture");
+			return;
+		}
+		idleRecorder = audioRecord;
+		idleSource = createSource(audioRecord, channelCount, sampleRate);
+		idleBlockSize = blockSize(idleSource);
+		idleSampleRate = sampleRate;
+		idleChannelCount = channelCount;
+		scheduleIdleCaptureTimeout();
+	}
+
+	private void scheduleIdleCaptureTimeout() {
+		AndroidUtils.cancelRunOnUIThread(idleCaptureTimeout);
+		AndroidUtils.runOnUIThread(idleCaptureTimeout, AppConstants.IDLE_CAPTURE_TIMEOUT_MILLS);
+	}
+
+	/** Release AudioRecord created by {@link #prepareCapture(int, int)} if it was not used by a recording. */
+	public void releaseIdleCapture() {
+		AndroidUtils.cancelRunOnUIThread(idleCaptureTimeout);
+		if (idleRecorder != null) {
+			idleRecorder.release();
+			idleRecorder = null;
+			idleSource = null;
+		}
+	}
+
+	/**
+	 * Set time of the request to start the next recording, time until its first frame is written is logged.
+	 * @param nanos time by {@link System#nanoTime()}.
+	 */
+	public void setStartRequestTime(long nanos) {
+		this.startRequestedNanos = nanos;
+	}
+
+	/** Stop pre-roll capture and discard the captured history. Buffer is kept for the next arm. */
+	public void disarmPreRoll() {
+		if (preRollRecorder != null) {
+			stopPreRollCapture();
+			try {
+				preRollRecorder.stop();
+			} catch (IllegalStateException e) {
+				Timber.e(e, "disarmPreRoll() problems");
+			}
+			preRollRecorder.release();
+			preRollRecorder = null;
+			preRollSource = null;
+			preRollBuffer.clear();
+		}
+	}
+
+	public boolean isPreRollArmed() {
+		return preRollRecorder != null && isPreRollRunning;
+	}
+
+	/** Pre-roll is armed in the format and its capture has not failed. */
+	private boolean isPreRollCapturing(int channelCount, int sampleRate) {
+		return isPreRollArmed() && preRollSampleRate == sampleRate && preRollChannelCount == channelCount;
+	}
+
+	/** Release AudioRecord of the pre-roll which failed, unless pre-roll was disarmed or armed again since. */
+	private void releaseFailedPreRoll(AudioRecord failed) {
+		if (preRollRecorder == failed) {
+			disarmPreRoll();
+		}
+	}
+
+	@Override
+	public void resumeRecording() {
+		if (recorder != null && recorder.getState() == AudioRecord.STATE_INITIALIZED) {
+			if (stateMachine.isPaused()) {
+				scheduleRecordingTimeUpdate();
+				recorder.startRecording();
+				stateMachine.moveTo(RecorderStateMachine.State.RECORDING);
+				if (recorderCallback != null) {
+					recorderCallback.onResumeRecord();
+				}
+			}
+		}
+	}
+
+	@Override
+	public void pauseRecording() {
+		if (stateMachine.moveTo(RecorderStateMachine.State.PAUSED)) {
+			recorder.stop();
+			pauseRecordingTimer();
+
+			if (recorderCallback != null) {
+				recorderCallback.onPauseRecord();
+			}
+		}
+	}
+
+	@Override
+	public void stopRecording() {
+		if (recorder != null) {
+			stopRecordingTimer();
+			pipeline.stop();
+			//Wakes up capture thread if it is parked on pause.
+			stateMachine.moveTo(RecorderStateMachine.State.STOPPING);
+			if (recorder.getState() == AudioRecord.STATE_INITIALIZED) {
+				try {
+					recorder.stop();
+				} catch (IllegalStateException e) {
+					Timber.e(e, "stopRecording() problems");
+				}
+			}
+			//AudioRecord is released and callback notified when all captured data is written.
+			recorder = null;
+			pipeline = null;
+		}
+	}
+
+	/** Duration of audio captured into the current or the last recording, including pre-roll. */
+	@Override
+	public long getRecordingDurationMicros() {
+		return clock.getDurationMicros();
+	}
+
+	/**
+	 * Waveform computed from the PCM written into the last recording.
+	 * Available when {@link RecorderContract.RecorderCallback#onStopRecord(File)} is called.
+	 * @return waveform or null while recording.
+	 */
+	public RecordedWaveform getRecordedWaveform() {
+		return recordedWaveform;
+	}
+
+	/**
+	 * Loudness meter of the current or the last recording. Momentary and short-term loudness, true peak and
+	 * clip count may be read while recording, see {@link LoudnessMeter}.
+	 * @return meter or null before the first recording.
+	 */
+	public LoudnessMeter getLoudnessMeter() {
+		return loudnessMeter;
+	}
+
+	@Override
+	public RecordingResult getRecordingResult() {
+		return recordingResult;
+	}
+
+	@Override
+	public boolean isRecording() {
+		return stateMachine.isRecording();
+	}
+
+	@Override
+	public boolean isPaused() {
+		return stateMachine.isPaused();
+	}
+
+	/** CPU time consumed by capture thread of the current or the last recording in the state. */
+	public long getCpuTimeNanos(RecorderStateMachine.State state) {
+		return stateMachine.getCpuTimeNanos(state);
+	}
+
+	/**
+	 * Open output of a new recording. Called on the main thread when recording starts.
+	 * @param recordFile file of the recording.
+	 */
+	protected abstract PcmOutput openOutput(File recordFile, int sampleRate, int channelCount) throws IOException;
+
+	/**
+	 * Describe the record written by the output opened by {@link #openOutput(File, int, int)}.
+	 * Called on the writer thread after the output is finished and closed.
+	 * @param frameCount count of frames written into the output.
+	 */
+	protected abstract RecordingResult createResult(File recordFile, int sampleRate, int channelCount, long frameCount);
+
+	/**
+	 * Open output of the compact proxy written together with the record when proxy is enabled.
+	 * Called on the main thread when recording starts. Proxy is mono 16 bit PCM WAV at
+	 * {@link AppConstants#PROXY_SAMPLE_RATE}, which players decode everywhere.
+	 * @param blockSize max size in bytes of PCM passed to the proxy by one write.
+	 * @return output or null when the record format is compact itself.
+	 */
+	protected PcmOutput openProxy(File proxyFile, int sampleRate, int channelCount, int blockSize) throws IOException {
+		int proxyRate = Math.min(sampleRate, AppConstants.PROXY_SAMPLE_RATE);
+		SegmentedWavWriter proxy = new SegmentedWavWriter(proxyFile, file -> {
+			PreallocatedFileWriter writer = openFileWriter(file, WavHeader.generate(0, proxyRate, 1, RECORDER_BPP));
+			//Only the record stops recording when storage is full, failed proxy is abandoned.
+			writer.setNoSpaceListener(null);
+			return writer;
+		}, proxyRate, 1, RECORDER_BPP, 0);
+		proxy.setHeaderCommitInterval((long) AppConstants.WAV_HEADER_COMMIT_INTERVAL_SECONDS * proxyRate * (RECORDER_BPP/8));
+		return new ConvertingPcmOutput(proxy,
+				new PcmFormatConverter(sampleRate, channelCount, proxyRate, 1, blockSize), blockSize);
+	}
+
+	/**
+	 * Create or truncate the file and open writer which writes data after the header.
+	 * Recording is stopped with {@link NoSpaceAvailableException} when file space can't be preallocated.
+	 * @param header file header with empty data, so interrupted recording can be repaired.
+	 */
+	protected PreallocatedFileWriter openFileWriter(File file, byte[] header) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.setLength(0);
+			raf.write(header);
+			PreallocatedFileWriter writer = new PreallocatedFileWriter(raf, header.length,
+					AppConstants.WAV_WRITE_BUFFER_SIZE, preallocationChunkSize, durability, syncIntervalSeconds * 1000L);
+			writer.setNoSpaceListener(() -> AndroidUtils.runOnUIThread(() -> {
+				if (recorderCallback != null) {
+					recorderCallback.onError(new NoSpaceAvailableException());
+				}
+				stopRecording();
+			}));
+			return writer;
+		} catch (IOException e) {
+			raf.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Open output which writes the record and its proxy when proxy is enabled.
+	 * Proxy left from a previous record with the same name is deleted otherwise.
+	 * @return output or null when the record is written without proxy.
+	 */
+	private TeeOutput openTee(PcmOutput output, File recordFile, int sampleRate, int channelCount, int blockSize) {
+		File proxyFile = TeeOutput.proxyFile(recordFile);
+		PcmOutput proxy = null;
+		if (isProxyEnabled) {
+			try {
+				proxy = openProxy(proxyFile, sampleRate, channelCount, blockSize);
+			} catch (IOException e) {
+				Timber.e(e, "Failed to open proxy, recording without it");
+			}
+		}
+		if (proxy == null) {
+			if (proxyFile.exists()) {
+				proxyFile.delete();
+			}
+			return null;
+		}
+		return new TeeOutput(output, proxy, proxyFile, CapturePipeline.slotCountForDepth(
+				AppConstants.PROXY_BUFFER_DEPTH_SECONDS, sampleRate, channelCount, blockSize), blockSize);
+	}
+
+	/**
+	 * Create AudioRecord with min buffer size which is stored in {@link #bufferSize}.
+	 * @return AudioRecord or null when parameters are not supported.
+	 */
+	private AudioRecord createAudioRecord(int channelCount, int sampleRate) {
+		int channel = channelCount == 1 ? AudioFormat.CHANNEL_IN_MONO : AudioFormat.CHANNEL_IN_STEREO;
+		AudioRecord audioRecord = null;
+		try {
+			bufferSize = AudioRecord.getMinBufferSize(sampleRate,
+					channel,
+					AudioFormat.ENCODING_PCM_16BIT);
+			if (bufferSize == AudioRecord.ERROR || bufferSize == AudioRecord.ERROR_BAD_VALUE) {
+				bufferSize = AudioRecord.getMinBufferSize(sampleRate,
+						channel,
+						AudioFormat.ENCODING_PCM_16BIT);
+			}
+			audioRecord = new AudioRecord(
+					MediaRecorder.AudioSource.MIC,
+					sampleRate,
+					channel,
+					AudioFormat.ENCODING_PCM_16BIT,
+					bufferSize
+			);
+		} catch (IllegalArgumentException e) {
+			Timber.e(e, "sampleRate = " + sampleRate + " channel = " + channel + " bufferSize = " + bufferSize);
+			if (audioRecord != null) {
+				audioRecord.release();
+			}
+			return null;
+		}
+		return audioRecord;
+	}
+
+	/**
+	 * Create initialized AudioRecord for a recording in the format.
+	 * Native sample rate is preferred, so the audio HAL does not resample, then the sample rate of the recording.
+	 * The other channel layout is used when the device can't capture the requested one.
+	 * @return AudioRecord or null when the device can't capture audio in any of the formats.
+	 */
+	private AudioRecord openCapture(int channelCount, int sampleRate) {
+		int[] sampleRates = nativeSampleRate > 0 && nativeSampleRate != sampleRate
+				? new int[] {nativeSampleRate, sampleRate} : new int[] {sampleRate};
+		int[] channelCounts = new int[] {channelCount, channelCount == 1 ? 2 : 1};
+		for (int rate : sampleRates) {
+			for (int channels : channelCounts) {
+				AudioRecord audioRecord = createAudioRecord(channels, rate);
+				if (audioRecord != null && audioRecord.getState() == AudioRecord.STATE_INITIALIZED) {
+					return audioRecord;
+				}
+				if (audioRecord != null) {
+					audioRecord.release();
+				}
+			}
+		}
+		return null;
+	}
+
+	/** Source which reads the AudioRecord created by {@link #openCapture(int, int)} in the format of the recording. */
+	private PcmSource createSource(AudioRecord audioRecord, int channelCount, int sampleRate) {
+		PcmSource source = new AudioRecordSource(audioRecord);
+		int captureSampleRate = audioRecord.getSampleRate();
+		int captureChannelCount = audioRecord.getChannelCount();
+		if (captureSampleRate == sampleRate && captureChannelCount == channelCount) {
+			return source;
+		}
+		Timber.d("Capture %d Hz %d ch converted to %d Hz %d ch", captureSampleRate, captureChannelCount,
+				sampleRate, channelCount);
+		return new ConvertingPcmSource(source, new PcmFormatConverter(captureSampleRate, captureChannelCount,
+				sampleRate, channelCount, bufferSize), bufferSize);
+	}
+
+	/** Size of blocks read from the source created by {@link #createSource(AudioRecord, int, int)}. */
+	private int blockSize(PcmSource source) {
+		return source instanceof ConvertingPcmSource ? ((ConvertingPcmSource) source).getBlockSize() : bufferSize;
+	}
+
+	/** Duration of audio held by the buffer of the AudioRecord in its own format. */
+	private static long sourceBufferNanos(AudioRecord audioRecord) {
+		int frames = audioRecord.getBufferSizeInFrames();
+		int captureSampleRate = audioRecord.getSampleRate();
+		if (frames <= 0 || captureSampleRate <= 0) {
+			return 0;
+		}
+		return frames * 1_000_000_000L / captureSampleRate;
+	}
+
+	private VoiceActivityGate createVoiceActivityGate(int sampleRate, int channelCount) {
+		if (voiceActivationDbfs >= 0) {
+			return null;
+		}
+		int frameSize = channelCount * (RECORDER_BPP/8);
+		VoiceActivityDetector detector = new VoiceActivityDetector(sampleRate, channelCount, voiceActivationDbfs,
+				voiceActivationDbfs - AppConstants.VOICE_ACTIVATION_HYSTERESIS_DB,
+				AppConstants.VOICE_ACTIVATION_HANGOVER_MILLS);
+		int lookBackBytes = (int) ((long) sampleRate * AppConstants.VOICE_ACTIVATION_LOOK_BACK_MILLS / 1000) * frameSize;
+		return new VoiceActivityGate(detector, lookBackBytes, sampleRate, frameSize);
+	}
+
+	/** Wait until pre-roll thread finishes the current read. AudioRecord keeps capturing. */
+	private void stopPreRollCapture() {
+		isPreRollRunning = false;
+		try {
+			preRollThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		preRollThread = null;
+	}
+
+	private void scheduleRecordingTimeUpdate() {
+		handler.postDelayed(() -> {
+			if (recorderCallback != null && recorder != null) {
+				recorderCallback.onRecordProgress(clock.getDurationMills(), lastVal);
+				scheduleRecordingTimeUpdate();
+			}
+		}, RECORDING_VISUALIZATION_INTERVAL);
+	}
+
+	private void stopRecordingTimer() {
+		handler.removeCallbacksAndMessages(null);
+	}
+
+	private void pauseRecordingTimer() {
+		handler.removeCallbacksAndMessages(null);
+	}
+
+	private static class AudioRecordSource implements PcmSource {
+
+		private final AudioRecord audioRecord;
+
+		AudioRecordSource(AudioRecord audioRecord) {
+			this.audioRecord = audioRecord;
+		}
+
+		@Override
+		public int read(ByteBuffer buffer, int sizeInBytes) {
+			return audioRecord.read(buffer, sizeInBytes);
+		}
+	}
+
+	/** Writer stage events of one recording session. */
+	private class PipelineListener implements CapturePipeline.Listener {
+
+		private final RecorderStateMachine session;
+		private final AudioRecord audioRecord;
+		private final PcmOutput output;
+		private final File file;
+		private final int sampleRate;
+		private final PcmLevelMeter levelMeter;
+		private final LoudnessMeter loudnessMeter;
+		/** Pre-roll buffer written at the beginning of the recording or null. */
+		private final PreRollBuffer preRoll;
+		/** Gate which cuts out silence or null. */
+		private final VoiceActivityGate gate;
+		private final CaptureTelemetry telemetry;
+		/** Waveform of the PCM written into the file. */
+		private final RecordedWaveform waveform;
+		/** Writer of the waveform pyramid sidecar or null. */
+		private final WaveformPyramid.Writer pyramid;
+		/** Live spectrogram of captured audio or null. */
+		private final SpectrumAnalyzer analyzer;
+		/** Time of the start request until the first batch is written, then 0. */
+		private long startRequestedNanos;
+
+		PipelineListener(RecorderStateMachine session, AudioRecord audioRecord, PcmOutput output, File file,
+							  int sampleRate, PcmLevelMeter levelMeter, LoudnessMeter loudnessMeter, PreRollBuffer preRoll,
+							  VoiceActivityGate gate, CaptureTelemetry telemetry, RecordedWaveform waveform,
+							  WaveformPyramid.Writer pyramid, SpectrumAnalyzer analyzer, long startRequestedNanos) {
+			this.session = session;
+			this.audioRecord = audioRecord;
+			this.output = output;
+			this.file = file;
+			this.sampleRate = sampleRate;
+			this.levelMeter = levelMeter;
+			this.loudnessMeter = loudnessMeter;
+			this.preRoll = preRoll;
+			this.gate = gate;
+			this.telemetry = telemetry;
+			this.waveform = waveform;
+			this.pyramid = pyramid;
+			this.analyzer = analyzer;
+			this.startRequestedNanos = startRequestedNanos;
+		}
+
+		@Override
+		public void onBlock(ByteBuffer block) {
+			levelMeter.process(block);
+			lastVal = Math.min(levelMeter.getPeak(), Short.MAX_VALUE);
+			loudnessMeter.process(block);
+			if (analyzer != null) {
+				analyzer.write(block);
+			}
+		}
+
+		@Override
+		public void onBatchWritten(long totalBytes) {
+			if (startRequestedNanos > 0) {
+				Timber.d("Time to first sample: %d ms, %d bytes written",
+						(System.nanoTime() - startRequestedNanos) / 1000000, totalBytes);
+				startRequestedNanos = 0;
+			}
+			try {
+				output.onBatchWritten();
+			} catch (IOException e) {
+				Timber.e(e, "Failed to commit recording progress");
+			}
+		}
+
+		@Override
+		public void onPaused() throws IOException {
+			output.onPause();
+		}
+
+		@Override
+		public void onWriteError(IOException e) {
+			Timber.e(e);
+			AndroidUtils.runOnUIThread(() -> {
+				if (recorderCallback != null) {
+					recorderCallback.onError(new RecordingException());
+				}
+				stopRecording();
+			});
+		}
+
+		@Override
+		public void onFinished() {
+			if (analyzer != null) {
+				analyzer.stop();
+				Timber.d("Spectrum analyzer dropped %d frames", analyzer.getDroppedFrames());
+			}
+			try {
+				output.finish();
+			} catch (IOException e) {
+				Timber.e(e);
+			}
+			try {
+				output.close();
+			} catch (IOException e) {
+				Timber.e(e);
+			}
+			Timber.d("%s file writes: %d, syncs: %d", output.getClass().getSimpleName(),
+					output.getWriteCount(), output.getSyncCount());
+			if (output instanceof TeeOutput) {
+				TeeOutput tee = (TeeOutput) output;
+				Timber.d("Proxy complete: %b, max lag %d blocks", tee.isProxyComplete(), tee.getProxyLagHighWaterMark());
+			}
+			if (gate != null) {
+				SilenceGaps gaps = gate.getGaps();
+				try {
+					gaps.write(file);
+				} catch (IOException e) {
+					Timber.e(e, "Failed to write silence gaps");
+				}
+				Timber.d("Skipped silence: %d gaps, %d bytes, detector CPU %d us", gaps.getGapCount(),
+						gaps.getSkippedBytes(), gaps.getDetectorCpuNanos() / 1000);
+			}
+			try {
+				telemetry.write(file);
+			} catch (IOException e) {
+				Timber.e(e, "Failed to write capture telemetry");
+			}
+			Timber.d("Capture telemetry:\n%s", telemetry.formatSummary());
+			if (pyramid != null) {
+				try {
+					pyramid.finish();
+				} catch (IOException e) {
+					Timber.e(e, "Failed to write waveform pyramid");
+				}
+			}
+			recordedWaveform = waveform;
+			float integrated = loudnessMeter.getIntegratedLoudness();
+			Timber.d("Integrated loudness %.1f LUFS, max true peak %.1f dBTP, clipped samples %d",
+					integrated, loudnessMeter.getMaxTruePeak(), loudnessMeter.getClipCount());
+			recordingResult = createResult(file, sampleRate, waveform.getChannelCount(), waveform.getFrameCount())
+					.withLoudness(integrated, loudnessMeter.getMaxTruePeak());
+			audioRecord.release();
+			session.moveTo(RecorderStateMachine.State.RELEASED);
+			Timber.d(session.cpuTimeSummary());
+			AndroidUtils.runOnUIThread(() -> {
+				if (preRoll != null && preRollBuffer == null) {
+					//Drained buffer is reused by the next pre-roll.
+					preRollBuffer = preRoll;
+				}
+				if (recorderCallback != null) {
+					recorderCallback.onStopRecord(file);
+				}
+			});
+		}
+	}
+}
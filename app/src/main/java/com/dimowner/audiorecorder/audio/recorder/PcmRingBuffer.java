@@ -0,0 +1,122 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.recorder;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free single-producer/single-consumer ring of preallocated direct buffers (slots).
+ * Producer fills a slot obtained by {@link #acquireWriteSlot()} and publishes it with {@link #commitWrite(int)}.
+ * Consumer takes published slots with {@link #drain(ByteBuffer[])} and gives them back with {@link #release(int)}.
+ * No memory is allocated after construction.
+ */
+public class PcmRingBuffer {
+
+	private final ByteBuffer[] slots;
+	private final int slotSize;
+
+	/** Index of the next slot to be written. Changed only by producer. */
+	private final AtomicLong head = new AtomicLong(0);
+	/** Index of the next slot to be read. Changed only by consumer. */
+	private final AtomicLong tail = new AtomicLong(0);
+
+	/** Max count of filled slots observed since creation. */
+	private volatile int highWaterMark = 0;
+
+	public PcmRingBuffer(int slotCount, int slotSize) {
+		if (slotCount <= 0 || slotSize <= 0) {
+			throw new IllegalArgumentException("slotCount = " + slotCount + " slotSize = " + slotSize);
+		}
+		this.slotSize = slotSize;
+		this.slots = new ByteBuffer[slotCount];
+		for (int i = 0; i < slotCount; i++) {
+			slots[i] = ByteBuffer.allocateDirect(slotSize).order(ByteOrder.LITTLE_ENDIAN);
+		}
+	}
+
+	/**
+	 * Producer side. Get next free slot cleared for writing.
+	 * @return free slot or null when the ring is full.
+	 */
+	public ByteBuffer acquireWriteSlot() {
+		long h = head.get();
+		if (h - tail.get() >= slots.length) {
+			return null;
+		}
+		ByteBuffer slot = slots[(int) (h % slots.length)];
+		slot.clear();
+		return slot;
+	}
+
+	/**
+	 * Producer side. Publish slot acquired by {@link #acquireWriteSlot()}.
+	 * @param length count of valid bytes in the slot.
+	 */
+	public void commitWrite(int length) {
+		long h = head.get();
+		ByteBuffer slot = slots[(int) (h % slots.length)];
+		slot.limit(length);
+		slot.position(0);
+		head.lazySet(h + 1);
+		int used = (int) (h + 1 - tail.get());
+		if (used > highWaterMark) {
+			highWaterMark = used;
+		}
+	}
+
+	/**
+	 * Consumer side. Put published slots into {@code out} in the order they were written.
+	 * Slots stay owned by consumer until {@link #release(int)} is called.
+	 * @return count of slots put into {@code out}.
+	 */
+	public int drain(ByteBuffer[] out) {
+		long t = tail.get();
+		int count = (int) Math.min(head.get() - t, out.length);
+		for (int i = 0; i < count; i++) {
+			out[i] = slots[(int) ((t + i) % slots.length)];
+		}
+		return count;
+	}
+
+	/** Consumer side. Give back {@code count} oldest slots taken by {@link #drain(ByteBuffer[])}. */
+	public void release(int count) {
+		tail.lazySet(tail.get() + count);
+	}
+
+	/** Count of slots published but not yet released. */
+	public int size() {
+		return (int) (head.get() - tail.get());
+	}
+
+	public boolean isEmpty() {
+		return head.get() == tail.get();
+	}
+
+	public int getCapacity() {
+		return slots.length;
+	}
+
+	public int getSlotSize() {
+		return slotSize;
+	}
+
+	public int getHighWaterMark() {
+		return highWaterMark;
+	}
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.recorder;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Source of 16 bit little-endian interleaved PCM data for {@link CapturePipeline}.
+ * Implemented over {@link android.media.AudioRecord} on device and by synthetic sources in tests.
+ */
+public interface PcmSource {
+
+	/**
+	 * Read up to {@code sizeInBytes} bytes of PCM into the buffer starting at its current position.
+	 * The position of the buffer is left unchanged, same as {@code AudioRecord.read(ByteBuffer, int)}.
+	 * @return count of bytes read or negative error code.
+	 */
+	int read(ByteBuffer buffer, int sizeInBytes);
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.recorder;
+
+import com.dimowner.audiorecorder.audio.dsp.DspChain;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.GatheringByteChannel;
+
+/**
+ * Fixed size ring of the last captured PCM, used to put audio captured before recording start
+ * at the beginning of the recording.
+ * Backed by a single direct buffer allocated once. When the ring is full the oldest frames are overwritten.
+ * Writes and drains do not allocate.
+ * Not thread safe, capture thread must hand the ring over before it is drained.
+ */
+public class PreRollBuffer {
+
+	private final ByteBuffer buffer;
+	private final int frameSize;
+	/** Views of the buffer holding the oldest and the newest part of the history when it wraps around. */
+	private final ByteBuffer[] segments;
+
+	/** Position in the buffer where the next byte is written. */
+	private int writePosition = 0;
+	private int size = 0;
+
+	/**
+	 * @param capacity size of the ring in bytes, rounded down to whole frames.
+	 * @param frameSize bytes per one frame (all channels of one sample).
+	 */
+	public PreRollBuffer(int capacity, int frameSize) {
+		this.frameSize = frameSize;
+		this.buffer = ByteBuffer.allocateDirect(capacity - capacity % frameSize);
+		this.segments = new ByteBuffer[] {
+				buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN),
+				buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN)
+		};
+	}
+
+	/** Size of the ring in bytes which holds specified duration of 16 bit PCM. */
+	public static int capacityForSeconds(int seconds, int sampleRate, int channelCount) {
+		return seconds * sampleRate * channelCount * 2;
+	}
+
+	/**
+	 * Append PCM from position to limit of the source. Source position is moved to its limit.
+	 * Source should hold whole frames, so the history stays aligned to frames when it wraps around.
+	 * Only the last {@link #getCapacity()} bytes are kept when the source is larger than the ring.
+	 */
+	public void write(ByteBuffer src) {
+		int capacity = buffer.capacity();
+		int count = src.remaining();
+		if (capacity == 0) {
+			src.position(src.limit());
+			return;
+		}
+		if (count > capacity) {
+			src.position(src.limit() - capacity);
+			count = capacity;
+		}
+		int limit = src.limit();
+		while (src.hasRemaining()) {
+			int chunk = Math.min(src.remaining(), capacity - writePosition);
+			src.limit(src.position() + chunk);
+			buffer.limit(writePosition + chunk).position(writePosition);
+			buffer.put(src);
+			src.limit(limit);
+			writePosition = (writePosition + chunk) % capacity;
+		}
+		size = Math.min(size + count, capacity);
+	}
+
+	/** Process the whole history in place from the oldest to the newest frame. */
+	public void process(DspChain chain) {
+		if (size == 0) {
+			return;
+		}
+		selectHistory();
+		chain.process(segments[0]);
+		chain.process(segments[1]);
+	}
+
+	/**
+	 * Write the whole history to the output from the oldest to the newest frame and empty the ring.
+	 * @return count of written bytes.
+	 */
+	public long drainTo(GatheringByteChannel output) throws IOException {
+		int length = size;
+		if (length == 0) {
+			return 0;
+		}
+		selectHistory();
+		long written = 0;
+		while (written < length) {
+			written += output.write(segments, 0, 2);
+		}
+		clear();
+		return written;
+	}
+
+	/** Set views of the buffer to the oldest and the newest part of the history. */
+	private void selectHistory() {
+		int start = (writePosition - size + buffer.capacity()) % buffer.capacity();
+		int firstLength = Math.min(size, buffer.capacity() - start);
+		segments[0].limit(start + firstLength).position(start);
+		segments[1].limit(size - firstLength).position(0);
+	}
+
+	public void clear() {
+		writePosition = 0;
+		size = 0;
+	}
+
+	/** Count of bytes of history in the ring. */
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int getCapacity() {
+		return buffer.capacity();
+	}
+
+	public int getFrameSize() {
+		return frameSize;
+	}
+}
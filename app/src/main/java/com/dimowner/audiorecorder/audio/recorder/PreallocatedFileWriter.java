@@ -0,0 +1,360 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.recorder;
+
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+
+/**
+ * Appending file writer for recorded audio.
+ * Written data is collected in a staging buffer and written to the file with large writes
+ * which end on {@link #ALIGNMENT} boundary of the file.
+ * File space is preallocated in chunks ahead of the write position, so the file is not fragmented
+ * and lack of space is reported while there is still a preallocated chunk to record into.
+ * File is truncated to the written length by {@link #finish()}.
+ * Data is synced to storage according to {@link Durability} and on {@link #close()}.
+ */
+public class PreallocatedFileWriter implements GatheringByteChannel {
+
+	/** Alignment of file writes. Page size of the most of Android file systems. */
+	public static final int ALIGNMENT = 4096;
+
+	public enum Durability {
+		/** Data is flushed to storage by OS. */
+		NONE,
+		/** Data is synced to storage every sync interval. */
+		PERIODIC,
+		/** Data is synced to storage when recording is paused. */
+		ON_PAUSE
+	}
+
+	/** Reserves file space. */
+	public interface SpaceAllocator {
+		/** @throws NoSpaceException when there is not enough space on storage. */
+		void allocate(RandomAccessFile file, long offset, long length) throws IOException;
+	}
+
+	public interface NoSpaceListener {
+		/** Called on writer thread once, when the next chunk of file space can't be preallocated. */
+		void onNoSpace();
+	}
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final ByteBuffer staging;
+	private final long chunkSize;
+	private final Durability durability;
+	private final long syncIntervalNanos;
+	private SpaceAllocator allocator;
+	private NoSpaceListener noSpaceListener;
+
+	/** End of data written to the file. */
+	private long flushedPosition;
+	/** End of preallocated file space. */
+	private long allocatedPosition;
+	private boolean isSpaceExhausted = false;
+	private long lastSyncTime;
+
+	private long writeCount = 0;
+	private long syncCount = 0;
+
+	/**
+	 * @param file file to write into.
+	 * @param startPosition position in the file where written data starts.
+	 * @param bufferSize size of the staging buffer. Rounded up to {@link #ALIGNMENT}.
+	 * @param chunkSize size of preallocated chunks. Preallocation is disabled when 0.
+	 * @param durability when written data is synced to storage.
+	 * @param syncIntervalMills interval of {@link Durability#PERIODIC} sync.
+	 */
+	public PreallocatedFileWriter(RandomAccessFile file, long startPosition, int bufferSize, long chunkSize,
+											Durability durability, long syncIntervalMills) throws IOException {
+		this.file = file;
+		this.channel = file.getChannel();
+		this.staging = ByteBuffer.allocateDirect(roundUp(Math.max(bufferSize, 1), ALIGNMENT));
+		this.chunkSize = chunkSize;
+		this.durability = durability;
+		this.syncIntervalNanos = syncIntervalMills * 1000000;
+		this.allocator = new PosixSpaceAllocator();
+		this.flushedPosition = startPosition;
+		this.allocatedPosition = file.length();
+		this.lastSyncTime = System.nanoTime();
+		alignStaging();
+	}
+
+	public void setSpaceAllocator(SpaceAllocator allocator) {
+		this.allocator = allocator;
+	}
+
+	public void setNoSpaceListener(NoSpaceListener listener) {
+		this.noSpaceListener = listener;
+	}
+
+	@Override
+	public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+		long total = 0;
+		for (int i = offset; i < offset + length; i++) {
+			total += write(srcs[i]);
+		}
+		return total;
+	}
+
+	@Override
+	public long write(ByteBuffer[] srcs) throws IOException {
+		return write(srcs, 0, srcs.length);
+	}
+
+	@Override
+	public int write(ByteBuffer src) throws IOException {
+		int total = src.remaining();
+		while (src.hasRemaining()) {
+			int count = Math.min(src.remaining(), staging.remaining());
+			int limit = src.limit();
+			src.limit(src.position() + count);
+			staging.put(src);
+			src.limit(limit);
+			if (!staging.hasRemaining()) {
+				flush();
+			}
+		}
+		if (durability == Durability.PERIODIC && System.nanoTime() - lastSyncTime >= syncIntervalNanos) {
+			sync();
+		}
+		return total;
+	}
+
+	/** Write data at the position without changing write position. Used to update file headers. */
+	public int writeAt(ByteBuffer src, long position) throws IOException {
+		int total = 0;
+		while (src.hasRemaining()) {
+			total += channel.write(src, position + total);
+		}
+		return total;
+	}
+
+	/** Write staged data to the file. */
+	public void flush() throws IOException {
+		staging.flip();
+		if (staging.hasRemaining()) {
+			long end = flushedPosition + staging.remaining();
+			ensureAllocated(end);
+			while (staging.hasRemaining()) {
+				flushedPosition += channel.write(staging, flushedPosition);
+				writeCount++;
+			}
+		}
+		alignStaging();
+	}
+
+	/** Write staged data and sync file data to storage. */
+	public void sync() throws IOException {
+		flush();
+		channel.force(false);
+		syncCount++;
+		lastSyncTime = System.nanoTime();
+	}
+
+	/** Called when recording is paused and all data captured before the pause is written. */
+	public void onPause() throws IOException {
+		if (durability == Durability.ON_PAUSE) {
+			sync();
+		} else {
+			flush();
+		}
+	}
+
+	/** Write staged data and truncate preallocated space after written data. */
+	public void finish() throws IOException {
+		try {
+			flush();
+		} finally {
+			if (channel.size() > flushedPosition) {
+				channel.truncate(flushedPosition);
+			}
+			allocatedPosition = flushedPosition;
+		}
+	}
+
+	@Override
+	public boolean isOpen() {
+		return channel.isOpen();
+	}
+
+	/** Close the file. File is synced to storage before, unless durability is {@link Durability#NONE}. */
+	@Override
+	public void close() throws IOException {
+		try {
+			if (durability != Durability.NONE && channel.isOpen()) {
+				channel.force(true);
+				syncCount++;
+			}
+		} finally {
+			file.close();
+		}
+	}
+
+	/** End of written data including staged data. */
+	public long getPosition() {
+		return flushedPosition + staging.position();
+	}
+
+	/** End of data written to the file. */
+	public long getFlushedPosition() {
+		return flushedPosition;
+	}
+
+	public long getAllocatedPosition() {
+		return allocatedPosition;
+	}
+
+	/** Preallocation of the next chunk failed. Only already preallocated space remains. */
+	public boolean isSpaceExhausted() {
+		return isSpaceExhausted;
+	}
+
+	/** Count of write calls to the file. */
+	public long getWriteCount() {
+		return writeCount;
+	}
+
+	public long getSyncCount() {
+		return syncCount;
+	}
+
+	/** Limit staging buffer so the next full flush ends on alignment boundary. */
+	private void alignStaging() {
+		staging.clear();
+		staging.limit(staging.capacity() - (int) (flushedPosition % ALIGNMENT));
+	}
+
+	/** Keep a chunk of preallocated space ahead of the write position. */
+	private void ensureAllocated(long end) throws IOException {
+		if (chunkSize <= 0 || isSpaceExhausted || end + chunkSize <= allocatedPosition) {
+			return;
+		}
+		long newEnd = roundUp(end + chunkSize, chunkSize);
+		try {
+			allocator.allocate(file, allocatedPosition, newEnd - allocatedPosition);
+			allocatedPosition = newEnd;
+		} catch (NoSpaceException e) {
+			isSpaceExhausted = true;
+			if (noSpaceListener != null) {
+				noSpaceListener.onNoSpace();
+			}
+		}
+	}
+
+	/**
+	 * Find the end of written data in a file which may end with preallocated space that was never written,
+	 * when recording was interrupted before {@link #finish()}.
+	 * @return position after the last byte which is not zero in range from {@code from} to {@code to},
+	 * or {@code from} when the range has only zero bytes.
+	 */
+	static long findWrittenEnd(RandomAccessFile file, long from, long to) throws IOException {
+		byte[] buffer = new byte[64 * 1024];
+		long end = to;
+		while (end > from) {
+			int count = (int) Math.min(buffer.length, end - from);
+			long start = end - count;
+			file.seek(start);
+			file.readFully(buffer, 0, count);
+			for (int i = count - 1; i >= 0; i--) {
+				if (buffer[i] != 0) {
+					return start + i + 1;
+				}
+			}
+			end = start;
+		}
+		return from;
+	}
+
+	private static int roundUp(int value, int step) {
+		return (value + step - 1) / step * step;
+	}
+
+	private static long roundUp(long value, long step) {
+		return (value + step - 1) / step * step;
+	}
+
+	public static class NoSpaceException extends IOException {
+		public NoSpaceException(String message) {
+			super(message);
+		}
+	}
+
+	/**
+	 * Allocates file blocks by writing zeros. Works on every file system, costs extra write of the chunk.
+	 */
+	public static class ZeroFillSpaceAllocator implements SpaceAllocator {
+
+		private final ByteBuffer zeros = ByteBuffer.allocateDirect(64 * 1024);
+
+		@Override
+		public void allocate(RandomAccessFile file, long offset, long length) throws IOException {
+			FileChannel channel = file.getChannel();
+			long position = offset;
+			long end = offset + length;
+			try {
+				while (position < end) {
+					zeros.clear();
+					zeros.limit((int) Math.min(zeros.capacity(), end - position));
+					while (zeros.hasRemaining()) {
+						position += channel.write(zeros, position);
+					}
+				}
+			} catch (IOException e) {
+				//Remove partially allocated chunk, it may hold the last free blocks.
+				channel.truncate(offset);
+				throw new NoSpaceException(e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Allocates file blocks with posix_fallocate without writing data.
+	 * Falls back to {@link ZeroFillSpaceAllocator} when the file system doesn't support it.
+	 */
+	public static class PosixSpaceAllocator implements SpaceAllocator {
+
+		private SpaceAllocator fallback = null;
+
+		@Override
+		public void allocate(RandomAccessFile file, long offset, long length) throws IOException {
+			if (fallback != null) {
+				fallback.allocate(file, offset, length);
+				return;
+			}
+			FileDescriptor fd = file.getFD();
+			try {
+				Os.posix_fallocate(fd, offset, length);
+			} catch (ErrnoException e) {
+				if (e.errno == OsConstants.ENOSPC) {
+					throw new NoSpaceException(e.getMessage());
+				}
+				fallback = new ZeroFillSpaceAllocator();
+				fallback.allocate(file, offset, length);
+			}
+		}
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.recorder;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Waveform of a recording computed from the PCM written into the record file.
+ * Frames are grouped into buckets of a fixed count of frames and the peak absolute value of the
+ * channel average is kept for every bucket, so no decoding of the file is needed after recording.
+ * Gains are in the scale produced by {@link com.dimowner.audiorecorder.audio.AudioDecoder}:
+ * square root of the peak.
+ * Frames may be split between processed buffers. All calls must be made on one thread.
+ */
+public class RecordedWaveform {
+
+	private final int channelCount;
+	private final int framesPerBucket;
+
+	private int[] peaks = new int[1024];
+	private int bucketCount = 0;
+
+	/** State of the frame and the bucket which are not complete yet. */
+	private int channel = 0;
+	private int frameSum = 0;
+	private int bucketFrames = 0;
+	private int bucketPeak = 0;
+
+	/**
+	 * @param channelCount channels of interleaved 16 bit PCM.
+	 * @param framesPerBucket count of frames in one bucket of the waveform.
+	 */
+	public RecordedWaveform(int channelCount, int framesPerBucket) {
+		if (channelCount <= 0 || framesPerBucket <= 0) {
+			throw new IllegalArgumentException("channelCount = " + channelCount + " framesPerBucket = " + framesPerBucket);
+		}
+		this.channelCount = channelCount;
+		this.framesPerBucket = framesPerBucket;
+	}
+
+	/**
+	 * Add little-endian PCM from {@code from} to {@code to} (exclusive) byte index of the buffer.
+	 * Buffer position is not changed.
+	 */
+	public void process(ByteBuffer buffer, int from, int to) {
+		if (buffer.order() != ByteOrder.LITTLE_ENDIAN) {
+			throw new IllegalArgumentException("PCM buffer must be little-endian");
+		}
+		for (int i = from; i + 1 < to; i += 2) {
+			frameSum += buffer.getShort(i);
+			if (++channel == channelCount) {
+				int value = frameSum / channelCount;
+				if (value < 0) {
+					value = -value;
+				}
+				if (value > bucketPeak) {
+					bucketPeak = value;
+				}
+				channel = 0;
+				frameSum = 0;
+				if (++bucketFrames == framesPerBucket) {
+					addBucket(bucketPeak);
+					bucketFrames = 0;
+					bucketPeak = 0;
+				}
+			}
+		}
+	}
+
+	private void addBucket(int peak) {
+		if (bucketCount == peaks.length) {
+			peaks = Arrays.copyOf(peaks, peaks.length * 2);
+		}
+		peaks[bucketCount++] = peak;
+	}
+
+	/** Count of buckets including the last incomplete one. */
+	public int getBucketCount() {
+		return bucketFrames > 0 ? bucketCount + 1 : bucketCount;
+	}
+
+	public int getChannelCount() {
+		return channelCount;
+	}
+
+	public int getFramesPerBucket() {
+		return framesPerBucket;
+	}
+
+	/** Count of complete frames processed. */
+	public long getFrameCount() {
+		return (long) bucketCount * framesPerBucket + bucketFrames;
+	}
+
+	/** Peak absolute value of the channel average in the bucket. Range 0..32768 */
+	public int getPeak(int bucket) {
+		return bucket < bucketCount ? peaks[bucket] : bucketPeak;
+	}
+
+	/** Gains of all buckets. */
+	public int[] toGains() {
+		int[] gains = new int[getBucketCount()];
+		for (int i = 0; i < gains.length; i++) {
+			gains[i] = toGain(getPeak(i));
+		}
+		return gains;
+	}
+
+	/**
+	 * Gains of the waveform resized to the count of buckets. Every resized bucket takes the peak of
+	 * the buckets it covers, so short peaks are not lost. Buckets are repeated when there are fewer of them.
+	 */
+	public int[] toGains(int count) {
+		int total = getBucketCount();
+		int[] gains = new int[count];
+		if (total == 0) {
+			return gains;
+		}
+		for (int i = 0; i < count; i++) {
+			int start = (int) ((long) i * total / count);
+			int end = Math.max(start + 1, (int) ((long) (i + 1) * total / count));
+			int peak = 0;
+			for (int j = start; j < end; j++) {
+				peak = Math.max(peak, getPeak(j));
+			}
+			gains[i] = toGain(peak);
+		}
+		return gains;
+	}
+
+	private static int toGain(int peak) {
+		return (int) Math.sqrt(peak);
+	}
+}
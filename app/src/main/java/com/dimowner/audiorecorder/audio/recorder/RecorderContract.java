@@ -39,5 +39,12 @@ public interface RecorderContract {
 		void stopRecording();
 		boolean isRecording();
 		boolean isPaused();
+		/** Duration of the current recording or the last one until the next start. */
+		long getRecordingDurationMicros();
+		/**
+		 * Parameters of the last finished recording, available when {@link RecorderCallback#onStopRecord(File)} is called.
+		 * @return result or null when the recorder doesn't know them and the record file has to be probed.
+		 */
+		RecordingResult getRecordingResult();
 	}
 }
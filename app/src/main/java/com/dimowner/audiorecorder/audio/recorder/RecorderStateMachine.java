@@ -0,0 +1,172 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.recorder;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lifecycle of a recorder shared by all {@link RecorderContract.Recorder} implementations.
+ * <pre>
+ * IDLE -----> PREPARED --> RECORDING <--> PAUSED
+ *   |           |             |             |
+ *   |           v             v             v
+ *   +------> RELEASED <--- STOPPING <-------+
+ *               |
+ *               +--> PREPARED
+ * </pre>
+ * Illegal transitions are rejected. Capture thread parks in {@link #awaitWhilePaused()} while
+ * recording is paused and is woken up by transition out of {@link State#PAUSED}.
+ * CPU time of the capture thread is accounted separately for every state.
+ */
+public class RecorderStateMachine {
+
+	public enum State {
+		IDLE,
+		PREPARED,
+		RECORDING,
+		PAUSED,
+		STOPPING,
+		RELEASED
+	}
+
+	/** Source of CPU time consumed by the calling thread. */
+	public interface ThreadCpuClock {
+		long currentThreadCpuTimeNanos();
+	}
+
+	/** Clock for recorders without own capture thread. */
+	public static final ThreadCpuClock NO_CPU_CLOCK = () -> 0;
+
+	private final ThreadCpuClock cpuClock;
+	private final AtomicLongArray cpuTimeNanos = new AtomicLongArray(State.values().length);
+	/** Last CPU time sample of the capture thread. Accessed only by capture thread. */
+	private long lastCpuTime = -1;
+
+	private volatile State state = State.IDLE;
+	private volatile boolean isCaptureParked = false;
+
+	public RecorderStateMachine(ThreadCpuClock cpuClock) {
+		this.cpuClock = cpuClock;
+	}
+
+	public static boolean isTransitionAllowed(State from, State to) {
+		switch (from) {
+			case IDLE:
+			case RELEASED:
+				return to == State.PREPARED || (from == State.IDLE && to == State.RELEASED);
+			case PREPARED:
+				return to == State.RECORDING || to == State.RELEASED;
+			case RECORDING:
+				return to == State.PAUSED || to == State.STOPPING;
+			case PAUSED:
+				return to == State.RECORDING || to == State.STOPPING;
+			case STOPPING:
+				return to == State.RELEASED;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Move to the next state.
+	 * @return false if the transition is not allowed from the current state. State is not changed then.
+	 */
+	public synchronized boolean moveTo(State next) {
+		if (!isTransitionAllowed(state, next)) {
+			return false;
+		}
+		state = next;
+		notifyAll();
+		return true;
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	/** Recording is started and not stopped yet, it may be paused. */
+	public boolean isRecording() {
+		State s = state;
+		return s == State.RECORDING || s == State.PAUSED;
+	}
+
+	public boolean isPaused() {
+		return state == State.PAUSED;
+	}
+
+	/** A new recording can be prepared. */
+	public boolean canPrepare() {
+		return isTransitionAllowed(state, State.PREPARED);
+	}
+
+	/**
+	 * Called by capture thread. Parks the thread while state is {@link State#PAUSED}.
+	 * @return true if the thread was parked.
+	 */
+	public boolean awaitWhilePaused() throws InterruptedException {
+		if (state != State.PAUSED) {
+			return false;
+		}
+		accountCpuTime(State.RECORDING);
+		synchronized (this) {
+			isCaptureParked = true;
+			try {
+				while (state == State.PAUSED) {
+					wait();
+				}
+			} finally {
+				isCaptureParked = false;
+			}
+		}
+		accountCpuTime(State.PAUSED);
+		return true;
+	}
+
+	/** Capture thread is parked, all data it captured before pause is already published. */
+	public boolean isCaptureParked() {
+		return isCaptureParked;
+	}
+
+	/** Called by capture thread. Add CPU time consumed since the previous call to the current state. */
+	public void accountCpuTime() {
+		accountCpuTime(state);
+	}
+
+	private void accountCpuTime(State s) {
+		long now = cpuClock.currentThreadCpuTimeNanos();
+		if (lastCpuTime >= 0 && now > lastCpuTime) {
+			cpuTimeNanos.addAndGet(s.ordinal(), now - lastCpuTime);
+		}
+		lastCpuTime = now;
+	}
+
+	/** CPU time consumed by capture thread in the state. */
+	public long getCpuTimeNanos(State s) {
+		return cpuTimeNanos.get(s.ordinal());
+	}
+
+	public String cpuTimeSummary() {
+		StringBuilder sb = new StringBuilder("Capture thread CPU time:");
+		for (State s : State.values()) {
+			long time = cpuTimeNanos.get(s.ordinal());
+			if (time > 0) {
+				sb.append(' ').append(s.name()).append('=').append(time / 1000000).append("ms");
+			}
+		}
+		return sb.toString();
+	}
+}
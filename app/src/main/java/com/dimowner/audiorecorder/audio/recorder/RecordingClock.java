@@ -0,0 +1,54 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.recorder;
+
+/**
+ * Duration of a recording derived from count of audio frames put into the recording.
+ * Time is calculated from the frame count on every read, so it does not accumulate rounding errors
+ * and stands still while recording is paused or capture is stalled.
+ * Advanced by a single thread, read by any thread.
+ */
+public class RecordingClock {
+
+	private final int sampleRate;
+	private volatile long frames = 0;
+
+	public RecordingClock(int sampleRate) {
+		this.sampleRate = sampleRate;
+	}
+
+	/** Count frames added to the recording. Must be called from one thread only. */
+	public void advance(long frameCount) {
+		frames += frameCount;
+	}
+
+	public long getFrames() {
+		return frames;
+	}
+
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	public long getDurationMills() {
+		return frames * 1000 / sampleRate;
+	}
+
+	public long getDurationMicros() {
+		return frames * 1000000 / sampleRate;
+	}
+}
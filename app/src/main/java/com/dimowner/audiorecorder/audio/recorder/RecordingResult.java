@@ -0,0 +1,118 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.recorder;
+
+/**
+ * Parameters of a finished recording known by the recorder which wrote it,
+ * so the record file doesn't need to be probed after recording.
+ */
+public class RecordingResult {
+
+	private final String format;
+	private final int sampleRate;
+	private final int channelCount;
+	private final int bitrate;
+	private final long frameCount;
+	private final long size;
+	private final float integratedLoudness;
+	private final float maxTruePeak;
+
+	/**
+	 * @param format record format, one of AppConstants.FORMAT_*.
+	 * @param bitrate bitrate in bits per second.
+	 * @param frameCount count of frames written into the record.
+	 * @param size size of the record in bytes, including all segment files.
+	 */
+	public RecordingResult(String format, int sampleRate, int channelCount, int bitrate, long frameCount, long size) {
+		this(format, sampleRate, channelCount, bitrate, frameCount, size, Float.NaN, Float.NaN);
+	}
+
+	private RecordingResult(String format, int sampleRate, int channelCount, int bitrate, long frameCount, long size,
+									float integratedLoudness, float maxTruePeak) {
+		this.format = format;
+		this.sampleRate = sampleRate;
+		this.channelCount = channelCount;
+		this.bitrate = bitrate;
+		this.frameCount = frameCount;
+		this.size = size;
+		this.integratedLoudness = integratedLoudness;
+		this.maxTruePeak = maxTruePeak;
+	}
+
+	/**
+	 * Copy of the result with loudness measured while recording.
+	 * @param integratedLoudness integrated loudness in LUFS.
+	 * @param maxTruePeak max true peak in dBTP.
+	 */
+	public RecordingResult withLoudness(float integratedLoudness, float maxTruePeak) {
+		return new RecordingResult(format, sampleRate, channelCount, bitrate, frameCount, size,
+				integratedLoudness, maxTruePeak);
+	}
+
+	public String getFormat() {
+		return format;
+	}
+
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	public int getChannelCount() {
+		return channelCount;
+	}
+
+	public int getBitrate() {
+		return bitrate;
+	}
+
+	public long getFrameCount() {
+		return frameCount;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	/** Integrated loudness in LUFS or NaN when it was not measured. */
+	public float getIntegratedLoudness() {
+		return integratedLoudness;
+	}
+
+	/** Max true peak in dBTP or NaN when it was not measured. */
+	public float getMaxTruePeak() {
+		return maxTruePeak;
+	}
+
+	/** Duration of the written frames in microseconds. */
+	public long getDurationMicros() {
+		return sampleRate > 0 ? frameCount * 1000000 / sampleRate : 0;
+	}
+
+	@Override
+	public String toString() {
+		return "RecordingResult{" +
+				"format='" + format + '\'' +
+				", sampleRate=" + sampleRate +
+				", channelCount=" + channelCount +
+				", bitrate=" + bitrate +
+				", frameCount=" + frameCount +
+				", size=" + size +
+				", integratedLoudness=" + integratedLoudness +
+				", maxTruePeak=" + maxTruePeak +
+				'}';
+	}
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.recorder;
+
+import com.dimowner.audiorecorder.audio.WaveformPyramid;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.SequenceInputStream;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import timber.log.Timber;
+
+/**
+ * Files of a recording which was split into segments.
+ * Segments are numbered from 1. The first segment is the record file itself,
+ * the next segments are stored next to it as "record path" + {@link #SEGMENT_SUFFIX} + number,
+ * so they follow the record file when it is renamed, moved or marked as trash.
+ * Every segment is a complete WAV file.
+ * The {@link SilenceGaps}, {@link CaptureTelemetry}, {@link WaveformPyramid} and {@link TeeOutput} proxy sidecars
+ * of the record follow the record file together with segments.
+ */
+public class RecordingSegments {
+
+	public static final String SEGMENT_SUFFIX = ".part";
+
+	private RecordingSegments() {
+	}
+
+	/** File of the segment with the number. Number 1 is the record file. */
+	public static File segmentFile(File recordFile, int number) {
+		if (number <= 1) {
+			return recordFile;
+		}
+		return new File(recordFile.getPath() + SEGMENT_SUFFIX + number);
+	}
+
+	/** All files of the record in playback order. Contains only the record file when it is not segmented. */
+	public static List<File> list(File recordFile) {
+		List<File> list = new ArrayList<>();
+		list.add(recordFile);
+		File segment;
+		for (int number = 2; (segment = segmentFile(recordFile, number)).exists(); number++) {
+			list.add(segment);
+		}
+		return list;
+	}
+
+	public static boolean hasSegments(File recordFile) {
+		return segmentFile(recordFile, 2).exists();
+	}
+
+	/** Total size of all files of the record. */
+	public static long totalLength(File recordFile) {
+		long length = 0;
+		for (File file : list(recordFile)) {
+			length += file.length();
+		}
+		return length;
+	}
+
+	/**
+	 * Rename segments which follow the record file after the record file was renamed.
+	 * @param recordFile previous location of the record file.
+	 * @param renamed new location of the record file.
+	 */
+	public static boolean renameSegments(File recordFile, File renamed) {
+		boolean ok = true;
+		List<File> list = list(recordFile);
+		for (int i = 1; i < list.size(); i++) {
+			File target = segmentFile(renamed, i + 1);
+			if (!list.get(i).renameTo(target) && !list.get(i).renameTo(target)) {
+				Timber.e("Failed to rename segment: %s", list.get(i).getAbsolutePath());
+				ok = false;
+			}
+		}
+		File[] sidecars = sidecarFiles(recordFile);
+		File[] renamedSidecars = sidecarFiles(renamed);
+		for (int i = 0; i < sidecars.length; i++) {
+			if (sidecars[i].exists() && !sidecars[i].renameTo(renamedSidecars[i])) {
+				Timber.e("Failed to rename sidecar: %s", sidecars[i].getAbsolutePath());
+				ok = false;
+			}
+		}
+		return ok;
+	}
+
+	/** Delete segments which follow the record file. The record file itself is not deleted. */
+	public static boolean deleteSegments(File recordFile) {
+		boolean ok = true;
+		List<File> list = list(recordFile);
+		for (int i = 1; i < list.size(); i++) {
+			ok &= list.get(i).delete();
+		}
+		for (File sidecar : sidecarFiles(recordFile)) {
+			if (sidecar.exists()) {
+				ok &= sidecar.delete();
+			}
+		}
+		return ok;
+	}
+
+	/**
+	 * Copy segments which follow the record file next to the destination record file.
+	 * Copied segments are removed when copying fails.
+	 */
+	public static boolean copySegments(File recordFile, File destination) {
+		List<File> list = list(recordFile);
+		for (int i = 1; i < list.size(); i++) {
+			File target = segmentFile(destination, i + 1);
+			try {
+				copy(list.get(i), target);
+			} catch (IOException e) {
+				Timber.e(e);
+				for (int j = 1; j <= i; j++) {
+					segmentFile(destination, j + 1).delete();
+				}
+				return false;
+			}
+		}
+		File[] sidecars = sidecarFiles(recordFile);
+		File[] copiedSidecars = sidecarFiles(destination);
+		for (int i = 0; i < sidecars.length; i++) {
+			if (sidecars[i].exists()) {
+				try {
+					copy(sidecars[i], copiedSidecars[i]);
+				} catch (IOException e) {
+					//Recording plays without its sidecars, only the original timeline, telemetry, waveform or proxy are lost.
+					Timber.e(e, "Failed to copy sidecar");
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Read headers of all segments as a single WAV header of the joined recording.
+	 * @return header with total data length or null when a segment is not a canonical PCM WAV
+	 * or segments have different formats.
+	 */
+	public static WavHeader readJoinedHeader(File recordFile) throws IOException {
+		List<WavHeader> headers = readHeaders(list(recordFile));
+		if (headers == null) {
+			return null;
+		}
+		WavHeader first = headers.get(0);
+		long dataLength = 0;
+		for (WavHeader header : headers) {
+			dataLength += header.getDataLength();
+		}
+		return new WavHeader(first.getSampleRate(), first.getChannelCount(), first.getBitsPerSample(), dataLength);
+	}
+
+	/**
+	 * Read WAV headers of the segments.
+	 * @return headers in the same order or null when a segment is not a canonical PCM WAV
+	 * or segments have different formats.
+	 */
+	public static List<WavHeader> readHeaders(List<File> segments) throws IOException {
+		List<WavHeader> headers = new ArrayList<>(segments.size());
+		for (File segment : segments) {
+			WavHeader header;
+			try (RandomAccessFile raf = new RandomAccessFile(segment, "r")) {
+				header = WavHeader.read(raf);
+			}
+			if (header == null) {
+				return null;
+			}
+			if (!headers.isEmpty()) {
+				WavHeader first = headers.get(0);
+				if (first.getSampleRate() != header.getSampleRate() || first.getChannelCount() != header.getChannelCount()
+						|| first.getBitsPerSample() != header.getBitsPerSample()) {
+					return null;
+				}
+			}
+			headers.add(header);
+		}
+		return headers;
+	}
+
+	/**
+	 * Start time of every segment in milliseconds from the start of the recording.
+	 * @return single zero start time when the record is not segmented or segments can't be read.
+	 */
+	public static long[] readStartTimesMills(List<File> segments) {
+		long[] startTimes = new long[segments.size()];
+		if (segments.size() > 1) {
+			try {
+				List<WavHeader> headers = readHeaders(segments);
+				if (headers != null) {
+					long dataLength = 0;
+					long byteRate = headers.get(0).getByteRate();
+					for (int i = 0; i < headers.size(); i++) {
+						startTimes[i] = dataLength * 1000 / byteRate;
+						dataLength += headers.get(i).getDataLength();
+					}
+					return startTimes;
+				}
+			} catch (IOException e) {
+				Timber.e(e);
+			}
+		}
+		return new long[] { 0 };
+	}
+
+	/**
+	 * Open segments as a single WAV file. Joined data must fit into 32 bit WAV sizes.
+	 * @param header joined header read by {@link #readJoinedHeader(File)}.
+	 */
+	public static InputStream openJoinedWav(File recordFile, WavHeader header) throws IOException {
+		List<InputStream> streams = new ArrayList<>();
+		streams.add(new ByteArrayInputStream(WavHeader.generate(header.getDataLength(), header.getSampleRate(),
+				header.getChannelCount(), header.getBitsPerSample())));
+		try {
+			for (File segment : list(recordFile)) {
+				InputStream input = new FileInputStream(segment);
+				streams.add(input);
+				long skip = WavHeader.HEADER_SIZE;
+				while (skip > 0) {
+					long skipped = input.skip(skip);
+					if (skipped <= 0) {
+						throw new IOException("Segment is too short: " + segment.getAbsolutePath());
+					}
+					skip -= skipped;
+				}
+			}
+		} catch (IOException e) {
+			for (InputStream stream : streams) {
+				stream.close();
+			}
+			throw e;
+		}
+		return new SequenceInputStream(Collections.enumeration(streams));
+	}
+
+	/** Whether segments can be joined into a single WAV file. */
+	public static boolean canJoin(WavHeader header) {
+		return header != null && header.getDataLength() <= SegmentedWavWriter.MAX_DATA_LENGTH;
+	}
+
+	/** Sidecar files of the record which follow the record file. */
+	private static File[] sidecarFiles(File recordFile) {
+		return new File[] {SilenceGaps.sidecarFile(recordFile), CaptureTelemetry.sidecarFile(recordFile),
+				WaveformPyramid.sidecarFile(recordFile), TeeOutput.proxyFile(recordFile)};
+	}
+
+	private static void copy(File source, File destination) throws IOException {
+		try (FileInputStream input = new FileInputStream(source);
+			  RandomAccessFile output = new RandomAccessFile(destination, "rw")) {
+			output.setLength(0);
+			FileChannel in = input.getChannel();
+			FileChannel out = output.getChannel();
+			long size = in.size();
+			long position = 0;
+			while (position < size) {
+				position += in.transferTo(position, size - position, out);
+			}
+		}
+	}
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.recorder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+
+/**
+ * Writes PCM data of one recording into WAV segments, see {@link RecordingSegments}.
+ * When the current segment reaches the segment length, it is finished with the final header
+ * and the next written byte goes to the next segment, so no samples are lost or repeated between segments.
+ * Segment length is a multiple of frame size, so segments are split on frame boundary.
+ * Recording is never split when segment length is not limited, unless WAV size limit is reached.
+ * Header of the current segment is committed periodically, so interrupted recording can be repaired.
+ */
+public class SegmentedWavWriter implements PcmOutput {
+
+	/** Max length of WAV data which fits into 32 bit RIFF chunk size. */
+	public static final long MAX_DATA_LENGTH = 0xFFFFFFFFL - 36;
+
+	/** Opens segment file with an empty WAV header. */
+	public interface OutputFactory {
+		PreallocatedFileWriter open(File file) throws IOException;
+	}
+
+	public interface SegmentListener {
+		/** Called on writer thread when recording continues into the next segment. */
+		void onSegmentStarted(File file, int number);
+	}
+
+	private final File recordFile;
+	private final OutputFactory factory;
+	private final int sampleRate;
+	private final int channels;
+	private final int bitsPerSample;
+	private final long segmentLength;
+	private SegmentListener segmentListener;
+	private long headerCommitIntervalBytes = 0;
+
+	private PreallocatedFileWriter current;
+	private int segmentNumber = 1;
+	/** Data written into the current segment including staged data. */
+	private long segmentDataLength = 0;
+	private long committedLength = 0;
+	private long completedDataLength = 0;
+	private long completedWriteCount = 0;
+	private long completedSyncCount = 0;
+
+	/**
+	 * @param recordFile the first segment file.
+	 * @param maxSegmentLength max data length of a segment in bytes. 0 when segment length is not limited.
+	 */
+	public SegmentedWavWriter(File recordFile, OutputFactory factory, int sampleRate, int channels,
+									  int bitsPerSample, long maxSegmentLength) throws IOException {
+		this.recordFile = recordFile;
+		this.factory = factory;
+		this.sampleRate = sampleRate;
+		this.channels = channels;
+		this.bitsPerSample = bitsPerSample;
+		this.segmentLength = segmentLength(maxSegmentLength, channels * (bitsPerSample/8));
+		this.current = factory.open(recordFile);
+	}
+
+	/** Data length of segments: max segment length rounded down to frame size and limited by WAV size. */
+	static long segmentLength(long maxSegmentLength, int frameSize) {
+		long length = maxSegmentLength > 0 ? Math.min(maxSegmentLength, MAX_DATA_LENGTH) : MAX_DATA_LENGTH;
+		return Math.max(length - length % frameSize, frameSize);
+	}
+
+	/** Segment data length which corresponds to the duration and the size limits. 0 when not limited. */
+	public static long maxSegmentLength(int minutes, long bytes, int sampleRate, int channels, int bitsPerSample) {
+		long length = 0;
+		if (minutes > 0) {
+			length = (long) minutes * 60 * sampleRate * channels * (bitsPerSample/8);
+		}
+		if (bytes > 0) {
+			long dataBytes = Math.max(bytes - WavHeader.HEADER_SIZE, 1);
+			length = length > 0 ? Math.min(length, dataBytes) : dataBytes;
+		}
+		return length;
+	}
+
+	public void setSegmentListener(SegmentListener listener) {
+		this.segmentListener = listener;
+	}
+
+	/**
+	 * Set length of data written to the file after which header is updated with the current data length.
+	 * 0 disables periodic header commits.
+	 */
+	public void setHeaderCommitInterval(long bytes) {
+		this.headerCommitIntervalBytes = bytes;
+	}
+
+	@Override
+	public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+		long total = 0;
+		for (int i = offset; i < offset + length; i++) {
+			total += write(srcs[i]);
+		}
+		return total;
+	}
+
+	@Override
+	public long write(ByteBuffer[] srcs) throws IOException {
+		return write(srcs, 0, srcs.length);
+	}
+
+	@Override
+	public int write(ByteBuffer src) throws IOException {
+		int total = src.remaining();
+		while (src.hasRemaining()) {
+			if (segmentDataLength >= segmentLength) {
+				startNextSegment();
+			}
+			int count = (int) Math.min(src.remaining(), segmentLength - segmentDataLength);
+			int limit = src.limit();
+			src.limit(src.position() + count);
+			try {
+				output().write(src);
+			} finally {
+				src.limit(limit);
+			}
+			segmentDataLength += count;
+		}
+		return total;
+	}
+
+	/** Write WAV header of the current segment for data which reached the file. */
+	public void commitHeader() throws IOException {
+		long dataLength = getFlushedSegmentLength();
+		output().writeAt(ByteBuffer.wrap(WavHeader.generate(dataLength, sampleRate, channels, bitsPerSample)), 0);
+		committedLength = dataLength;
+	}
+
+	public void flush() throws IOException {
+		output().flush();
+	}
+
+	@Override
+	public void onBatchWritten() throws IOException {
+		//Only data which reached the file is committed, staged data is not.
+		if (headerCommitIntervalBytes > 0
+				&& getFlushedSegmentLength() - committedLength >= headerCommitIntervalBytes) {
+			commitHeader();
+		}
+	}
+
+	@Override
+	public void onPause() throws IOException {
+		flush();
+		commitHeader();
+		output().onPause();
+	}
+
+	/** Write staged data of the current segment, truncate its preallocated space and write the final header. */
+	@Override
+	public void finish() throws IOException {
+		try {
+			output().finish();
+		} finally {
+			commitHeader();
+		}
+	}
+
+	@Override
+	public boolean isOpen() {
+		return current != null && current.isOpen();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (current != null) {
+			current.close();
+		}
+	}
+
+	/** Data length of the current segment which reached the file. */
+	public long getFlushedSegmentLength() {
+		return current != null ? current.getFlushedPosition() - WavHeader.HEADER_SIZE : 0;
+	}
+
+	/** Data length of the current segment in the last committed header. */
+	public long getCommittedSegmentLength() {
+		return committedLength;
+	}
+
+	/** Data length of all segments including staged data. */
+	public long getDataLength() {
+		return completedDataLength + segmentDataLength;
+	}
+
+	public long getSegmentLength() {
+		return segmentLength;
+	}
+
+	public int getSegmentCount() {
+		return segmentNumber;
+	}
+
+	public File getRecordFile() {
+		return recordFile;
+	}
+
+	@Override
+	public long getWriteCount() {
+		return completedWriteCount + (current != null ? current.getWriteCount() : 0);
+	}
+
+	@Override
+	public long getSyncCount() {
+		return completedSyncCount + (current != null ? current.getSyncCount() : 0);
+	}
+
+	private void startNextSegment() throws IOException {
+		PreallocatedFileWriter finished = output();
+		current = null;
+		try {
+			finished.finish();
+			finished.writeAt(ByteBuffer.wrap(
+					WavHeader.generate(segmentDataLength, sampleRate, channels, bitsPerSample)), 0);
+		} finally {
+			finished.close();
+			completedWriteCount += finished.getWriteCount();
+			completedSyncCount += finished.getSyncCount();
+		}
+		completedDataLength += segmentDataLength;
+		segmentDataLength = 0;
+		committedLength = 0;
+		segmentNumber++;
+		File file = RecordingSegments.segmentFile(recordFile, segmentNumber);
+		current = factory.open(file);
+		if (segmentListener != null) {
+			segmentListener.onSegmentStarted(file, segmentNumber);
+		}
+	}
+
+	private PreallocatedFileWriter output() throws IOException {
+		if (current == null) {
+			throw new ClosedChannelException();
+		}
+		return current;
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.recorder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import timber.log.Timber;
+
+/**
+ * Stretches of silence which were not written into a recording by {@link VoiceActivityGate}.
+ * Every gap is stored as the frame position in the recording where silence was cut out and the count of cut frames,
+ * so the original timeline can be reconstructed.
+ * Gaps are stored in a text sidecar next to the record file: "record path" + {@link #SUFFIX}.
+ * The sidecar follows the record file together with its segments, see {@link RecordingSegments}.
+ */
+public class SilenceGaps {
+
+	public static final String SUFFIX = ".gaps";
+
+	private static final String HEADER = "# AudioRecorder skipped silence v1";
+	private static final String KEY_SAMPLE_RATE = "sample_rate";
+	private static final String KEY_FRAME_SIZE = "frame_size";
+	private static final String KEY_DETECTOR_CPU = "detector_cpu_nanos";
+	private static final String KEY_GAP = "gap";
+
+	private final int sampleRate;
+	private final int frameSize;
+	/** Pairs of gap position and count of skipped frames. */
+	private final List<long[]> gaps = new ArrayList<>();
+	private long skippedFrames = 0;
+	private long detectorCpuNanos = 0;
+
+	public SilenceGaps(int sampleRate, int frameSize) {
+		this.sampleRate = sampleRate;
+		this.frameSize = frameSize;
+	}
+
+	public static File sidecarFile(File recordFile) {
+		return new File(recordFile.getPath() + SUFFIX);
+	}
+
+	/**
+	 * Add gap.
+	 * @param position frame of the recording before which silence was cut out.
+	 * @param frames count of cut frames.
+	 */
+	public void add(long position, long frames) {
+		if (frames <= 0) {
+			return;
+		}
+		int last = gaps.size() - 1;
+		if (last >= 0 && gaps.get(last)[0] == position) {
+			gaps.get(last)[1] += frames;
+		} else {
+			gaps.add(new long[] {position, frames});
+		}
+		skippedFrames += frames;
+	}
+
+	public int getGapCount() {
+		return gaps.size();
+	}
+
+	/** Frame of the recording before which the gap was cut out. */
+	public long getPosition(int gap) {
+		return gaps.get(gap)[0];
+	}
+
+	public long getFrames(int gap) {
+		return gaps.get(gap)[1];
+	}
+
+	/**
+	 * Position of a frame of the recording in the original timeline, which includes the skipped silence.
+	 * @param frame position in the recording.
+	 */
+	public long toOriginalFrame(long frame) {
+		long original = frame;
+		for (int i = 0; i < gaps.size() && gaps.get(i)[0] <= frame; i++) {
+			original += gaps.get(i)[1];
+		}
+		return original;
+	}
+
+	public long getSkippedFrames() {
+		return skippedFrames;
+	}
+
+	/** Size of PCM which was not written into the recording. */
+	public long getSkippedBytes() {
+		return skippedFrames * frameSize;
+	}
+
+	public long getSkippedMicros() {
+		return skippedFrames * 1000000 / sampleRate;
+	}
+
+	/** CPU time spent by the voice activity detector during the recording. */
+	public long getDetectorCpuNanos() {
+		return detectorCpuNanos;
+	}
+
+	public void setDetectorCpuNanos(long nanos) {
+		this.detectorCpuNanos = nanos;
+	}
+
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	public int getFrameSize() {
+		return frameSize;
+	}
+
+	/** Write the sidecar of the record file. */
+	public void write(File recordFile) throws IOException {
+		try (Writer writer = new FileWriter(sidecarFile(recordFile))) {
+			writer.write(HEADER + "\n");
+			writer.write(KEY_SAMPLE_RATE + " " + sampleRate + "\n");
+			writer.write(KEY_FRAME_SIZE + " " + frameSize + "\n");
+			writer.write(KEY_DETECTOR_CPU + " " + detectorCpuNanos + "\n");
+			for (long[] gap : gaps) {
+				writer.write(KEY_GAP + " " + gap[0] + " " + gap[1] + "\n");
+			}
+		}
+	}
+
+	/**
+	 * Read the sidecar of the record file.
+	 * @return gaps or null when the record has no sidecar or it can't be read.
+	 */
+	public static SilenceGaps read(File recordFile) {
+		File file = sidecarFile(recordFile);
+		if (!file.isFile()) {
+			return null;
+		}
+		try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+			if (!HEADER.equals(reader.readLine())) {
+				return null;
+			}
+			int sampleRate = 0;
+			int frameSize = 0;
+			long detectorCpu = 0;
+			List<long[]> gaps = new ArrayList<>();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] values = line.split(" ");
+				switch (values[0]) {
+					case KEY_SAMPLE_RATE:
+						sampleRate = Integer.parseInt(values[1]);
+						break;
+					case KEY_FRAME_SIZE:
+						frameSize = Integer.parseInt(values[1]);
+						break;
+					case KEY_DETECTOR_CPU:
+						detectorCpu = Long.parseLong(values[1]);
+						break;
+					case KEY_GAP:
+						gaps.add(new long[] {Long.parseLong(values[1]), Long.parseLong(values[2])});
+						break;
+				}
+			}
+			if (sampleRate <= 0 || frameSize <= 0) {
+				return null;
+			}
+			SilenceGaps result = new SilenceGaps(sampleRate, frameSize);
+			for (long[] gap : gaps) {
+				result.add(gap[0], gap[1]);
+			}
+			result.setDetectorCpuNanos(detectorCpu);
+			return result;
+		} catch (IOException | RuntimeException e) {
+			Timber.e(e, "Failed to read silence gaps: %s", file.getAbsolutePath());
+			return null;
+		}
+	}
+}
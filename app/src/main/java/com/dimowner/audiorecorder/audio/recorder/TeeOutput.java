@@ -0,0 +1,259 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.recorder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.LockSupport;
+
+import timber.log.Timber;
+
+/**
+ * Output which writes captured PCM into the master record and a compact proxy of it in one pass.
+ * Master is written on writer thread of {@link CapturePipeline}. Bytes accepted by the master are copied
+ * into {@link PcmRingBuffer} and encoded into the proxy on a separate thread, so a slow proxy encoder
+ * never stalls capture. When the proxy falls behind by more than the ring holds or fails to write
+ * it is abandoned and deleted, the master is not affected.
+ * Proxy is stored next to the record as "record path" + {@link #PROXY_SUFFIX}, so it follows the record file.
+ */
+public class TeeOutput implements PcmOutput {
+
+	/** Proxy keeps an audio extension, so it is opened as audio when shared. */
+	public static final String PROXY_SUFFIX = ".proxy.wav";
+
+	/** Time proxy thread waits for more data before the next write. */
+	private static final long WRITE_INTERVAL_NANOS = 50_000_000; //50 mills
+	/** Max count of slots written to the proxy by one write. */
+	private static final int MAX_BATCH_SLOTS = 32;
+
+	private final PcmOutput master;
+	private final PcmOutput proxy;
+	private final File proxyFile;
+	private final PcmRingBuffer ring;
+	private final ByteBuffer[] batch;
+
+	/** Positions of the buffers before the write. */
+	private int[] positions = new int[32];
+
+	private Thread proxyThread;
+	/** Count of slots committed into the ring. Changed only by writer thread. */
+	private long slotsCommitted = 0;
+	/** Count of slots committed before the last pause of the master. */
+	private volatile long pausedAtSlot = 0;
+	/** Count of pauses of the master, proxy is paused when it has written all data written before a pause. */
+	private volatile int pauseCount = 0;
+	private volatile boolean isFinishing = false;
+	/** Proxy is abandoned, no more data is passed to it. */
+	private volatile boolean isProxyFailed = false;
+
+	/**
+	 * @param master output of the record file.
+	 * @param proxy output of the proxy file, it is written and closed on the proxy thread.
+	 * @param proxyFile file of the proxy, deleted when the proxy is abandoned.
+	 * @param slotCount count of slots of PCM not encoded into the proxy yet.
+	 * @param slotSize size of one slot in bytes.
+	 */
+	public TeeOutput(PcmOutput master, PcmOutput proxy, File proxyFile, int slotCount, int slotSize) {
+		this.master = master;
+		this.proxy = proxy;
+		this.proxyFile = proxyFile;
+		this.ring = new PcmRingBuffer(slotCount, slotSize);
+		this.batch = new ByteBuffer[Math.min(slotCount, MAX_BATCH_SLOTS)];
+	}
+
+	/** File of the proxy of the record. */
+	public static File proxyFile(File recordFile) {
+		return new File(recordFile.getPath() + PROXY_SUFFIX);
+	}
+
+	/** Start the proxy thread. Must be called before the first write. */
+	public void start() {
+		proxyThread = new Thread(this::writeProxy, "AudioRecorder Proxy Thread");
+		proxyThread.start();
+	}
+
+	@Override
+	public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+		if (positions.length < length) {
+			positions = new int[length];
+		}
+		for (int i = 0; i < length; i++) {
+			positions[i] = srcs[offset + i].position();
+		}
+		long written = master.write(srcs, offset, length);
+		for (int i = 0; i < length; i++) {
+			ByteBuffer src = srcs[offset + i];
+			copyToProxy(src, positions[i], src.position());
+		}
+		LockSupport.unpark(proxyThread);
+		return written;
+	}
+
+	@Override
+	public long write(ByteBuffer[] srcs) throws IOException {
+		return write(srcs, 0, srcs.length);
+	}
+
+	@Override
+	public int write(ByteBuffer src) throws IOException {
+		int position = src.position();
+		int written = master.write(src);
+		copyToProxy(src, position, src.position());
+		LockSupport.unpark(proxyThread);
+		return written;
+	}
+
+	@Override
+	public void onBatchWritten() throws IOException {
+		master.onBatchWritten();
+	}
+
+	@Override
+	public void onPause() throws IOException {
+		master.onPause();
+		pausedAtSlot = slotsCommitted;
+		pauseCount++;
+		LockSupport.unpark(proxyThread);
+	}
+
+	/** Finish the master, then wait until the proxy has encoded all data and is finished. */
+	@Override
+	public void finish() throws IOException {
+		try {
+			master.finish();
+		} finally {
+			isFinishing = true;
+			if (proxyThread != null) {
+				LockSupport.unpark(proxyThread);
+				try {
+					proxyThread.join();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+
+	@Override
+	public boolean isOpen() {
+		return master.isOpen();
+	}
+
+	/** Close the master. Proxy is closed by the proxy thread. */
+	@Override
+	public void close() throws IOException {
+		master.close();
+	}
+
+	@Override
+	public long getWriteCount() {
+		return master.getWriteCount();
+	}
+
+	@Override
+	public long getSyncCount() {
+		return master.getSyncCount();
+	}
+
+	/** Proxy has all data written into the master. */
+	public boolean isProxyComplete() {
+		return isFinishing && !isProxyFailed && ring.isEmpty();
+	}
+
+	/** Max count of slots waiting for the proxy encoder. */
+	public int getProxyLagHighWaterMark() {
+		return ring.getHighWaterMark();
+	}
+
+	/** Copy bytes of the buffer from start to end into ring slots. Buffer position and limit are not changed. */
+	private void copyToProxy(ByteBuffer src, int start, int end) {
+		if (isProxyFailed || start >= end) {
+			return;
+		}
+		int position = src.position();
+		int limit = src.limit();
+		try {
+			int offset = start;
+			while (offset < end) {
+				ByteBuffer slot = ring.acquireWriteSlot();
+				if (slot == null) {
+					Timber.e("Proxy encoder fell behind by %d slots, proxy is abandoned", ring.getCapacity());
+					isProxyFailed = true;
+					return;
+				}
+				int count = Math.min(end - offset, slot.capacity());
+				src.limit(offset + count);
+				src.position(offset);
+				slot.put(src);
+				ring.commitWrite(count);
+				slotsCommitted++;
+				offset += count;
+			}
+		} finally {
+			src.limit(limit);
+			src.position(position);
+		}
+	}
+
+	private void writeProxy() {
+		int pausesHandled = 0;
+		long slotsWritten = 0;
+		try {
+			while (!isProxyFailed) {
+				boolean finishing = isFinishing;
+				int pauses = pauseCount;
+				boolean isPausePending = pauses != pausesHandled;
+				long pauseSlot = pausedAtSlot;
+				int count = ring.drain(batch);
+				if (isPausePending) {
+					//Data written after the pause goes to the proxy after its pause.
+					count = (int) Math.min(count, pauseSlot - slotsWritten);
+				}
+				if (count > 0) {
+					proxy.write(batch, 0, count);
+					ring.release(count);
+					slotsWritten += count;
+					proxy.onBatchWritten();
+				}
+				if (isPausePending && slotsWritten == pauseSlot) {
+					pausesHandled = pauses;
+					proxy.onPause();
+				} else if (count < batch.length && ring.isEmpty()) {
+					if (finishing) {
+						break;
+					}
+					LockSupport.parkNanos(this, WRITE_INTERVAL_NANOS);
+				}
+			}
+			if (!isProxyFailed) {
+				proxy.finish();
+			}
+		} catch (IOException e) {
+			Timber.e(e, "Failed to write proxy, proxy is abandoned");
+			isProxyFailed = true;
+		}
+		try {
+			proxy.close();
+		} catch (IOException e) {
+			Timber.e(e);
+		}
+		if (isProxyFailed && proxyFile.exists() && !proxyFile.delete()) {
+			Timber.e("Failed to delete abandoned proxy: %s", proxyFile.getAbsolutePath());
+		}
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.recorder;
+
+import com.dimowner.audiorecorder.audio.dsp.VoiceActivityDetector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+
+/**
+ * Decides on writer thread of {@link CapturePipeline} which captured blocks are written to the recording.
+ * Blocks without voice activity are not written. The last of them are kept in a look-back ring
+ * which is written right before the block where activity starts, so onsets of speech are not clipped.
+ * Cut out silence is recorded in {@link SilenceGaps}.
+ * Used by a single thread.
+ */
+public class VoiceActivityGate {
+
+	private final VoiceActivityDetector detector;
+	private final PreRollBuffer lookBack;
+	private final SilenceGaps gaps;
+	private final int frameSize;
+
+	private boolean isSkipping = false;
+	/** Position in the output where the current gap started. */
+	private long gapPosition = 0;
+	/** Bytes of silence captured since the current gap started, including the look-back. */
+	private long gapBytes = 0;
+	private long detectorNanos = 0;
+
+	/**
+	 * @param lookBackBytes size of audio written before the block where activity starts.
+	 * @param frameSize bytes per one frame (all channels of one sample).
+	 */
+	public VoiceActivityGate(VoiceActivityDetector detector, int lookBackBytes, int sampleRate, int frameSize) {
+		this.detector = detector;
+		this.lookBack = new PreRollBuffer(lookBackBytes, frameSize);
+		this.gaps = new SilenceGaps(sampleRate, frameSize);
+		this.frameSize = frameSize;
+	}
+
+	/** Detect voice activity in the block. Block position is not changed. */
+	public boolean isVoice(ByteBuffer block) {
+		long start = System.nanoTime();
+		boolean isVoice = detector.process(block);
+		detectorNanos += System.nanoTime() - start;
+		return isVoice;
+	}
+
+	/**
+	 * Put the block without voice activity aside. Block position is moved to its limit.
+	 * @param position count of bytes written to the output before the block.
+	 */
+	public void skip(ByteBuffer block, long position) {
+		if (!isSkipping) {
+			isSkipping = true;
+			gapPosition = position;
+			gapBytes = 0;
+		}
+		gapBytes += block.remaining();
+		lookBack.write(block);
+	}
+
+	/**
+	 * Finish the current gap before the block where activity starts and write the look-back to the output.
+	 * @return count of written bytes.
+	 */
+	public long resume(GatheringByteChannel output) throws IOException {
+		if (!isSkipping) {
+			return 0;
+		}
+		isSkipping = false;
+		gaps.add(gapPosition / frameSize, (gapBytes - lookBack.size()) / frameSize);
+		return lookBack.drainTo(output);
+	}
+
+	/** Finish the gap at the end of the recording. Silence in the look-back is not written. */
+	public void finish() {
+		if (isSkipping) {
+			isSkipping = false;
+			gaps.add(gapPosition / frameSize, gapBytes / frameSize);
+			lookBack.clear();
+		}
+		gaps.setDetectorCpuNanos(detectorNanos);
+	}
+
+	/** True while blocks are put aside. */
+	public boolean isSkipping() {
+		return isSkipping;
+	}
+
+	public SilenceGaps getGaps() {
+		return gaps;
+	}
+}
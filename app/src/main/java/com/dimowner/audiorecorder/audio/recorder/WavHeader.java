@@ -0,0 +1,208 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.recorder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Canonical 44 byte header of PCM WAV file.
+ * Used to write the header while recording and to repair headers of recordings which were interrupted.
+ */
+public class WavHeader {
+
+	public static final int HEADER_SIZE = 44;
+	/** Max value of 32 bit RIFF chunk size. */
+	private static final long MAX_CHUNK_SIZE = 0xFFFFFFFFL;
+
+	private final int sampleRate;
+	private final int channelCount;
+	private final int bitsPerSample;
+	private final long dataLength;
+
+	public WavHeader(int sampleRate, int channelCount, int bitsPerSample, long dataLength) {
+		this.sampleRate = sampleRate;
+		this.channelCount = channelCount;
+		this.bitsPerSample = bitsPerSample;
+		this.dataLength = dataLength;
+	}
+
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	public int getChannelCount() {
+		return channelCount;
+	}
+
+	public int getBitsPerSample() {
+		return bitsPerSample;
+	}
+
+	/** Length of PCM data in bytes. */
+	public long getDataLength() {
+		return dataLength;
+	}
+
+	public int getBlockAlign() {
+		return channelCount * (bitsPerSample/8);
+	}
+
+	public long getByteRate() {
+		return (long) sampleRate * getBlockAlign();
+	}
+
+	/** Duration of PCM data in microseconds. */
+	public long getDurationMicros() {
+		long byteRate = getByteRate();
+		return byteRate > 0 ? dataLength * 1000000 / byteRate : 0;
+	}
+
+	/** Bitrate in bits per second. */
+	public int getBitrate() {
+		return (int) (getByteRate() * 8);
+	}
+
+	public static byte[] generate(long dataLength, int sampleRate, int channels, int bitsPerSample) {
+		long totalAudioLen = Math.min(dataLength, MAX_CHUNK_SIZE - 36);
+		long totalDataLen = totalAudioLen + 36;
+		long byteRate = (long) sampleRate * channels * (bitsPerSample/8);
+
+		byte[] header = new byte[HEADER_SIZE];
+
+		header[0] = 'R'; // RIFF/WAVE header
+		header[1] = 'I';
+		header[2] = 'F';
+		header[3] = 'F';
+		writeInt(header, 4, totalDataLen);
+		header[8] = 'W';
+		header[9] = 'A';
+		header[10] = 'V';
+		header[11] = 'E';
+		header[12] = 'f'; // 'fmt ' chunk
+		header[13] = 'm';
+		header[14] = 't';
+		header[15] = ' ';
+		header[16] = 16; //16 for PCM. 4 bytes: size of 'fmt ' chunk
+		header[17] = 0;
+		header[18] = 0;
+		header[19] = 0;
+		header[20] = 1; // format = 1
+		header[21] = 0;
+		header[22] = (byte) channels;
+		header[23] = 0;
+		writeInt(header, 24, sampleRate);
+		writeInt(header, 28, byteRate);
+		header[32] = (byte) (channels * (bitsPerSample/8)); // block align
+		header[33] = 0;
+		header[34] = (byte) bitsPerSample; // bits per sample
+		header[35] = 0;
+		header[36] = 'd';
+		header[37] = 'a';
+		header[38] = 't';
+		header[39] = 'a';
+		writeInt(header, 40, totalAudioLen);
+		return header;
+	}
+
+	/**
+	 * Read header of canonical PCM WAV file.
+	 * @return header or null when the file is not a canonical PCM WAV written by this app.
+	 */
+	public static WavHeader read(RandomAccessFile file) throws IOException {
+		if (file.length() < HEADER_SIZE) {
+			return null;
+		}
+		byte[] header = new byte[HEADER_SIZE];
+		file.seek(0);
+		file.readFully(header);
+		if (!matches(header, 0, "RIFF") || !matches(header, 8, "WAVE") || !matches(header, 12, "fmt ")
+				|| readInt(header, 16) != 16 || readShort(header, 20) != 1 || !matches(header, 36, "data")) {
+			return null;
+		}
+		int channels = readShort(header, 22);
+		int sampleRate = (int) readInt(header, 24);
+		int bitsPerSample = readShort(header, 34);
+		if (channels <= 0 || sampleRate <= 0 || bitsPerSample <= 0 || bitsPerSample % 8 != 0) {
+			return null;
+		}
+		return new WavHeader(sampleRate, channels, bitsPerSample, readInt(header, 40));
+	}
+
+	/**
+	 * Make header of canonical PCM WAV file consistent with the actual file length.
+	 * Zero bytes after committed data length are treated as unused preallocated space and truncated,
+	 * same as trailing partial frame.
+	 * @return repaired header or null when the file is not a canonical PCM WAV file.
+	 */
+	public static WavHeader repair(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			WavHeader header = read(raf);
+			if (header == null) {
+				return null;
+			}
+			int blockAlign = header.getBlockAlign();
+			long fileDataLength = raf.length() - HEADER_SIZE;
+			long actualLength = fileDataLength;
+			if (actualLength > header.getDataLength()) {
+				//File may end with preallocated space which was never written.
+				actualLength = PreallocatedFileWriter.findWrittenEnd(raf, HEADER_SIZE + header.getDataLength(),
+						HEADER_SIZE + actualLength) - HEADER_SIZE;
+				//The last written frame may end with zero bytes, it is kept whole.
+				actualLength = Math.min(actualLength + (blockAlign - actualLength % blockAlign) % blockAlign, fileDataLength);
+			}
+			long dataLength = Math.min(actualLength - actualLength % blockAlign, MAX_CHUNK_SIZE - 36);
+			if (dataLength == header.getDataLength() && dataLength == fileDataLength) {
+				return header;
+			}
+			if (dataLength != fileDataLength) {
+				raf.setLength(HEADER_SIZE + dataLength);
+			}
+			raf.seek(0);
+			raf.write(generate(dataLength, header.getSampleRate(), header.getChannelCount(), header.getBitsPerSample()));
+			return new WavHeader(header.getSampleRate(), header.getChannelCount(), header.getBitsPerSample(), dataLength);
+		}
+	}
+
+	private static void writeInt(byte[] header, int offset, long value) {
+		header[offset] = (byte) (value & 0xff);
+		header[offset + 1] = (byte) ((value >> 8) & 0xff);
+		header[offset + 2] = (byte) ((value >> 16) & 0xff);
+		header[offset + 3] = (byte) ((value >> 24) & 0xff);
+	}
+
+	private static long readInt(byte[] header, int offset) {
+		return (header[offset] & 0xffL)
+				| (header[offset + 1] & 0xffL) << 8
+				| (header[offset + 2] & 0xffL) << 16
+				| (header[offset + 3] & 0xffL) << 24;
+	}
+
+	private static int readShort(byte[] header, int offset) {
+		return (header[offset] & 0xff) | (header[offset + 1] & 0xff) << 8;
+	}
+
+	private static boolean matches(byte[] header, int offset, String id) {
+		for (int i = 0; i < id.length(); i++) {
+			if (header[offset + i] != id.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.audio.recorder;
+
+import com.dimowner.audiorecorder.audio.WaveformPyramid;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+
+/**
+ * Channel which adds all PCM written to the output into {@link RecordedWaveform} and {@link WaveformPyramid}.
+ * Only bytes accepted by the output are added, so the waveforms match the record file.
+ * Closing the tap does not close the output.
+ */
+class WaveformTap implements GatheringByteChannel {
+
+	private final GatheringByteChannel output;
+	private final RecordedWaveform waveform;
+	/** Writer of the waveform pyramid sidecar or null. */
+	private final WaveformPyramid.Writer pyramid;
+	/** Positions of the buffers before the write. */
+	private int[] positions = new int[32];
+
+	WaveformTap(GatheringByteChannel output, RecordedWaveform waveform, WaveformPyramid.Writer pyramid) {
+		this.output = output;
+		this.waveform = waveform;
+		this.pyramid = pyramid;
+	}
+
+	WaveformTap(GatheringByteChannel output, RecordedWaveform waveform) {
+		this(output, waveform, null);
+	}
+
+	@Override
+	public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+		if (positions.length < length) {
+			positions = new int[length];
+		}
+		for (int i = 0; i < length; i++) {
+			positions[i] = srcs[offset + i].position();
+		}
+		long written = output.write(srcs, offset, length);
+		for (int i = 0; i < length; i++) {
+			ByteBuffer src = srcs[offset + i];
+			if (src.position() > positions[i]) {
+				add(src, positions[i], src.position());
+			}
+		}
+		return written;
+	}
+
+	@Override
+	public long write(ByteBuffer[] srcs) throws IOException {
+		return write(srcs, 0, srcs.length);
+	}
+
+	@Override
+	public int write(ByteBuffer src) throws IOException {
+		int position = src.position();
+		int written = output.write(src);
+		add(src, position, src.position());
+		return written;
+	}
+
+	private void add(ByteBuffer src, int from, int to) {
+		waveform.process(src, from, to);
+		if (pyramid != null) {
+			pyramid.process(src, from, to);
+		}
+	}
+
+	@Override
+	public boolean isOpen() {
+		return output.isOpen();
+	}
+
+	@Override
+	public void close() {
+	}
+}
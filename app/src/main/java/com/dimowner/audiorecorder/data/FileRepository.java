@@ -53,4 +53,7 @@ public interface FileRepository {
 	void updateRecordingDir(Context context, Prefs prefs);
 
 	boolean hasAvailableSpace(Context context) throws IllegalArgumentException;
+
+	/** Space in bytes available on the storage of the records directory. */
+	long getAvailableSpace(Context context) throws IllegalArgumentException;
 }
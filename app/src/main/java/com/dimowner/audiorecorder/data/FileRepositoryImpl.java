@@ -25,6 +25,8 @@ import timber.log.Timber;
 
 import com.dimowner.audiorecorder.ARApplication;
 import com.dimowner.audiorecorder.AppConstants;
+import com.dimowner.audiorecorder.audio.encoder.ImaAdpcmEncoder;
+import com.dimowner.audiorecorder.audio.recorder.RecordingSegments;
 import com.dimowner.audiorecorder.exception.CantCreateFileException;
 import com.dimowner.audiorecorder.util.FileUtil;
 
@@ -80,11 +82,15 @@ public class FileRepositoryImpl implements FileRepository {
 				recordFile = FileUtil.createFile(recordDirectory, FileUtil.addExtension(recordName, AppConstants.FORMAT_M4A));
 				break;
 			case AppConstants.FORMAT_WAV:
+			case AppConstants.FORMAT_WAV_ADPCM:
 				recordFile = FileUtil.createFile(recordDirectory, FileUtil.addExtension(recordName, AppConstants.FORMAT_WAV));
 				break;
 			case AppConstants.FORMAT_3GP:
 				recordFile = FileUtil.createFile(recordDirectory, FileUtil.addExtension(recordName, AppConstants.FORMAT_3GP));
 				break;
+			case AppConstants.FORMAT_FLAC:
+				recordFile = FileUtil.createFile(recordDirectory, FileUtil.addExtension(recordName, AppConstants.FORMAT_FLAC));
+				break;
 		}
 
 		if (recordFile != null) {
@@ -155,7 +161,9 @@ public class FileRepositoryImpl implements FileRepository {
 	@Override
 	public boolean deleteRecordFile(String path) {
 		if (path != null) {
-			return FileUtil.deleteFile(new File(path));
+			File file = new File(path);
+			RecordingSegments.deleteSegments(file);
+			return FileUtil.deleteFile(file);
 		}
 		return false;
 	}
@@ -164,6 +172,7 @@ public class FileRepositoryImpl implements FileRepository {
 	public String markAsTrashRecord(String path) {
 		String trashLocation = FileUtil.addExtension(path, AppConstants.TRASH_MARK_EXTENSION);
 		if (FileUtil.renameFile(new File(path), new File(trashLocation))) {
+			RecordingSegments.renameSegments(new File(path), new File(trashLocation));
 			return trashLocation;
 		}
 		return null;
@@ -173,6 +182,7 @@ public class FileRepositoryImpl implements FileRepository {
 	public String unmarkTrashRecord(String path) {
 		String restoredFile = FileUtil.removeFileExtension(path);
 		if (FileUtil.renameFile(new File(path), new File(restoredFile))) {
+			RecordingSegments.renameSegments(new File(path), new File(restoredFile));
 			return restoredFile;
 		}
 		return null;
@@ -186,7 +196,13 @@ public class FileRepositoryImpl implements FileRepository {
 
 	@Override
 	public boolean renameFile(String path, String newName, String extension) {
-		return FileUtil.renameFile(new File(path), newName, extension);
+		File file = new File(path);
+		if (FileUtil.renameFile(file, newName, extension)) {
+			RecordingSegments.renameSegments(file, new File(file.getParentFile(),
+					newName + AppConstants.EXTENSION_SEPARATOR + extension));
+			return true;
+		}
+		return false;
 	}
 
 	public void updateRecordingDir(Context context, Prefs prefs) {
@@ -217,17 +233,20 @@ public class FileRepositoryImpl implements FileRepository {
 
 	@Override
 	public boolean hasAvailableSpace(Context context) throws IllegalArgumentException {
-		long space;
+		long space = getAvailableSpace(context);
+		final long time = spaceToTimeSecs(space, prefs.getSettingRecordingFormat(),
+				prefs.getSettingSampleRate(), prefs.getSettingBitrate(), prefs.getSettingChannelCount());
+		return time > AppConstants.MIN_REMAIN_RECORDING_TIME;
+	}
+
+	@Override
+	public long getAvailableSpace(Context context) throws IllegalArgumentException {
 		if (prefs.isStoreDirPublic()) {
 //			TODO: deprecated fix this
-			space = FileUtil.getAvailableExternalMemorySize();
+			return FileUtil.getAvailableExternalMemorySize();
 		} else {
-			space = FileUtil.getAvailableInternalMemorySize(context);
+			return FileUtil.getAvailableInternalMemorySize(context);
 		}
-
-		final long time = spaceToTimeSecs(space, prefs.getSettingRecordingFormat(),
-				prefs.getSettingSampleRate(), prefs.getSettingBitrate(), prefs.getSettingChannelCount());
-		return time > AppConstants.MIN_REMAIN_RECORDING_TIME;
 	}
 
 	private long spaceToTimeSecs(long spaceBytes, String recordingFormat, int sampleRate, int bitrate, int channels) {
@@ -238,6 +257,10 @@ public class FileRepositoryImpl implements FileRepository {
 				return 1000 * (spaceBytes/(bitrate/8));
 			case AppConstants.FORMAT_WAV:
 				return 1000 * (spaceBytes/(sampleRate * channels * 2));
+			case AppConstants.FORMAT_FLAC:
+				return 1000 * (spaceBytes/(long) (sampleRate * channels * 2 * AppConstants.FLAC_COMPRESSION_RATIO));
+			case AppConstants.FORMAT_WAV_ADPCM:
+				return 1000 * (spaceBytes/ImaAdpcmEncoder.byteRate(sampleRate, channels));
 			default:
 				return 0;
 		}
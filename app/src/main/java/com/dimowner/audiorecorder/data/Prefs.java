@@ -75,6 +75,33 @@ public interface Prefs {
 	void setSettingChannelCount(int count);
 	int getSettingChannelCount();
 
+	void setSettingSegmentDurationMinutes(int minutes);
+	int getSettingSegmentDurationMinutes();
+
+	void setSettingSegmentSizeMb(int megabytes);
+	int getSettingSegmentSizeMb();
+
+	void setSettingPreRollSeconds(int seconds);
+	int getSettingPreRollSeconds();
+
+	void setSettingVoiceActivationDbfs(int dbfs);
+	int getSettingVoiceActivationDbfs();
+
+	void setSettingHighPassHz(int hz);
+	int getSettingHighPassHz();
+
+	void setSettingInputGainDb(int db);
+	int getSettingInputGainDb();
+
+	void setSettingNoiseGateEnabled(boolean enabled);
+	boolean isSettingNoiseGateEnabled();
+
+	void setSettingLimiterEnabled(boolean enabled);
+	boolean isSettingLimiterEnabled();
+
+	void setSettingRecordProxyEnabled(boolean enabled);
+	boolean isSettingRecordProxyEnabled();
+
 	void setVolumeButtonNavigationEnabled(boolean enabled);
 	boolean isVolumeButtonNavigationEnabled();
 
@@ -58,6 +58,15 @@ public class PrefsImpl implements Prefs {
 	private static final String PREF_KEY_SETTING_CHANNEL_COUNT = "setting_channel_count";
 	private static final String PREF_KEY_PLAYBACK_SPEED = "playback_speed";
 	private static final String PREF_KEY_VOLUME_BUTTON_NAV = "volume_button_navigation";
+	private static final String PREF_KEY_SETTING_SEGMENT_DURATION = "setting_segment_duration";
+	private static final String PREF_KEY_SETTING_SEGMENT_SIZE = "setting_segment_size";
+	private static final String PREF_KEY_SETTING_PRE_ROLL = "setting_pre_roll";
+	private static final String PREF_KEY_SETTING_VOICE_ACTIVATION = "setting_voice_activation";
+	private static final String PREF_KEY_SETTING_HIGH_PASS = "setting_high_pass";
+	private static final String PREF_KEY_SETTING_INPUT_GAIN = "setting_input_gain";
+	private static final String PREF_KEY_SETTING_NOISE_GATE = "setting_noise_gate";
+	private static final String PREF_KEY_SETTING_LIMITER = "setting_limiter";
+	private static final String PREF_KEY_SETTING_RECORD_PROXY = "setting_record_proxy";
 
 	private final SharedPreferences sharedPreferences;
 
@@ -409,6 +418,114 @@ public class PrefsImpl implements Prefs {
 		return sharedPreferences.getFloat(PREF_KEY_PLAYBACK_SPEED, 1.0f);
 	}
 
+	@Override
+	public void setSettingSegmentDurationMinutes(int minutes) {
+		SharedPreferences.Editor editor = sharedPreferences.edit();
+		editor.putInt(PREF_KEY_SETTING_SEGMENT_DURATION, minutes);
+		editor.apply();
+	}
+
+	@Override
+	public int getSettingSegmentDurationMinutes() {
+		return sharedPreferences.getInt(PREF_KEY_SETTING_SEGMENT_DURATION, AppConstants.DEFAULT_SEGMENT_DURATION_MINUTES);
+	}
+
+	@Override
+	public void setSettingSegmentSizeMb(int megabytes) {
+		SharedPreferences.Editor editor = sharedPreferences.edit();
+		editor.putInt(PREF_KEY_SETTING_SEGMENT_SIZE, megabytes);
+		editor.apply();
+	}
+
+	@Override
+	public int getSettingSegmentSizeMb() {
+		return sharedPreferences.getInt(PREF_KEY_SETTING_SEGMENT_SIZE, AppConstants.DEFAULT_SEGMENT_SIZE_MB);
+	}
+
+	@Override
+	public void setSettingPreRollSeconds(int seconds) {
+		SharedPreferences.Editor editor = sharedPreferences.edit();
+		editor.putInt(PREF_KEY_SETTING_PRE_ROLL, seconds);
+		editor.apply();
+	}
+
+	@Override
+	public int getSettingPreRollSeconds() {
+		return sharedPreferences.getInt(PREF_KEY_SETTING_PRE_ROLL, AppConstants.DEFAULT_PRE_ROLL_SECONDS);
+	}
+
+	@Override
+	public void setSettingVoiceActivationDbfs(int dbfs) {
+		SharedPreferences.Editor editor = sharedPreferences.edit();
+		editor.putInt(PREF_KEY_SETTING_VOICE_ACTIVATION, dbfs);
+		editor.apply();
+	}
+
+	@Override
+	public int getSettingVoiceActivationDbfs() {
+		return sharedPreferences.getInt(PREF_KEY_SETTING_VOICE_ACTIVATION, AppConstants.DEFAULT_VOICE_ACTIVATION_DBFS);
+	}
+
+	@Override
+	public void setSettingHighPassHz(int hz) {
+		SharedPreferences.Editor editor = sharedPreferences.edit();
+		editor.putInt(PREF_KEY_SETTING_HIGH_PASS, hz);
+		editor.apply();
+	}
+
+	@Override
+	public int getSettingHighPassHz() {
+		return sharedPreferences.getInt(PREF_KEY_SETTING_HIGH_PASS, AppConstants.DEFAULT_HIGH_PASS_HZ);
+	}
+
+	@Override
+	public void setSettingInputGainDb(int db) {
+		SharedPreferences.Editor editor = sharedPreferences.edit();
+		editor.putInt(PREF_KEY_SETTING_INPUT_GAIN, db);
+		editor.apply();
+	}
+
+	@Override
+	public int getSettingInputGainDb() {
+		return sharedPreferences.getInt(PREF_KEY_SETTING_INPUT_GAIN, AppConstants.DEFAULT_INPUT_GAIN_DB);
+	}
+
+	@Override
+	public void setSettingNoiseGateEnabled(boolean enabled) {
+		SharedPreferences.Editor editor = sharedPreferences.edit();
+		editor.putBoolean(PREF_KEY_SETTING_NOISE_GATE, enabled);
+		editor.apply();
+	}
+
+	@Override
+	public boolean isSettingNoiseGateEnabled() {
+		return sharedPreferences.getBoolean(PREF_KEY_SETTING_NOISE_GATE, AppConstants.DEFAULT_NOISE_GATE_ENABLED);
+	}
+
+	@Override
+	public void setSettingLimiterEnabled(boolean enabled) {
+		SharedPreferences.Editor editor = sharedPreferences.edit();
+		editor.putBoolean(PREF_KEY_SETTING_LIMITER, enabled);
+		editor.apply();
+	}
+
+	@Override
+	public boolean isSettingLimiterEnabled() {
+		return sharedPreferences.getBoolean(PREF_KEY_SETTING_LIMITER, AppConstants.DEFAULT_LIMITER_ENABLED);
+	}
+
+	@Override
+	public void setSettingRecordProxyEnabled(boolean enabled) {
+		SharedPreferences.Editor editor = sharedPreferences.edit();
+		editor.putBoolean(PREF_KEY_SETTING_RECORD_PROXY, enabled);
+		editor.apply();
+	}
+
+	@Override
+	public boolean isSettingRecordProxyEnabled() {
+		return sharedPreferences.getBoolean(PREF_KEY_SETTING_RECORD_PROXY, AppConstants.DEFAULT_RECORD_PROXY_ENABLED);
+	}
+
 	@Override
 	public void setVolumeButtonNavigationEnabled(boolean enabled) {
 		SharedPreferences.Editor editor = sharedPreferences.edit();
@@ -430,6 +547,14 @@ public class PrefsImpl implements Prefs {
 		editor.putInt(PREF_KEY_SETTING_SAMPLE_RATE, AppConstants.DEFAULT_RECORD_SAMPLE_RATE);
 		editor.putInt(PREF_KEY_SETTING_BITRATE, AppConstants.DEFAULT_RECORD_ENCODING_BITRATE);
 		editor.putInt(PREF_KEY_SETTING_CHANNEL_COUNT, AppConstants.DEFAULT_CHANNEL_COUNT);
+		editor.putInt(PREF_KEY_SETTING_SEGMENT_DURATION, AppConstants.DEFAULT_SEGMENT_DURATION_MINUTES);
+		editor.putInt(PREF_KEY_SETTING_SEGMENT_SIZE, AppConstants.DEFAULT_SEGMENT_SIZE_MB);
+		editor.putInt(PREF_KEY_SETTING_PRE_ROLL, AppConstants.DEFAULT_PRE_ROLL_SECONDS);
+		editor.putInt(PREF_KEY_SETTING_VOICE_ACTIVATION, AppConstants.DEFAULT_VOICE_ACTIVATION_DBFS);
+		editor.putInt(PREF_KEY_SETTING_HIGH_PASS, AppConstants.DEFAULT_HIGH_PASS_HZ);
+		editor.putInt(PREF_KEY_SETTING_INPUT_GAIN, AppConstants.DEFAULT_INPUT_GAIN_DB);
+		editor.putBoolean(PREF_KEY_SETTING_NOISE_GATE, AppConstants.DEFAULT_NOISE_GATE_ENABLED);
+		editor.putBoolean(PREF_KEY_SETTING_LIMITER, AppConstants.DEFAULT_LIMITER_ENABLED);
 		editor.apply();
 	}
 }
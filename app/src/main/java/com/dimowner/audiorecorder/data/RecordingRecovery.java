@@ -0,0 +1,139 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.data;
+
+import com.dimowner.audiorecorder.AppConstants;
+import com.dimowner.audiorecorder.app.info.RecordInfo;
+import com.dimowner.audiorecorder.audio.AudioDecoder;
+import com.dimowner.audiorecorder.audio.recorder.FlacFileWriter;
+import com.dimowner.audiorecorder.audio.recorder.ImaAdpcmWavHeader;
+import com.dimowner.audiorecorder.audio.recorder.RecordingSegments;
+import com.dimowner.audiorecorder.audio.recorder.WavHeader;
+import com.dimowner.audiorecorder.data.database.LocalRepository;
+import com.dimowner.audiorecorder.data.database.UnfinishedRecord;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import timber.log.Timber;
+
+/**
+ * Repairs recordings interrupted by process kill, crash or device reboot.
+ * Header of PCM or IMA ADPCM WAV file is made consistent with the actual file length,
+ * incomplete last frame of FLAC file is dropped and total samples count is written into its metadata,
+ * and record is updated with duration and size of the audio which reached the file.
+ */
+public class RecordingRecovery {
+
+	private final LocalRepository localRepository;
+
+	public RecordingRecovery(LocalRepository localRepository) {
+		this.localRepository = localRepository;
+	}
+
+	/**
+	 * Check and repair records left marked as recording. Recording mark of a record is cleared
+	 * when it is repaired or has nothing to repair, and kept when its file fails to be read.
+	 * Must be executed on recording tasks queue before any new recording is started.
+	 * @return count of repaired records.
+	 */
+	public int recoverRecords() {
+		int count = 0;
+		for (UnfinishedRecord record : localRepository.getUnfinishedRecords()) {
+			try {
+				if (recoverRecord(record)) {
+					count++;
+				} else {
+					localRepository.finishRecording(record.getId());
+				}
+			} catch (IOException | RuntimeException e) {
+				Timber.e(e, "Failed to recover record: %s", record.getPath());
+			}
+		}
+		if (count > 0) {
+			Timber.d("Recovered records count: %d", count);
+		}
+		return count;
+	}
+
+	private boolean recoverRecord(UnfinishedRecord record) throws IOException {
+		File file = new File(record.getPath());
+		if (!file.isFile()) {
+			//Lost records are handled separately.
+			return false;
+		}
+		if (isWav(record)) {
+			//Every segment of the recording is repaired, usually only the last one is affected.
+			WavHeader header = WavHeader.repair(file);
+			if (header == null) {
+				return recoverImaAdpcmRecord(record, file);
+			}
+			long dataLength = header.getDataLength();
+			List<File> segments = RecordingSegments.list(file);
+			for (int i = 1; i < segments.size(); i++) {
+				WavHeader segmentHeader = WavHeader.repair(segments.get(i));
+				if (segmentHeader != null) {
+					dataLength += segmentHeader.getDataLength();
+				}
+			}
+			if (dataLength == 0) {
+				return false;
+			}
+			WavHeader joined = new WavHeader(header.getSampleRate(), header.getChannelCount(),
+					header.getBitsPerSample(), dataLength);
+			return update(record, joined.getDurationMicros(), RecordingSegments.totalLength(file),
+					header.getSampleRate(), header.getChannelCount(), header.getBitrate());
+		} else {
+			if (isFlac(record) && FlacFileWriter.repair(file) <= 0) {
+				return false;
+			}
+			RecordInfo info = AudioDecoder.readRecordInfo(file);
+			if (info.getDuration() <= 0) {
+				return false;
+			}
+			return update(record, info.getDuration(), info.getSize(),
+					info.getSampleRate(), info.getChannelCount(), info.getBitrate());
+		}
+	}
+
+	private boolean recoverImaAdpcmRecord(UnfinishedRecord record, File file) throws IOException {
+		ImaAdpcmWavHeader header = ImaAdpcmWavHeader.repair(file);
+		if (header == null || header.getSampleLength() == 0) {
+			return false;
+		}
+		return update(record, header.getDurationMicros(), file.length(),
+				header.getSampleRate(), header.getChannelCount(), header.getBitrate());
+	}
+
+	private static boolean isWav(UnfinishedRecord record) {
+		return AppConstants.FORMAT_WAV.equalsIgnoreCase(record.getFormat())
+				|| record.getPath().toLowerCase().endsWith(AppConstants.EXTENSION_SEPARATOR + AppConstants.FORMAT_WAV);
+	}
+
+	private static boolean isFlac(UnfinishedRecord record) {
+		return AppConstants.FORMAT_FLAC.equalsIgnoreCase(record.getFormat())
+				|| record.getPath().toLowerCase().endsWith(AppConstants.EXTENSION_SEPARATOR + AppConstants.FORMAT_FLAC);
+	}
+
+	/** Store the new audio properties of the record. Waveform is processed again when the record is opened. */
+	private boolean update(UnfinishedRecord record, long duration, long size, int sampleRate,
+								  int channelCount, int bitrate) {
+		Timber.d("Recover record: %s duration: %d", record.getPath(), duration);
+		return localRepository.updateRecoveredRecord(record.getId(), duration, size, sampleRate, channelCount, bitrate);
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.data;
+
+/**
+ * Estimates time until storage is full from the measured size of the active recording.
+ * Write rate is the slope of recorded size over a sliding window of samples, so it follows VBR encoders,
+ * file system overhead and preallocated chunks of PCM records. Usable space is the available space
+ * less a reserve left for finishing the record.
+ * Warnings are raised once per recording when the estimate falls below each threshold.
+ * All calls are made on one thread.
+ */
+public class StorageEstimator {
+
+	/** Remaining time when the write rate is not measured yet. */
+	public static final long UNKNOWN = -1;
+
+	public enum Event {
+		NONE,
+		/** Remaining time fell below the next warning threshold. */
+		WARNING,
+		/** Recording has to be stopped to finish the record before storage is full. */
+		FULL
+	}
+
+	private final long[] sampleTimes;
+	private final long[] sampleBytes;
+	private int sampleCount = 0;
+	private int nextSample = 0;
+	private final long minWindowMills;
+	private final long reserveBytes;
+	/** Warning thresholds in descending order. */
+	private final long[] warningMills;
+	private final long stopMills;
+
+	/** Bytes per millisecond, 0 until measured. */
+	private double rate = 0;
+	private long remainingMills = UNKNOWN;
+	/** Count of raised warnings. */
+	private int warningStage = 0;
+
+	/**
+	 * @param windowSamples count of samples the write rate is measured over.
+	 * @param minWindowMills shortest time span of samples used to measure the write rate.
+	 * @param reserveBytes space kept free for finishing the record and file system metadata.
+	 * @param warningMills remaining times to raise warnings at, in descending order.
+	 * @param stopMills remaining time to stop recording at.
+	 */
+	public StorageEstimator(int windowSamples, long minWindowMills, long reserveBytes, long[] warningMills,
+									long stopMills) {
+		if (windowSamples < 2) {
+			throw new IllegalArgumentException("windowSamples = " + windowSamples);
+		}
+		this.sampleTimes = new long[windowSamples];
+		this.sampleBytes = new long[windowSamples];
+		this.minWindowMills = minWindowMills;
+		this.reserveBytes = reserveBytes;
+		this.warningMills = warningMills.clone();
+		this.stopMills = stopMills;
+	}
+
+	/** Forget the previous recording. */
+	public void reset() {
+		sampleCount = 0;
+		nextSample = 0;
+		rate = 0;
+		remainingMills = UNKNOWN;
+		warningStage = 0;
+	}
+
+	/**
+	 * Start a new window after a pause, so the pause is not measured as a slower write rate.
+	 * The last measured rate is used until the new window is long enough.
+	 */
+	public void restartWindow() {
+		sampleCount = 0;
+		nextSample = 0;
+	}
+
+	/**
+	 * Add a sample and update the estimate.
+	 * @param nowMills sample time from a monotonic clock.
+	 * @param availableBytes space available on the storage of the record.
+	 * @param recordedBytes size of all files of the active recording.
+	 */
+	public Event update(long nowMills, long availableBytes, long recordedBytes) {
+		sampleTimes[nextSample] = nowMills;
+		sampleBytes[nextSample] = recordedBytes;
+		int oldest = sampleCount < sampleTimes.length ? 0 : (nextSample + 1) % sampleTimes.length;
+		nextSample = (nextSample + 1) % sampleTimes.length;
+		if (sampleCount < sampleTimes.length) {
+			sampleCount++;
+		}
+		long span = nowMills - sampleTimes[oldest];
+		long written = recordedBytes - sampleBytes[oldest];
+		if (span >= minWindowMills && written > 0) {
+			rate = (double) written / span;
+		}
+
+		long usableBytes = availableBytes - reserveBytes;
+		if (usableBytes <= 0) {
+			remainingMills = 0;
+			return Event.FULL;
+		}
+		if (rate <= 0) {
+			remainingMills = UNKNOWN;
+			return Event.NONE;
+		}
+		remainingMills = (long) (usableBytes / rate);
+		if (remainingMills <= stopMills) {
+			return Event.FULL;
+		}
+		Event event = Event.NONE;
+		while (warningStage < warningMills.length && remainingMills <= warningMills[warningStage]) {
+			warningStage++;
+			event = Event.WARNING;
+		}
+		return event;
+	}
+
+	/** Estimated recording time until storage is full or {@link #UNKNOWN}. */
+	public long getRemainingMills() {
+		return remainingMills;
+	}
+
+	/** Measured write rate in bytes per second, 0 until measured. */
+	public long getBytesPerSecond() {
+		return Math.round(rate * 1000);
+	}
+
+	/** Count of warnings raised since {@link #reset()}. */
+	public int getWarningStage() {
+		return warningStage;
+	}
+}
@@ -262,6 +262,21 @@ public abstract class DataSource<T> {
 	 */
 	public abstract T recordToItem(Cursor cursor);
 
+	/** Put measured level or null when it is NaN. */
+	protected static void putLevel(ContentValues values, String column, float level) {
+		if (Float.isNaN(level)) {
+			values.putNull(column);
+		} else {
+			values.put(column, level);
+		}
+	}
+
+	/** Read level put by {@link #putLevel(ContentValues, String, float)}, null is NaN. */
+	protected static float getLevel(Cursor cursor, String column) {
+		int index = cursor.getColumnIndex(column);
+		return cursor.isNull(index) ? Float.NaN : cursor.getFloat(index);
+	}
+
 	/**
 	 * Query to local SQLite database with write to log query text and query result.
 	 * @param query Query string.
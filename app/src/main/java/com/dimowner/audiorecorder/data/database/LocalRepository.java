@@ -55,8 +55,27 @@ public interface LocalRepository {
 
 	boolean updateTrashRecord(Record record);
 
+	/** Insert record of a started recording, it stays marked as recording until the recording is finished. */
 	Record insertEmptyFile(String filePath) throws IOException;
 
+	/** Update the record with the result of its recording and clear its recording mark. */
+	boolean finishRecording(Record record);
+
+	/** Clear the recording mark of the record which has nothing to recover. */
+	boolean finishRecording(int id);
+
+	/**
+	 * Get records left marked as recording, which may have been interrupted.
+	 * Only id, path and format of the records are read.
+	 */
+	List<UnfinishedRecord> getUnfinishedRecords();
+
+	/**
+	 * Update audio properties of the recovered record and clear its recording mark.
+	 * Waveform is processed again when the record is opened.
+	 */
+	boolean updateRecoveredRecord(int id, long duration, long size, int sampleRate, int channelCount, int bitrate);
+
 	boolean deleteRecord(int id);
 
 	void deleteRecordForever(int id);
@@ -214,10 +214,15 @@ public class LocalRepositoryImpl implements LocalRepository {
 					prefs.getSettingSampleRate(),
 					prefs.getSettingChannelCount(),
 					prefs.getSettingBitrate(),
+					Float.NaN,
+					Float.NaN,
 					false,
 					false,
 					new int[ARApplication.getLongWaveformSampleCount()]);
-			Record r = insertRecord(record);
+			if (!dataSource.isOpen()) {
+				dataSource.open();
+			}
+			Record r = dataSource.insertRecording(record);
 			if (r != null) {
 				return r;
 			} else {
@@ -230,6 +235,38 @@ public class LocalRepositoryImpl implements LocalRepository {
 		return null;
 	}
 
+	@Override
+	public boolean finishRecording(Record record) {
+		if (!dataSource.isOpen()) {
+			dataSource.open();
+		}
+		return (dataSource.finishRecording(record) > 0);
+	}
+
+	@Override
+	public boolean finishRecording(int id) {
+		if (!dataSource.isOpen()) {
+			dataSource.open();
+		}
+		return (dataSource.finishRecording(id) > 0);
+	}
+
+	@Override
+	public List<UnfinishedRecord> getUnfinishedRecords() {
+		if (!dataSource.isOpen()) {
+			dataSource.open();
+		}
+		return dataSource.getUnfinishedRecords();
+	}
+
+	@Override
+	public boolean updateRecoveredRecord(int id, long duration, long size, int sampleRate, int channelCount, int bitrate) {
+		if (!dataSource.isOpen()) {
+			dataSource.open();
+		}
+		return (dataSource.updateRecoveredRecord(id, duration, size, sampleRate, channelCount, bitrate) > 0);
+	}
+
 	public List<Record> getAllRecords() {
 		if (!dataSource.isOpen()) {
 			dataSource.open();
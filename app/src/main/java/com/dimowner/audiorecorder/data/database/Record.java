@@ -39,6 +39,10 @@ public class Record {
 	private final int sampleRate;
 	private final int channelCount;
 	private final int bitrate;
+	/** Integrated loudness in LUFS, NaN when it was not measured. */
+	private final float integratedLoudness;
+	/** Max true peak in dBTP, NaN when it was not measured. */
+	private final float maxTruePeak;
 	private boolean bookmark;
 	private final boolean waveformProcessed;
 	private final int[] amps;
@@ -47,7 +51,7 @@ public class Record {
 
 	public Record(int id, String name, long duration, long created, long added, long removed, String path,
 					  String format, long size, int sampleRate, int channelCount, int bitrate,
-					  boolean bookmark, boolean waveformProcessed, int[] amps) {
+					  float integratedLoudness, float maxTruePeak, boolean bookmark, boolean waveformProcessed, int[] amps) {
 		this.id = id;
 		this.name = name;
 		this.duration = duration;
@@ -60,6 +64,8 @@ public class Record {
 		this.sampleRate = sampleRate;
 		this.channelCount = channelCount;
 		this.bitrate = bitrate;
+		this.integratedLoudness = integratedLoudness;
+		this.maxTruePeak = maxTruePeak;
 		this.bookmark = bookmark;
 		this.waveformProcessed = waveformProcessed;
 		this.amps = amps;
@@ -69,7 +75,7 @@ public class Record {
 
 	public Record(int id, String name, long duration, long created, long added, long removed, String path,
 					  String format, long size, int sampleRate, int channelCount, int bitrate,
-					  boolean bookmark, boolean waveformProcessed, byte[] amps) {
+					  float integratedLoudness, float maxTruePeak, boolean bookmark, boolean waveformProcessed, byte[] amps) {
 		this.id = id;
 		this.name = name;
 		this.duration = duration;
@@ -82,6 +88,8 @@ public class Record {
 		this.sampleRate = sampleRate;
 		this.channelCount = channelCount;
 		this.bitrate = bitrate;
+		this.integratedLoudness = integratedLoudness;
+		this.maxTruePeak = maxTruePeak;
 		this.bookmark = bookmark;
 		this.waveformProcessed = waveformProcessed;
 		this.amps = byte2int(amps);
@@ -163,6 +171,14 @@ public class Record {
 		return bitrate;
 	}
 
+	public float getIntegratedLoudness() {
+		return integratedLoudness;
+	}
+
+	public float getMaxTruePeak() {
+		return maxTruePeak;
+	}
+
 	public int[] getAmps() {
 		return amps;
 	}
@@ -237,6 +253,8 @@ public class Record {
 				", sampleRate=" + sampleRate +
 				", channelCount=" + channelCount +
 				", bitrate=" + bitrate +
+				", integratedLoudness=" + integratedLoudness +
+				", maxTruePeak=" + maxTruePeak +
 				", bookmark=" + bookmark +
 				", waveformProcessed=" + waveformProcessed +
 				", amps=" + Arrays.toString(amps) +
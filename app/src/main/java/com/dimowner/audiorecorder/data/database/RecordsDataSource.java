@@ -22,6 +22,8 @@ import android.database.Cursor;
 
 import com.dimowner.audiorecorder.util.FileUtil;
 
+import java.util.ArrayList;
+
 import timber.log.Timber;
 
 /**
@@ -64,6 +66,8 @@ public class RecordsDataSource extends DataSource<Record> {
 			values.put(SQLiteHelper.COLUMN_SAMPLE_RATE, item.getSampleRate());
 			values.put(SQLiteHelper.COLUMN_CHANNEL_COUNT, item.getChannelCount());
 			values.put(SQLiteHelper.COLUMN_BITRATE, item.getBitrate());
+			putLevel(values, SQLiteHelper.COLUMN_INTEGRATED_LOUDNESS, item.getIntegratedLoudness());
+			putLevel(values, SQLiteHelper.COLUMN_MAX_TRUE_PEAK, item.getMaxTruePeak());
 			values.put(SQLiteHelper.COLUMN_BOOKMARK, item.isBookmarked() ? 1 : 0);
 			values.put(SQLiteHelper.COLUMN_WAVEFORM_PROCESSED, item.isWaveformProcessed() ? 1 : 0);
 			values.put(SQLiteHelper.COLUMN_DATA, item.getData());
@@ -76,6 +80,84 @@ public class RecordsDataSource extends DataSource<Record> {
 		}
 	}
 
+	/**
+	 * Insert record of a started recording marked as recording, see {@link SQLiteHelper#COLUMN_RECORDING}.
+	 * @return inserted record or null.
+	 */
+	public Record insertRecording(Record item) {
+		ContentValues values = itemToContentValues(item);
+		if (values != null) {
+			values.put(SQLiteHelper.COLUMN_RECORDING, 1);
+			int insertId = (int) db.insert(tableName, null, values);
+			return getItem(insertId);
+		} else {
+			Timber.e("Unable to write empty item!");
+			return null;
+		}
+	}
+
+	/**
+	 * Update record with the result of its recording and clear its recording mark.
+	 * @return updated records count.
+	 */
+	public int finishRecording(Record item) {
+		ContentValues values = itemToContentValues(item);
+		if (values != null && values.containsKey(SQLiteHelper.COLUMN_ID)) {
+			values.put(SQLiteHelper.COLUMN_RECORDING, 0);
+			return db.update(tableName, values, SQLiteHelper.COLUMN_ID + " = " + item.getId(), null);
+		} else {
+			Timber.e("Unable to update empty item!");
+			return 0;
+		}
+	}
+
+	/**
+	 * Update audio properties of the recovered record and clear its recording mark.
+	 * Other columns, waveform included, are not written, waveform is processed again when the record is opened.
+	 * @return updated records count.
+	 */
+	public int updateRecoveredRecord(int id, long duration, long size, int sampleRate, int channelCount, int bitrate) {
+		ContentValues values = new ContentValues();
+		values.put(SQLiteHelper.COLUMN_DURATION, duration);
+		values.put(SQLiteHelper.COLUMN_SIZE, size);
+		values.put(SQLiteHelper.COLUMN_SAMPLE_RATE, sampleRate);
+		values.put(SQLiteHelper.COLUMN_CHANNEL_COUNT, channelCount);
+		values.put(SQLiteHelper.COLUMN_BITRATE, bitrate);
+		values.put(SQLiteHelper.COLUMN_WAVEFORM_PROCESSED, 0);
+		values.put(SQLiteHelper.COLUMN_RECORDING, 0);
+		return db.update(tableName, values, SQLiteHelper.COLUMN_ID + " = " + id, null);
+	}
+
+	/**
+	 * Clear recording mark of the record.
+	 * @return updated records count.
+	 */
+	public int finishRecording(int id) {
+		ContentValues values = new ContentValues();
+		values.put(SQLiteHelper.COLUMN_RECORDING, 0);
+		return db.update(tableName, values, SQLiteHelper.COLUMN_ID + " = " + id, null);
+	}
+
+	/**
+	 * Get records left marked as recording. Only id, path and format columns are read,
+	 * so waveforms of the records are not loaded.
+	 */
+	public ArrayList<UnfinishedRecord> getUnfinishedRecords() {
+		Cursor cursor = queryLocal("SELECT " + SQLiteHelper.COLUMN_ID + ", " + SQLiteHelper.COLUMN_PATH + ", "
+				+ SQLiteHelper.COLUMN_FORMAT + " FROM " + tableName + " WHERE " + SQLiteHelper.COLUMN_RECORDING + " != 0");
+		ArrayList<UnfinishedRecord> items = new ArrayList<>();
+		cursor.moveToFirst();
+		while (!cursor.isAfterLast() && !cursor.isBeforeFirst()) {
+			items.add(new UnfinishedRecord(
+					cursor.getInt(cursor.getColumnIndex(SQLiteHelper.COLUMN_ID)),
+					cursor.getString(cursor.getColumnIndex(SQLiteHelper.COLUMN_PATH)),
+					cursor.getString(cursor.getColumnIndex(SQLiteHelper.COLUMN_FORMAT))));
+			cursor.moveToNext();
+		}
+		cursor.close();
+		return items;
+	}
+
 	@Override
 	public Record recordToItem(Cursor cursor) {
 		return new Record(
@@ -91,6 +173,8 @@ public class RecordsDataSource extends DataSource<Record> {
 				cursor.getInt(cursor.getColumnIndex(SQLiteHelper.COLUMN_SAMPLE_RATE)),
 				cursor.getInt(cursor.getColumnIndex(SQLiteHelper.COLUMN_CHANNEL_COUNT)),
 				cursor.getInt(cursor.getColumnIndex(SQLiteHelper.COLUMN_BITRATE)),
+				getLevel(cursor, SQLiteHelper.COLUMN_INTEGRATED_LOUDNESS),
+				getLevel(cursor, SQLiteHelper.COLUMN_MAX_TRUE_PEAK),
 				cursor.getInt(cursor.getColumnIndex(SQLiteHelper.COLUMN_BOOKMARK)) != 0,
 				cursor.getInt(cursor.getColumnIndex(SQLiteHelper.COLUMN_WAVEFORM_PROCESSED)) != 0,
 				cursor.getBlob(cursor.getColumnIndex(SQLiteHelper.COLUMN_DATA))
@@ -84,12 +84,44 @@ public class SQLiteHelper extends SQLiteOpenHelper {
 			db.endTransaction();
 		} else if (oldVersion == 3 && newVersion == 4) {
 			db.execSQL(CREATE_TIMESTAMPS_TABLE_SCRIPT);
+		} else if ((oldVersion == 3 || oldVersion == 4) && newVersion == 5) {
+			db.beginTransaction();
+			if (oldVersion == 3) {
+				db.execSQL(CREATE_TIMESTAMPS_TABLE_SCRIPT);
+			}
+
+			//Add loudness fields to the tables Records and Trash, records made before are not measured.
+			db.execSQL("ALTER TABLE " + TABLE_RECORDS + " ADD COLUMN " + COLUMN_INTEGRATED_LOUDNESS + " REAL;");
+			db.execSQL("ALTER TABLE " + TABLE_RECORDS + " ADD COLUMN " + COLUMN_MAX_TRUE_PEAK + " REAL;");
+			db.execSQL("ALTER TABLE " + TABLE_TRASH + " ADD COLUMN " + COLUMN_INTEGRATED_LOUDNESS + " REAL;");
+			db.execSQL("ALTER TABLE " + TABLE_TRASH + " ADD COLUMN " + COLUMN_MAX_TRUE_PEAK + " REAL;");
+
+			db.setTransactionSuccessful();
+			db.endTransaction();
+		} else if (oldVersion >= 3 && oldVersion <= 5 && newVersion == 6) {
+			db.beginTransaction();
+			if (oldVersion == 3) {
+				db.execSQL(CREATE_TIMESTAMPS_TABLE_SCRIPT);
+			}
+			if (oldVersion < 5) {
+				db.execSQL("ALTER TABLE " + TABLE_RECORDS + " ADD COLUMN " + COLUMN_INTEGRATED_LOUDNESS + " REAL;");
+				db.execSQL("ALTER TABLE " + TABLE_RECORDS + " ADD COLUMN " + COLUMN_MAX_TRUE_PEAK + " REAL;");
+				db.execSQL("ALTER TABLE " + TABLE_TRASH + " ADD COLUMN " + COLUMN_INTEGRATED_LOUDNESS + " REAL;");
+				db.execSQL("ALTER TABLE " + TABLE_TRASH + " ADD COLUMN " + COLUMN_MAX_TRUE_PEAK + " REAL;");
+			}
+
+			//Add recording state to the table Records, records without duration may have been interrupted.
+			db.execSQL("ALTER TABLE " + TABLE_RECORDS + " ADD COLUMN " + COLUMN_RECORDING + " INTEGER NOT NULL DEFAULT 0;");
+			db.execSQL("UPDATE " + TABLE_RECORDS + " SET " + COLUMN_RECORDING + " = 1 WHERE " + COLUMN_DURATION + " <= 0;");
+
+			db.setTransactionSuccessful();
+			db.endTransaction();
 		}
 	}
 
 
 	private static final String DATABASE_NAME = "records.db";
-	private static final int DATABASE_VERSION = 4;
+	private static final int DATABASE_VERSION = 6;
 
 	//Tables names
 	static final String TABLE_RECORDS = "records";
@@ -114,6 +146,12 @@ public class SQLiteHelper extends SQLiteOpenHelper {
 	static final String COLUMN_SAMPLE_RATE = "sample_rate";
 	static final String COLUMN_CHANNEL_COUNT = "channel_count";
 	static final String COLUMN_BITRATE = "bitrate";
+	/** Integrated loudness in LUFS, null when it was not measured. */
+	static final String COLUMN_INTEGRATED_LOUDNESS = "integrated_loudness";
+	/** Max true peak in dBTP, null when it was not measured. */
+	static final String COLUMN_MAX_TRUE_PEAK = "max_true_peak";
+	/** 1 from the start of the recording until its result is stored, records left with 1 were interrupted. */
+	static final String COLUMN_RECORDING = "recording";
 
 	//Fields for table Timestamps
 	static final String COLUMN_TIMESTAMP_ID = "_id";
@@ -137,9 +175,12 @@ public class SQLiteHelper extends SQLiteOpenHelper {
 					+ COLUMN_SAMPLE_RATE + " INTEGER NOT NULL DEFAULT 0, "
 					+ COLUMN_CHANNEL_COUNT + " INTEGER NOT NULL DEFAULT 0, "
 					+ COLUMN_BITRATE + " INTEGER NOT NULL DEFAULT 0, "
+					+ COLUMN_INTEGRATED_LOUDNESS + " REAL, "
+					+ COLUMN_MAX_TRUE_PEAK + " REAL, "
 					+ COLUMN_DATA + " BLOB NOT NULL, "
 					+ COLUMN_BOOKMARK + " INTEGER NOT NULL DEFAULT 0, "
 					+ COLUMN_WAVEFORM_PROCESSED + " INTEGER NOT NULL DEFAULT 0, "
+					+ COLUMN_RECORDING + " INTEGER NOT NULL DEFAULT 0, "
 					+ COLUMN_DATA_STR + " BLOB NOT NULL);";
 
 	//Create timestamps table sql statement
@@ -168,6 +209,8 @@ public class SQLiteHelper extends SQLiteOpenHelper {
 					+ COLUMN_SAMPLE_RATE + " INTEGER NOT NULL DEFAULT 0, "
 					+ COLUMN_CHANNEL_COUNT + " INTEGER NOT NULL DEFAULT 0, "
 					+ COLUMN_BITRATE + " INTEGER NOT NULL DEFAULT 0, "
+					+ COLUMN_INTEGRATED_LOUDNESS + " REAL, "
+					+ COLUMN_MAX_TRUE_PEAK + " REAL, "
 					+ COLUMN_DATA + " BLOB NOT NULL, "
 					+ COLUMN_BOOKMARK + " INTEGER NOT NULL DEFAULT 0, "
 					+ COLUMN_WAVEFORM_PROCESSED + " INTEGER NOT NULL DEFAULT 0, "
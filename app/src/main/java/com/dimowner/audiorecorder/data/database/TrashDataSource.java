@@ -65,6 +65,8 @@ public class TrashDataSource extends DataSource<Record> {
 			values.put(SQLiteHelper.COLUMN_SAMPLE_RATE, item.getSampleRate());
 			values.put(SQLiteHelper.COLUMN_CHANNEL_COUNT, item.getChannelCount());
 			values.put(SQLiteHelper.COLUMN_BITRATE, item.getBitrate());
+			putLevel(values, SQLiteHelper.COLUMN_INTEGRATED_LOUDNESS, item.getIntegratedLoudness());
+			putLevel(values, SQLiteHelper.COLUMN_MAX_TRUE_PEAK, item.getMaxTruePeak());
 			values.put(SQLiteHelper.COLUMN_BOOKMARK, item.isBookmarked() ? 1 : 0);
 			values.put(SQLiteHelper.COLUMN_WAVEFORM_PROCESSED, item.isWaveformProcessed() ? 1 : 0);
 			values.put(SQLiteHelper.COLUMN_DATA, item.getData());
@@ -92,6 +94,8 @@ public class TrashDataSource extends DataSource<Record> {
 				cursor.getInt(cursor.getColumnIndex(SQLiteHelper.COLUMN_SAMPLE_RATE)),
 				cursor.getInt(cursor.getColumnIndex(SQLiteHelper.COLUMN_CHANNEL_COUNT)),
 				cursor.getInt(cursor.getColumnIndex(SQLiteHelper.COLUMN_BITRATE)),
+				getLevel(cursor, SQLiteHelper.COLUMN_INTEGRATED_LOUDNESS),
+				getLevel(cursor, SQLiteHelper.COLUMN_MAX_TRUE_PEAK),
 				cursor.getInt(cursor.getColumnIndex(SQLiteHelper.COLUMN_BOOKMARK)) != 0,
 				cursor.getInt(cursor.getColumnIndex(SQLiteHelper.COLUMN_WAVEFORM_PROCESSED)) != 0,
 				cursor.getBlob(cursor.getColumnIndex(SQLiteHelper.COLUMN_DATA))
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2026 Mahmut Salman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dimowner.audiorecorder.data.database;
+
+/**
+ * Record left marked as recording, which may have been interrupted by process kill, crash or device reboot.
+ * Holds only what is needed to find and repair its file.
+ */
+public class UnfinishedRecord {
+
+	private final int id;
+	private final String path;
+	private final String format;
+
+	public UnfinishedRecord(int id, String path, String format) {
+		this.id = id;
+		this.path = path;
+		this.format = format;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public String getFormat() {
+		return format;
+	}
+}
@@ -29,6 +29,7 @@ import android.graphics.Point;
 import android.graphics.Typeface;
 import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
+import android.media.AudioManager;
 import android.media.MediaExtractor;
 import android.media.MediaFormat;
 import android.net.Uri;
@@ -62,6 +63,8 @@ import com.dimowner.audiorecorder.Mapper;
 import com.dimowner.audiorecorder.R;
 import com.dimowner.audiorecorder.app.lostrecords.LostRecordsActivity;
 import com.dimowner.audiorecorder.app.lostrecords.RecordItem;
+import com.dimowner.audiorecorder.audio.recorder.RecordingSegments;
+import com.dimowner.audiorecorder.audio.recorder.TeeOutput;
 import com.dimowner.audiorecorder.data.database.Record;
 
 import java.io.File;
@@ -182,6 +185,27 @@ public class AndroidUtils {
 		return !hasHomeKey && !hasBackKey;
 	}
 
+	/**
+	 * Sample rate the audio system runs at natively. Audio captured at other rates is resampled by the audio HAL.
+	 * @return sample rate or 0 when it is not known.
+	 */
+	public static int getNativeSampleRate(Context context) {
+		AudioManager audioManager = (AudioManager) context.getSystemService(Context.AUDIO_SERVICE);
+		if (audioManager == null) {
+			return 0;
+		}
+		String value = audioManager.getProperty(AudioManager.PROPERTY_OUTPUT_SAMPLE_RATE);
+		if (value == null) {
+			return 0;
+		}
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			Timber.e(e);
+			return 0;
+		}
+	}
+
 	public static void setTranslucent(Activity activity, boolean translucent) {
 		Window w = activity.getWindow();
 		if (translucent) {
@@ -337,8 +361,34 @@ public class AndroidUtils {
 		menuItem.setIcon(null);
 	}
 
-	public static void shareAudioFile(Context context, String sharePath, String name, String format) {
-		if (sharePath != null) {
+	/**
+	 * Path of the file shared for the record. Compact proxy recorded together with the record
+	 * is shared instead of the record when it exists.
+	 */
+	public static String sharedFilePath(String recordPath) {
+		if (recordPath != null) {
+			File proxy = TeeOutput.proxyFile(new File(recordPath));
+			if (proxy.exists()) {
+				return proxy.getAbsolutePath();
+			}
+		}
+		return recordPath;
+	}
+
+	public static void shareAudioFile(Context context, String recordPath, String name, String format) {
+		String sharePath = sharedFilePath(recordPath);
+		if (sharePath != null && !sharePath.equals(recordPath)) {
+			//Proxy is Wav.
+			format = AppConstants.FORMAT_WAV;
+		}
+		if (sharePath != null && RecordingSegments.hasSegments(new File(sharePath))) {
+			//Every segment of the record is a separate file.
+			List<String> paths = new ArrayList<>();
+			for (File segment : RecordingSegments.list(new File(sharePath))) {
+				paths.add(segment.getAbsolutePath());
+			}
+			shareAudioFiles(context, paths);
+		} else if (sharePath != null) {
 			Uri fileUri = FileProvider.getUriForFile(
 					context,
 					context.getApplicationContext().getPackageName() + ".app_file_provider",
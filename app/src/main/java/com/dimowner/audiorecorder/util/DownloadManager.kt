@@ -25,6 +25,8 @@ import android.os.Environment
 import android.provider.MediaStore
 import com.dimowner.audiorecorder.R
 import com.dimowner.audiorecorder.audio.AudioDecoder
+import com.dimowner.audiorecorder.audio.recorder.RecordingSegments
+import com.dimowner.audiorecorder.audio.recorder.WavHeader
 import timber.log.Timber
 import java.io.*
 
@@ -34,18 +36,19 @@ private const val BUFFER_SIZE = 10240
  * Copies list of files into Download directory.
  * @author Dimowner
  */
-fun downloadFiles(context: Context, list: List<File>, listener: OnCopyListListener?) {
+fun downloadFiles(context: Context, records: List<File>, listener: OnCopyListListener?) {
+	val list = expandSegments(records)
 	var copied = 0
 	var copiedPercent = 0
 	var failed = 0
 	var totalSize = 0f
 	for (f in list) {
-		totalSize += f.length()
+		totalSize += downloadLength(f)
 	}
 	totalSize /= 100
 
 	for (f in list) {
-		val size = f.length()/100f
+		val size = downloadLength(f)/100f
 		listener?.onStartCopy(f.name)
 		val copyListener = object : OnCopyListener {
 			override fun isCancel(): Boolean = listener?.isCancel ?: false
@@ -119,28 +122,12 @@ fun downloadFile(context: Context, sourceFile: File, listener: OnCopyListener?)
 				try {
 					val outputStream = resolver.openOutputStream(uri)
 					if (outputStream != null) {
-						val input = FileInputStream(sourceFile)
+						val (input, sourceSize) = openRecord(sourceFile)
 						val bis = BufferedInputStream(input)
-						val sourceSize = bis.available()
-
-						var size = BUFFER_SIZE
-						var off = 0
-						var buf = ByteArray(size)
-						loop@ while (bis.available() > 0) {
-							isCancel = listener?.isCancel ?: false
-							if (isCancel) break@loop
-							if (bis.available() < size) {
-								size = bis.available()
-								buf = ByteArray(size)
-							}
-							off += bis.read(buf, 0, size)
-							outputStream.write(buf)
-							listener?.onCopyProgress((100f * off.toFloat() / sourceSize.toFloat()).toInt())
-						}
+						isCancel = !copyStream(bis, sourceSize, outputStream, listener)
 						outputStream.flush()
 						outputStream.close()
 						bis.close()
-						input.close()
 						if (isCancel) {
 							resolver.delete(uri, null, null)
 							listener?.onCanceled()
@@ -170,7 +157,24 @@ fun downloadFile(context: Context, sourceFile: File, listener: OnCopyListener?)
 private fun downloadFile28(context: Context, sourceFile: File, listener: OnCopyListener?) {
 	val sourceName = sourceFile.name
 	val created = FileUtil.createFile(Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS), sourceName)
-	if (created != null) {
+	if (created != null && RecordingSegments.hasSegments(sourceFile)) {
+		try {
+			val (input, sourceSize) = openRecord(sourceFile)
+			val completed = BufferedInputStream(input).use { bis ->
+				FileOutputStream(created).use { copyStream(bis, sourceSize, it, listener) }
+			}
+			if (completed) {
+				listener?.onCopyFinish(context.resources.getString(R.string.downloading_success, sourceName))
+			} else {
+				created.delete()
+				listener?.onCanceled()
+			}
+		} catch (e: IOException) {
+			Timber.e(e)
+			created.delete()
+			listener?.onError(context.resources.getString(R.string.downloading_failed, sourceName))
+		}
+	} else if (created != null) {
 		FileUtil.copyFile(sourceFile, created,
 				object : FileUtil.FileOnCopyListener {
 					override fun isCancel(): Boolean {
@@ -224,6 +228,78 @@ fun copyFileToDir(context: Context, sourceFile: File, destinationFile: File, lis
 		})
 }
 
+/**
+ * Segmented WAV recordings are downloaded as a single WAV file.
+ * Segments are downloaded as separate files when joined recording doesn't fit into WAV size limits.
+ */
+private fun expandSegments(records: List<File>): List<File> {
+	val list = ArrayList<File>()
+	for (f in records) {
+		if (RecordingSegments.hasSegments(f) && !RecordingSegments.canJoin(readJoinedHeader(f))) {
+			list.addAll(RecordingSegments.list(f))
+		} else {
+			list.add(f)
+		}
+	}
+	return list
+}
+
+/**
+ * Open record data for download.
+ * @return record data stream and its length.
+ */
+private fun openRecord(file: File): Pair<InputStream, Long> {
+	if (RecordingSegments.hasSegments(file)) {
+		val header = readJoinedHeader(file)
+		if (header != null && RecordingSegments.canJoin(header)) {
+			return Pair(RecordingSegments.openJoinedWav(file, header), WavHeader.HEADER_SIZE + header.dataLength)
+		}
+	}
+	return Pair(FileInputStream(file), file.length())
+}
+
+private fun downloadLength(file: File): Long {
+	if (RecordingSegments.hasSegments(file)) {
+		val header = readJoinedHeader(file)
+		if (header != null && RecordingSegments.canJoin(header)) {
+			return WavHeader.HEADER_SIZE + header.dataLength
+		}
+	}
+	return file.length()
+}
+
+private fun readJoinedHeader(file: File): WavHeader? {
+	return try {
+		RecordingSegments.readJoinedHeader(file)
+	} catch (e: IOException) {
+		Timber.e(e)
+		null
+	}
+}
+
+/**
+ * Copy stream data reporting progress.
+ * @return false when copying was canceled.
+ */
+private fun copyStream(input: InputStream, size: Long, output: OutputStream, listener: OnCopyListener?): Boolean {
+	val buf = ByteArray(BUFFER_SIZE)
+	var copied = 0L
+	while (true) {
+		if (listener?.isCancel == true) {
+			return false
+		}
+		val read = input.read(buf)
+		if (read < 0) {
+			return true
+		}
+		output.write(buf, 0, read)
+		copied += read
+		if (size > 0) {
+			listener?.onCopyProgress((100f * copied / size).toInt())
+		}
+	}
+}
+
 @TargetApi(29)
 private fun isUriFileAlreadyExists(context: Context, name: String): Boolean {
 	val projection = arrayOf(MediaStore.MediaColumns.DISPLAY_NAME)
@@ -0,0 +1,87 @@
+package com.dimowner.audiorecorder
+
+import junit.framework.TestCase.assertEquals
+import junit.framework.TestCase.assertFalse
+import junit.framework.TestCase.assertTrue
+import org.junit.Test
+import java.util.concurrent.atomic.AtomicBoolean
+
+class AmplitudeQueueTest {
+
+    @Test
+    fun test_offerAndDrainInOrder() {
+        val queue = AmplitudeQueue(6)
+        assertEquals(8, queue.capacity)
+        for (i in 0 until 5) {
+            assertTrue(queue.offer(i * 13L, i))
+        }
+        val mills = LongArray(3)
+        val amps = IntArray(3)
+        assertEquals(3, queue.drain(mills, amps))
+        assertEquals(0, amps[0])
+        assertEquals(26L, mills[2])
+        assertEquals(2, queue.size())
+        assertEquals(2, queue.drain(mills, amps))
+        assertEquals(4, amps[1])
+        assertEquals(0, queue.drain(mills, amps))
+    }
+
+    @Test
+    fun test_fullQueueDropsNewValues() {
+        val queue = AmplitudeQueue(4)
+        for (i in 0 until 6) {
+            queue.offer(i.toLong(), i)
+        }
+        assertEquals(2L, queue.droppedCount)
+        val mills = LongArray(8)
+        val amps = IntArray(8)
+        assertEquals(4, queue.drain(mills, amps))
+        assertEquals(3, amps[3])
+        assertTrue(queue.offer(10, 10))
+        queue.clear()
+        assertEquals(0, queue.size())
+        assertEquals(0, queue.drain(mills, amps))
+    }
+
+    @Test
+    fun test_concurrentProducerAndConsumer() {
+        val queue = AmplitudeQueue(64)
+        val total = 500000
+        val isProducing = AtomicBoolean(true)
+        val producer = Thread {
+            for (i in 0 until total) {
+                //Retry dropped values, so every slot of the ring is reused many times.
+                while (!queue.offer(i * 13L, i)) {
+                    Thread.yield()
+                }
+            }
+            isProducing.set(false)
+        }
+        val mills = LongArray(16)
+        val amps = IntArray(16)
+        var received = 0L
+        var last = -1
+        var isOrdered = true
+        producer.start()
+        while (isProducing.get() || queue.size() > 0) {
+            val n = queue.drain(mills, amps)
+            if (n == 0) {
+                Thread.yield()
+            }
+            for (i in 0 until n) {
+                //Every value is seen once, in order and with its own time.
+                if (amps[i] <= last || mills[i] != amps[i] * 13L) {
+                    isOrdered = false
+                }
+                last = amps[i]
+                received++
+            }
+        }
+        producer.join()
+
+        assertTrue(isOrdered)
+        assertEquals(total.toLong(), received)
+        assertEquals(total - 1, last)
+        assertFalse(queue.size() > 0)
+    }
+}
@@ -0,0 +1,42 @@
+package com.dimowner.audiorecorder
+
+import org.junit.Assume
+
+/**
+ * Minimal micro benchmark harness for JVM unit tests.
+ * Benchmarks are skipped by default, run them with:
+ * ./gradlew testDebugConfigDebugUnitTest -Pbenchmark --tests '*Benchmark'
+ */
+object Benchmark {
+
+    fun assumeEnabled() {
+        Assume.assumeTrue("Benchmarks are disabled", System.getProperty("benchmark") == "true")
+    }
+
+    /**
+     * Run [block] [warmup] times, then [iterations] measured times.
+     * @return median time of one run in nanoseconds.
+     */
+    fun measure(name: String, warmup: Int = 5, iterations: Int = 10, block: () -> Unit): Long {
+        repeat(warmup) { block() }
+        val times = LongArray(iterations)
+        for (i in 0 until iterations) {
+            val start = System.nanoTime()
+            block()
+            times[i] = System.nanoTime() - start
+        }
+        times.sort()
+        val median = times[iterations / 2]
+        println(String.format("%-48s median %10.3f ms  min %10.3f ms", name, median / 1e6, times[0] / 1e6))
+        return median
+    }
+
+    /** Print how many times faster than real time [nanos] processes [audioSeconds] of audio. */
+    fun printRealtimeFactor(name: String, nanos: Long, audioSeconds: Double) {
+        println(String.format("%-48s %10.1fx real-time", name, audioSeconds * 1e9 / nanos))
+    }
+
+    /** Keeps results of benchmarked code reachable so JIT does not remove the computation. */
+    @Volatile
+    var sink: Long = 0
+}
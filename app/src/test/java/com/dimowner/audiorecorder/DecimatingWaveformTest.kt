@@ -0,0 +1,107 @@
+package com.dimowner.audiorecorder
+
+import junit.framework.TestCase.assertEquals
+import junit.framework.TestCase.assertNull
+import junit.framework.TestCase.assertTrue
+import org.junit.Test
+
+class DecimatingWaveformTest {
+
+    @Test
+    fun test_recentWindow() {
+        val waveform = DecimatingWaveform(100, 4)
+        for (i in 0 until 250) {
+            waveform.add(i)
+        }
+        assertEquals(250L, waveform.size())
+        val recent = waveform.getRecent(30)
+        assertEquals(30, recent.size)
+        assertEquals(220, recent[0])
+        assertEquals(249, recent[29])
+        //No more than capacity is kept at full resolution.
+        assertEquals(100, waveform.getRecent(1000).size)
+        assertEquals(150, waveform.getRecent(1000)[0])
+    }
+
+    @Test
+    fun test_shortRecordKeptExactly() {
+        val waveform = DecimatingWaveform(100)
+        for (i in 0 until 100) {
+            waveform.add(i * 3)
+        }
+        val values = waveform.toWaveform()
+        assertEquals(100, values.size)
+        for (i in 0 until 100) {
+            assertEquals(i * 3, values[i])
+        }
+    }
+
+    @Test
+    fun test_longRecordKeepsPeaks() {
+        val waveform = DecimatingWaveform(1000, 4)
+        val total = 1000000
+        for (i in 0 until total) {
+            waveform.add(
+                when (i) {
+                    1234 -> 30000
+                    777777 -> 20000
+                    else -> i % 100
+                }
+            )
+        }
+        val values = waveform.toWaveform(300)
+        assertEquals(300, values.size)
+        assertEquals(30000, values[0])
+        assertEquals(20000, values[(777777L * 300 / total).toInt()])
+        assertEquals(99, values[150])
+        //Whole recording is covered by no more than capacity values.
+        assertTrue(waveform.toWaveform().size <= waveform.capacity)
+        assertTrue(waveform.toWaveform().contains(30000))
+    }
+
+    @Test
+    fun test_stretchedWaveformRepeatsValues() {
+        val waveform = DecimatingWaveform(100)
+        for (i in 0 until 10) {
+            waveform.add(i)
+        }
+        val values = waveform.toWaveform(30)
+        assertEquals(30, values.size)
+        assertEquals(0, values[2])
+        assertEquals(9, values[29])
+        assertEquals(0, DecimatingWaveform(100).toWaveform(10).sum())
+    }
+
+    @Test
+    fun test_minMax() {
+        val waveform = DecimatingWaveform(64, 4)
+        for (i in 0 until 10000) {
+            waveform.add(if (i == 5000) -7 else i % 50)
+        }
+        //Recent range is answered at full resolution.
+        val recent = waveform.getMinMax(9990, 10000)!!
+        assertEquals(40, recent[0])
+        assertEquals(49, recent[1])
+        //Old range is answered by the last level.
+        val old = waveform.getMinMax(4000, 6000)!!
+        assertEquals(-7, old[0])
+        assertEquals(49, old[1])
+        assertNull(waveform.getMinMax(0, 10001))
+        assertNull(waveform.getMinMax(10, 10))
+    }
+
+    @Test
+    fun test_clear() {
+        val waveform = DecimatingWaveform(10, 3)
+        for (i in 0 until 1000) {
+            waveform.add(i)
+        }
+        waveform.clear()
+        assertEquals(0L, waveform.size())
+        assertEquals(0, waveform.getRecent(10).size)
+        assertEquals(0, waveform.toWaveform().size)
+        waveform.add(5)
+        assertEquals(5, waveform.toWaveform()[0])
+        assertEquals(1, waveform.toWaveform().size)
+    }
+}
@@ -0,0 +1,112 @@
+package com.dimowner.audiorecorder.audio
+
+import com.dimowner.audiorecorder.Benchmark
+import com.dimowner.audiorecorder.audio.recorder.WavHeader
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.util.concurrent.ForkJoinPool
+
+/**
+ * Compares decoding of waveform gains of 1 hour of 48 kHz stereo WAV:
+ * memory mapped [WavDecoder] on all cores and on one thread, and serial decoding of PCM read by a stream
+ * the same way as AudioDecoder handles MediaCodec output buffers.
+ * MediaCodec itself is not available on JVM, on device it adds the cost of its buffer copies to the serial path.
+ */
+class WavDecoderBenchmark {
+
+    private lateinit var file: File
+
+    @Before
+    fun setUp() {
+        Benchmark.assumeEnabled()
+        file = File.createTempFile("benchmark", ".wav")
+        val block = ByteArray(SAMPLE_RATE * CHANNELS * 2) { (it * 31).toByte() }
+        FileOutputStream(file).use { out ->
+            out.write(WavHeader.generate(block.size.toLong() * SECONDS, SAMPLE_RATE, CHANNELS, 16))
+            repeat(SECONDS) { out.write(block) }
+        }
+    }
+
+    @After
+    fun after() {
+        WaveformPyramid.sidecarFile(file).delete()
+        file.delete()
+    }
+
+    @Test
+    fun benchmark_1hour() {
+        val wav = WavDecoder.open(file)!!
+        val pool = ForkJoinPool()
+        val singlePool = ForkJoinPool(1)
+
+        val parallel = Benchmark.measure("WavDecoder ${pool.parallelism} threads", 1, 3) {
+            Benchmark.sink += wav.decode(FRAME_SAMPLES, null, pool, Listener).size
+        }
+        Benchmark.printRealtimeFactor("WavDecoder ${pool.parallelism} threads", parallel, SECONDS.toDouble())
+
+        val single = Benchmark.measure("WavDecoder 1 thread", 1, 3) {
+            Benchmark.sink += wav.decode(FRAME_SAMPLES, null, singlePool, Listener).size
+        }
+        Benchmark.printRealtimeFactor("WavDecoder 1 thread", single, SECONDS.toDouble())
+
+        val pyramid = Benchmark.measure("WavDecoder ${pool.parallelism} threads + pyramid", 1, 3) {
+            val writer = WaveformPyramid.Writer(file, SAMPLE_RATE, CHANNELS)
+            Benchmark.sink += wav.decode(FRAME_SAMPLES, writer, pool, Listener).size
+            writer.finish()
+        }
+        Benchmark.printRealtimeFactor("WavDecoder ${pool.parallelism} threads + pyramid", pyramid, SECONDS.toDouble())
+
+        val serial = Benchmark.measure("Serial stream decoding", 1, 3) {
+            Benchmark.sink += serialDecode()
+        }
+        Benchmark.printRealtimeFactor("Serial stream decoding", serial, SECONDS.toDouble())
+        pool.shutdown()
+        singlePool.shutdown()
+    }
+
+    /** Per sample gains of AudioDecoder over PCM read in 64 KB buffers. */
+    private fun serialDecode(): Int {
+        val frame = IntArray(FRAME_SAMPLES)
+        var index = 0
+        var count = 0
+        val buffer = ByteArray(64 * 1024)
+        FileInputStream(file).use { input ->
+            input.skip(WavHeader.HEADER_SIZE.toLong())
+            var read = input.read(buffer)
+            while (read > 0) {
+                var j = 0
+                while (j + 1 < read) {
+                    frame[index++] = ((buffer[j].toInt() and 0xff) or (buffer[j + 1].toInt() shl 8)).toShort().toInt()
+                    if (index >= FRAME_SAMPLES - 1) {
+                        count += WavDecoder.gain(frame, CHANNELS)
+                        index = 0
+                    }
+                    j += 2
+                }
+                read = input.read(buffer)
+            }
+        }
+        return count
+    }
+
+    private object Listener : AudioDecodingListener {
+        override fun isCanceled() = false
+        override fun onStartProcessing(duration: Long, channelsCount: Int, sampleRate: Int) {}
+        override fun onProcessingProgress(percent: Int) {}
+        override fun onProcessingCancel() {}
+        override fun onFinishProcessing(data: IntArray, duration: Long) {}
+        override fun onError(exception: Exception) {}
+    }
+
+    companion object {
+        private const val SAMPLE_RATE = 48000
+        private const val CHANNELS = 2
+        private const val SECONDS = 3600
+        /** Waveform frame of a long record, 20 frames per second. */
+        private const val FRAME_SAMPLES = SAMPLE_RATE / 20 * CHANNELS
+    }
+}
@@ -0,0 +1,218 @@
+package com.dimowner.audiorecorder.audio
+
+import com.dimowner.audiorecorder.audio.recorder.WavHeader
+import junit.framework.TestCase.assertEquals
+import junit.framework.TestCase.assertNotNull
+import junit.framework.TestCase.assertNull
+import junit.framework.TestCase.assertTrue
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.util.Random
+import java.util.concurrent.ForkJoinPool
+
+class WavDecoderTest {
+
+    private lateinit var file: File
+    private val pool = ForkJoinPool(4)
+
+    @Before
+    fun setUp() {
+        file = File.createTempFile("record", ".wav")
+    }
+
+    @After
+    fun after() {
+        WaveformPyramid.sidecarFile(file).delete()
+        file.delete()
+        pool.shutdown()
+    }
+
+    @Test
+    fun test_openCanonicalWav() {
+        val samples = samples(2, 4410)
+        file.writeBytes(WavHeader.generate(samples.size * 2L, 44100, 2, 16) + pcm(samples))
+        val wav = WavDecoder.open(file)!!
+        assertEquals(44100, wav.sampleRate)
+        assertEquals(2, wav.channelCount)
+        assertEquals(WavHeader.HEADER_SIZE.toLong(), wav.dataOffset)
+        assertEquals(samples.size * 2L, wav.dataLength)
+        assertEquals(100000L, wav.durationMicros)
+    }
+
+    @Test
+    fun test_chunksBeforeDataAreSkipped() {
+        val samples = samples(1, 1000)
+        //Odd sized chunk is padded to even size.
+        val list = chunk("LIST", byteArrayOf(1, 2, 3, 4, 5)) + byteArrayOf(0)
+        file.writeBytes(riff(list + fmt(1, 1, 8000, 16) + chunk("data", pcm(samples))))
+        val wav = WavDecoder.open(file)!!
+        assertEquals(12L + list.size + 24 + 8, wav.dataOffset)
+        assertEquals(2000L, wav.dataLength)
+    }
+
+    @Test
+    fun test_extensiblePcmFormat() {
+        val fmt = ByteBuffer.allocate(40).order(ByteOrder.LITTLE_ENDIAN)
+                .putShort(0xFFFE.toShort()).putShort(2).putInt(48000).putInt(192000).putShort(4).putShort(16)
+                .putShort(22).putShort(16).putInt(3).putShort(1).array()
+        file.writeBytes(riff(chunk("fmt ", fmt) + chunk("data", pcm(samples(2, 480)))))
+        val wav = WavDecoder.open(file)!!
+        assertEquals(48000, wav.sampleRate)
+        assertEquals(2, wav.channelCount)
+    }
+
+    @Test
+    fun test_notSupportedFilesAreNotOpened() {
+        val data = chunk("data", ByteArray(1024))
+        //IMA ADPCM
+        file.writeBytes(riff(fmt(0x11, 1, 8000, 4) + data))
+        assertNull(WavDecoder.open(file))
+        file.writeBytes(riff(fmt(1, 1, 8000, 24) + data))
+        assertNull(WavDecoder.open(file))
+        file.writeBytes(riff(data + fmt(1, 1, 8000, 16)))
+        assertNull(WavDecoder.open(file))
+        file.writeBytes(riff(fmt(1, 1, 8000, 16)))
+        assertNull(WavDecoder.open(file))
+        file.writeBytes("ID3".toByteArray() + ByteArray(100))
+        assertNull(WavDecoder.open(file))
+    }
+
+    @Test
+    fun test_dataLongerThanFileIsCut() {
+        val samples = samples(2, 1000)
+        val data = chunk("data", pcm(samples))
+        ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN).putInt(4, -1)
+        //Trailing partial frame of an interrupted recording.
+        file.writeBytes(riff(fmt(1, 2, 8000, 16) + data + byteArrayOf(1, 2, 3)))
+        assertEquals(4000L, WavDecoder.open(file)!!.dataLength)
+    }
+
+    @Test
+    fun test_gainsAreIdenticalToSerialDecoding() {
+        for (channels in 1..2) {
+            val samples = samples(channels, 400_000 + 17)
+            file.writeBytes(WavHeader.generate(samples.size * 2L, 44100, channels, 16) + pcm(samples))
+            val wav = WavDecoder.open(file)!!
+            for (frameSamples in intArrayOf(1, 2, 441, 1001, 30000).map { it * channels }) {
+                val expected = serialGains(samples, frameSamples, channels)
+                assertTrue(expected.contentEquals(wav.decode(frameSamples, null, pool, Listener())))
+                assertTrue(expected.contentEquals(wav.decode(frameSamples, null, ForkJoinPool(1), Listener())))
+            }
+        }
+    }
+
+    @Test
+    fun test_progressAndPyramid() {
+        val samples = samples(2, 3_000_000)
+        file.writeBytes(WavHeader.generate(samples.size * 2L, 48000, 2, 16) + pcm(samples))
+        val wav = WavDecoder.open(file)!!
+        val listener = Listener()
+        val writer = WaveformPyramid.Writer(file, 48000, 2)
+        wav.decode(960, writer, pool, listener)
+        writer.finish()
+
+        assertEquals(62500000L, listener.duration)
+        assertEquals(2, listener.channels)
+        assertEquals(48000, listener.sampleRate)
+        assertTrue(listener.progress.size > 1)
+        assertEquals(listener.progress.sorted(), listener.progress)
+        assertEquals(100, listener.progress.last())
+
+        val pyramid = WaveformPyramid.read(file)!!
+        assertEquals(3_000_000L, pyramid.frameCount)
+        val range = pyramid.getRange(0, pyramid.durationMills, 1)
+        assertEquals(samples.filterIndexed { i, _ -> i % 2 == 0 }.minOrNull(), range[0])
+        assertEquals(samples.filterIndexed { i, _ -> i % 2 == 1 }.maxOrNull(), range[3])
+    }
+
+    @Test
+    fun test_cancel() {
+        val samples = samples(1, 100)
+        file.writeBytes(WavHeader.generate(samples.size * 2L, 8000, 1, 16) + pcm(samples))
+        val listener = Listener(canceled = true)
+        assertNull(WavDecoder.open(file)!!.decode(80, null, pool, listener))
+        assertTrue(listener.isCancelReported)
+    }
+
+    @Test
+    fun test_emptyData() {
+        file.writeBytes(WavHeader.generate(0, 8000, 1, 16))
+        val gains = WavDecoder.open(file)!!.decode(80, null, pool, Listener())
+        assertNotNull(gains)
+        assertEquals(0, gains!!.size)
+    }
+
+    /** Gains taken the same way as by AudioDecoder while samples are added one by one. */
+    private fun serialGains(samples: ShortArray, frameSamples: Int, channels: Int): IntArray {
+        val frame = IntArray(frameSamples)
+        var index = 0
+        val gains = ArrayList<Int>()
+        for (sample in samples) {
+            frame[index++] = sample.toInt()
+            if (index >= frameSamples - 1) {
+                gains.add(WavDecoder.gain(frame, channels))
+                index = 0
+            }
+        }
+        return gains.toIntArray()
+    }
+
+    private fun samples(channels: Int, frames: Int): ShortArray {
+        val random = Random(frames.toLong())
+        return ShortArray(channels * frames) { (random.nextGaussian() * 8000).toInt().coerceIn(-32768, 32767).toShort() }
+    }
+
+    private fun pcm(samples: ShortArray): ByteArray {
+        val buffer = ByteBuffer.allocate(samples.size * 2).order(ByteOrder.LITTLE_ENDIAN)
+        buffer.asShortBuffer().put(samples)
+        return buffer.array()
+    }
+
+    private fun fmt(format: Int, channels: Int, sampleRate: Int, bitsPerSample: Int): ByteArray {
+        val blockAlign = channels * bitsPerSample / 8
+        return chunk("fmt ", ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN)
+                .putShort(format.toShort()).putShort(channels.toShort()).putInt(sampleRate)
+                .putInt(sampleRate * blockAlign).putShort(blockAlign.toShort()).putShort(bitsPerSample.toShort())
+                .array())
+    }
+
+    private fun chunk(id: String, data: ByteArray): ByteArray {
+        return id.toByteArray() + ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(data.size).array() + data
+    }
+
+    private fun riff(chunks: ByteArray): ByteArray {
+        return chunk("RIFF", "WAVE".toByteArray() + chunks)
+    }
+
+    private class Listener(private val canceled: Boolean = false) : AudioDecodingListener {
+        var duration = 0L
+        var channels = 0
+        var sampleRate = 0
+        val progress = ArrayList<Int>()
+        var isCancelReported = false
+
+        override fun isCanceled() = canceled
+
+        override fun onStartProcessing(duration: Long, channelsCount: Int, sampleRate: Int) {
+            this.duration = duration
+            this.channels = channelsCount
+            this.sampleRate = sampleRate
+        }
+
+        override fun onProcessingProgress(percent: Int) {
+            progress.add(percent)
+        }
+
+        override fun onProcessingCancel() {
+            isCancelReported = true
+        }
+
+        override fun onFinishProcessing(data: IntArray, duration: Long) {}
+
+        override fun onError(exception: Exception) {}
+    }
+}
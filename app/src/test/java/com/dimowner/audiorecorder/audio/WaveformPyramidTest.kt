@@ -0,0 +1,204 @@
+package com.dimowner.audiorecorder.audio
+
+import com.dimowner.audiorecorder.audio.recorder.RecordingSegments
+import junit.framework.TestCase.assertEquals
+import junit.framework.TestCase.assertFalse
+import junit.framework.TestCase.assertNotNull
+import junit.framework.TestCase.assertNull
+import junit.framework.TestCase.assertTrue
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.util.Random
+
+class WaveformPyramidTest {
+
+    private lateinit var file: File
+    private val created = ArrayList<File>()
+
+    @Before
+    fun setUp() {
+        file = File.createTempFile("record", ".wav")
+        created.add(file)
+    }
+
+    @After
+    fun after() {
+        for (f in created) {
+            WaveformPyramid.sidecarFile(f).delete()
+            f.delete()
+        }
+    }
+
+    @Test
+    fun test_writeAndRead() {
+        val samples = write(file, SAMPLE_RATE, 2, 10 * SAMPLE_RATE + 13)
+        val pyramid = WaveformPyramid.read(file)!!
+
+        assertEquals(2, pyramid.channelCount)
+        assertEquals(SAMPLE_RATE, pyramid.sampleRate)
+        assertEquals(samples.size / 2L, pyramid.frameCount)
+        assertEquals(10001L, pyramid.durationMills)
+        val framesPerValue = WaveformPyramid.framesPerValue(SAMPLE_RATE)
+        assertEquals(framesPerValue.toLong(), pyramid.getFramesPerValue(0))
+        assertEquals((pyramid.frameCount + framesPerValue - 1) / framesPerValue, pyramid.getValueCount(0).toLong())
+        for (level in 1 until pyramid.levelCount) {
+            assertEquals((pyramid.getValueCount(level - 1) + 1) / 2, pyramid.getValueCount(level))
+        }
+        assertEquals(1, pyramid.getValueCount(pyramid.levelCount - 1))
+    }
+
+    @Test
+    fun test_rangeContainsSamplesOfBuckets() {
+        val channels = 2
+        val samples = write(file, SAMPLE_RATE, channels, 7 * SAMPLE_RATE)
+        val pyramid = WaveformPyramid.read(file)!!
+        val frames = samples.size / channels
+        for (buckets in intArrayOf(1, 7, 100, 3000)) {
+            val startMs = 1234L
+            val endMs = 6543L
+            val range = pyramid.getRange(startMs, endMs, buckets)
+            assertEquals(buckets * channels * 2, range.size)
+            val startFrame = startMs * SAMPLE_RATE / 1000
+            val span = endMs * SAMPLE_RATE / 1000 - startFrame
+            for (b in 0 until buckets) {
+                val from = (startFrame + span * b / buckets).toInt()
+                val to = maxOf((startFrame + span * (b + 1) / buckets).toInt(), from + 1)
+                for (c in 0 until channels) {
+                    var min = Short.MAX_VALUE.toInt()
+                    var max = Short.MIN_VALUE.toInt()
+                    for (f in from until minOf(to, frames)) {
+                        min = minOf(min, samples[f * channels + c].toInt())
+                        max = maxOf(max, samples[f * channels + c].toInt())
+                    }
+                    val index = (b * channels + c) * 2
+                    assertTrue(range[index] <= min)
+                    assertTrue(range[index + 1] >= max)
+                }
+            }
+        }
+    }
+
+    @Test
+    fun test_baseLevelRangeIsExact() {
+        val samples = write(file, SAMPLE_RATE, 1, SAMPLE_RATE)
+        val pyramid = WaveformPyramid.read(file)!!
+        val framesPerValue = pyramid.getFramesPerValue(0).toInt()
+        val buckets = pyramid.getValueCount(0)
+        val range = pyramid.getRange(0, buckets * framesPerValue * 1000L / SAMPLE_RATE, buckets)
+        for (b in 0 until buckets) {
+            val values = samples.copyOfRange(b * framesPerValue, minOf((b + 1) * framesPerValue, samples.size))
+            assertEquals(values.minOrNull(), range[b * 2])
+            assertEquals(values.maxOrNull(), range[b * 2 + 1])
+        }
+    }
+
+    @Test
+    fun test_selectLevel() {
+        write(file, SAMPLE_RATE, 1, 60 * SAMPLE_RATE)
+        val pyramid = WaveformPyramid.read(file)!!
+        val base = pyramid.getFramesPerValue(0)
+        assertEquals(0, pyramid.selectLevel(1))
+        assertEquals(0, pyramid.selectLevel(base))
+        assertEquals(0, pyramid.selectLevel(2 * base - 1))
+        assertEquals(1, pyramid.selectLevel(2 * base))
+        assertEquals(3, pyramid.selectLevel(10 * base))
+        assertEquals(pyramid.levelCount - 1, pyramid.selectLevel(Long.MAX_VALUE / 2))
+    }
+
+    @Test
+    fun test_bucketsOutOfRecordAreEmpty() {
+        write(file, SAMPLE_RATE, 1, SAMPLE_RATE)
+        val pyramid = WaveformPyramid.read(file)!!
+        val range = pyramid.getRange(-1000, 3000, 4)
+        assertEquals(0.toShort(), range[0])
+        assertEquals(0.toShort(), range[1])
+        assertTrue(range[2] < 0 && range[3] > 0)
+        for (i in 4 until range.size) {
+            assertEquals(0.toShort(), range[i])
+        }
+    }
+
+    @Test
+    fun test_emptyRecord() {
+        write(file, SAMPLE_RATE, 1, 0)
+        val pyramid = WaveformPyramid.read(file)!!
+        assertEquals(0L, pyramid.frameCount)
+        assertEquals(0L, pyramid.durationMills)
+        assertTrue(pyramid.getRange(0, 1000, 10).all { it == 0.toShort() })
+    }
+
+    @Test
+    fun test_invalidSidecarIsNotRead() {
+        assertNull(WaveformPyramid.read(file))
+
+        write(file, SAMPLE_RATE, 1, 5 * SAMPLE_RATE)
+        val sidecar = WaveformPyramid.sidecarFile(file)
+        RandomAccessFile(sidecar, "rw").use { it.setLength(it.length() - 1) }
+        assertNull(WaveformPyramid.read(file))
+
+        sidecar.writeBytes(ByteArray(1000))
+        assertNull(WaveformPyramid.read(file))
+    }
+
+    @Test
+    fun test_abortedWriterLeavesNoSidecar() {
+        val writer = WaveformPyramid.Writer(file, SAMPLE_RATE, 1)
+        for (i in 0 until SAMPLE_RATE) {
+            writer.add(i)
+        }
+        writer.abort()
+        assertFalse(WaveformPyramid.sidecarFile(file).exists())
+        assertNull(WaveformPyramid.read(file))
+    }
+
+    @Test
+    fun test_framesSplitBetweenBuffers() {
+        val channels = 2
+        val samples = ShortArray(1001 * channels) { (it * 37 % 20000 - 10000).toShort() }
+        val buffer = ByteBuffer.allocate(samples.size * 2).order(ByteOrder.LITTLE_ENDIAN)
+        buffer.asShortBuffer().put(samples)
+        val writer = WaveformPyramid.Writer(file, SAMPLE_RATE, channels)
+        //Second buffer starts in the middle of a frame.
+        writer.process(buffer, 0, 6)
+        writer.process(buffer, 6, buffer.capacity())
+        assertEquals(1001L, writer.frameCount)
+        writer.finish()
+        assertEquals(1001L, WaveformPyramid.read(file)!!.frameCount)
+    }
+
+    @Test
+    fun test_sidecarFollowsRecordFiles() {
+        write(file, SAMPLE_RATE, 1, SAMPLE_RATE)
+
+        val renamed = File(file.parentFile, file.name + ".del")
+        created.add(renamed)
+        assertTrue(file.renameTo(renamed))
+        assertTrue(RecordingSegments.renameSegments(file, renamed))
+        assertNull(WaveformPyramid.read(file))
+        assertNotNull(WaveformPyramid.read(renamed))
+
+        assertTrue(RecordingSegments.deleteSegments(renamed))
+        assertFalse(WaveformPyramid.sidecarFile(renamed).exists())
+    }
+
+    /** Write the pyramid of random PCM and return the samples. */
+    private fun write(recordFile: File, sampleRate: Int, channels: Int, frames: Int): ShortArray {
+        val random = Random(frames.toLong())
+        val samples = ShortArray(frames * channels) { (random.nextInt(65536) - 32768).toShort() }
+        val writer = WaveformPyramid.Writer(recordFile, sampleRate, channels)
+        for (sample in samples) {
+            writer.add(sample.toInt())
+        }
+        writer.finish()
+        return samples
+    }
+
+    companion object {
+        private const val SAMPLE_RATE = 8000
+    }
+}
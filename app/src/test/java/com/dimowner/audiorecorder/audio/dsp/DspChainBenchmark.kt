@@ -0,0 +1,75 @@
+package com.dimowner.audiorecorder.audio.dsp
+
+import com.dimowner.audiorecorder.Benchmark
+import org.junit.Before
+import org.junit.Test
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import kotlin.random.Random
+
+/**
+ * Cost of every built-in [DspStage] and of the full chain
+ * on synthetic 48 kHz stereo audio processed in AudioRecord sized direct buffers.
+ */
+class DspChainBenchmark {
+
+    @Before
+    fun setUp() {
+        Benchmark.assumeEnabled()
+    }
+
+    @Test
+    fun benchmark_1min() {
+        run(60)
+    }
+
+    @Test
+    fun benchmark_10min() {
+        run(600)
+    }
+
+    private fun run(seconds: Int) {
+        val bytes = ByteArray(SAMPLE_RATE * CHANNELS * 2 * seconds)
+        Random(42).nextBytes(bytes)
+        val direct = ByteBuffer.allocateDirect(bytes.size).order(ByteOrder.LITTLE_ENDIAN)
+
+        val results = LinkedHashMap<String, Long>()
+        results["empty chain"] = measure("empty chain ${seconds}s", bytes, direct, DspChain())
+        results["HighPassFilter"] = measure("HighPassFilter ${seconds}s", bytes, direct,
+                DspChain(HighPassFilter(80f)))
+        results["NoiseGate"] = measure("NoiseGate ${seconds}s", bytes, direct,
+                DspChain(NoiseGate(-50f, 20f)))
+        results["Gain"] = measure("Gain ${seconds}s", bytes, direct, DspChain(Gain(6f)))
+        results["LookAheadLimiter"] = measure("LookAheadLimiter ${seconds}s", bytes, direct,
+                DspChain(LookAheadLimiter(-1f, 5f, 100f)))
+        results["full chain"] = measure("full chain ${seconds}s", bytes, direct,
+                DspChain(HighPassFilter(80f), NoiseGate(-50f, 20f), Gain(6f), LookAheadLimiter(-1f, 5f, 100f)))
+        for ((name, nanos) in results) {
+            Benchmark.printRealtimeFactor(name, nanos, seconds.toDouble())
+        }
+    }
+
+    private fun measure(name: String, bytes: ByteArray, direct: ByteBuffer, chain: DspChain): Long {
+        return Benchmark.measure(name, 2, 5) {
+            //Processing is in place, so every run starts from the same audio. Empty chain measures this copy.
+            direct.clear()
+            direct.put(bytes)
+            chain.prepare(SAMPLE_RATE, CHANNELS, BLOCK_SIZE / FRAME_SIZE)
+            var offset = 0
+            while (offset < bytes.size) {
+                direct.limit(offset + BLOCK_SIZE).position(offset)
+                chain.process(direct)
+                offset += BLOCK_SIZE
+            }
+            Benchmark.sink += direct.getShort(0)
+        }
+    }
+
+    companion object {
+        private const val SAMPLE_RATE = 48000
+        private const val CHANNELS = 2
+        private const val FRAME_SIZE = CHANNELS * 2
+        /** AudioRecord min buffer size for 48 kHz stereo on a typical device. 20 ms of audio. */
+        private const val BLOCK_SIZE = 3840
+    }
+}
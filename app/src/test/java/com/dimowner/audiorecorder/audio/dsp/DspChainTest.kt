@@ -0,0 +1,216 @@
+package com.dimowner.audiorecorder.audio.dsp
+
+import junit.framework.TestCase.assertEquals
+import junit.framework.TestCase.assertTrue
+import org.junit.Test
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import kotlin.math.PI
+import kotlin.math.abs
+import kotlin.math.log10
+import kotlin.math.roundToInt
+import kotlin.math.sin
+import kotlin.math.sqrt
+
+class DspChainTest {
+
+    @Test
+    fun test_highPassRemovesRumbleAndKeepsVoice() {
+        val rumble = sine(20.0, 48000, 48000, 16000.0, 1)
+        val voice = sine(1000.0, 48000, 48000, 16000.0, 1)
+        val rumbleInput = rmsDbfs(rumble, 24000)
+        val voiceInput = rmsDbfs(voice, 24000)
+        chain(48000, 1, HighPassFilter(80f)).process(rumble, 0, rumble.size)
+        chain(48000, 1, HighPassFilter(80f)).process(voice, 0, voice.size)
+
+        //Second order filter is 24 dB down two octaves below the cutoff.
+        assertTrue(rmsDbfs(rumble, 24000) < rumbleInput - 20)
+        assertTrue(abs(rmsDbfs(voice, 24000) - voiceInput) < 0.1f)
+    }
+
+    @Test
+    fun test_highPassRemovesDcOffsetOnEveryChannel() {
+        val samples = ShortArray(9600) { 3000 }
+        chain(48000, 2, HighPassFilter(80f)).process(samples, 0, samples.size)
+
+        for (i in samples.size - 200 until samples.size) {
+            assertTrue(abs(samples[i].toInt()) <= 1)
+        }
+    }
+
+    @Test
+    fun test_gain() {
+        val samples = shortArrayOf(1000, -1000, 0, 20000)
+        chain(48000, 1, Gain(6f)).process(samples, 0, samples.size)
+
+        assertEquals(1995, samples[0].toInt())
+        assertEquals(-1995, samples[1].toInt())
+        assertEquals(0, samples[2].toInt())
+        //Saturated instead of wrapped around.
+        assertEquals(Short.MAX_VALUE, samples[3])
+    }
+
+    @Test
+    fun test_noiseGateAttenuatesQuietAudioAndKeepsLoudAudio() {
+        val gate = NoiseGate(-50f, 20f)
+        val dspChain = chain(48000, 1, gate)
+        //-60 dBFS noise floor, then speech level, then noise floor again.
+        val quiet = sine(300.0, 48000, 48000, 32.0, 1)
+        val loud = sine(300.0, 48000, 4800, 8000.0, 1)
+        val quietAfter = sine(300.0, 48000, 48000, 32.0, 1)
+        dspChain.process(quiet, 0, quiet.size)
+        dspChain.process(loud, 0, loud.size)
+        dspChain.process(quietAfter, 0, quietAfter.size)
+
+        assertTrue(peak(quiet, 36000) <= 4)
+        assertEquals(8000.0, peak(loud, 2400).toDouble(), 10.0)
+        //Held open right after loud audio, closed later.
+        assertTrue(peak(quietAfter, 0, 480) >= 31)
+        assertTrue(peak(quietAfter, 36000) <= 4)
+    }
+
+    @Test
+    fun test_limiterKeepsPeaksUnderCeiling() {
+        val limiter = LookAheadLimiter(-1f, 5f, 100f)
+        val dspChain = chain(48000, 2, Gain(12f), limiter)
+        val samples = ShortArray(96000)
+        for (i in samples.indices) {
+            //Speech level with sudden full scale bursts.
+            val frame = i / 2
+            val amplitude = if (frame % 12000 < 600) 32000.0 else 4000.0
+            samples[i] = (amplitude * sin(2 * PI * 440 * frame / 48000)).roundToInt().toShort()
+        }
+        dspChain.process(samples, 0, samples.size)
+
+        val ceiling = 32768 * Math.pow(10.0, -1 / 20.0)
+        for (sample in samples) {
+            assertTrue(abs(sample.toInt()) <= ceiling + 1)
+        }
+        assertEquals(240, limiter.getLatencyFrames())
+        assertTrue(limiter.getMinGain() < 0.25f)
+    }
+
+    @Test
+    fun test_limiterDelaysAudioByLookAhead() {
+        val limiter = LookAheadLimiter(-1f, 1f, 100f)
+        val dspChain = chain(8000, 1, limiter)
+        val samples = ShortArray(100)
+        samples[10] = 1000
+        dspChain.process(samples, 0, samples.size)
+
+        assertEquals(8, limiter.getLatencyFrames())
+        assertEquals(1000, samples[18].toInt())
+        assertEquals(1f, limiter.getMinGain())
+    }
+
+    @Test
+    fun test_flushWritesDelayedAudio() {
+        val dspChain = chain(8000, 1, Gain(0f), LookAheadLimiter(-1f, 1f, 100f))
+        val samples = ShortArray(100) { (it * 10).toShort() }
+        dspChain.process(samples, 0, samples.size)
+        val tail = ByteBuffer.allocate(dspChain.latencyFrames * 2 + 4).order(ByteOrder.LITTLE_ENDIAN)
+        tail.put(ByteArray(tail.capacity()) { 1 })
+        tail.position(4)
+        dspChain.flush(tail)
+
+        assertEquals(8, dspChain.latencyFrames)
+        assertEquals(4, tail.position())
+        assertEquals(257, tail.getShort(0).toInt())
+        for (i in 0 until 8) {
+            assertEquals((92 + i) * 10, tail.getShort(4 + i * 2).toInt())
+        }
+    }
+
+    @Test
+    fun test_byteBufferAndShortArrayGiveSameResult() {
+        val samples = sine(440.0, 44100, 4410, 12000.0, 2)
+        val bytes = ByteBuffer.allocateDirect(samples.size * 2).order(ByteOrder.LITTLE_ENDIAN)
+        bytes.asShortBuffer().put(samples)
+        bytes.position(8)
+
+        //Blocks larger than prepared max frames are processed in parts.
+        newChain(44100, 2, 1000).process(samples, 4, samples.size - 4)
+        newChain(44100, 2, 1000).process(bytes)
+
+        assertEquals(8, bytes.position())
+        val result = bytes.duplicate().order(ByteOrder.LITTLE_ENDIAN)
+        result.position(0)
+        for (i in samples.indices) {
+            assertEquals(samples[i], result.short)
+        }
+    }
+
+    @Test
+    fun test_processedInPartsSameAsAtOnce() {
+        val samples = sine(440.0, 48000, 9600, 20000.0, 2)
+        val parts = samples.copyOf()
+        newChain(48000, 2, 9600).process(samples, 0, samples.size)
+        val dspChain = newChain(48000, 2, 9600)
+        var offset = 0
+        for (size in intArrayOf(2, 640, 3842, 7680, 7036)) {
+            dspChain.process(parts, offset, size)
+            offset += size
+        }
+
+        assertEquals(samples.size, offset)
+        for (i in samples.indices) {
+            assertEquals(samples[i], parts[i])
+        }
+    }
+
+    @Test
+    fun test_emptyChainLeavesAudio() {
+        val samples = sine(440.0, 48000, 480, 20000.0, 1)
+        val copy = samples.copyOf()
+        val dspChain = chain(48000, 1)
+        dspChain.process(samples, 0, samples.size)
+
+        assertTrue(dspChain.isEmpty())
+        assertTrue(samples.contentEquals(copy))
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun test_bigEndianBufferRejected() {
+        chain(48000, 1, Gain(6f)).process(ByteBuffer.allocate(16))
+    }
+
+    private fun newChain(sampleRate: Int, channels: Int, maxFrames: Int): DspChain {
+        val dspChain = DspChain(HighPassFilter(80f), NoiseGate(-50f, 20f), Gain(6f),
+                LookAheadLimiter(-1f, 5f, 100f))
+        dspChain.prepare(sampleRate, channels, maxFrames)
+        return dspChain
+    }
+
+    private fun chain(sampleRate: Int, channels: Int, vararg stages: DspStage): DspChain {
+        val dspChain = DspChain(*stages)
+        dspChain.prepare(sampleRate, channels, 1920)
+        return dspChain
+    }
+
+    private fun sine(freq: Double, sampleRate: Int, frames: Int, amplitude: Double, channels: Int): ShortArray {
+        val samples = ShortArray(frames * channels)
+        for (i in 0 until frames) {
+            val value = (amplitude * sin(2 * PI * freq * i / sampleRate)).roundToInt().toShort()
+            for (ch in 0 until channels) {
+                samples[i * channels + ch] = value
+            }
+        }
+        return samples
+    }
+
+    private fun peak(samples: ShortArray, from: Int, to: Int = samples.size): Int {
+        var peak = 0
+        for (i in from until to) {
+            peak = maxOf(peak, abs(samples[i].toInt()))
+        }
+        return peak
+    }
+
+    private fun rmsDbfs(samples: ShortArray, from: Int): Float {
+        var sum = 0.0
+        for (i in from until samples.size) {
+            sum += samples[i].toDouble() * samples[i]
+        }
+        return (20 * log10(sqrt(sum / (samples.size - from)) / 32768)).toFloat()
+    }
+}
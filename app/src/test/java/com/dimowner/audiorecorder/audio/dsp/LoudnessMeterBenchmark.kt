@@ -0,0 +1,68 @@
+package com.dimowner.audiorecorder.audio.dsp
+
+import com.dimowner.audiorecorder.Benchmark
+import org.junit.Before
+import org.junit.Test
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import kotlin.random.Random
+
+/**
+ * Cost of [LoudnessMeter] on synthetic 48 kHz stereo buffers processed in AudioRecord sized blocks,
+ * compared with [PcmLevelMeter] which runs on the same blocks.
+ */
+class LoudnessMeterBenchmark {
+
+    @Before
+    fun setUp() {
+        Benchmark.assumeEnabled()
+    }
+
+    @Test
+    fun benchmark_1min() {
+        run(60)
+    }
+
+    @Test
+    fun benchmark_10min() {
+        run(600)
+    }
+
+    private fun run(seconds: Int) {
+        val bytes = ByteArray(SAMPLE_RATE * CHANNELS * 2 * seconds)
+        Random(42).nextBytes(bytes)
+        val direct = ByteBuffer.allocateDirect(bytes.size).order(ByteOrder.LITTLE_ENDIAN)
+        direct.put(bytes).clear()
+        val loudness = LoudnessMeter(SAMPLE_RATE, CHANNELS)
+        val level = PcmLevelMeter(CHANNELS)
+
+        val loudnessNanos = Benchmark.measure("LoudnessMeter ${seconds}s", 2, 5) {
+            loudness.reset()
+            var offset = 0
+            while (offset < bytes.size) {
+                direct.limit(offset + BLOCK_SIZE).position(offset)
+                loudness.process(direct)
+                offset += BLOCK_SIZE
+            }
+            Benchmark.sink += loudness.integratedLoudness.toLong()
+        }
+        val levelNanos = Benchmark.measure("PcmLevelMeter ${seconds}s", 2, 5) {
+            var offset = 0
+            while (offset < bytes.size) {
+                direct.limit(offset + BLOCK_SIZE).position(offset)
+                level.process(direct)
+                Benchmark.sink += level.getPeak()
+                offset += BLOCK_SIZE
+            }
+        }
+        Benchmark.printRealtimeFactor("LoudnessMeter", loudnessNanos, seconds.toDouble())
+        Benchmark.printRealtimeFactor("PcmLevelMeter", levelNanos, seconds.toDouble())
+    }
+
+    companion object {
+        private const val SAMPLE_RATE = 48000
+        private const val CHANNELS = 2
+        /** AudioRecord min buffer size for 48 kHz stereo on a typical device. 20 ms of audio. */
+        private const val BLOCK_SIZE = 3840
+    }
+}
@@ -0,0 +1,112 @@
+package com.dimowner.audiorecorder.audio.dsp
+
+import junit.framework.TestCase.assertEquals
+import junit.framework.TestCase.assertTrue
+import org.junit.Test
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import kotlin.math.PI
+import kotlin.math.pow
+import kotlin.math.roundToLong
+import kotlin.math.sin
+
+class LoudnessMeterTest {
+
+    @Test
+    fun test_stereoSineLoudnessEqualsItsLevel() {
+        //EBU Tech 3341 test: 1 kHz stereo sine at -23 dBFS measures -23 LUFS.
+        val meter = LoudnessMeter(48000, 2)
+        process(meter, sine(48000, 2, 1000.0, -23.0, 20.0))
+
+        assertEquals(-23f, meter.integratedLoudness, 0.1f)
+        assertEquals(-23f, meter.momentaryLoudness, 0.1f)
+        assertEquals(-23f, meter.shortTermLoudness, 0.1f)
+        assertEquals(-23f, meter.maxTruePeak, 0.1f)
+        assertEquals(0L, meter.clipCount)
+    }
+
+    @Test
+    fun test_monoIsOneChannel() {
+        val meter = LoudnessMeter(44100, 1)
+        process(meter, sine(44100, 1, 1000.0, -23.0, 10.0))
+
+        assertEquals(-26f, meter.integratedLoudness, 0.1f)
+    }
+
+    @Test
+    fun test_quietPartsAreGated() {
+        val meter = LoudnessMeter(48000, 2)
+        //Below the relative gate.
+        process(meter, sine(48000, 2, 1000.0, -36.0, 10.0))
+        process(meter, sine(48000, 2, 1000.0, -23.0, 60.0))
+        //Below the absolute gate.
+        process(meter, sine(48000, 2, 1000.0, -80.0, 10.0))
+
+        assertEquals(-23f, meter.integratedLoudness, 0.1f)
+        assertEquals(LoudnessMeter.MIN_LUFS, meter.momentaryLoudness)
+    }
+
+    @Test
+    fun test_truePeakBetweenSamples() {
+        //Samples of a quarter sample rate sine at 45 degrees are 3 dB below its peak.
+        val meter = LoudnessMeter(48000, 1)
+        process(meter, sine(48000, 1, 12000.0, -6.02, 1.0, PI / 4))
+
+        assertEquals(-6.02f, meter.maxTruePeak, 0.2f)
+        assertTrue(meter.maxTruePeak > PcmLevelMeter.toDbfs(0.5f * 0.7071f * 32767) + 2.5f)
+    }
+
+    @Test
+    fun test_clippedSamplesCounted() {
+        val meter = LoudnessMeter(48000, 2)
+        val block = ByteBuffer.allocate(4 * 100).order(ByteOrder.LITTLE_ENDIAN)
+        for (i in 0 until 100) {
+            block.putShort(if (i < 10) Short.MAX_VALUE else 100)
+            block.putShort(if (i < 5) Short.MIN_VALUE else -100)
+        }
+        block.flip()
+        meter.process(block)
+
+        assertEquals(15L, meter.clipCount)
+        assertEquals(0, block.position())
+        assertTrue(meter.maxTruePeak >= 0f)
+    }
+
+    @Test
+    fun test_silenceAndReset() {
+        val meter = LoudnessMeter(48000, 2)
+        process(meter, sine(48000, 2, 1000.0, -10.0, 1.0))
+        meter.reset()
+        process(meter, ByteBuffer.allocate(48000 * 4).order(ByteOrder.LITTLE_ENDIAN))
+
+        assertEquals(LoudnessMeter.MIN_LUFS, meter.integratedLoudness)
+        assertEquals(LoudnessMeter.MIN_LUFS, meter.shortTermLoudness)
+        assertEquals(PcmLevelMeter.MIN_DBFS, meter.maxTruePeak)
+    }
+
+    /** Process in 20 ms blocks like AudioRecord delivers them. */
+    private fun process(meter: LoudnessMeter, pcm: ByteBuffer) {
+        val blockSize = 960 * meter.channelCount * 2
+        var offset = 0
+        while (offset < pcm.limit()) {
+            pcm.limit(minOf(pcm.capacity(), offset + blockSize)).position(offset)
+            meter.process(pcm)
+            offset += blockSize
+        }
+    }
+
+    private fun sine(rate: Int, channels: Int, freq: Double, dbfs: Double, seconds: Double,
+                     phase: Double = 0.0): ByteBuffer {
+        val frames = (rate * seconds).toInt()
+        val amplitude = 10.0.pow(dbfs / 20) * 32767
+        val buffer = ByteBuffer.allocate(frames * channels * 2).order(ByteOrder.LITTLE_ENDIAN)
+        for (i in 0 until frames) {
+            val sample = (amplitude * sin(2 * PI * freq * i / rate + phase)).roundToLong().toInt().toShort()
+            for (ch in 0 until channels) {
+                buffer.putShort(sample)
+            }
+        }
+        buffer.flip()
+        return buffer
+    }
+}
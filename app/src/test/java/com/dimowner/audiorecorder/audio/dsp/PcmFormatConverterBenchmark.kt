@@ -0,0 +1,67 @@
+package com.dimowner.audiorecorder.audio.dsp
+
+import com.dimowner.audiorecorder.Benchmark
+import org.junit.Before
+import org.junit.Test
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import kotlin.random.Random
+
+/**
+ * Cost of converting audio captured at the native 48 kHz stereo format to the recording formats
+ * with [PcmFormatConverter], in AudioRecord sized direct buffers.
+ */
+class PcmFormatConverterBenchmark {
+
+    @Before
+    fun setUp() {
+        Benchmark.assumeEnabled()
+    }
+
+    @Test
+    fun benchmark_1min() {
+        run(60)
+    }
+
+    @Test
+    fun benchmark_10min() {
+        run(600)
+    }
+
+    private fun run(seconds: Int) {
+        val bytes = ByteArray(SAMPLE_RATE * CHANNELS * 2 * seconds)
+        Random(42).nextBytes(bytes)
+        val direct = ByteBuffer.allocateDirect(bytes.size).order(ByteOrder.LITTLE_ENDIAN)
+        direct.put(bytes).clear()
+
+        val results = LinkedHashMap<String, Long>()
+        for ((outputRate, outputChannels) in listOf(48000 to 1, 44100 to 2, 44100 to 1, 32000 to 1,
+                22050 to 1, 16000 to 1, 8000 to 1)) {
+            val name = "48000 Hz stereo -> $outputRate Hz ${if (outputChannels == 1) "mono" else "stereo"}"
+            results[name] = measure("$name ${seconds}s", direct, outputRate, outputChannels)
+        }
+        for ((name, nanos) in results) {
+            Benchmark.printRealtimeFactor(name, nanos, seconds.toDouble())
+        }
+    }
+
+    private fun measure(name: String, direct: ByteBuffer, outputRate: Int, outputChannels: Int): Long {
+        return Benchmark.measure(name, 2, 5) {
+            val converter = PcmFormatConverter(SAMPLE_RATE, CHANNELS, outputRate, outputChannels, BLOCK_SIZE)
+            val output = ByteBuffer.allocateDirect(converter.maxOutputSize(BLOCK_SIZE)).order(ByteOrder.LITTLE_ENDIAN)
+            var offset = 0
+            while (offset < direct.capacity()) {
+                direct.limit(offset + BLOCK_SIZE).position(offset)
+                Benchmark.sink += converter.convert(direct, output)
+                offset += BLOCK_SIZE
+            }
+        }
+    }
+
+    companion object {
+        private const val SAMPLE_RATE = 48000
+        private const val CHANNELS = 2
+        /** AudioRecord min buffer size for 48 kHz stereo on a typical device. 20 ms of audio. */
+        private const val BLOCK_SIZE = 3840
+    }
+}
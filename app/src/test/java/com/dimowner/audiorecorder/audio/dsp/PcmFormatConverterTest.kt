@@ -0,0 +1,119 @@
+package com.dimowner.audiorecorder.audio.dsp
+
+import junit.framework.TestCase.assertEquals
+import junit.framework.TestCase.assertFalse
+import junit.framework.TestCase.assertTrue
+import org.junit.Test
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import kotlin.math.PI
+import kotlin.math.log10
+import kotlin.math.roundToInt
+import kotlin.math.sin
+import kotlin.math.sqrt
+
+class PcmFormatConverterTest {
+
+    @Test
+    fun test_stereoDownmixedToMono() {
+        val converter = PcmFormatConverter(48000, 2, 48000, 1, 1024)
+        val input = buffer(shortArrayOf(1000, 3000, -1000, 1000, 32767, 32767, -32768, -32768, 1, 2))
+        val output = ByteBuffer.allocateDirect(converter.maxOutputSize(input.remaining())).order(ByteOrder.LITTLE_ENDIAN)
+
+        assertEquals(10, converter.convert(input, output))
+        assertEquals(0, input.position())
+        assertEquals(0, output.position())
+        assertEquals(2000, output.getShort(0).toInt())
+        assertEquals(0, output.getShort(2).toInt())
+        assertEquals(32767, output.getShort(4).toInt())
+        assertEquals(-32768, output.getShort(6).toInt())
+        assertEquals(2, output.getShort(8).toInt())
+        assertFalse(converter.isPassThrough())
+    }
+
+    @Test
+    fun test_monoDuplicatedToStereo() {
+        val converter = PcmFormatConverter(16000, 1, 16000, 2, 1024)
+        val input = buffer(shortArrayOf(100, -200, 32767))
+        val output = ByteBuffer.allocateDirect(converter.maxOutputSize(input.remaining())).order(ByteOrder.LITTLE_ENDIAN)
+
+        assertEquals(12, converter.convert(input, output))
+        val samples = ShortArray(6)
+        output.asShortBuffer().get(samples)
+        assertTrue(samples.contentEquals(shortArrayOf(100, 100, -200, -200, 32767, 32767)))
+    }
+
+    @Test
+    fun test_sameFormatIsCopied() {
+        val converter = PcmFormatConverter(44100, 2, 44100, 2, 1024)
+        val samples = shortArrayOf(1, -1, 32767, -32768, 12345, -12345)
+        val output = ByteBuffer.allocateDirect(12).order(ByteOrder.LITTLE_ENDIAN)
+        converter.convert(buffer(samples), output)
+
+        val result = ShortArray(6)
+        output.asShortBuffer().get(result)
+        assertTrue(converter.isPassThrough())
+        assertTrue(result.contentEquals(samples))
+    }
+
+    @Test
+    fun test_native48kStereoTo16kMono() {
+        val converter = PcmFormatConverter(48000, 2, 16000, 1, BLOCK_SIZE)
+        val block = ByteBuffer.allocateDirect(BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+        val output = ByteBuffer.allocateDirect(converter.maxOutputSize(BLOCK_SIZE)).order(ByteOrder.LITTLE_ENDIAN)
+        val result = ArrayList<Short>()
+        var frame = 0
+        while (frame < 48000 * 2) {
+            block.clear()
+            for (i in 0 until BLOCK_SIZE / 4) {
+                //Same tone in both channels, so downmix keeps its level.
+                val value = (16384 * sin(2 * PI * 1000 * (frame + i) / 48000)).roundToInt().toShort()
+                block.putShort(value)
+                block.putShort(value)
+            }
+            block.flip()
+            val size = converter.convert(block, output)
+            assertTrue(size <= converter.maxOutputSize(BLOCK_SIZE))
+            for (i in 0 until size step 2) {
+                result.add(output.getShort(i))
+            }
+            frame += BLOCK_SIZE / 4
+        }
+
+        //Distortion and noise are as low as the 16 bit quantization allows.
+        var signal = 0.0
+        var error = 0.0
+        for (i in 16000 until result.size - 100) {
+            val expected = 16384 * sin(2 * PI * 1000 * i / 16000)
+            signal += expected * expected
+            error += (result[i] - expected) * (result[i] - expected)
+        }
+        assertTrue(10 * log10(error / signal) < -85)
+        assertTrue(result.size > 32000 - 40)
+    }
+
+    @Test
+    fun test_sizeBounds() {
+        val converter = PcmFormatConverter(48000, 2, 44100, 2, BLOCK_SIZE)
+
+        assertEquals(BLOCK_SIZE, converter.maxInputSize(converter.maxOutputSize(BLOCK_SIZE)))
+        assertTrue(converter.maxOutputSize(converter.maxInputSize(1000)) <= 1000)
+        assertEquals(0, converter.maxInputSize(0))
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun test_moreThanTwoChannelsRejected() {
+        PcmFormatConverter(48000, 4, 48000, 2, 1024)
+    }
+
+    private fun buffer(samples: ShortArray): ByteBuffer {
+        val buffer = ByteBuffer.allocateDirect(samples.size * 2).order(ByteOrder.LITTLE_ENDIAN)
+        buffer.asShortBuffer().put(samples)
+        return buffer
+    }
+
+    companion object {
+        /** AudioRecord min buffer size for 48 kHz stereo on a typical device. 20 ms of audio. */
+        private const val BLOCK_SIZE = 3840
+    }
+}
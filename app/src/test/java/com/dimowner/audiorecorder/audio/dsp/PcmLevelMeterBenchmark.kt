@@ -0,0 +1,91 @@
+package com.dimowner.audiorecorder.audio.dsp
+
+import com.dimowner.audiorecorder.Benchmark
+import org.junit.Before
+import org.junit.Test
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import kotlin.random.Random
+
+/**
+ * Compares legacy WavRecorder metering loop with [PcmLevelMeter]
+ * on synthetic 48 kHz stereo buffers processed in AudioRecord sized blocks.
+ */
+class PcmLevelMeterBenchmark {
+
+    @Before
+    fun setUp() {
+        Benchmark.assumeEnabled()
+    }
+
+    @Test
+    fun benchmark_1min() {
+        run(60)
+    }
+
+    @Test
+    fun benchmark_10min() {
+        run(600)
+    }
+
+    private fun run(seconds: Int) {
+        val bytes = ByteArray(SAMPLE_RATE * CHANNELS * 2 * seconds)
+        Random(42).nextBytes(bytes)
+        val direct = ByteBuffer.allocateDirect(bytes.size).order(ByteOrder.LITTLE_ENDIAN)
+        direct.put(bytes).clear()
+        val meter = PcmLevelMeter(CHANNELS)
+
+        val legacy = Benchmark.measure("legacy loop ${seconds}s", 2, 5) {
+            Benchmark.sink += legacyLoop(bytes)
+        }
+        val kernelArray = Benchmark.measure("PcmLevelMeter byte[] ${seconds}s", 2, 5) {
+            var offset = 0
+            while (offset < bytes.size) {
+                meter.process(bytes, offset, BLOCK_SIZE)
+                Benchmark.sink += meter.getPeak()
+                offset += BLOCK_SIZE
+            }
+        }
+        val kernelBuffer = Benchmark.measure("PcmLevelMeter direct ByteBuffer ${seconds}s", 2, 5) {
+            var offset = 0
+            while (offset < bytes.size) {
+                direct.limit(offset + BLOCK_SIZE).position(offset)
+                meter.process(direct)
+                Benchmark.sink += meter.getPeak()
+                offset += BLOCK_SIZE
+            }
+        }
+        Benchmark.printRealtimeFactor("legacy loop", legacy, seconds.toDouble())
+        Benchmark.printRealtimeFactor("PcmLevelMeter byte[]", kernelArray, seconds.toDouble())
+        Benchmark.printRealtimeFactor("PcmLevelMeter direct ByteBuffer", kernelBuffer, seconds.toDouble())
+    }
+
+    /** Copy of metering previously done in WavRecorder.writeAudioDataToFile(). */
+    private fun legacyLoop(data: ByteArray): Long {
+        val shortBuffer = ByteBuffer.allocate(2)
+        shortBuffer.order(ByteOrder.LITTLE_ENDIAN)
+        var result = 0L
+        var offset = 0
+        while (offset < data.size) {
+            var sum = 0L
+            var i = offset
+            while (i < offset + BLOCK_SIZE) {
+                shortBuffer.put(data[i])
+                shortBuffer.put(data[i + 1])
+                sum += Math.abs(shortBuffer.getShort(0).toInt())
+                shortBuffer.clear()
+                i += 2
+            }
+            result += sum / (BLOCK_SIZE / 16)
+            offset += BLOCK_SIZE
+        }
+        return result
+    }
+
+    companion object {
+        private const val SAMPLE_RATE = 48000
+        private const val CHANNELS = 2
+        /** AudioRecord min buffer size for 48 kHz stereo on a typical device. 20 ms of audio. */
+        private const val BLOCK_SIZE = 3840
+    }
+}
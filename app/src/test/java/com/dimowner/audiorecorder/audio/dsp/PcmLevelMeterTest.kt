@@ -0,0 +1,82 @@
+package com.dimowner.audiorecorder.audio.dsp
+
+import junit.framework.TestCase.assertEquals
+import org.junit.Test
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import kotlin.math.PI
+import kotlin.math.roundToInt
+import kotlin.math.sin
+
+class PcmLevelMeterTest {
+
+    @Test
+    fun test_fullScaleSine() {
+        val meter = PcmLevelMeter(1)
+        meter.process(sine(1000.0, 48000, 4800, 32767.0, 1), 0, 4800)
+
+        assertEquals(32767, meter.getPeak(0))
+        assertEquals(32767 / Math.sqrt(2.0), meter.getRms(0).toDouble(), 20.0)
+        assertEquals(-3.01f, meter.getRmsDbfs(0), 0.05f)
+        assertEquals(0f, meter.getPeakDbfs(0), 0.01f)
+    }
+
+    @Test
+    fun test_stereoChannelsMeasuredSeparately() {
+        val samples = ShortArray(2000)
+        for (i in 0 until 1000) {
+            samples[i * 2] = (if (i % 2 == 0) 1000 else -1000).toShort()
+            samples[i * 2 + 1] = 0
+        }
+        val meter = PcmLevelMeter(2)
+        meter.process(samples, 0, samples.size)
+
+        assertEquals(1000, meter.getPeak(0))
+        assertEquals(1000f, meter.getRms(0), 0.001f)
+        assertEquals(0, meter.getPeak(1))
+        assertEquals(PcmLevelMeter.MIN_DBFS, meter.getRmsDbfs(1))
+        assertEquals(1000, meter.getPeak())
+    }
+
+    @Test
+    fun test_byteBufferAndByteArrayGiveSameResult() {
+        val samples = sine(440.0, 44100, 8820, 12000.0, 2)
+        val bytes = ByteBuffer.allocateDirect(samples.size * 2).order(ByteOrder.LITTLE_ENDIAN)
+        bytes.asShortBuffer().put(samples)
+        val array = ByteArray(samples.size * 2)
+        bytes.duplicate().get(array)
+
+        val bufferMeter = PcmLevelMeter(2)
+        bufferMeter.process(bytes)
+        val arrayMeter = PcmLevelMeter(2)
+        arrayMeter.process(array, 0, array.size)
+
+        assertEquals(0, bytes.position())
+        for (ch in 0..1) {
+            assertEquals(arrayMeter.getPeak(ch), bufferMeter.getPeak(ch))
+            assertEquals(arrayMeter.getRms(ch), bufferMeter.getRms(ch))
+        }
+    }
+
+    @Test
+    fun test_negativeFullScaleSample() {
+        val meter = PcmLevelMeter(1)
+        meter.process(shortArrayOf(Short.MIN_VALUE, 0), 0, 2)
+
+        assertEquals(32768, meter.getPeak(0))
+        assertEquals(0f, meter.getPeakDbfs(0))
+    }
+
+    companion object {
+        fun sine(freq: Double, sampleRate: Int, frames: Int, amplitude: Double, channels: Int): ShortArray {
+            val samples = ShortArray(frames * channels)
+            for (i in 0 until frames) {
+                val value = (amplitude * sin(2 * PI * freq * i / sampleRate)).roundToInt().toShort()
+                for (ch in 0 until channels) {
+                    samples[i * channels + ch] = value
+                }
+            }
+            return samples
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.dimowner.audiorecorder.audio.dsp
+
+import junit.framework.TestCase.assertEquals
+import junit.framework.TestCase.assertTrue
+import org.junit.Test
+import kotlin.math.PI
+import kotlin.math.abs
+import kotlin.math.cos
+import kotlin.math.hypot
+import kotlin.math.log10
+import kotlin.math.sin
+import kotlin.math.sqrt
+import kotlin.random.Random
+
+class PolyphaseResamplerTest {
+
+    @Test
+    fun test_resampledSineHasLowDistortion() {
+        for ((inputRate, outputRate) in listOf(48000 to 44100, 44100 to 48000, 48000 to 16000,
+                16000 to 48000, 48000 to 8000, 48000 to 22050, 8000 to 44100)) {
+            val output = resample(inputRate, outputRate, 2, 1000.0, inputRate * 2)
+            val fit = fitSine(output, outputRate / 2, output.size - 200, 1000.0, outputRate)
+
+            val thdN = 20 * log10(fit.residualRms / (fit.amplitude / sqrt(2.0)))
+            assertTrue("THD+N $thdN dB at $inputRate -> $outputRate", thdN < -90)
+            assertEquals(AMPLITUDE, fit.amplitude, 0.0001)
+            //First output frame is aligned with the first input frame, so there is no phase shift.
+            assertTrue(abs(fit.cosine) < 0.0001)
+        }
+    }
+
+    @Test
+    fun test_passbandIsFlat() {
+        val output = resample(48000, 44100, 1, 15000.0, 96000)
+        val fit = fitSine(output, 22050, output.size - 200, 15000.0, 44100)
+
+        assertEquals(AMPLITUDE, fit.amplitude, 0.001)
+    }
+
+    @Test
+    fun test_downsamplingDoesNotAlias() {
+        //Tones above the output Nyquist frequency would fold back to 21.1 kHz and 6 kHz.
+        val above44100 = resample(48000, 44100, 1, 23000.0, 96000)
+        val above16000 = resample(48000, 16000, 1, 10000.0, 96000)
+
+        assertTrue(levelDb(above44100, 22050, above44100.size - 200) < -80)
+        assertTrue(levelDb(above16000, 8000, above16000.size - 200) < -80)
+    }
+
+    @Test
+    fun test_outputFrameCountFollowsRatio() {
+        for ((inputRate, outputRate) in listOf(48000 to 44100, 44100 to 48000, 48000 to 16000, 16000 to 48000)) {
+            val resampler = PolyphaseResampler(inputRate, outputRate, 1, 960)
+            val output = resample(inputRate, outputRate, 1, 1000.0, inputRate)
+            //Last input frames wait for the right half of the filter.
+            val latency = resampler.getLatencyFrames().toLong() * outputRate / inputRate
+
+            assertTrue(abs(output.size + latency - outputRate) <= 1)
+        }
+    }
+
+    @Test
+    fun test_blockSizesDoNotChangeOutput() {
+        val random = Random(7)
+        val input = FloatArray(48000 * 2) { random.nextFloat() - 0.5f }
+        val whole = PolyphaseResampler(48000, 44100, 2, 48000)
+        val expected = FloatArray(whole.maxOutputFrames(48000) * 2)
+        val expectedFrames = whole.process(input, 48000, expected)
+
+        val parts = PolyphaseResampler(48000, 44100, 2, 2000)
+        val block = FloatArray(2000 * 2)
+        val output = FloatArray(parts.maxOutputFrames(2000) * 2)
+        var inputFrame = 0
+        var outputFrame = 0
+        while (inputFrame < 48000) {
+            val frames = minOf(random.nextInt(1, 2001), 48000 - inputFrame)
+            System.arraycopy(input, inputFrame * 2, block, 0, frames * 2)
+            val produced = parts.process(block, frames, output)
+            assertTrue(produced <= parts.maxOutputFrames(frames))
+            for (i in 0 until produced * 2) {
+                assertEquals(expected[outputFrame * 2 + i], output[i])
+            }
+            inputFrame += frames
+            outputFrame += produced
+        }
+        assertEquals(expectedFrames, outputFrame)
+    }
+
+    @Test
+    fun test_maxInputFramesFitOutput() {
+        val resampler = PolyphaseResampler(44100, 48000, 1, 4096)
+        for (outputFrames in 1..5000) {
+            val inputFrames = resampler.maxInputFrames(outputFrames)
+            assertTrue(inputFrames <= 4096)
+            assertTrue(resampler.maxOutputFrames(inputFrames) <= outputFrames)
+        }
+    }
+
+    @Test
+    fun test_resetStartsNewStream() {
+        val resampler = PolyphaseResampler(48000, 16000, 1, 960)
+        val first = resample(resampler, 48000, 1, 1000.0, 4800)
+        resampler.reset()
+        val second = resample(resampler, 48000, 1, 1000.0, 4800)
+
+        assertTrue(first.contentEquals(second))
+    }
+
+    private class SineFit(val amplitude: Double, val cosine: Double, val residualRms: Double)
+
+    private fun resample(inputRate: Int, outputRate: Int, channels: Int, freq: Double, frames: Int): FloatArray {
+        return resample(PolyphaseResampler(inputRate, outputRate, channels, BLOCK_FRAMES), inputRate, channels,
+                freq, frames)
+    }
+
+    /** Resample a sine in blocks and return the first channel of output. */
+    private fun resample(resampler: PolyphaseResampler, inputRate: Int, channels: Int, freq: Double,
+                         frames: Int): FloatArray {
+        val block = FloatArray(BLOCK_FRAMES * channels)
+        val output = FloatArray(resampler.maxOutputFrames(BLOCK_FRAMES) * channels)
+        val result = ArrayList<Float>()
+        var start = 0
+        while (start < frames) {
+            val count = minOf(BLOCK_FRAMES, frames - start)
+            for (i in 0 until count) {
+                val value = (AMPLITUDE * sin(2 * PI * freq * (start + i) / inputRate)).toFloat()
+                for (ch in 0 until channels) {
+                    block[i * channels + ch] = value
+                }
+            }
+            val produced = resampler.process(block, count, output)
+            for (i in 0 until produced) {
+                result.add(output[i * channels])
+            }
+            start += count
+        }
+        return result.toFloatArray()
+    }
+
+    /** Least squares fit of a sine and a cosine of the frequency. */
+    private fun fitSine(samples: FloatArray, from: Int, to: Int, freq: Double, sampleRate: Int): SineFit {
+        var ss = 0.0
+        var sc = 0.0
+        var cc = 0.0
+        var ys = 0.0
+        var yc = 0.0
+        for (i in from until to) {
+            val s = sin(2 * PI * freq * i / sampleRate)
+            val c = cos(2 * PI * freq * i / sampleRate)
+            ss += s * s
+            sc += s * c
+            cc += c * c
+            ys += samples[i] * s
+            yc += samples[i] * c
+        }
+        val det = ss * cc - sc * sc
+        val a = (ys * cc - yc * sc) / det
+        val b = (yc * ss - ys * sc) / det
+        var error = 0.0
+        for (i in from until to) {
+            val d = samples[i] - a * sin(2 * PI * freq * i / sampleRate) - b * cos(2 * PI * freq * i / sampleRate)
+            error += d * d
+        }
+        return SineFit(hypot(a, b), b, sqrt(error / (to - from)))
+    }
+
+    /** RMS level relative to the input sine. */
+    private fun levelDb(samples: FloatArray, from: Int, to: Int): Double {
+        var sum = 0.0
+        for (i in from until to) {
+            sum += samples[i].toDouble() * samples[i]
+        }
+        return 20 * log10(sqrt(sum / (to - from)) / (AMPLITUDE / sqrt(2.0)))
+    }
+
+    companion object {
+        private const val AMPLITUDE = 0.5
+        /** 20 mills of 48 kHz audio. */
+        private const val BLOCK_FRAMES = 960
+    }
+}
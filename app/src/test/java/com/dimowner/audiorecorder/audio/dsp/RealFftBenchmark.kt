@@ -0,0 +1,79 @@
+package com.dimowner.audiorecorder.audio.dsp
+
+import com.dimowner.audiorecorder.Benchmark
+import org.junit.Before
+import org.junit.Test
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import kotlin.random.Random
+
+/**
+ * Cost of [RealFft] power spectrum of 1024 and 2048 points and of the live spectrogram
+ * computed by [SpectrumAnalyzer] from synthetic 48 kHz stereo audio.
+ */
+class RealFftBenchmark {
+
+    @Before
+    fun setUp() {
+        Benchmark.assumeEnabled()
+    }
+
+    @Test
+    fun benchmark_transform1024() {
+        transform(1024)
+    }
+
+    @Test
+    fun benchmark_transform2048() {
+        transform(2048)
+    }
+
+    @Test
+    fun benchmark_spectrogram1min() {
+        val seconds = 60
+        val bytes = ByteArray(SAMPLE_RATE * CHANNELS * 2 * seconds)
+        Random(42).nextBytes(bytes)
+        val buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN)
+        for (size in intArrayOf(1024, 2048)) {
+            val queue = SpectrogramQueue(64, size / 2 + 1)
+            queue.setConsumerAttached(true)
+            val column = ByteArray(queue.binCount)
+            val nanos = Benchmark.measure("SpectrumAnalyzer $size ${seconds}s", 2, 5) {
+                val analyzer = SpectrumAnalyzer(SAMPLE_RATE, CHANNELS, 50, queue)
+                var offset = 0
+                while (offset < bytes.size) {
+                    buffer.limit(offset + BLOCK_SIZE).position(offset)
+                    analyzer.write(buffer)
+                    while (analyzer.analyzeNext()) {
+                        queue.poll(column)
+                    }
+                    offset += BLOCK_SIZE
+                }
+                Benchmark.sink += column[10]
+            }
+            Benchmark.printRealtimeFactor("SpectrumAnalyzer $size", nanos, seconds.toDouble())
+        }
+    }
+
+    private fun transform(size: Int) {
+        val count = 10000
+        val fft = RealFft(size)
+        val random = Random(42)
+        val input = FloatArray(size) { random.nextFloat() * 2 - 1 }
+        val power = FloatArray(fft.binCount)
+        val nanos = Benchmark.measure("RealFft $size x $count", 5, 10) {
+            for (i in 0 until count) {
+                fft.powerSpectrum(input, power)
+            }
+            Benchmark.sink += power[1].toLong()
+        }
+        println(String.format("%-48s %10.2f us", "RealFft $size one transform", nanos / 1e3 / count))
+    }
+
+    companion object {
+        private const val SAMPLE_RATE = 48000
+        private const val CHANNELS = 2
+        /** AudioRecord min buffer size for 48 kHz stereo on a typical device. 20 ms of audio. */
+        private const val BLOCK_SIZE = 3840
+    }
+}
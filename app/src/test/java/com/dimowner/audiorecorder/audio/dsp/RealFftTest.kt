@@ -0,0 +1,71 @@
+package com.dimowner.audiorecorder.audio.dsp
+
+import junit.framework.TestCase.assertEquals
+import junit.framework.TestCase.assertTrue
+import org.junit.Test
+import java.util.Random
+import kotlin.math.PI
+import kotlin.math.cos
+import kotlin.math.sin
+import kotlin.math.sqrt
+
+class RealFftTest {
+
+    @Test
+    fun test_matchesDirectDft() {
+        for (size in intArrayOf(4, 8, 64, 1024)) {
+            val random = Random(size.toLong())
+            val input = FloatArray(size) { random.nextFloat() * 2 - 1 }
+            val fft = RealFft(size)
+            val re = FloatArray(fft.binCount)
+            val im = FloatArray(fft.binCount)
+            fft.forward(input, re, im)
+            for (k in 0 until fft.binCount) {
+                var expectedRe = 0.0
+                var expectedIm = 0.0
+                for (n in 0 until size) {
+                    val angle = -2 * PI * k * n / size
+                    expectedRe += input[n] * cos(angle)
+                    expectedIm += input[n] * sin(angle)
+                }
+                assertEquals("size $size bin $k", expectedRe, re[k].toDouble(), 1e-4 * size)
+                assertEquals("size $size bin $k", expectedIm, im[k].toDouble(), 1e-4 * size)
+            }
+        }
+    }
+
+    @Test
+    fun test_sineAtBinFrequency() {
+        val size = 1024
+        val fft = RealFft(size)
+        val power = FloatArray(fft.binCount)
+        for (bin in intArrayOf(1, 100, 511)) {
+            val input = FloatArray(size) { (0.5 * cos(2 * PI * bin * it / size)).toFloat() }
+            fft.powerSpectrum(input, power)
+            assertEquals(bin, power.indices.maxByOrNull { power[it] })
+            //Amplitude of a real sine is split between positive and negative frequency.
+            assertEquals(0.5 * size / 2, sqrt(power[bin].toDouble()), 1e-3 * size)
+            assertTrue(power[bin + 2] < 1e-3f * power[bin])
+        }
+    }
+
+    @Test
+    fun test_dcAndNyquist() {
+        val size = 16
+        val fft = RealFft(size)
+        val re = FloatArray(fft.binCount)
+        val im = FloatArray(fft.binCount)
+        fft.forward(FloatArray(size) { 0.25f }, re, im)
+        assertEquals(4f, re[0], 1e-5f)
+        assertEquals(0f, re[size / 2], 1e-5f)
+        fft.forward(FloatArray(size) { if (it % 2 == 0) 1f else -1f }, re, im)
+        assertEquals(0f, re[0], 1e-5f)
+        assertEquals(16f, re[size / 2], 1e-5f)
+        assertEquals(0f, im[size / 2], 1e-5f)
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun test_sizeMustBePowerOfTwo() {
+        RealFft(1000)
+    }
+}
@@ -0,0 +1,124 @@
+package com.dimowner.audiorecorder.audio.dsp
+
+import junit.framework.TestCase.assertEquals
+import junit.framework.TestCase.assertFalse
+import junit.framework.TestCase.assertTrue
+import org.junit.Test
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import kotlin.math.PI
+import kotlin.math.pow
+import kotlin.math.sin
+
+class SpectrumAnalyzerTest {
+
+    @Test
+    fun test_sinePeakBinAndLevel() {
+        val queue = SpectrogramQueue(64, FFT_SIZE / 2 + 1)
+        queue.setConsumerAttached(true)
+        val analyzer = SpectrumAnalyzer(SAMPLE_RATE, 2, 50, queue)
+        assertEquals(882, analyzer.hop)
+        val block = tone(1000.0, -6f, 2)
+        analyzer.write(block)
+        //Position of the recorded block is not changed.
+        assertEquals(0, block.position())
+        var columns = 0
+        while (analyzer.analyzeNext()) {
+            columns++
+        }
+        //4410 frames, 1024 frames per column with hop of 882.
+        assertEquals((4410 - FFT_SIZE) / 882 + 1, columns)
+        assertEquals(columns, queue.size())
+
+        val column = ByteArray(queue.binCount)
+        assertTrue(queue.poll(column))
+        val peak = column.indices.maxByOrNull { column[it].toInt() and 0xff }!!
+        //1000 Hz is between bins 23 and 24 of 43 Hz.
+        assertTrue("peak $peak", peak == 23 || peak == 24)
+        assertEquals(SpectrogramQueue.toLevel(-6f).toDouble(), (column[peak].toInt() and 0xff).toDouble(), 12.0)
+        assertEquals(0, column[400].toInt() and 0xff)
+    }
+
+    @Test
+    fun test_twoSinesAreSeparated() {
+        val queue = SpectrogramQueue(64, FFT_SIZE / 2 + 1)
+        queue.setConsumerAttached(true)
+        val analyzer = SpectrumAnalyzer(SAMPLE_RATE, 1, 50, queue)
+        val low = tone(500.0, -12f, 1)
+        val high = tone(5000.0, -12f, 1)
+        val mixed = ByteBuffer.allocate(low.capacity()).order(ByteOrder.LITTLE_ENDIAN)
+        for (i in 0 until low.capacity() / 2) {
+            mixed.putShort((low.getShort(i * 2) + high.getShort(i * 2)).toShort())
+        }
+        mixed.flip()
+        analyzer.write(mixed)
+        assertTrue(analyzer.analyzeNext())
+        val column = ByteArray(queue.binCount)
+        assertTrue(queue.poll(column))
+        val lowBin = (500.0 * FFT_SIZE / SAMPLE_RATE).toInt()
+        val highBin = (5000.0 * FFT_SIZE / SAMPLE_RATE).toInt()
+        val middleBin = (lowBin + highBin) / 2
+        assertTrue(level(column, lowBin) > 200)
+        assertTrue(level(column, highBin) > 200)
+        assertEquals(0, level(column, middleBin))
+    }
+
+    @Test
+    fun test_noColumnsWithoutConsumer() {
+        val queue = SpectrogramQueue(64, FFT_SIZE / 2 + 1)
+        val analyzer = SpectrumAnalyzer(SAMPLE_RATE, 1, 50, queue)
+        analyzer.write(tone(1000.0, -6f, 1))
+        assertTrue(analyzer.analyzeNext())
+        assertEquals(0, queue.size())
+    }
+
+    @Test
+    fun test_fullRingDropsNewFrames() {
+        val queue = SpectrogramQueue(4, FFT_SIZE / 2 + 1)
+        queue.setConsumerAttached(true)
+        val analyzer = SpectrumAnalyzer(SAMPLE_RATE, 1, 50, queue)
+        //Ring holds no more than a second of audio while analysis does not run.
+        for (i in 0 until 10) {
+            analyzer.write(tone(1000.0, -6f, 1))
+        }
+        assertTrue(analyzer.droppedFrames > 0)
+        while (analyzer.analyzeNext()) {
+            //Full queue drops new columns.
+        }
+        assertEquals(4, queue.size())
+        assertTrue(queue.droppedCount > 0)
+        queue.clear()
+        assertFalse(queue.poll(ByteArray(queue.binCount)))
+    }
+
+    @Test
+    fun test_levelRange() {
+        assertEquals(0, SpectrogramQueue.toLevel(-120f))
+        assertEquals(SpectrogramQueue.MAX_LEVEL, SpectrogramQueue.toLevel(3f))
+        assertEquals(128, SpectrogramQueue.toLevel(-48f))
+    }
+
+    private fun level(column: ByteArray, bin: Int): Int {
+        return column[bin].toInt() and 0xff
+    }
+
+    /** 100 mills of sine wave in 16 bit PCM with the same samples in every channel. */
+    private fun tone(frequency: Double, dbfs: Float, channels: Int): ByteBuffer {
+        val frames = SAMPLE_RATE / 10
+        val amplitude = 32767 * 10.0.pow(dbfs / 20.0)
+        val buffer = ByteBuffer.allocate(frames * channels * 2).order(ByteOrder.LITTLE_ENDIAN)
+        for (i in 0 until frames) {
+            val sample = (amplitude * sin(2 * PI * frequency * i / SAMPLE_RATE)).toInt().toShort()
+            for (ch in 0 until channels) {
+                buffer.putShort(sample)
+            }
+        }
+        buffer.flip()
+        return buffer
+    }
+
+    companion object {
+        private const val SAMPLE_RATE = 44100
+        private const val FFT_SIZE = 1024
+    }
+}
@@ -0,0 +1,113 @@
+package com.dimowner.audiorecorder.audio.dsp
+
+import junit.framework.TestCase.assertEquals
+import junit.framework.TestCase.assertFalse
+import junit.framework.TestCase.assertTrue
+import org.junit.Test
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.util.Random
+import kotlin.math.PI
+import kotlin.math.abs
+import kotlin.math.pow
+import kotlin.math.sin
+
+class VoiceActivityDetectorTest {
+
+    private val random = Random(1)
+
+    @Test
+    fun test_noiseFloorIsNotActivity() {
+        val detector = newDetector()
+        for (i in 0 until 100) {
+            assertFalse(detector.process(noise(-60f)))
+        }
+        assertEquals(-60f, detector.lastDbfs, 1f)
+    }
+
+    @Test
+    fun test_loudBlockStartsActivityAndHangoverKeepsIt() {
+        val detector = newDetector()
+        assertFalse(detector.process(noise(-60f)))
+        assertTrue(detector.process(tone(300.0, -20f)))
+        //Hangover of 500 mills is 25 blocks of 20 mills.
+        for (i in 0 until 24) {
+            assertTrue("Block $i", detector.process(noise(-60f)))
+        }
+        assertFalse(detector.process(noise(-60f)))
+        assertFalse(detector.isActive)
+    }
+
+    @Test
+    fun test_hysteresisKeepsActivityBetweenThresholds() {
+        val detector = newDetector()
+        //Level between off and on thresholds does not start activity.
+        for (i in 0 until 10) {
+            assertFalse(detector.process(tone(300.0, -45f)))
+        }
+        assertTrue(detector.process(tone(300.0, -20f)))
+        //And does not end it for longer than the hangover.
+        for (i in 0 until 100) {
+            assertTrue(detector.process(tone(300.0, -45f)))
+        }
+        detector.reset()
+        assertFalse(detector.process(tone(300.0, -45f)))
+    }
+
+    @Test
+    fun test_quietFricativeStartsActivity() {
+        //Crosses zero in the range of unvoiced speech.
+        val fricative = newDetector()
+        assertTrue(fricative.process(tone(4000.0, -45f)))
+        assertTrue(abs(fricative.lastCrossingsHz - 4000) < 100)
+        //Broadband noise of the same level crosses zero too often.
+        val broadband = newDetector()
+        assertFalse(broadband.process(noise(-45f)))
+        assertTrue(broadband.lastCrossingsHz > 8000)
+    }
+
+    @Test
+    fun test_stereoBlockPositionNotChanged() {
+        val detector = VoiceActivityDetector(SAMPLE_RATE, 2, -40f, -50f, 500)
+        val block = ByteBuffer.allocateDirect(BLOCK_FRAMES * 4).order(ByteOrder.LITTLE_ENDIAN)
+        for (i in 0 until BLOCK_FRAMES) {
+            //Silent left channel, loud right channel.
+            block.putShort(0)
+            block.putShort((10000 * sin(2 * PI * 300 * i / SAMPLE_RATE)).toInt().toShort())
+        }
+        block.flip()
+
+        assertTrue(detector.process(block))
+        assertEquals(0, block.position())
+        assertEquals(block.capacity(), block.limit())
+    }
+
+    private fun newDetector() = VoiceActivityDetector(SAMPLE_RATE, 1, -40f, -50f, 500)
+
+    /** One block of mono sine with RMS level in dBFS. */
+    private fun tone(frequency: Double, dbfs: Float): ByteBuffer {
+        val amplitude = 32768 * 10.0.pow(dbfs / 20.0) * Math.sqrt(2.0)
+        return block { (amplitude * sin(2 * PI * frequency * it / SAMPLE_RATE)).toInt().toShort() }
+    }
+
+    /** One block of mono white noise with RMS level in dBFS. */
+    private fun noise(dbfs: Float): ByteBuffer {
+        val rms = 32768 * 10.0.pow(dbfs / 20.0)
+        return block { (random.nextGaussian() * rms).toInt().toShort() }
+    }
+
+    private fun block(sample: (Int) -> Short): ByteBuffer {
+        val block = ByteBuffer.allocateDirect(BLOCK_FRAMES * 2).order(ByteOrder.LITTLE_ENDIAN)
+        for (i in 0 until BLOCK_FRAMES) {
+            block.putShort(sample(i))
+        }
+        block.flip()
+        return block
+    }
+
+    companion object {
+        private const val SAMPLE_RATE = 44100
+        /** 20 mills. */
+        private const val BLOCK_FRAMES = 882
+    }
+}
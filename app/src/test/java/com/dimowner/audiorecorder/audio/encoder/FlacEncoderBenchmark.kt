@@ -0,0 +1,58 @@
+package com.dimowner.audiorecorder.audio.encoder
+
+import com.dimowner.audiorecorder.Benchmark
+import com.dimowner.audiorecorder.audio.recorder.FlacFileWriter
+import org.junit.Before
+import org.junit.Test
+import java.util.Random
+
+/**
+ * Encoding speed and compression ratio of [FlacEncoder]
+ * for 10 minutes of 48 kHz stereo: speech-like signal and white noise as the worst case.
+ */
+class FlacEncoderBenchmark {
+
+    @Before
+    fun setUp() {
+        Benchmark.assumeEnabled()
+    }
+
+    @Test
+    fun benchmark_10min() {
+        val random = Random(1)
+        val block = ShortArray(BLOCK_SIZE * CHANNELS * BLOCKS_IN_SIGNAL)
+        var y = 0.0
+        for (i in 0 until block.size / CHANNELS) {
+            val envelope = maxOf(0.0, Math.sin(2 * Math.PI * 3 * i / SAMPLE_RATE))
+            y = 0.95 * y + random.nextGaussian() * 1500 * envelope
+            block[2 * i] = y.coerceIn(-32768.0, 32767.0).toInt().toShort()
+            block[2 * i + 1] = (y + random.nextGaussian() * 20).coerceIn(-32768.0, 32767.0).toInt().toShort()
+        }
+        run("FLAC speech-like", block)
+        run("FLAC white noise", ShortArray(block.size) { random.nextInt(65536).toShort() })
+    }
+
+    private fun run(name: String, signal: ShortArray) {
+        val encoder = FlacEncoder(SAMPLE_RATE, CHANNELS, BLOCK_SIZE)
+        val frames = SAMPLE_RATE * SECONDS / BLOCK_SIZE
+        var length = 0L
+        val time = Benchmark.measure(name, 1, 3) {
+            length = 0
+            for (i in 0 until frames) {
+                length += encoder.encodeFrame(signal, (i % BLOCKS_IN_SIGNAL) * BLOCK_SIZE * CHANNELS, BLOCK_SIZE)
+            }
+        }
+        Benchmark.sink += length
+        println(String.format("%-48s ratio %.3f", name, length / (frames.toDouble() * BLOCK_SIZE * CHANNELS * 2)))
+        Benchmark.printRealtimeFactor(name, time, SECONDS.toDouble())
+    }
+
+    companion object {
+        private const val SAMPLE_RATE = 48000
+        private const val CHANNELS = 2
+        private const val SECONDS = 600
+        private const val BLOCK_SIZE = FlacFileWriter.DEFAULT_BLOCK_SIZE
+        /** Signal is repeated after this count of blocks, about 10 seconds. */
+        private const val BLOCKS_IN_SIGNAL = 117
+    }
+}
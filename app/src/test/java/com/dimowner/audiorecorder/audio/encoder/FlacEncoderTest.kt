@@ -0,0 +1,144 @@
+package com.dimowner.audiorecorder.audio.encoder
+
+import com.dimowner.audiorecorder.audio.recorder.FlacFileWriter
+import junit.framework.TestCase.assertEquals
+import junit.framework.TestCase.assertTrue
+import org.junit.Test
+import java.io.ByteArrayOutputStream
+import java.util.Random
+import kotlin.math.PI
+import kotlin.math.sin
+
+class FlacEncoderTest {
+
+    @Test
+    fun test_crc() {
+        val check = "123456789".toByteArray()
+        assertEquals(0xF4, FlacBitWriter.crc8(check, 0, check.size))
+        assertEquals(0xFEE8, FlacBitWriter.crc16(check, 0, check.size))
+    }
+
+    @Test
+    fun test_bitWriter() {
+        val writer = FlacBitWriter(1)
+        writer.writeBits(0b101, 3)
+        writer.writeUnary(2)
+        writer.writeRice(9, 2)
+        writer.alignToByte()
+        //101, unary 2 as 001, Rice 9 as unary 2 and 01, padded with zeros.
+        assertEquals(2, writer.length)
+        assertEquals(0b10100100, writer.buffer[0].toInt() and 0xFF)
+        assertEquals(0b10100000, writer.buffer[1].toInt() and 0xFF)
+
+        writer.reset()
+        writer.writeUtf8(0x7F)
+        writer.writeUtf8(0x80)
+        writer.writeUtf8(0x10000)
+        assertEquals(listOf(0x7F, 0xC2, 0x80, 0xF0, 0x90, 0x80, 0x80),
+                writer.buffer.take(writer.length).map { it.toInt() and 0xFF })
+    }
+
+    @Test
+    fun test_stereoTonesUseLpcAndStereoDecorrelation() {
+        val pcm = stereo(44100 * 2 + 100) { i, random ->
+            val v = 8000 * sin(2 * PI * 440 * i / 44100) + 3000 * sin(2 * PI * 1234.5 * i / 44100) + random.nextGaussian() * 200
+            Pair(v, v * 0.8 + random.nextGaussian() * 100)
+        }
+        val decoder = roundTrip(pcm, 44100, 2)
+
+        assertTrue(decoder.subframeTypes.keys.any { it.startsWith("lpc") })
+        //Correlated channels are not encoded as independent.
+        assertTrue(encoded(pcm, 44100, 2).size < pcm.size * 2 * 0.7)
+    }
+
+    @Test
+    fun test_silenceIsConstant() {
+        val decoder = roundTrip(ShortArray(4096 * 2 * 3), 48000, 2)
+        assertEquals(6, decoder.subframeTypes["constant"])
+        assertTrue(encoded(ShortArray(4096 * 2 * 3), 48000, 2).size - FlacFileWriter.HEADER_SIZE < 100)
+    }
+
+    @Test
+    fun test_noiseIsVerbatim() {
+        val random = Random(1)
+        val pcm = ShortArray(4096 * 2) { random.nextInt(65536).toShort() }
+        val decoder = roundTrip(pcm, 44100, 2)
+        assertEquals(2, decoder.subframeTypes["verbatim"])
+    }
+
+    @Test
+    fun test_fullScaleExtremes() {
+        //Side channel of opposite full scale samples needs 17 bits.
+        val pcm = stereo(10000) { i, _ ->
+            val v = if ((i / 50) % 2 == 0) 32767.0 else -32768.0
+            Pair(v, -v - 1)
+        }
+        roundTrip(pcm, 44100, 2)
+    }
+
+    @Test
+    fun test_monoAndShortLastBlock() {
+        val random = Random(2)
+        var y = 0.0
+        val pcm = ShortArray(4096 * 3 + 17) {
+            y = 0.99 * y + random.nextGaussian() * 300
+            y.coerceIn(-32768.0, 32767.0).toInt().toShort()
+        }
+        val decoder = roundTrip(pcm, 16000, 1)
+        assertEquals(4, decoder.frameCount)
+    }
+
+    @Test
+    fun test_tinyBlocks() {
+        roundTrip(shortArrayOf(1, 2, 3), 8000, 1)
+        roundTrip(shortArrayOf(-5, 7), 8000, 2)
+        roundTrip(ShortArray(200) { (it * 37 % 101).toShort() }, 8000, 2)
+    }
+
+    @Test
+    fun test_uncommonSampleRates() {
+        val pcm = ShortArray(5000) { (1000 * sin(it * 0.05)).toInt().toShort() }
+        for (rate in intArrayOf(11025, 12345, 100000, 22050, 32000)) {
+            roundTrip(pcm, rate, 1)
+        }
+    }
+
+    /** Encode frames and decode them with the reference decoder. */
+    private fun roundTrip(pcm: ShortArray, sampleRate: Int, channels: Int): FlacTestDecoder {
+        val decoder = FlacTestDecoder(encoded(pcm, sampleRate, channels))
+        val decoded = decoder.decode()
+        assertEquals(pcm.toList(), decoded.toList())
+        return decoder
+    }
+
+    /** Stream of encoded frames with metadata which has no total samples and MD5. */
+    private fun encoded(pcm: ShortArray, sampleRate: Int, channels: Int): ByteArray {
+        val encoder = FlacEncoder(sampleRate, channels, BLOCK_SIZE)
+        val out = ByteArrayOutputStream()
+        out.write(FlacFileWriter.generateHeader(sampleRate, channels, BLOCK_SIZE))
+        val frames = pcm.size / channels
+        var frame = 0
+        while (frame < frames) {
+            val count = minOf(BLOCK_SIZE, frames - frame)
+            val length = encoder.encodeFrame(pcm, frame * channels, count)
+            out.write(encoder.frame, 0, length)
+            frame += count
+        }
+        return out.toByteArray()
+    }
+
+    private fun stereo(frames: Int, generator: (Int, Random) -> Pair<Double, Double>): ShortArray {
+        val random = Random(1)
+        val pcm = ShortArray(frames * 2)
+        for (i in 0 until frames) {
+            val (left, right) = generator(i, random)
+            pcm[2 * i] = left.coerceIn(-32768.0, 32767.0).toInt().toShort()
+            pcm[2 * i + 1] = right.coerceIn(-32768.0, 32767.0).toInt().toShort()
+        }
+        return pcm
+    }
+
+    companion object {
+        private const val BLOCK_SIZE = 4096
+    }
+}
@@ -0,0 +1,252 @@
+package com.dimowner.audiorecorder.audio.encoder
+
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+
+/**
+ * Reference FLAC decoder for tests, written from the format specification.
+ * Supports 16 bit fixed block size streams. Every frame is checked by CRC-8 and CRC-16.
+ */
+class FlacTestDecoder(private val data: ByteArray) {
+
+    class SeekPoint(val sample: Long, val offset: Long, val frameSamples: Int)
+
+    var sampleRate = 0
+    var channels = 0
+    var bitsPerSample = 0
+    var minBlockSize = 0
+    var maxBlockSize = 0
+    var minFrameSize = 0
+    var maxFrameSize = 0
+    var totalSamples = 0L
+    var md5 = ByteArray(16)
+    val seekPoints = ArrayList<SeekPoint>()
+    var firstFrameOffset = 0
+    var frameCount = 0
+    /** Count of subframes of every type: constant, verbatim, fixedN and lpcN. */
+    val subframeTypes = HashMap<String, Int>()
+
+    private var position = 0L
+
+    /** Decode metadata and all frames. @return interleaved PCM. */
+    fun decode(): ShortArray {
+        position = 0
+        check(bits(32) == 0x664C6143L) { "No fLaC marker" }
+        do {
+            val last = bit() == 1
+            val type = bits(7).toInt()
+            val length = bits(24).toInt()
+            val start = position
+            if (type == 0) {
+                minBlockSize = bits(16).toInt()
+                maxBlockSize = bits(16).toInt()
+                minFrameSize = bits(24).toInt()
+                maxFrameSize = bits(24).toInt()
+                sampleRate = bits(20).toInt()
+                channels = bits(3).toInt() + 1
+                bitsPerSample = bits(5).toInt() + 1
+                totalSamples = bits(36)
+                md5 = ByteArray(16) { bits(8).toByte() }
+            } else if (type == 3) {
+                for (i in 0 until length / 18) {
+                    seekPoints.add(SeekPoint(bits(64), bits(64), bits(16).toInt()))
+                }
+            }
+            position = start + length * 8L
+        } while (!last)
+        firstFrameOffset = (position shr 3).toInt()
+
+        val out = ArrayList<Short>()
+        while ((position shr 3) < data.size) {
+            decodeFrame(out)
+        }
+        return out.toShortArray()
+    }
+
+    private fun decodeFrame(out: MutableList<Short>) {
+        val start = (position shr 3).toInt()
+        check(bits(15) == 0x7FFCL) { "No frame sync at $start" }
+        check(bit() == 0) { "Variable block size" }
+        val blockSizeCode = bits(4).toInt()
+        val sampleRateCode = bits(4).toInt()
+        val assignment = bits(4).toInt()
+        val sampleSizeCode = bits(3).toInt()
+        check(bit() == 0)
+        val first = bits(8).toInt()
+        var number: Long
+        if (first < 0x80) {
+            number = first.toLong()
+        } else {
+            val extra = Integer.numberOfLeadingZeros((first shl 24).inv()) - 1
+            number = (first and (0x7F shr (extra + 1))).toLong()
+            for (i in 0 until extra) {
+                val b = bits(8).toInt()
+                check((b and 0xC0) == 0x80)
+                number = (number shl 6) or (b and 0x3F).toLong()
+            }
+        }
+        check(number == frameCount.toLong()) { "Frame number $number, expected $frameCount" }
+        val blockSize = when (blockSizeCode) {
+            1 -> 192
+            in 2..5 -> 576 shl (blockSizeCode - 2)
+            6 -> bits(8).toInt() + 1
+            7 -> bits(16).toInt() + 1
+            in 8..15 -> 256 shl (blockSizeCode - 8)
+            else -> error("Reserved block size")
+        }
+        val rate = when (sampleRateCode) {
+            0 -> sampleRate
+            in 1..11 -> RATES[sampleRateCode]
+            12 -> bits(8).toInt() * 1000
+            13 -> bits(16).toInt()
+            14 -> bits(16).toInt() * 10
+            else -> error("Invalid sample rate")
+        }
+        check(rate == sampleRate) { "Sample rate $rate" }
+        check(sampleSizeCode == 4 || sampleSizeCode == 0) { "Sample size $sampleSizeCode" }
+        val headerEnd = (position shr 3).toInt()
+        check(bits(8).toInt() == FlacBitWriter.crc8(data, start, headerEnd - start)) { "CRC-8" }
+
+        val count = if (assignment < 8) assignment + 1 else 2
+        check(count == channels)
+        val decoded = Array(count) { ch ->
+            val side = (assignment == 8 && ch == 1) || (assignment == 9 && ch == 0) || (assignment == 10 && ch == 1)
+            subframe(blockSize, bitsPerSample + if (side) 1 else 0)
+        }
+        if ((position and 7) != 0L) {
+            check(bits((8 - (position and 7)).toInt()) == 0L) { "Padding" }
+        }
+        val end = (position shr 3).toInt()
+        check(bits(16).toInt() == FlacBitWriter.crc16(data, start, end - start)) { "CRC-16" }
+        frameCount++
+
+        for (i in 0 until blockSize) {
+            var left: Long
+            var right = 0L
+            when (assignment) {
+                8 -> { left = decoded[0][i]; right = left - decoded[1][i] }
+                9 -> { right = decoded[1][i]; left = decoded[0][i] + right }
+                10 -> {
+                    val side = decoded[1][i]
+                    val mid = (decoded[0][i] shl 1) or (side and 1)
+                    left = (mid + side) shr 1
+                    right = (mid - side) shr 1
+                }
+                else -> { left = decoded[0][i]; if (count > 1) right = decoded[1][i] }
+            }
+            out.add(left.toShort())
+            if (count > 1) {
+                out.add(right.toShort())
+            }
+        }
+    }
+
+    private fun subframe(n: Int, bps: Int): LongArray {
+        check(bit() == 0) { "Subframe padding" }
+        val type = bits(6).toInt()
+        check(bit() == 0) { "Wasted bits" }
+        val x = LongArray(n)
+        when {
+            type == 0 -> {
+                x.fill(signed(bps))
+                count("constant")
+            }
+            type == 1 -> {
+                for (i in 0 until n) x[i] = signed(bps)
+                count("verbatim")
+            }
+            type in 8..12 -> {
+                val order = type - 8
+                for (i in 0 until order) x[i] = signed(bps)
+                val residual = residual(n, order)
+                val c = FIXED_COEFFICIENTS[order]
+                for (i in order until n) {
+                    var prediction = 0L
+                    for (j in 0 until order) prediction += c[j] * x[i - j - 1]
+                    x[i] = prediction + residual[i]
+                }
+                count("fixed$order")
+            }
+            type >= 32 -> {
+                val order = type - 31
+                for (i in 0 until order) x[i] = signed(bps)
+                val precision = bits(4).toInt() + 1
+                check(precision < 16)
+                val shift = signed(5).toInt()
+                check(shift >= 0) { "Negative shift" }
+                val q = LongArray(order) { signed(precision) }
+                val residual = residual(n, order)
+                for (i in order until n) {
+                    var prediction = 0L
+                    for (j in 0 until order) prediction += q[j] * x[i - j - 1]
+                    x[i] = (prediction shr shift) + residual[i]
+                }
+                count("lpc$order")
+            }
+            else -> error("Reserved subframe type $type")
+        }
+        for (v in x) {
+            check(v >= -(1L shl (bps - 1)) && v < (1L shl (bps - 1))) { "Sample out of range" }
+        }
+        return x
+    }
+
+    private fun residual(n: Int, order: Int): LongArray {
+        val method = bits(2).toInt()
+        check(method <= 1)
+        val parameterBits = if (method == 0) 4 else 5
+        val partitionOrder = bits(4).toInt()
+        val r = LongArray(n)
+        var index = order
+        for (p in 0 until (1 shl partitionOrder)) {
+            val count = (n shr partitionOrder) - if (p == 0) order else 0
+            val parameter = bits(parameterBits).toInt()
+            if (parameter == (1 shl parameterBits) - 1) {
+                val raw = bits(5).toInt()
+                for (i in 0 until count) r[index++] = signed(raw)
+            } else {
+                for (i in 0 until count) {
+                    var quotient = 0L
+                    while (bit() == 0) quotient++
+                    val folded = (quotient shl parameter) or bits(parameter)
+                    r[index++] = (folded ushr 1) xor -(folded and 1)
+                }
+            }
+        }
+        check(index == n)
+        return r
+    }
+
+    private fun count(type: String) {
+        subframeTypes[type] = (subframeTypes[type] ?: 0) + 1
+    }
+
+    private fun bit(): Int {
+        val b = (data[(position shr 3).toInt()].toInt() shr (7 - (position and 7).toInt())) and 1
+        position++
+        return b
+    }
+
+    private fun bits(count: Int): Long {
+        var value = 0L
+        for (i in 0 until count) value = (value shl 1) or bit().toLong()
+        return value
+    }
+
+    private fun signed(count: Int): Long {
+        val value = bits(count)
+        return if (count > 0 && ((value shr (count - 1)) and 1L) == 1L) value - (1L shl count) else value
+    }
+
+    companion object {
+        private val RATES = intArrayOf(0, 88200, 176400, 192000, 8000, 16000, 22050, 24000, 32000, 44100, 48000, 96000)
+        private val FIXED_COEFFICIENTS = arrayOf(
+                longArrayOf(), longArrayOf(1), longArrayOf(2, -1), longArrayOf(3, -3, 1), longArrayOf(4, -6, 4, -1))
+
+        fun toBytes(pcm: ShortArray): ByteArray {
+            val buffer = ByteBuffer.allocate(pcm.size * 2).order(ByteOrder.LITTLE_ENDIAN)
+            buffer.asShortBuffer().put(pcm)
+            return buffer.array()
+        }
+    }
+}
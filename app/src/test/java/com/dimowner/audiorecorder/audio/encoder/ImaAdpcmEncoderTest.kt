@@ -0,0 +1,156 @@
+package com.dimowner.audiorecorder.audio.encoder
+
+import junit.framework.TestCase.assertEquals
+import junit.framework.TestCase.assertTrue
+import org.junit.Test
+import java.util.Random
+import kotlin.math.PI
+import kotlin.math.log10
+import kotlin.math.sin
+
+class ImaAdpcmEncoderTest {
+
+    @Test
+    fun test_blockLayout() {
+        assertEquals(256, ImaAdpcmEncoder.blockAlign(8000, 1))
+        assertEquals(1024, ImaAdpcmEncoder.blockAlign(16000, 2))
+        assertEquals(2048, ImaAdpcmEncoder.blockAlign(48000, 2))
+        assertEquals(505, ImaAdpcmEncoder.samplesPerBlock(256, 1))
+        assertEquals(2041, ImaAdpcmEncoder.samplesPerBlock(2048, 2))
+        //About 4 bits per sample.
+        assertEquals(48164L, ImaAdpcmEncoder.byteRate(48000, 2))
+    }
+
+    @Test
+    fun test_decodedSignalIsClose() {
+        for (channels in 1..2) {
+            for (sampleRate in intArrayOf(8000, 22050, 48000)) {
+                val encoder = ImaAdpcmEncoder(sampleRate, channels)
+                val pcm = tone(encoder.samplesPerBlock * BLOCKS, sampleRate, channels)
+                val decoded = decode(encode(encoder, pcm, channels), channels, encoder.blockAlign)
+                assertEquals(pcm.size, decoded.size)
+                //The first sample of a block is stored as is.
+                assertEquals(pcm[0], decoded[0])
+                assertTrue("SNR for $sampleRate Hz", snr(pcm, decoded) > 20)
+            }
+        }
+    }
+
+    @Test
+    fun test_encodeInPlace() {
+        val encoder = ImaAdpcmEncoder(44100, 2)
+        val pcm = tone(encoder.samplesPerBlock * BLOCKS, 44100, 2)
+        val expected = encode(ImaAdpcmEncoder(44100, 2), pcm, 2)
+
+        val data = toBytes(pcm)
+        val blockSize = encoder.samplesPerBlock * 4
+        for (i in 0 until BLOCKS) {
+            encoder.encodeBlock(data, i * blockSize, data, i * blockSize)
+        }
+        for (i in 0 until BLOCKS) {
+            assertEquals(expected.copyOfRange(i * encoder.blockAlign, (i + 1) * encoder.blockAlign).toList(),
+                    data.copyOfRange(i * blockSize, i * blockSize + encoder.blockAlign).toList())
+        }
+    }
+
+    @Test
+    fun test_fullScaleIsClamped() {
+        val encoder = ImaAdpcmEncoder(8000, 1)
+        val pcm = ShortArray(encoder.samplesPerBlock) { if ((it / 100) % 2 == 0) Short.MAX_VALUE else Short.MIN_VALUE }
+        val decoded = decode(encode(encoder, pcm, 1), 1, encoder.blockAlign)
+        //Predictor saturates without wrapping around.
+        assertEquals(Short.MIN_VALUE, decoded[150])
+        assertEquals(Short.MAX_VALUE, decoded[250])
+    }
+
+    private fun encode(encoder: ImaAdpcmEncoder, pcm: ShortArray, channels: Int): ByteArray {
+        val data = toBytes(pcm)
+        val blockSize = encoder.samplesPerBlock * channels * 2
+        val blocks = data.size / blockSize
+        val out = ByteArray(blocks * encoder.blockAlign)
+        for (i in 0 until blocks) {
+            encoder.encodeBlock(data, i * blockSize, out, i * encoder.blockAlign)
+        }
+        return out
+    }
+
+    private fun tone(frames: Int, sampleRate: Int, channels: Int): ShortArray {
+        val random = Random(1)
+        return ShortArray(frames * channels) {
+            val i = it / channels
+            val frequency = 440.0 * (it % channels + 1)
+            (12000 * sin(2 * PI * frequency * i / sampleRate) + random.nextGaussian() * 300).toInt().toShort()
+        }
+    }
+
+    private fun snr(expected: ShortArray, actual: ShortArray): Double {
+        var signal = 0.0
+        var noise = 0.0
+        for (i in expected.indices) {
+            signal += expected[i].toDouble() * expected[i]
+            noise += (expected[i] - actual[i]).toDouble() * (expected[i] - actual[i])
+        }
+        return 10 * log10(signal / noise)
+    }
+
+    companion object {
+        private const val BLOCKS = 10
+
+        private val INDEX_TABLE = intArrayOf(-1, -1, -1, -1, 2, 4, 6, 8)
+        private val STEP_TABLE = intArrayOf(
+                7, 8, 9, 10, 11, 12, 13, 14, 16, 17, 19, 21, 23, 25, 28, 31, 34, 37, 41, 45,
+                50, 55, 60, 66, 73, 80, 88, 97, 107, 118, 130, 143, 157, 173, 190, 209, 230, 253, 279, 307,
+                337, 371, 408, 449, 494, 544, 598, 658, 724, 796, 876, 963, 1060, 1166, 1282, 1411, 1552,
+                1707, 1878, 2066, 2272, 2499, 2749, 3024, 3327, 3660, 4026, 4428, 4871, 5358, 5894, 6484,
+                7132, 7845, 8630, 9493, 10442, 11487, 12635, 13899, 15289, 16818, 18500, 20350, 22385,
+                24623, 27086, 29794, 32767)
+
+        fun toBytes(pcm: ShortArray): ByteArray {
+            val data = ByteArray(pcm.size * 2)
+            for (i in pcm.indices) {
+                data[2 * i] = pcm[i].toByte()
+                data[2 * i + 1] = (pcm[i].toInt() shr 8).toByte()
+            }
+            return data
+        }
+
+        /** Reference IMA ADPCM decoder of WAV blocks, written from the format specification. */
+        fun decode(data: ByteArray, channels: Int, blockAlign: Int): ShortArray {
+            val samplesPerBlock = (blockAlign / channels - 4) * 2 + 1
+            val blocks = data.size / blockAlign
+            val out = ShortArray(blocks * samplesPerBlock * channels)
+            val predictors = IntArray(channels)
+            val indexes = IntArray(channels)
+            for (b in 0 until blocks) {
+                val start = b * blockAlign
+                val outStart = b * samplesPerBlock * channels
+                for (ch in 0 until channels) {
+                    val p = start + ch * 4
+                    predictors[ch] = ((data[p].toInt() and 0xFF) or (data[p + 1].toInt() shl 8)).toShort().toInt()
+                    indexes[ch] = data[p + 2].toInt()
+                    assertEquals(0, data[p + 3].toInt())
+                    out[outStart + ch] = predictors[ch].toShort()
+                }
+                var position = start + channels * 4
+                for (word in 0 until (samplesPerBlock - 1) / 8) {
+                    for (ch in 0 until channels) {
+                        for (i in 0 until 8) {
+                            val nibble = (data[position + i / 2].toInt() shr (4 * (i % 2))) and 0xF
+                            val step = STEP_TABLE[indexes[ch]]
+                            var delta = step shr 3
+                            if ((nibble and 4) != 0) delta += step
+                            if ((nibble and 2) != 0) delta += step shr 1
+                            if ((nibble and 1) != 0) delta += step shr 2
+                            val predictor = if ((nibble and 8) != 0) predictors[ch] - delta else predictors[ch] + delta
+                            predictors[ch] = predictor.coerceIn(-32768, 32767)
+                            indexes[ch] = (indexes[ch] + INDEX_TABLE[nibble and 7]).coerceIn(0, STEP_TABLE.size - 1)
+                            out[outStart + (1 + word * 8 + i) * channels + ch] = predictors[ch].toShort()
+                        }
+                        position += 4
+                    }
+                }
+            }
+            return out
+        }
+    }
+}
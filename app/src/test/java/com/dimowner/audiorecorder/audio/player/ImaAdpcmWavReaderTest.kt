@@ -0,0 +1,110 @@
+package com.dimowner.audiorecorder.audio.player
+
+import com.dimowner.audiorecorder.audio.WavDecoder
+import com.dimowner.audiorecorder.audio.encoder.ImaAdpcmEncoder
+import com.dimowner.audiorecorder.audio.encoder.ImaAdpcmEncoderTest
+import com.dimowner.audiorecorder.audio.recorder.ImaAdpcmWavHeader
+import com.dimowner.audiorecorder.audio.recorder.WavHeader
+import junit.framework.TestCase.assertEquals
+import junit.framework.TestCase.assertNotNull
+import junit.framework.TestCase.assertNull
+import junit.framework.TestCase.assertTrue
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.util.Random
+import kotlin.math.sin
+
+class ImaAdpcmWavReaderTest {
+
+    private lateinit var file: File
+    private lateinit var pcmFile: File
+
+    @Before
+    fun setUp() {
+        file = File.createTempFile("record", ".wav")
+        pcmFile = File.createTempFile("playback", ".wav")
+    }
+
+    @After
+    fun after() {
+        file.delete()
+        pcmFile.delete()
+    }
+
+    @Test
+    fun test_readAsPcmWav() {
+        for (channels in 1..2) {
+            val data = write(channels, 5000)
+            val blockAlign = ImaAdpcmEncoder.blockAlign(SAMPLE_RATE, channels)
+            val expected = ImaAdpcmEncoderTest.toBytes(ImaAdpcmEncoderTest.decode(data, channels, blockAlign))
+
+            val pcm = ImaAdpcmWavReader.open(file)!!.use { readAll(it, 777) }
+
+            //Player opens the file as 16 bit PCM WAV, padding of the last block is not played.
+            pcmFile.writeBytes(pcm)
+            val wav = WavDecoder.open(pcmFile)
+            assertNotNull(wav)
+            assertEquals(SAMPLE_RATE, wav!!.sampleRate)
+            assertEquals(channels, wav.channelCount)
+            assertEquals(WavHeader.HEADER_SIZE.toLong(), wav.dataOffset)
+            assertEquals(5000L * channels * 2, wav.dataLength)
+            assertEquals(WavHeader.HEADER_SIZE + wav.dataLength, pcm.size.toLong())
+            assertTrue(expected.copyOf(wav.dataLength.toInt())
+                    .contentEquals(pcm.copyOfRange(WavHeader.HEADER_SIZE, pcm.size)))
+        }
+    }
+
+    @Test
+    fun test_readAtAnyPosition() {
+        write(2, 20000)
+        ImaAdpcmWavReader.open(file)!!.use { reader ->
+            val pcm = readAll(reader, 64 * 1024)
+            val random = Random(1)
+            val buffer = ByteArray(5000)
+            for (i in 0 until 200) {
+                val position = random.nextInt(pcm.size)
+                val read = reader.readAt(position.toLong(), buffer, 7, buffer.size - 7)
+                assertEquals(minOf(buffer.size - 7, pcm.size - position), read)
+                assertTrue(pcm.copyOfRange(position, position + read).contentEquals(buffer.copyOfRange(7, 7 + read)))
+            }
+            assertEquals(-1, reader.readAt(reader.size, buffer, 0, buffer.size))
+        }
+    }
+
+    @Test
+    fun test_pcmWavIsNotOpened() {
+        file.writeBytes(WavHeader.generate(4000, SAMPLE_RATE, 1, 16) + ByteArray(4000))
+        assertNull(ImaAdpcmWavReader.open(file))
+    }
+
+    /** Write IMA ADPCM WAV of a tone and return its ADPCM data. */
+    private fun write(channels: Int, frames: Int): ByteArray {
+        val encoder = ImaAdpcmEncoder(SAMPLE_RATE, channels)
+        val blocks = (frames + encoder.samplesPerBlock - 1) / encoder.samplesPerBlock
+        val pcm = ShortArray(blocks * encoder.samplesPerBlock * channels) {
+            if (it < frames * channels) (8000 * sin((it / channels) * 0.05 * (it % channels + 1))).toInt().toShort() else 0
+        }
+        val data = ImaAdpcmEncoderTest.toBytes(pcm)
+        val adpcm = ByteArray(blocks * encoder.blockAlign)
+        for (b in 0 until blocks) {
+            encoder.encodeBlock(data, b * encoder.samplesPerBlock * channels * 2, adpcm, b * encoder.blockAlign)
+        }
+        file.writeBytes(ImaAdpcmWavHeader.generate(frames.toLong(), adpcm.size.toLong(), SAMPLE_RATE, channels) + adpcm)
+        return adpcm
+    }
+
+    private fun readAll(reader: ImaAdpcmWavReader, bufferSize: Int): ByteArray {
+        val data = ByteArray(reader.size.toInt())
+        var position = 0
+        while (position < data.size) {
+            position += reader.readAt(position.toLong(), data, position, minOf(bufferSize, data.size - position))
+        }
+        return data
+    }
+
+    companion object {
+        private const val SAMPLE_RATE = 22050
+    }
+}
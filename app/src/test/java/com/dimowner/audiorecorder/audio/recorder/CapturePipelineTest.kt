@@ -0,0 +1,506 @@
+package com.dimowner.audiorecorder.audio.recorder
+
+import com.dimowner.audiorecorder.audio.dsp.DspChain
+import com.dimowner.audiorecorder.audio.dsp.DspStage
+import com.dimowner.audiorecorder.audio.dsp.LookAheadLimiter
+import com.dimowner.audiorecorder.audio.dsp.VoiceActivityDetector
+import junit.framework.TestCase.assertEquals
+import junit.framework.TestCase.assertFalse
+import junit.framework.TestCase.assertTrue
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.channels.FileChannel
+import java.nio.channels.GatheringByteChannel
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import kotlin.math.PI
+import kotlin.math.sin
+
+class CapturePipelineTest {
+
+    private lateinit var outputFile: File
+
+    @Before
+    fun setUp() {
+        outputFile = File.createTempFile("capture", ".pcm")
+    }
+
+    @After
+    fun after() {
+        outputFile.delete()
+    }
+
+    @Test
+    fun test_allCapturedFramesWrittenInOrder() {
+        val totalFrames = 48000L * 5
+        val source = SyntheticPcmSource(totalFrames, 2)
+        val channel = RandomAccessFile(outputFile, "rw").channel
+        val pipeline = CapturePipeline(newSession(), source, channel, BLOCK_SIZE, 512, 4)
+        val listener = TestListener()
+        pipeline.setListener(listener)
+
+        pipeline.start()
+        assertTrue(source.awaitExhausted())
+        pipeline.stop()
+        assertTrue(pipeline.awaitTermination(5000))
+        assertTrue(listener.awaitFinished())
+
+        assertEquals(0L, pipeline.droppedFrames)
+        assertEquals(totalFrames, pipeline.capturedFrames)
+        assertEquals(totalFrames * 4, pipeline.bytesWritten)
+        assertEquals(totalFrames * 4, outputFile.length())
+        assertEquals(totalFrames * 4, listener.batchWrittenBytes)
+        assertEquals(0, listener.errors)
+        assertTrue(pipeline.highWaterMark <= pipeline.ringCapacity)
+
+        val data = ByteBuffer.wrap(outputFile.readBytes()).order(ByteOrder.LITTLE_ENDIAN)
+        var index = 0L
+        while (data.remaining() > 0) {
+            assertEquals(SyntheticPcmSource.sampleAt(index), data.short)
+            index++
+        }
+    }
+
+    @Test
+    fun test_storageStallDropsFramesInsteadOfBlockingCapture() {
+        val totalFrames = 48000L * 2
+        val source = SyntheticPcmSource(totalFrames, 2)
+        val channel = StallingChannel(RandomAccessFile(outputFile, "rw").channel, 300)
+        val pipeline = CapturePipeline(newSession(), source, channel, BLOCK_SIZE, 4, 4)
+        val listener = TestListener()
+        val clock = RecordingClock(48000)
+        pipeline.setListener(listener)
+        pipeline.setClock(clock)
+
+        pipeline.start()
+        //Source is exhausted while writer is still stalled on the first write.
+        assertTrue(source.awaitExhausted(250))
+        pipeline.stop()
+        assertTrue(pipeline.awaitTermination(5000))
+        assertTrue(listener.awaitFinished())
+
+        assertTrue(pipeline.droppedFrames > 0)
+        assertEquals(4, pipeline.highWaterMark)
+        assertEquals(totalFrames, pipeline.capturedFrames + pipeline.droppedFrames)
+        //Dropped frames are not in the file, so the clock does not count them.
+        assertEquals(pipeline.capturedFrames, clock.frames)
+        assertEquals(pipeline.capturedFrames * 4, pipeline.bytesWritten)
+        assertEquals(pipeline.capturedFrames * 4, outputFile.length())
+    }
+
+    @Test
+    fun test_writeErrorStopsPipeline() {
+        val source = SyntheticPcmSource(48000L * 60, 1)
+        val channel = StallingChannel(RandomAccessFile(outputFile, "rw").channel, 0, true)
+        val pipeline = CapturePipeline(newSession(), source, channel, BLOCK_SIZE, 16, 2)
+        val listener = TestListener()
+        pipeline.setListener(listener)
+
+        pipeline.start()
+        assertTrue(listener.awaitFinished())
+        assertTrue(pipeline.awaitTermination(5000))
+
+        assertEquals(1, listener.errors)
+        assertEquals(0L, pipeline.bytesWritten)
+    }
+
+    @Test
+    fun test_pausedCaptureStopsReadingAndFinishesOnStop() {
+        val source = SyntheticPcmSource(Long.MAX_VALUE, 1)
+        val channel = RandomAccessFile(outputFile, "rw").channel
+        val session = newSession()
+        val pipeline = CapturePipeline(session, source, channel, BLOCK_SIZE, 512, 2)
+        val listener = TestListener()
+        pipeline.setListener(listener)
+
+        pipeline.start()
+        Thread.sleep(50)
+        assertTrue(session.moveTo(RecorderStateMachine.State.PAUSED))
+        Thread.sleep(50)
+        val pausedAt = source.producedFrames
+        Thread.sleep(200)
+        assertEquals(pausedAt, source.producedFrames)
+        //Writer is notified once when data captured before the pause is written.
+        Thread.sleep(1500)
+        assertEquals(1, listener.pauses)
+
+        assertTrue(session.moveTo(RecorderStateMachine.State.RECORDING))
+        Thread.sleep(50)
+        assertTrue(source.producedFrames > pausedAt)
+
+        assertTrue(session.moveTo(RecorderStateMachine.State.PAUSED))
+        pipeline.stop()
+        assertTrue(session.moveTo(RecorderStateMachine.State.STOPPING))
+        assertTrue(listener.awaitFinished())
+        assertEquals(source.producedFrames, pipeline.capturedFrames + pipeline.droppedFrames)
+        channel.close()
+    }
+
+    @Test
+    fun test_preRollWrittenBeforeCapturedBlocksWithoutGap() {
+        val totalFrames = 48000L * 3
+        val source = SyntheticPcmSource(totalFrames, 2)
+        //Capture into pre-roll until it wraps around, then hand the same source over to the pipeline.
+        val preRoll = PreRollBuffer(48000 * 4, 4)
+        val block = ByteBuffer.allocateDirect(BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+        for (i in 0 until 100) {
+            block.clear()
+            block.limit(source.read(block, BLOCK_SIZE))
+            preRoll.write(block)
+        }
+        val preRollFrames = preRoll.size() / 4L
+        val firstFrame = source.producedFrames - preRollFrames
+        val channel = RandomAccessFile(outputFile, "rw").channel
+        val pipeline = CapturePipeline(newSession(), source, channel, BLOCK_SIZE, 512, 4)
+        val listener = TestListener()
+        pipeline.setListener(listener)
+        pipeline.setPreRoll(preRoll)
+
+        pipeline.start()
+        assertTrue(source.awaitExhausted())
+        pipeline.stop()
+        assertTrue(pipeline.awaitTermination(5000))
+        assertTrue(listener.awaitFinished())
+
+        assertTrue(preRoll.isEmpty)
+        assertEquals((totalFrames - firstFrame) * 4, pipeline.bytesWritten)
+        assertEquals((totalFrames - firstFrame) * 4, outputFile.length())
+        val data = ByteBuffer.wrap(outputFile.readBytes()).order(ByteOrder.LITTLE_ENDIAN)
+        var index = firstFrame * 2
+        while (data.remaining() > 0) {
+            assertEquals(SyntheticPcmSource.sampleAt(index), data.short)
+            index++
+        }
+    }
+
+    @Test
+    fun test_dspChainProcessesPreRollAndCapturedBlocks() {
+        val totalFrames = 48000L * 3
+        val source = SyntheticPcmSource(totalFrames, 2)
+        val preRoll = PreRollBuffer(48000 * 4, 4)
+        val block = ByteBuffer.allocateDirect(BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+        for (i in 0 until 10) {
+            block.clear()
+            block.limit(source.read(block, BLOCK_SIZE))
+            preRoll.write(block)
+        }
+        //Inverts polarity, exact for every 16 bit sample except the most negative one.
+        val chain = DspChain(object : DspStage {
+            override fun prepare(sampleRate: Int, channelCount: Int, maxFrames: Int) {}
+
+            override fun process(samples: FloatArray, frames: Int) {
+                for (i in 0 until frames * 2) {
+                    samples[i] = -samples[i]
+                }
+            }
+        })
+        chain.prepare(48000, 2, BLOCK_SIZE / 4)
+        val channel = RandomAccessFile(outputFile, "rw").channel
+        val pipeline = CapturePipeline(newSession(), source, channel, BLOCK_SIZE, 512, 4)
+        val listener = TestListener()
+        pipeline.setListener(listener)
+        pipeline.setPreRoll(preRoll)
+        pipeline.setDspChain(chain)
+
+        pipeline.start()
+        assertTrue(source.awaitExhausted())
+        pipeline.stop()
+        assertTrue(pipeline.awaitTermination(5000))
+        assertTrue(listener.awaitFinished())
+
+        assertEquals(totalFrames * 4, outputFile.length())
+        val data = ByteBuffer.wrap(outputFile.readBytes()).order(ByteOrder.LITTLE_ENDIAN)
+        var index = 0L
+        while (data.remaining() > 0) {
+            assertEquals((-SyntheticPcmSource.sampleAt(index)).toShort(), data.short)
+            index++
+        }
+    }
+
+    @Test
+    fun test_audioDelayedByDspChainFlushedWhenStoppedWhilePaused() {
+        val totalFrames = 48000L * 2 + 123
+        //Samples under the limiter ceiling are only delayed.
+        val source = SyntheticPcmSource(totalFrames, 2) { (it % 20000).toShort() }
+        val chain = DspChain(LookAheadLimiter(-1f, 5f, 100f))
+        chain.prepare(48000, 2, BLOCK_SIZE / 4)
+        val session = newSession()
+        val channel = RandomAccessFile(outputFile, "rw").channel
+        val pipeline = CapturePipeline(session, source, channel, BLOCK_SIZE, 512, 4)
+        val listener = TestListener()
+        pipeline.setListener(listener)
+        pipeline.setDspChain(chain)
+
+        pipeline.start()
+        assertTrue(source.awaitExhausted())
+        session.moveTo(RecorderStateMachine.State.PAUSED)
+        pipeline.stop()
+        session.moveTo(RecorderStateMachine.State.STOPPING)
+        assertTrue(pipeline.awaitTermination(5000))
+        assertTrue(listener.awaitFinished())
+
+        val latency = chain.latencyFrames
+        assertEquals(240, latency)
+        assertEquals((totalFrames + latency) * 4, outputFile.length())
+        assertEquals((totalFrames + latency) * 4, listener.batchWrittenBytes)
+        val data = ByteBuffer.wrap(outputFile.readBytes()).order(ByteOrder.LITTLE_ENDIAN)
+        data.position(latency * 4)
+        var index = 0L
+        while (data.remaining() > 0) {
+            assertEquals((index % 20000).toShort(), data.short)
+            index++
+        }
+        assertEquals(totalFrames * 2, index)
+    }
+
+    @Test
+    fun test_clockCountsCapturedFramesOfHourWithoutDrift() {
+        val sampleRate = 48000
+        val totalFrames = sampleRate * 3600L
+        val source = SyntheticPcmSource(totalFrames, 1)
+        val channel = CountingChannel()
+        //Source is faster than real time, it waits for the writer so the ring does not overflow.
+        val pacedSource = PcmSource { buffer, sizeInBytes ->
+            while (source.producedFrames * 2 - channel.bytes > 480L * HOUR_BLOCK_SIZE) {
+                Thread.yield()
+            }
+            source.read(buffer, sizeInBytes)
+        }
+        val pipeline = CapturePipeline(newSession(), pacedSource, channel, HOUR_BLOCK_SIZE, 512, 2)
+        val clock = RecordingClock(sampleRate)
+        val listener = TestListener()
+        pipeline.setListener(listener)
+        pipeline.setClock(clock)
+
+        pipeline.start()
+        assertTrue(source.awaitExhausted(60000))
+        pipeline.stop()
+        assertTrue(pipeline.awaitTermination(5000))
+        assertTrue(listener.awaitFinished())
+
+        assertEquals(0L, pipeline.droppedFrames)
+        assertEquals(totalFrames, clock.frames)
+        assertEquals(totalFrames * 2, channel.bytes)
+        assertEquals(3600000L, clock.durationMills)
+        assertEquals(3600000000L, clock.durationMicros)
+    }
+
+    @Test
+    fun test_voiceActivityGateSkipsSilenceAndKeepsLookBack() {
+        val sampleRate = 16000
+        val totalFrames = sampleRate * 10L
+        val source = SyntheticPcmSource(totalFrames, 1) { speechAt(it, sampleRate) }
+        val channel = RandomAccessFile(outputFile, "rw").channel
+        val pipeline = CapturePipeline(newSession(), source, channel, VAD_BLOCK_SIZE, 512, 2)
+        val detector = VoiceActivityDetector(sampleRate, 1, -40f, -50f, 200)
+        val gate = VoiceActivityGate(detector, LOOK_BACK_FRAMES * 2, sampleRate, 2)
+        val clock = RecordingClock(sampleRate)
+        val listener = TestListener()
+        pipeline.setListener(listener)
+        pipeline.setVoiceActivityGate(gate)
+        pipeline.setClock(clock)
+
+        pipeline.start()
+        assertTrue(source.awaitExhausted())
+        pipeline.stop()
+        assertTrue(pipeline.awaitTermination(5000))
+        assertTrue(listener.awaitFinished())
+
+        val gaps = gate.gaps
+        //Silence before, between and after two stretches of speech.
+        assertEquals(3, gaps.gapCount)
+        assertEquals(0L, gaps.getPosition(0))
+        assertEquals(totalFrames * 2, pipeline.bytesWritten + gaps.skippedBytes)
+        assertEquals(pipeline.bytesWritten, outputFile.length())
+        assertEquals(pipeline.bytesWritten / 2, clock.frames)
+        assertEquals(pipeline.bytesWritten, listener.batchWrittenBytes)
+
+        //Every written frame is found in the original timeline.
+        val data = ByteBuffer.wrap(outputFile.readBytes()).order(ByteOrder.LITTLE_ENDIAN)
+        val written = HashSet<Long>()
+        var frame = 0L
+        while (data.remaining() > 0) {
+            val original = gaps.toOriginalFrame(frame)
+            assertEquals(speechAt(original, sampleRate), data.short)
+            written.add(original)
+            frame++
+        }
+        //Speech and the look-back before its onset are written.
+        for (start in longArrayOf(SPEECH_START_SECONDS[0] * sampleRate, SPEECH_START_SECONDS[1] * sampleRate)) {
+            for (f in start - LOOK_BACK_FRAMES until start + sampleRate) {
+                assertTrue("Frame $f", written.contains(f))
+            }
+            assertFalse(written.contains(start - LOOK_BACK_FRAMES - 1))
+        }
+    }
+
+    @Test
+    fun test_telemetryCountsShortAndFailedReads() {
+        val totalFrames = 48000L * 2
+        val synthetic = SyntheticPcmSource(totalFrames, 2)
+        var reads = 0
+        //Every 5th read is short and every 7th fails like AudioRecord.ERROR_INVALID_OPERATION.
+        val source = PcmSource { buffer, size ->
+            reads++
+            when {
+                synthetic.producedFrames >= totalFrames -> synthetic.read(buffer, size)
+                reads % 7 == 0 -> -3
+                reads % 5 == 0 -> synthetic.read(buffer, size / 2)
+                else -> synthetic.read(buffer, size)
+            }
+        }
+        val channel = RandomAccessFile(outputFile, "rw").channel
+        val pipeline = CapturePipeline(newSession(), source, channel, BLOCK_SIZE, 512, 4)
+        val listener = TestListener()
+        pipeline.setListener(listener)
+
+        pipeline.start()
+        assertTrue(synthetic.awaitExhausted())
+        pipeline.stop()
+        assertTrue(pipeline.awaitTermination(5000))
+        assertTrue(listener.awaitFinished())
+        channel.close()
+
+        val telemetry = pipeline.telemetry
+        //Reads after the source is exhausted return 0.
+        assertTrue(telemetry.emptyReads >= 1)
+        val dataReads = telemetry.reads - telemetry.emptyReads
+        assertEquals(dataReads / 7, telemetry.failedReads)
+        assertEquals(-3, telemetry.lastError)
+        assertTrue(telemetry.shortReads >= dataReads / 5 - dataReads / 35)
+        assertEquals(totalFrames, telemetry.capturedFrames)
+        assertEquals(0L, telemetry.droppedFrames)
+        assertEquals(totalFrames * 4, outputFile.length())
+        assertTrue(telemetry.writeLatency.count > 0)
+        assertEquals(pipeline.highWaterMark, telemetry.ringHighWater)
+        assertEquals(telemetry.reads - 1, telemetry.readGaps.count)
+    }
+
+    @Test
+    fun test_slotCountForDepth() {
+        //10 seconds of 44100 Hz stereo is 1764000 bytes.
+        assertEquals(460, CapturePipeline.slotCountForDepth(10f, 44100, 2, 3840))
+        assertEquals(2, CapturePipeline.slotCountForDepth(0f, 44100, 2, 3840))
+    }
+
+    private class TestListener : CapturePipeline.Listener {
+
+        private val finished = CountDownLatch(1)
+
+        @Volatile
+        var errors = 0
+
+        @Volatile
+        var batchWrittenBytes = 0L
+
+        @Volatile
+        var pauses = 0
+
+        override fun onBlock(block: ByteBuffer) {
+            //Listener may read block content, position is reset by pipeline.
+            while (block.hasRemaining()) {
+                block.short
+            }
+        }
+
+        override fun onBatchWritten(totalBytes: Long) {
+            batchWrittenBytes = totalBytes
+        }
+
+        override fun onPaused() {
+            pauses++
+        }
+
+        override fun onWriteError(e: IOException) {
+            errors++
+        }
+
+        override fun onFinished() {
+            finished.countDown()
+        }
+
+        fun awaitFinished(): Boolean = finished.await(5, TimeUnit.SECONDS)
+    }
+
+    private class StallingChannel(
+        private val delegate: FileChannel,
+        private val stallMills: Long,
+        private val fail: Boolean = false
+    ) : GatheringByteChannel {
+
+        override fun write(srcs: Array<out ByteBuffer>, offset: Int, length: Int): Long {
+            if (fail) {
+                throw IOException("No space left on device")
+            }
+            Thread.sleep(stallMills)
+            return delegate.write(srcs, offset, length)
+        }
+
+        override fun write(srcs: Array<out ByteBuffer>): Long = write(srcs, 0, srcs.size)
+
+        override fun write(src: ByteBuffer): Int = delegate.write(src)
+
+        override fun isOpen(): Boolean = delegate.isOpen
+
+        override fun close() = delegate.close()
+    }
+
+    /** Output which only counts written bytes. */
+    private class CountingChannel : GatheringByteChannel {
+
+        @Volatile
+        var bytes = 0L
+
+        override fun write(srcs: Array<out ByteBuffer>, offset: Int, length: Int): Long {
+            var total = 0L
+            for (i in offset until offset + length) {
+                total += srcs[i].remaining()
+                srcs[i].position(srcs[i].limit())
+            }
+            bytes += total
+            return total
+        }
+
+        override fun write(srcs: Array<out ByteBuffer>): Long = write(srcs, 0, srcs.size)
+
+        override fun write(src: ByteBuffer): Int = write(arrayOf(src), 0, 1).toInt()
+
+        override fun isOpen(): Boolean = true
+
+        override fun close() {}
+    }
+
+    companion object {
+        private const val BLOCK_SIZE = 3840
+        /** Large odd count of frames per block, so an hour of audio is written quickly and ends with a partial block. */
+        private const val HOUR_BLOCK_SIZE = 19198
+        /** 20 mills of 16 kHz mono. */
+        private const val VAD_BLOCK_SIZE = 640
+        private const val LOOK_BACK_FRAMES = 1600L
+        /** Seconds where one second of speech starts in the synthetic recording. */
+        private val SPEECH_START_SECONDS = longArrayOf(2, 6)
+
+        /** Low noise with two seconds of loud tone. */
+        private fun speechAt(index: Long, sampleRate: Int): Short {
+            val second = index / sampleRate
+            return if (second == SPEECH_START_SECONDS[0] || second == SPEECH_START_SECONDS[1]) {
+                (8000 * sin(2 * PI * 440 * index / sampleRate) + index % 7).toInt().toShort()
+            } else {
+                (index * 7919 % 41 - 20).toInt().toShort()
+            }
+        }
+
+        private fun newSession(): RecorderStateMachine {
+            val session = RecorderStateMachine(RecorderStateMachine.NO_CPU_CLOCK)
+            session.moveTo(RecorderStateMachine.State.PREPARED)
+            session.moveTo(RecorderStateMachine.State.RECORDING)
+            return session
+        }
+    }
+}
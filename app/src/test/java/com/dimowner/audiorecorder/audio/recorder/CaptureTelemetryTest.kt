@@ -0,0 +1,162 @@
+package com.dimowner.audiorecorder.audio.recorder
+
+import junit.framework.TestCase.assertEquals
+import junit.framework.TestCase.assertFalse
+import junit.framework.TestCase.assertNotNull
+import junit.framework.TestCase.assertNull
+import junit.framework.TestCase.assertTrue
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+
+class CaptureTelemetryTest {
+
+    private lateinit var file: File
+    private val created = ArrayList<File>()
+
+    @Before
+    fun setUp() {
+        file = File.createTempFile("record", ".wav")
+        created.add(file)
+    }
+
+    @After
+    fun after() {
+        for (f in created) {
+            CaptureTelemetry.sidecarFile(f).delete()
+            f.delete()
+        }
+    }
+
+    @Test
+    fun test_readsClassified() {
+        val telemetry = CaptureTelemetry(4, BLOCK_SIZE, 100)
+        telemetry.onRead(BLOCK_SIZE, BLOCK_SIZE, 0, MILLS)
+        telemetry.onRead(BLOCK_SIZE / 2, BLOCK_SIZE, MILLS, 2 * MILLS)
+        telemetry.onRead(0, BLOCK_SIZE, 2 * MILLS, 3 * MILLS)
+        //AudioRecord.ERROR_INVALID_OPERATION
+        telemetry.onRead(-3, BLOCK_SIZE, 3 * MILLS, 4 * MILLS)
+        //AudioRecord.ERROR_DEAD_OBJECT
+        telemetry.onRead(-6, BLOCK_SIZE, 4 * MILLS, 5 * MILLS)
+
+        assertEquals(5L, telemetry.reads)
+        assertEquals(1L, telemetry.shortReads)
+        assertEquals(1L, telemetry.emptyReads)
+        assertEquals(2L, telemetry.failedReads)
+        assertEquals(-6, telemetry.lastError)
+        //Reads are called right after the previous one returns.
+        assertEquals(4L, telemetry.readGaps.count)
+        assertEquals(0L, telemetry.readGaps.maxNanos)
+    }
+
+    @Test
+    fun test_stallLongerThanSourceBufferLosesFrames() {
+        val telemetry = CaptureTelemetry(2, BLOCK_SIZE, 100)
+        //Source holds 40 mills of 48 kHz audio.
+        telemetry.setSource(48000, 40 * MILLS)
+        telemetry.onRead(BLOCK_SIZE, BLOCK_SIZE, 0, 20 * MILLS)
+        //30 mills gap fits the source buffer.
+        telemetry.onRead(BLOCK_SIZE, BLOCK_SIZE, 50 * MILLS, 70 * MILLS)
+        //100 mills gap loses 60 mills.
+        telemetry.onRead(BLOCK_SIZE, BLOCK_SIZE, 170 * MILLS, 190 * MILLS)
+        telemetry.onOverflow(500)
+
+        assertEquals(1L, telemetry.stalls)
+        assertEquals(2880L, telemetry.lostFrames)
+        assertEquals(500L, telemetry.overflowFrames)
+        assertEquals(3380L, telemetry.droppedFrames)
+    }
+
+    @Test
+    fun test_pauseIsNotStall() {
+        val telemetry = CaptureTelemetry(2, BLOCK_SIZE, 100)
+        telemetry.setSource(48000, 40 * MILLS)
+        telemetry.onRead(BLOCK_SIZE, BLOCK_SIZE, 0, 20 * MILLS)
+        telemetry.onCaptureResumed()
+        telemetry.onRead(BLOCK_SIZE, BLOCK_SIZE, 5000 * MILLS, 5020 * MILLS)
+
+        assertEquals(0L, telemetry.stalls)
+        assertEquals(0L, telemetry.readGaps.count)
+    }
+
+    @Test
+    fun test_sidecarRoundTrip() {
+        val telemetry = CaptureTelemetry(4, BLOCK_SIZE, 460)
+        telemetry.setDevice("Google Pixel 6")
+        telemetry.setSource(44100, 20 * MILLS)
+        telemetry.onRead(BLOCK_SIZE, BLOCK_SIZE, 0, MILLS)
+        telemetry.onRead(100, BLOCK_SIZE, MILLS, 2 * MILLS)
+        telemetry.onRead(-3, BLOCK_SIZE, 60 * MILLS, 61 * MILLS)
+        telemetry.onCaptured(1000)
+        telemetry.onOverflow(20)
+        telemetry.onWrite(150_000)
+        telemetry.onWrite(90 * MILLS)
+        telemetry.setRingHighWater(17)
+        telemetry.write(file)
+
+        val restored = CaptureTelemetry.read(file)
+        assertNotNull(restored)
+        assertEquals("Google Pixel 6", restored!!.device)
+        assertEquals(44100, restored.sampleRate)
+        assertEquals(4, restored.frameSize)
+        assertEquals(BLOCK_SIZE, restored.blockSize)
+        assertEquals(20 * MILLS, restored.sourceBufferNanos)
+        assertEquals(460, restored.ringSlots)
+        assertEquals(17, restored.ringHighWater)
+        assertEquals(3L, restored.reads)
+        assertEquals(1L, restored.shortReads)
+        assertEquals(1L, restored.failedReads)
+        assertEquals(-3, restored.lastError)
+        assertEquals(1000L, restored.capturedFrames)
+        assertEquals(telemetry.droppedFrames, restored.droppedFrames)
+        assertEquals(1L, restored.stalls)
+        for (histogram in listOf(restored.writeLatency to telemetry.writeLatency,
+                restored.readGaps to telemetry.readGaps)) {
+            assertEquals(histogram.second.count, histogram.first.count)
+            assertEquals(histogram.second.totalNanos, histogram.first.totalNanos)
+            assertEquals(histogram.second.maxNanos, histogram.first.maxNanos)
+            for (bucket in 0 until LatencyHistogram.BUCKET_COUNT) {
+                assertEquals(histogram.second.getBucketCount(bucket), histogram.first.getBucketCount(bucket))
+            }
+        }
+        assertEquals(telemetry.formatSummary(), restored.formatSummary())
+        assertTrue(restored.formatSummary().contains("last error -3"))
+    }
+
+    @Test
+    fun test_missingOrInvalidSidecar() {
+        assertNull(CaptureTelemetry.read(file))
+        CaptureTelemetry.sidecarFile(file).writeText("not telemetry\nreads 1\n")
+        assertNull(CaptureTelemetry.read(file))
+        CaptureTelemetry.sidecarFile(file).writeText("# AudioRecorder capture telemetry v1\nreads x\n")
+        assertNull(CaptureTelemetry.read(file))
+    }
+
+    @Test
+    fun test_sidecarFollowsRecordFile() {
+        val telemetry = CaptureTelemetry(2, BLOCK_SIZE, 100)
+        telemetry.onRead(-3, BLOCK_SIZE, 0, MILLS)
+        telemetry.write(file)
+        val renamed = File(file.parentFile, file.name + ".del")
+        created.add(renamed)
+
+        assertTrue(file.renameTo(renamed))
+        assertTrue(RecordingSegments.renameSegments(file, renamed))
+        assertNull(CaptureTelemetry.read(file))
+        assertEquals(1L, CaptureTelemetry.read(renamed)!!.failedReads)
+
+        val copy = File.createTempFile("copy", ".wav")
+        created.add(copy)
+        assertTrue(RecordingSegments.copySegments(renamed, copy))
+        assertEquals(1L, CaptureTelemetry.read(copy)!!.failedReads)
+
+        assertTrue(RecordingSegments.deleteSegments(renamed))
+        assertFalse(CaptureTelemetry.sidecarFile(renamed).exists())
+    }
+
+    companion object {
+        private const val BLOCK_SIZE = 3840
+        private const val MILLS = 1_000_000L
+    }
+}
@@ -0,0 +1,103 @@
+package com.dimowner.audiorecorder.audio.recorder
+
+import com.dimowner.audiorecorder.audio.dsp.PcmFormatConverter
+import junit.framework.TestCase.assertEquals
+import junit.framework.TestCase.assertTrue
+import org.junit.Test
+import java.io.ByteArrayOutputStream
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import kotlin.math.PI
+import kotlin.math.abs
+import kotlin.math.roundToInt
+import kotlin.math.sin
+
+class ConvertingPcmOutputTest {
+
+    @Test
+    fun test_writesConvertedPcm() {
+        val memory = MemoryOutput()
+        val output = ConvertingPcmOutput(memory, PcmFormatConverter(48000, 2, 16000, 1, BLOCK_SIZE), BLOCK_SIZE)
+        val pcm = ByteBuffer.allocate(48000 * 4).order(ByteOrder.LITTLE_ENDIAN)
+        for (i in 0 until 48000L) {
+            pcm.putShort(sine(i, 48000))
+            pcm.putShort(sine(i, 48000))
+        }
+        pcm.flip()
+        //Writes end in the middle of frames.
+        while (pcm.hasRemaining()) {
+            val chunk = pcm.slice()
+            chunk.limit(minOf(1001, chunk.remaining()))
+            assertEquals(chunk.remaining(), output.write(chunk))
+            pcm.position(pcm.position() + chunk.position())
+        }
+        output.finish()
+
+        assertTrue(memory.isFinished)
+        //Frames delayed by the resampler filter are written on finish.
+        val data = ByteBuffer.wrap(memory.data.toByteArray()).order(ByteOrder.LITTLE_ENDIAN)
+        assertEquals(16000 * 2, data.capacity())
+        for (i in 100 until 15900) {
+            assertTrue(abs(data.getShort(i * 2) - sine(i.toLong(), 16000)) <= 4)
+        }
+    }
+
+    @Test
+    fun test_passThrough() {
+        val memory = MemoryOutput()
+        val output = ConvertingPcmOutput(memory, PcmFormatConverter(16000, 1, 16000, 1, BLOCK_SIZE), BLOCK_SIZE)
+        val pcm = ByteArray(10001) { it.toByte() }
+        output.write(ByteBuffer.wrap(pcm))
+        output.finish()
+
+        //Incomplete frame at the end is dropped.
+        assertTrue(memory.data.toByteArray().contentEquals(pcm.copyOf(10000)))
+    }
+
+    private fun sine(index: Long, sampleRate: Int): Short {
+        return (12000 * sin(2 * PI * 440 * index / sampleRate)).roundToInt().toShort()
+    }
+
+    /** Output which accepts at most 1000 bytes by one write. */
+    private class MemoryOutput : PcmOutput {
+        val data = ByteArrayOutputStream()
+        var isFinished = false
+
+        override fun write(srcs: Array<ByteBuffer>, offset: Int, length: Int): Long {
+            var total = 0L
+            for (i in offset until offset + length) {
+                total += write(srcs[i])
+            }
+            return total
+        }
+
+        override fun write(srcs: Array<ByteBuffer>): Long = write(srcs, 0, srcs.size)
+
+        override fun write(src: ByteBuffer): Int {
+            val bytes = ByteArray(minOf(src.remaining(), 1000))
+            src.get(bytes)
+            data.write(bytes)
+            return bytes.size
+        }
+
+        override fun onBatchWritten() {}
+
+        override fun onPause() {}
+
+        override fun finish() {
+            isFinished = true
+        }
+
+        override fun isOpen(): Boolean = true
+
+        override fun close() {}
+
+        override fun getWriteCount(): Long = 0
+
+        override fun getSyncCount(): Long = 0
+    }
+
+    companion object {
+        private const val BLOCK_SIZE = 3840
+    }
+}
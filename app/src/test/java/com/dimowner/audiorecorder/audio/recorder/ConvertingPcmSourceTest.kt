@@ -0,0 +1,104 @@
+package com.dimowner.audiorecorder.audio.recorder
+
+import com.dimowner.audiorecorder.audio.dsp.PcmFormatConverter
+import junit.framework.TestCase.assertEquals
+import junit.framework.TestCase.assertTrue
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import kotlin.math.PI
+import kotlin.math.abs
+import kotlin.math.roundToInt
+import kotlin.math.sin
+
+class ConvertingPcmSourceTest {
+
+    private lateinit var outputFile: File
+
+    @Before
+    fun setUp() {
+        outputFile = File.createTempFile("converted", ".pcm")
+    }
+
+    @After
+    fun after() {
+        outputFile.delete()
+    }
+
+    @Test
+    fun test_readReturnsConvertedBlocks() {
+        val native = SyntheticPcmSource(48000, 2) { sine(it / 2, 48000) }
+        val source = ConvertingPcmSource(native, PcmFormatConverter(48000, 2, 44100, 1, BLOCK_SIZE), BLOCK_SIZE)
+        val slot = ByteBuffer.allocateDirect(source.getBlockSize()).order(ByteOrder.LITTLE_ENDIAN)
+
+        assertEquals(882 * 2, source.getBlockSize())
+        var total = 0
+        while (true) {
+            val read = source.read(slot, slot.capacity())
+            if (read == 0) {
+                break
+            }
+            assertTrue(read <= slot.capacity())
+            assertEquals(0, slot.position())
+            total += read
+        }
+        assertEquals(48000L, native.producedFrames)
+        assertTrue(abs(total / 2 - 44100) < 40)
+    }
+
+    @Test
+    fun test_smallReadConsumesLessInput() {
+        val native = SyntheticPcmSource(48000, 2)
+        val source = ConvertingPcmSource(native, PcmFormatConverter(48000, 2, 16000, 1, BLOCK_SIZE), BLOCK_SIZE)
+        val slot = ByteBuffer.allocateDirect(source.getBlockSize()).order(ByteOrder.LITTLE_ENDIAN)
+
+        source.read(slot, 100)
+        assertEquals(150L, native.producedFrames)
+        source.read(slot, slot.capacity())
+        assertEquals(150L + BLOCK_SIZE / 4, native.producedFrames)
+    }
+
+    @Test
+    fun test_pipelineWritesRecordingFormat() {
+        val native = SyntheticPcmSource(48000L * 3, 2) { sine(it / 2, 48000) }
+        val source = ConvertingPcmSource(native, PcmFormatConverter(48000, 2, 16000, 1, BLOCK_SIZE), BLOCK_SIZE)
+        val channel = RandomAccessFile(outputFile, "rw").channel
+        val session = RecorderStateMachine(RecorderStateMachine.NO_CPU_CLOCK)
+        session.moveTo(RecorderStateMachine.State.PREPARED)
+        session.moveTo(RecorderStateMachine.State.RECORDING)
+        val pipeline = CapturePipeline(session, source, channel, source.getBlockSize(), 512, 2)
+        val clock = RecordingClock(16000)
+        pipeline.setClock(clock)
+
+        pipeline.start()
+        assertTrue(native.awaitExhausted())
+        pipeline.stop()
+        assertTrue(pipeline.awaitTermination(5000))
+        channel.close()
+
+        //Clock counts frames of the recording format.
+        assertEquals(pipeline.capturedFrames, clock.frames)
+        assertTrue(abs(pipeline.capturedFrames - 48000) < 40)
+        val data = ByteBuffer.wrap(outputFile.readBytes()).order(ByteOrder.LITTLE_ENDIAN)
+        //Filter settles on the sudden start of the tone.
+        data.position(200)
+        var index = 100L
+        while (data.remaining() > 0) {
+            assertTrue(abs(data.short - sine(index, 16000)) <= 4)
+            index++
+        }
+    }
+
+    private fun sine(index: Long, sampleRate: Int): Short {
+        return (12000 * sin(2 * PI * 440 * index / sampleRate)).roundToInt().toShort()
+    }
+
+    companion object {
+        /** AudioRecord min buffer size for 48 kHz stereo on a typical device. 20 ms of audio. */
+        private const val BLOCK_SIZE = 3840
+    }
+}
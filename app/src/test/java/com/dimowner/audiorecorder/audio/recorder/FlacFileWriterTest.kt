@@ -0,0 +1,167 @@
+package com.dimowner.audiorecorder.audio.recorder
+
+import com.dimowner.audiorecorder.audio.encoder.FlacTestDecoder
+import com.dimowner.audiorecorder.audio.recorder.PreallocatedFileWriter.Durability
+import junit.framework.TestCase.assertEquals
+import junit.framework.TestCase.assertTrue
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.security.MessageDigest
+import java.util.Random
+
+class FlacFileWriterTest {
+
+    private lateinit var file: File
+    private lateinit var output: PreallocatedFileWriter
+
+    @Before
+    fun setUp() {
+        file = File.createTempFile("writer", ".flac")
+    }
+
+    @After
+    fun after() {
+        file.delete()
+    }
+
+    @Test
+    fun test_writtenFileDecodesWithMetadata() {
+        val pcm = speech(SAMPLE_RATE * 3 + 123)
+        val writer = write(pcm, 3841)
+        writer.finish()
+        writer.close()
+
+        val decoder = FlacTestDecoder(file.readBytes())
+        assertEquals(pcm.toList(), decoder.decode().toList())
+        assertEquals(SAMPLE_RATE, decoder.sampleRate)
+        assertEquals(CHANNELS, decoder.channels)
+        assertEquals(16, decoder.bitsPerSample)
+        assertEquals(pcm.size / CHANNELS.toLong(), decoder.totalSamples)
+        assertEquals(writer.totalSamples, decoder.totalSamples)
+        assertEquals(MessageDigest.getInstance("MD5").digest(FlacTestDecoder.toBytes(pcm)).toList(), decoder.md5.toList())
+        assertTrue(decoder.minFrameSize in 1..decoder.maxFrameSize)
+        assertEquals(FlacFileWriter.HEADER_SIZE + writer.framesLength, file.length())
+    }
+
+    @Test
+    fun test_seekPointsStartFrames() {
+        val pcm = speech(SAMPLE_RATE * 25)
+        val writer = write(pcm, 4096)
+        writer.finish()
+        writer.close()
+
+        val data = file.readBytes()
+        val decoder = FlacTestDecoder(data)
+        decoder.decode()
+        val points = decoder.seekPoints.filter { it.sample != -1L }
+        assertEquals(FlacFileWriter.SEEK_POINT_CAPACITY, decoder.seekPoints.size)
+        //Points at 0, 10 and 20 seconds rounded up to the frame start.
+        assertEquals(3, points.size)
+        for (point in points) {
+            assertEquals(0L, point.sample % FlacFileWriter.DEFAULT_BLOCK_SIZE)
+            val offset = decoder.firstFrameOffset + point.offset.toInt()
+            assertEquals(0xFF, data[offset].toInt() and 0xFF)
+            assertEquals(0xF8, data[offset + 1].toInt() and 0xFF)
+        }
+    }
+
+    @Test
+    fun test_seekTableThinnedWhenFull() {
+        val table = FlacFileWriter.SeekTable(4, 10)
+        for (i in 0 until 10) {
+            table.onFrame(i * 10L, i * 100L, 10)
+        }
+        val buffer = ByteBuffer.allocate(4 * 18)
+        table.write(buffer)
+        buffer.flip()
+        //Interval doubled twice: points at 0, 40 and 80 samples.
+        assertEquals(0L, buffer.getLong(0))
+        assertEquals(40L, buffer.getLong(18))
+        assertEquals(400L, buffer.getLong(26))
+        assertEquals(80L, buffer.getLong(36))
+        assertEquals(-1L, buffer.getLong(54))
+    }
+
+    @Test
+    fun test_repairInterruptedRecording() {
+        val pcm = speech(SAMPLE_RATE * 4)
+        write(pcm, 3840)
+        //Recording interrupted: written data is not finished, the last frame is damaged.
+        output.flush()
+        val flushed = output.flushedPosition
+        output.close()
+        RandomAccessFile(file, "rw").use {
+            it.seek(flushed - 500)
+            it.write(ByteArray(500))
+        }
+
+        val total = FlacFileWriter.repair(file)
+
+        val decoder = FlacTestDecoder(file.readBytes())
+        val decoded = decoder.decode()
+        assertTrue(total > 0)
+        assertEquals(total, decoder.totalSamples)
+        assertEquals(total * CHANNELS, decoded.size.toLong())
+        assertEquals(pcm.take(decoded.size), decoded.toList())
+    }
+
+    @Test
+    fun test_repairFinishedFileKeepsIt() {
+        val pcm = speech(SAMPLE_RATE * 2)
+        val writer = write(pcm, 3840)
+        writer.finish()
+        writer.close()
+        val data = file.readBytes()
+
+        assertEquals(pcm.size / CHANNELS.toLong(), FlacFileWriter.repair(file))
+        assertEquals(data.toList(), file.readBytes().toList())
+    }
+
+    @Test
+    fun test_repairOtherFile() {
+        file.writeBytes(WavHeader.generate(0, SAMPLE_RATE, CHANNELS, 16) + ByteArray(FlacFileWriter.HEADER_SIZE))
+        assertEquals(-1L, FlacFileWriter.repair(file))
+    }
+
+    /** Write PCM into the file by buffers of the given size. */
+    private fun write(pcm: ShortArray, bufferSize: Int): FlacFileWriter {
+        val raf = RandomAccessFile(file, "rw")
+        raf.setLength(0)
+        raf.write(FlacFileWriter.generateHeader(SAMPLE_RATE, CHANNELS, FlacFileWriter.DEFAULT_BLOCK_SIZE))
+        output = PreallocatedFileWriter(raf, FlacFileWriter.HEADER_SIZE.toLong(), 64 * 1024, 1024 * 1024, Durability.NONE, 0)
+        output.setSpaceAllocator(PreallocatedFileWriter.ZeroFillSpaceAllocator())
+        val writer = FlacFileWriter(output, SAMPLE_RATE, CHANNELS, FlacFileWriter.DEFAULT_BLOCK_SIZE)
+        val bytes = FlacTestDecoder.toBytes(pcm)
+        for (i in bytes.indices step bufferSize) {
+            val count = minOf(bufferSize, bytes.size - i)
+            val buffer = ByteBuffer.allocateDirect(count)
+            buffer.put(bytes, i, count)
+            buffer.flip()
+            writer.write(arrayOf(buffer), 0, 1)
+        }
+        return writer
+    }
+
+    /** Noise bursts filtered to a speech-like spectrum. */
+    private fun speech(frames: Int): ShortArray {
+        val random = Random(1)
+        val pcm = ShortArray(frames * CHANNELS)
+        var y = 0.0
+        for (i in 0 until frames) {
+            val envelope = maxOf(0.0, Math.sin(2 * Math.PI * 3 * i / SAMPLE_RATE))
+            y = 0.95 * y + random.nextGaussian() * 1500 * envelope
+            pcm[2 * i] = y.coerceIn(-32768.0, 32767.0).toInt().toShort()
+            pcm[2 * i + 1] = (y + random.nextGaussian() * 20).coerceIn(-32768.0, 32767.0).toInt().toShort()
+        }
+        return pcm
+    }
+
+    companion object {
+        private const val SAMPLE_RATE = 44100
+        private const val CHANNELS = 2
+    }
+}
@@ -0,0 +1,116 @@
+package com.dimowner.audiorecorder.audio.recorder
+
+import com.dimowner.audiorecorder.Benchmark
+import com.dimowner.audiorecorder.audio.encoder.ImaAdpcmEncoder
+import com.dimowner.audiorecorder.audio.recorder.PreallocatedFileWriter.Durability
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import kotlin.math.sin
+
+/**
+ * Cost per second of audio of IMA ADPCM encoding compared to the current PCM WAV path
+ * for 10 minutes of 48 kHz stereo delivered in AudioRecord sized blocks.
+ */
+class ImaAdpcmWavWriterBenchmark {
+
+    private lateinit var file: File
+    private val blocks = Array<ByteBuffer>(BATCH_BLOCKS) {
+        val block = ByteBuffer.allocateDirect(BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+        for (i in 0 until BLOCK_SIZE / 2) {
+            block.putShort((8000 * sin((it * BLOCK_SIZE / 2 + i) * 0.03)).toInt().toShort())
+        }
+        block.flip()
+        block
+    }
+
+    @Before
+    fun setUp() {
+        Benchmark.assumeEnabled()
+        file = File.createTempFile("benchmark", ".wav")
+    }
+
+    @After
+    fun after() {
+        file.delete()
+    }
+
+    @Test
+    fun benchmark_10min() {
+        val encoder = ImaAdpcmEncoder(SAMPLE_RATE, CHANNELS)
+        val pcm = ByteArray(encoder.samplesPerBlock * CHANNELS * 2)
+        ByteBuffer.wrap(pcm).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().put(ShortArray(pcm.size / 2) {
+            (8000 * sin(it * 0.03)).toInt().toShort()
+        })
+        val out = ByteArray(encoder.blockAlign)
+        val encodeBlocks = (SAMPLE_RATE.toLong() * SECONDS / encoder.samplesPerBlock).toInt()
+        val encode = Benchmark.measure("IMA ADPCM encode only", 1, 3) {
+            for (i in 0 until encodeBlocks) {
+                encoder.encodeBlock(pcm, 0, out, 0)
+            }
+            Benchmark.sink += out[out.size - 1]
+        }
+        printResult("IMA ADPCM encode only", encode, 0)
+
+        var length = 0L
+        val wav = Benchmark.measure("PCM WAV file", 1, 3) {
+            val writer = SegmentedWavWriter(file, { f -> openFileWriter(f, WavHeader.generate(0, SAMPLE_RATE, CHANNELS, 16)) },
+                    SAMPLE_RATE, CHANNELS, 16, 0)
+            writeAll(writer)
+            length = file.length()
+        }
+        printResult("PCM WAV file", wav, length)
+
+        val adpcm = Benchmark.measure("IMA ADPCM WAV file", 1, 3) {
+            writeAll(ImaAdpcmWavWriter(openFileWriter(file, ImaAdpcmWavHeader.generate(0, 0, SAMPLE_RATE, CHANNELS)),
+                    SAMPLE_RATE, CHANNELS))
+            length = file.length()
+        }
+        printResult("IMA ADPCM WAV file", adpcm, length)
+    }
+
+    private fun writeAll(writer: PcmOutput) {
+        val blockCount = (SAMPLE_RATE.toLong() * CHANNELS * 2 * SECONDS / BLOCK_SIZE).toInt()
+        var i = 0
+        while (i < blockCount) {
+            val count = minOf(BATCH_BLOCKS, blockCount - i)
+            for (j in 0 until count) {
+                blocks[j].rewind()
+            }
+            writer.write(blocks, 0, count)
+            writer.onBatchWritten()
+            i += count
+        }
+        writer.finish()
+        writer.close()
+    }
+
+    private fun openFileWriter(file: File, header: ByteArray): PreallocatedFileWriter {
+        val raf = RandomAccessFile(file, "rw")
+        raf.setLength(0)
+        raf.write(header)
+        return PreallocatedFileWriter(raf, header.size.toLong(), BUFFER_SIZE, CHUNK_SIZE, Durability.NONE, 0)
+    }
+
+    private fun printResult(name: String, nanos: Long, length: Long) {
+        println(String.format("%-48s %8.3f ms per second of audio %10.1f MB", name,
+                nanos / 1e6 / SECONDS, length / 1e6))
+        Benchmark.printRealtimeFactor(name, nanos, SECONDS.toDouble())
+    }
+
+    companion object {
+        private const val SAMPLE_RATE = 48000
+        private const val CHANNELS = 2
+        private const val SECONDS = 600
+        /** AudioRecord min buffer size for 48 kHz stereo on a typical device. 20 ms of audio. */
+        private const val BLOCK_SIZE = 3840
+        /** Blocks captured while writer waits 50 ms. */
+        private const val BATCH_BLOCKS = 3
+        private const val BUFFER_SIZE = 64 * 1024
+        private const val CHUNK_SIZE = 4 * 1024 * 1024L
+    }
+}
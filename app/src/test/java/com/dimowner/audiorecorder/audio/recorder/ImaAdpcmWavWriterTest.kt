@@ -0,0 +1,174 @@
+package com.dimowner.audiorecorder.audio.recorder
+
+import com.dimowner.audiorecorder.audio.encoder.ImaAdpcmEncoder
+import com.dimowner.audiorecorder.audio.encoder.ImaAdpcmEncoderTest
+import com.dimowner.audiorecorder.audio.recorder.PreallocatedFileWriter.Durability
+import junit.framework.TestCase.assertEquals
+import junit.framework.TestCase.assertNotNull
+import junit.framework.TestCase.assertNull
+import junit.framework.TestCase.assertTrue
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import kotlin.math.sin
+
+class ImaAdpcmWavWriterTest {
+
+    private lateinit var file: File
+    private lateinit var output: PreallocatedFileWriter
+
+    @Before
+    fun setUp() {
+        file = File.createTempFile("writer", ".wav")
+    }
+
+    @After
+    fun after() {
+        file.delete()
+    }
+
+    @Test
+    fun test_header() {
+        val header = ByteBuffer.wrap(ImaAdpcmWavHeader.generate(2041 * 3, 2048 * 3, SAMPLE_RATE, CHANNELS))
+                .order(ByteOrder.LITTLE_ENDIAN)
+        assertEquals(ImaAdpcmWavHeader.HEADER_SIZE, header.capacity())
+        assertEquals(2048 * 3 + 52, header.getInt(4))
+        //'fmt ' chunk with extension.
+        assertEquals(20, header.getInt(16))
+        assertEquals(0x11.toShort(), header.getShort(20))
+        assertEquals(CHANNELS.toShort(), header.getShort(22))
+        assertEquals(SAMPLE_RATE, header.getInt(24))
+        assertEquals(44251, header.getInt(28))
+        assertEquals(2048.toShort(), header.getShort(32))
+        assertEquals(4.toShort(), header.getShort(34))
+        assertEquals(2.toShort(), header.getShort(36))
+        assertEquals(2041.toShort(), header.getShort(38))
+        //'fact' chunk.
+        assertEquals("fact", String(header.array(), 40, 4))
+        assertEquals(4, header.getInt(44))
+        assertEquals(2041 * 3, header.getInt(48))
+        assertEquals("data", String(header.array(), 52, 4))
+        assertEquals(2048 * 3, header.getInt(56))
+
+        RandomAccessFile(file, "rw").use {
+            it.write(header.array())
+            val read = ImaAdpcmWavHeader.read(it)
+            assertNotNull(read)
+            assertEquals(2041L * 3, read!!.sampleLength)
+            assertEquals(2048L * 3, read.dataLength)
+            assertEquals(2041L * 3 * 1000000 / SAMPLE_RATE, read.durationMicros)
+            //PCM WAV is not read as ADPCM and vice versa.
+            it.seek(0)
+            it.write(WavHeader.generate(0, SAMPLE_RATE, CHANNELS, 16))
+            assertNull(ImaAdpcmWavHeader.read(it))
+        }
+    }
+
+    @Test
+    fun test_writtenFileDecodes() {
+        val pcm = tone(SAMPLE_RATE * 2 + 100)
+        val writer = write(pcm)
+        writer.finish()
+        writer.close()
+
+        val header = RandomAccessFile(file, "r").use { ImaAdpcmWavHeader.read(it) }!!
+        assertEquals(pcm.size / CHANNELS.toLong(), header.sampleLength)
+        assertEquals(writer.totalSamples, header.sampleLength)
+        assertEquals(0L, header.dataLength % header.blockAlign)
+        assertEquals(ImaAdpcmWavHeader.HEADER_SIZE + header.dataLength, file.length())
+
+        val data = file.readBytes().copyOfRange(ImaAdpcmWavHeader.HEADER_SIZE, file.length().toInt())
+        val decoded = ImaAdpcmEncoderTest.decode(data, CHANNELS, header.blockAlign)
+        //Step size adapts during the first samples of the stream.
+        for (i in 32 * CHANNELS until pcm.size) {
+            assertTrue(Math.abs(pcm[i] - decoded[i]) < 500)
+        }
+    }
+
+    @Test
+    fun test_headerCommittedPeriodically() {
+        val writer = write(tone(SAMPLE_RATE * 3), 10000)
+        output.flush()
+        writer.onBatchWritten()
+
+        assertTrue(writer.committedDataLength > 0)
+        assertEquals(0L, writer.committedDataLength % ImaAdpcmEncoder.blockAlign(SAMPLE_RATE, CHANNELS))
+        val header = RandomAccessFile(file, "r").use { ImaAdpcmWavHeader.read(it) }!!
+        assertEquals(writer.committedDataLength, header.dataLength)
+        writer.close()
+    }
+
+    @Test
+    fun test_repairInterruptedRecording() {
+        val writer = write(tone(SAMPLE_RATE * 3), 10000)
+        output.flush()
+        writer.onBatchWritten()
+        val flushed = writer.flushedDataLength
+        output.close()
+
+        val header = ImaAdpcmWavHeader.repair(file)
+
+        assertNotNull(header)
+        val blockAlign = header!!.blockAlign
+        assertEquals(flushed - flushed % blockAlign, header.dataLength)
+        assertEquals(header.dataLength / blockAlign * header.samplesPerBlock, header.sampleLength)
+        assertEquals(ImaAdpcmWavHeader.HEADER_SIZE + header.dataLength, file.length())
+        //Repaired file is not changed by the next repair.
+        val data = file.readBytes()
+        ImaAdpcmWavHeader.repair(file)
+        assertEquals(data.toList(), file.readBytes().toList())
+    }
+
+    @Test
+    fun test_repairKeepsLastBlockEndingWithZeros() {
+        val blockAlign = ImaAdpcmWavHeader(SAMPLE_RATE, CHANNELS, 0, 0).blockAlign
+        //Header committed with one block, the second block ends with zero bytes, then preallocated space.
+        RandomAccessFile(file, "rw").use {
+            it.setLength(0)
+            it.write(ImaAdpcmWavHeader.generate(0, blockAlign.toLong(), SAMPLE_RATE, CHANNELS))
+            it.write(ByteArray(blockAlign) { 7 })
+            it.write(ByteArray(blockAlign - 3) { 7 })
+            it.write(ByteArray(3 + 4096))
+        }
+
+        val header = ImaAdpcmWavHeader.repair(file)
+
+        assertEquals(2L * blockAlign, header!!.dataLength)
+        assertEquals(ImaAdpcmWavHeader.HEADER_SIZE + 2L * blockAlign, file.length())
+    }
+
+    /** Write PCM into the file by AudioRecord sized buffers. */
+    private fun write(pcm: ShortArray, headerCommitInterval: Long = 0): ImaAdpcmWavWriter {
+        val raf = RandomAccessFile(file, "rw")
+        raf.setLength(0)
+        raf.write(ImaAdpcmWavHeader.generate(0, 0, SAMPLE_RATE, CHANNELS))
+        output = PreallocatedFileWriter(raf, ImaAdpcmWavHeader.HEADER_SIZE.toLong(), 4096, 1024 * 1024, Durability.NONE, 0)
+        output.setSpaceAllocator(PreallocatedFileWriter.ZeroFillSpaceAllocator())
+        val writer = ImaAdpcmWavWriter(output, SAMPLE_RATE, CHANNELS)
+        writer.setHeaderCommitInterval(headerCommitInterval)
+        val bytes = ImaAdpcmEncoderTest.toBytes(pcm)
+        for (i in bytes.indices step BUFFER_SIZE) {
+            val count = minOf(BUFFER_SIZE, bytes.size - i)
+            val buffer = ByteBuffer.allocateDirect(count)
+            buffer.put(bytes, i, count)
+            buffer.flip()
+            writer.write(arrayOf(buffer), 0, 1)
+            writer.onBatchWritten()
+        }
+        return writer
+    }
+
+    private fun tone(frames: Int): ShortArray {
+        return ShortArray(frames * CHANNELS) { (8000 * sin((it / CHANNELS) * 0.05 * (it % CHANNELS + 1))).toInt().toShort() }
+    }
+
+    companion object {
+        private const val SAMPLE_RATE = 44100
+        private const val CHANNELS = 2
+        private const val BUFFER_SIZE = 3840
+    }
+}
@@ -0,0 +1,73 @@
+package com.dimowner.audiorecorder.audio.recorder
+
+import junit.framework.TestCase.assertEquals
+import org.junit.Test
+
+class LatencyHistogramTest {
+
+    @Test
+    fun test_bucketBoundaries() {
+        assertEquals(0, LatencyHistogram.bucketOf(0))
+        assertEquals(0, LatencyHistogram.bucketOf(999))
+        assertEquals(1, LatencyHistogram.bucketOf(1000))
+        assertEquals(1, LatencyHistogram.bucketOf(1999))
+        assertEquals(2, LatencyHistogram.bucketOf(2000))
+        assertEquals(11, LatencyHistogram.bucketOf(1_500_000))
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE))
+        for (bucket in 1 until LatencyHistogram.BUCKET_COUNT - 1) {
+            val upper = LatencyHistogram.bucketUpperMicros(bucket)
+            assertEquals(bucket, LatencyHistogram.bucketOf((upper - 1) * 1000))
+            assertEquals(bucket + 1, LatencyHistogram.bucketOf(upper * 1000))
+        }
+    }
+
+    @Test
+    fun test_percentilesAndTotals() {
+        val histogram = LatencyHistogram()
+        //99 fast writes of 100 us and one storage stall of 80 ms.
+        for (i in 0 until 99) {
+            histogram.record(100_000)
+        }
+        histogram.record(80_000_000)
+
+        assertEquals(100L, histogram.count)
+        assertEquals(99L, histogram.getBucketCount(LatencyHistogram.bucketOf(100_000)))
+        assertEquals(128L, histogram.getPercentileMicros(50.0))
+        assertEquals(128L, histogram.getPercentileMicros(99.0))
+        //Bound of the last bucket is limited by the max value.
+        assertEquals(80_000L, histogram.getPercentileMicros(100.0))
+        assertEquals(80_000_000L, histogram.maxNanos)
+        assertEquals((99 * 100_000L + 80_000_000L) / 100, histogram.meanNanos)
+    }
+
+    @Test
+    fun test_emptyHistogram() {
+        val histogram = LatencyHistogram()
+
+        assertEquals(0L, histogram.getPercentileMicros(99.0))
+        assertEquals(0L, histogram.meanNanos)
+        assertEquals(0L, histogram.maxNanos)
+    }
+
+    @Test
+    fun test_concurrentRecordsAreNotLost() {
+        val histogram = LatencyHistogram()
+        val threads = (1..4).map { t ->
+            Thread {
+                for (i in 0 until 100_000) {
+                    histogram.record(t * 1000L * (i % 100))
+                }
+            }
+        }
+        threads.forEach { it.start() }
+        threads.forEach { it.join() }
+
+        var total = 0L
+        for (bucket in 0 until LatencyHistogram.BUCKET_COUNT) {
+            total += histogram.getBucketCount(bucket)
+        }
+        assertEquals(400_000L, histogram.count)
+        assertEquals(400_000L, total)
+        assertEquals(4 * 1000L * 99, histogram.maxNanos)
+    }
+}
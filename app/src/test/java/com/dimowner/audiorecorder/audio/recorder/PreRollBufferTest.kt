@@ -0,0 +1,119 @@
+package com.dimowner.audiorecorder.audio.recorder
+
+import junit.framework.TestCase.assertEquals
+import junit.framework.TestCase.assertTrue
+import org.junit.Test
+import java.io.ByteArrayOutputStream
+import java.nio.ByteBuffer
+import java.nio.channels.GatheringByteChannel
+
+class PreRollBufferTest {
+
+    @Test
+    fun test_historyBeforeWrapAround() {
+        val buffer = PreRollBuffer(1000, 4)
+        val stream = bytes(0, 600)
+        write(buffer, stream, 200)
+
+        assertEquals(600, buffer.size())
+        assertEquals(stream.toList(), drain(buffer).toList())
+        assertTrue(buffer.isEmpty)
+    }
+
+    @Test
+    fun test_wrapAroundKeepsLastBytesInOrder() {
+        val buffer = PreRollBuffer(1000, 4)
+        val stream = bytes(0, 5000)
+        //Block size is not a divisor of capacity, so the wrap point moves on every turn.
+        write(buffer, stream, 240)
+
+        assertEquals(1000, buffer.size())
+        assertEquals(stream.copyOfRange(4000, 5000).toList(), drain(buffer).toList())
+        assertTrue(buffer.isEmpty)
+    }
+
+    @Test
+    fun test_writeLargerThanCapacity() {
+        val buffer = PreRollBuffer(1000, 4)
+        write(buffer, bytes(0, 300), 300)
+        val stream = bytes(300, 2400)
+        val block = ByteBuffer.allocateDirect(stream.size)
+        block.put(stream)
+        block.flip()
+        buffer.write(block)
+
+        assertEquals(0, block.remaining())
+        assertEquals(1000, buffer.size())
+        assertEquals(stream.copyOfRange(1400, 2400).toList(), drain(buffer).toList())
+    }
+
+    @Test
+    fun test_capacityRoundedToFrames() {
+        assertEquals(1000, PreRollBuffer(1002, 4).capacity)
+        //30 seconds of 48 kHz stereo.
+        assertEquals(5760000, PreRollBuffer.capacityForSeconds(30, 48000, 2))
+    }
+
+    @Test
+    fun test_reuseAfterDrain() {
+        val buffer = PreRollBuffer(1000, 4)
+        write(buffer, bytes(0, 1700), 340)
+        drain(buffer)
+
+        val stream = bytes(1700, 400)
+        write(buffer, stream, 80)
+        assertEquals(stream.toList(), drain(buffer).toList())
+        assertEquals(0, drain(buffer).size)
+    }
+
+    private fun write(buffer: PreRollBuffer, stream: ByteArray, blockSize: Int) {
+        val block = ByteBuffer.allocateDirect(blockSize)
+        for (i in stream.indices step blockSize) {
+            block.clear()
+            block.put(stream, i, minOf(blockSize, stream.size - i))
+            block.flip()
+            buffer.write(block)
+            assertEquals(0, block.remaining())
+        }
+    }
+
+    private fun drain(buffer: PreRollBuffer): ByteArray {
+        val channel = CollectingChannel()
+        assertEquals(buffer.size().toLong(), buffer.drainTo(channel))
+        return channel.bytes.toByteArray()
+    }
+
+    private fun bytes(start: Int, count: Int): ByteArray {
+        return ByteArray(count) { ((start + it) % 251).toByte() }
+    }
+
+    /** Channel which accepts at most [MAX_WRITE] bytes per write like a slow file. */
+    private class CollectingChannel : GatheringByteChannel {
+
+        val bytes = ByteArrayOutputStream()
+
+        override fun write(srcs: Array<out ByteBuffer>, offset: Int, length: Int): Long {
+            var total = 0L
+            for (i in offset until offset + length) {
+                val count = minOf(srcs[i].remaining(), MAX_WRITE - total.toInt())
+                for (j in 0 until count) {
+                    bytes.write(srcs[i].get().toInt())
+                }
+                total += count
+            }
+            return total
+        }
+
+        override fun write(srcs: Array<out ByteBuffer>): Long = write(srcs, 0, srcs.size)
+
+        override fun write(src: ByteBuffer): Int = write(arrayOf(src), 0, 1).toInt()
+
+        override fun isOpen(): Boolean = true
+
+        override fun close() {}
+    }
+
+    companion object {
+        private const val MAX_WRITE = 300
+    }
+}
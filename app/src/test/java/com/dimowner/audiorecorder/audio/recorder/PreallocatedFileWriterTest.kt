@@ -0,0 +1,176 @@
+package com.dimowner.audiorecorder.audio.recorder
+
+import com.dimowner.audiorecorder.audio.recorder.PreallocatedFileWriter.Durability
+import junit.framework.TestCase.assertEquals
+import junit.framework.TestCase.assertFalse
+import junit.framework.TestCase.assertTrue
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+
+class PreallocatedFileWriterTest {
+
+    private lateinit var file: File
+
+    @Before
+    fun setUp() {
+        file = File.createTempFile("writer", ".wav")
+    }
+
+    @After
+    fun after() {
+        file.delete()
+    }
+
+    @Test
+    fun test_writesEndOnAlignmentAndFileTruncatedOnFinish() {
+        val raf = RandomAccessFile(file, "rw")
+        raf.write(ByteArray(HEADER))
+        val writer = PreallocatedFileWriter(raf, HEADER.toLong(), BUFFER_SIZE, CHUNK_SIZE, Durability.NONE, 0)
+        val allocations = mutableListOf<Long>()
+        writer.setSpaceAllocator { f, offset, length ->
+            allocations.add(offset)
+            PreallocatedFileWriter.ZeroFillSpaceAllocator().allocate(f, offset, length)
+        }
+
+        val total = writeBlocks(writer, 1000)
+
+        //Every flush except the last one ends on alignment boundary.
+        assertEquals(0L, writer.flushedPosition % PreallocatedFileWriter.ALIGNMENT)
+        assertEquals(HEADER + total, writer.position)
+        assertTrue(writer.allocatedPosition >= writer.flushedPosition + CHUNK_SIZE)
+        assertEquals(writer.allocatedPosition, file.length())
+        assertTrue(allocations.size > 1)
+        //Much less writes than blocks.
+        assertTrue(writer.writeCount <= total / BUFFER_SIZE + 1)
+
+        writer.finish()
+        writer.close()
+        assertEquals(HEADER + total, file.length())
+        val data = file.readBytes()
+        for (i in 0 until total.toInt()) {
+            assertEquals(blockByte(i / BLOCK_SIZE), data[HEADER + i])
+        }
+    }
+
+    @Test
+    fun test_noSpaceReportedOnceBeforeWritesFail() {
+        val raf = RandomAccessFile(file, "rw")
+        raf.write(ByteArray(HEADER))
+        val writer = PreallocatedFileWriter(raf, HEADER.toLong(), BUFFER_SIZE, CHUNK_SIZE, Durability.NONE, 0)
+        var allocationCount = 0
+        writer.setSpaceAllocator { f, offset, length ->
+            if (allocationCount++ > 0) {
+                throw PreallocatedFileWriter.NoSpaceException("ENOSPC")
+            }
+            f.setLength(offset + length)
+        }
+        var noSpaceCount = 0
+        writer.setNoSpaceListener { noSpaceCount++ }
+
+        writeBlocks(writer, 1000)
+
+        assertTrue(writer.isSpaceExhausted)
+        assertEquals(1, noSpaceCount)
+        writer.finish()
+        writer.close()
+    }
+
+    @Test
+    fun test_durabilityPolicies() {
+        val periodic = openWriter(Durability.PERIODIC, 0)
+        writeBlocks(periodic, 10)
+        assertEquals(10L, periodic.syncCount)
+        periodic.close()
+
+        val onPause = openWriter(Durability.ON_PAUSE, 0)
+        writeBlocks(onPause, 10)
+        assertEquals(0L, onPause.syncCount)
+        onPause.onPause()
+        assertEquals(1L, onPause.syncCount)
+        //Staged data is written on pause.
+        assertEquals(onPause.position, onPause.flushedPosition)
+        onPause.close()
+
+        val none = openWriter(Durability.NONE, 0)
+        writeBlocks(none, 10)
+        none.onPause()
+        assertEquals(none.position, none.flushedPosition)
+        none.close()
+        assertEquals(0L, none.syncCount)
+    }
+
+    @Test
+    fun test_writeAtDoesNotMoveWritePosition() {
+        val writer = openWriter(Durability.NONE, 0)
+        writeBlocks(writer, 3)
+        writer.flush()
+        val position = writer.flushedPosition
+        writer.writeAt(ByteBuffer.wrap(byteArrayOf(1, 2, 3, 4)), 0)
+        assertEquals(position, writer.flushedPosition)
+        writeBlocks(writer, 1)
+        writer.finish()
+        writer.close()
+        assertEquals(HEADER + 4L * BLOCK_SIZE, file.length())
+        assertEquals(1.toByte(), file.readBytes()[0])
+    }
+
+    @Test
+    fun test_writeFailsWhenFileClosed() {
+        val writer = openWriter(Durability.NONE, 0)
+        writer.close()
+        assertFalse(writer.isOpen)
+        try {
+            writeBlocks(writer, 100)
+            throw AssertionError("IOException expected")
+        } catch (e: IOException) {
+            //Expected
+        }
+    }
+
+    @Test
+    fun test_findWrittenEnd() {
+        RandomAccessFile(file, "rw").use {
+            it.write(ByteArray(100) { 1 })
+            it.write(ByteArray(100_000))
+            assertEquals(100L, PreallocatedFileWriter.findWrittenEnd(it, 0, it.length()))
+            assertEquals(150L, PreallocatedFileWriter.findWrittenEnd(it, 150, it.length()))
+            assertEquals(50L, PreallocatedFileWriter.findWrittenEnd(it, 0, 50))
+        }
+    }
+
+    private fun openWriter(durability: Durability, syncIntervalMills: Long): PreallocatedFileWriter {
+        val raf = RandomAccessFile(file, "rw")
+        raf.setLength(0)
+        raf.write(ByteArray(HEADER))
+        val writer = PreallocatedFileWriter(raf, HEADER.toLong(), BUFFER_SIZE, 0, durability, syncIntervalMills)
+        writer.setSpaceAllocator(PreallocatedFileWriter.ZeroFillSpaceAllocator())
+        return writer
+    }
+
+    private fun writeBlocks(writer: PreallocatedFileWriter, count: Int): Long {
+        val block = ByteBuffer.allocateDirect(BLOCK_SIZE)
+        for (i in 0 until count) {
+            block.clear()
+            while (block.hasRemaining()) {
+                block.put(blockByte(i))
+            }
+            block.flip()
+            writer.write(arrayOf(block), 0, 1)
+        }
+        return count.toLong() * BLOCK_SIZE
+    }
+
+    private fun blockByte(index: Int): Byte = (index % 127 + 1).toByte()
+
+    companion object {
+        private const val HEADER = 44
+        private const val BLOCK_SIZE = 3840
+        private const val BUFFER_SIZE = 64 * 1024
+        private const val CHUNK_SIZE = 1024 * 1024L
+    }
+}
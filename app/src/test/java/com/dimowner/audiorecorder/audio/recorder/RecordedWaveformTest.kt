@@ -0,0 +1,166 @@
+package com.dimowner.audiorecorder.audio.recorder
+
+import junit.framework.TestCase.assertEquals
+import junit.framework.TestCase.assertTrue
+import org.junit.Test
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.channels.GatheringByteChannel
+import kotlin.math.sqrt
+
+class RecordedWaveformTest {
+
+    @Test
+    fun test_bucketPeaks() {
+        val waveform = RecordedWaveform(1, 100)
+        //Every bucket has a single peak of bucket index * 100, the last bucket is incomplete.
+        val samples = ShortArray(1050)
+        for (bucket in 0 until 11) {
+            samples[bucket * 100 + 37] = (if (bucket % 2 == 0) bucket * 100 else -bucket * 100).toShort()
+        }
+        val buffer = buffer(samples)
+        waveform.process(buffer, 0, buffer.limit())
+
+        assertEquals(11, waveform.bucketCount)
+        for (bucket in 0 until 11) {
+            assertEquals(bucket * 100, waveform.getPeak(bucket))
+        }
+        val gains = waveform.toGains()
+        assertEquals(11, gains.size)
+        assertEquals(sqrt(1000.0).toInt(), gains[10])
+        assertEquals(0, buffer.position())
+    }
+
+    @Test
+    fun test_stereoFramesAveragedAndSplitBetweenBuffers() {
+        val samples = ShortArray(400)
+        for (i in 0 until 200) {
+            samples[i * 2] = 1000
+            samples[i * 2 + 1] = 3000
+        }
+        samples[301] = -20000
+        val whole = RecordedWaveform(2, 50)
+        val buffer = buffer(samples)
+        whole.process(buffer, 0, buffer.limit())
+
+        val parts = RecordedWaveform(2, 50)
+        //Odd sample boundaries split frames between buffers.
+        parts.process(buffer, 0, 6)
+        parts.process(buffer, 6, 302)
+        parts.process(buffer, 302, buffer.limit())
+
+        assertEquals(4, whole.bucketCount)
+        assertEquals(2000, whole.getPeak(0))
+        //Frame 150 is (1000 - 20000) / 2.
+        assertEquals(9500, whole.getPeak(3))
+        assertTrue(whole.toGains().contentEquals(parts.toGains()))
+    }
+
+    @Test
+    fun test_resizedGainsKeepPeaks() {
+        val waveform = RecordedWaveform(1, 10)
+        val samples = ShortArray(10 * 1000) { 100 }
+        samples[5 * 10 + 3] = 30000
+        samples[999 * 10] = 20000
+        val buffer = buffer(samples)
+        waveform.process(buffer, 0, buffer.limit())
+
+        val gains = waveform.toGains(300)
+        assertEquals(300, gains.size)
+        assertEquals(sqrt(30000.0).toInt(), gains[1])
+        assertEquals(sqrt(20000.0).toInt(), gains[299])
+        assertEquals(10, gains[150])
+        //Fewer buckets are repeated.
+        val stretched = waveform.toGains(3000)
+        assertEquals(sqrt(30000.0).toInt(), stretched[15])
+        assertEquals(10, stretched[14])
+        assertEquals(0, RecordedWaveform(1, 10).toGains(10).sum())
+    }
+
+    @Test
+    fun test_tapAddsOnlyWrittenBytes() {
+        val waveform = RecordedWaveform(1, 4)
+        val tap = WaveformTap(HalfChannel(), waveform)
+        val first = buffer(shortArrayOf(1, 2, 3, 4, 5, 6, 7, 8))
+        val second = buffer(shortArrayOf(10, 20, 30, 40))
+
+        var written = 0L
+        while (first.hasRemaining() || second.hasRemaining()) {
+            written += tap.write(arrayOf(first, second), 0, 2)
+        }
+
+        assertEquals(24L, written)
+        assertEquals(3, waveform.bucketCount)
+        assertEquals(4, waveform.getPeak(0))
+        assertEquals(8, waveform.getPeak(1))
+        assertEquals(40, waveform.getPeak(2))
+    }
+
+    @Test
+    fun test_pipelineWaveformCoversWrittenFrames() {
+        val totalFrames = 48000L * 3 + 123
+        val source = SyntheticPcmSource(totalFrames, 2)
+        val waveform = RecordedWaveform(2, 48000 / 25)
+        val output = HalfChannel()
+        val session = RecorderStateMachine(RecorderStateMachine.NO_CPU_CLOCK)
+        session.moveTo(RecorderStateMachine.State.PREPARED)
+        session.moveTo(RecorderStateMachine.State.RECORDING)
+        val pipeline = CapturePipeline(session, source, WaveformTap(output, waveform), 3840, 512, 4)
+
+        pipeline.start()
+        assertTrue(source.awaitExhausted())
+        pipeline.stop()
+        assertTrue(pipeline.awaitTermination(5000))
+
+        assertEquals(totalFrames * 4, output.written)
+        assertEquals(totalFrames, waveform.frameCount)
+        assertEquals(3 * 25 + 1, waveform.bucketCount)
+        for (bucket in 0 until waveform.bucketCount) {
+            //Both channels of a frame hold consecutive samples of the synthetic source.
+            var peak = 0
+            val end = minOf(totalFrames, (bucket + 1L) * waveform.framesPerBucket)
+            for (frame in bucket.toLong() * waveform.framesPerBucket until end) {
+                val value = (SyntheticPcmSource.sampleAt(frame * 2) + SyntheticPcmSource.sampleAt(frame * 2 + 1)) / 2
+                peak = maxOf(peak, value)
+            }
+            assertEquals(peak, waveform.getPeak(bucket))
+        }
+    }
+
+    private fun buffer(samples: ShortArray): ByteBuffer {
+        val buffer = ByteBuffer.allocateDirect(samples.size * 2).order(ByteOrder.LITTLE_ENDIAN)
+        buffer.asShortBuffer().put(samples)
+        return buffer
+    }
+
+    /** Channel which accepts at most a half of the remaining bytes plus one sample on every write. */
+    private class HalfChannel : GatheringByteChannel {
+
+        @Volatile
+        var written = 0L
+
+        override fun write(srcs: Array<out ByteBuffer>, offset: Int, length: Int): Long {
+            var remaining = 0L
+            for (i in offset until offset + length) {
+                remaining += srcs[i].remaining()
+            }
+            var count = minOf(remaining, remaining / 4 * 2 + 2)
+            val accepted = count
+            for (i in offset until offset + length) {
+                val n = minOf(count, srcs[i].remaining().toLong()).toInt()
+                srcs[i].position(srcs[i].position() + n)
+                count -= n
+            }
+            written += accepted
+            return accepted
+        }
+
+        override fun write(srcs: Array<out ByteBuffer>): Long = write(srcs, 0, srcs.size)
+
+        override fun write(src: ByteBuffer): Int = write(arrayOf(src), 0, 1).toInt()
+
+        override fun isOpen(): Boolean = true
+
+        override fun close() {}
+    }
+}
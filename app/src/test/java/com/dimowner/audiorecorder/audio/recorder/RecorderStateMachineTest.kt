@@ -0,0 +1,146 @@
+package com.dimowner.audiorecorder.audio.recorder
+
+import com.dimowner.audiorecorder.audio.recorder.RecorderStateMachine.State
+import junit.framework.TestCase.assertEquals
+import junit.framework.TestCase.assertFalse
+import junit.framework.TestCase.assertTrue
+import org.junit.Test
+import java.lang.management.ManagementFactory
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+class RecorderStateMachineTest {
+
+    @Test
+    fun test_fullLifecycle() {
+        val machine = RecorderStateMachine(RecorderStateMachine.NO_CPU_CLOCK)
+        assertEquals(State.IDLE, machine.state)
+        assertFalse(machine.isRecording)
+
+        assertTrue(machine.moveTo(State.PREPARED))
+        assertFalse(machine.isRecording)
+        assertTrue(machine.moveTo(State.RECORDING))
+        assertTrue(machine.isRecording)
+        assertFalse(machine.isPaused)
+        assertTrue(machine.moveTo(State.PAUSED))
+        assertTrue(machine.isRecording)
+        assertTrue(machine.isPaused)
+        assertTrue(machine.moveTo(State.RECORDING))
+        assertTrue(machine.moveTo(State.STOPPING))
+        assertFalse(machine.isRecording)
+        assertTrue(machine.moveTo(State.RELEASED))
+
+        //Recorder can be reused for the next recording.
+        assertTrue(machine.canPrepare())
+        assertTrue(machine.moveTo(State.PREPARED))
+    }
+
+    @Test
+    fun test_illegalTransitionsRejected() {
+        val machine = RecorderStateMachine(RecorderStateMachine.NO_CPU_CLOCK)
+        assertFalse(machine.moveTo(State.RECORDING))
+        assertFalse(machine.moveTo(State.PAUSED))
+        assertFalse(machine.moveTo(State.STOPPING))
+        assertEquals(State.IDLE, machine.state)
+
+        machine.moveTo(State.PREPARED)
+        assertFalse(machine.moveTo(State.PAUSED))
+        assertFalse(machine.moveTo(State.PREPARED))
+        machine.moveTo(State.RECORDING)
+        assertFalse(machine.moveTo(State.RECORDING))
+        assertFalse(machine.moveTo(State.RELEASED))
+        assertFalse(machine.canPrepare())
+        machine.moveTo(State.PAUSED)
+        assertFalse(machine.moveTo(State.PAUSED))
+        machine.moveTo(State.STOPPING)
+        assertFalse(machine.moveTo(State.RECORDING))
+        assertFalse(machine.moveTo(State.PREPARED))
+        assertEquals(State.STOPPING, machine.state)
+    }
+
+    @Test
+    fun test_transitionTable() {
+        val allowed = setOf(
+            State.IDLE to State.PREPARED,
+            State.IDLE to State.RELEASED,
+            State.PREPARED to State.RECORDING,
+            State.PREPARED to State.RELEASED,
+            State.RECORDING to State.PAUSED,
+            State.RECORDING to State.STOPPING,
+            State.PAUSED to State.RECORDING,
+            State.PAUSED to State.STOPPING,
+            State.STOPPING to State.RELEASED,
+            State.RELEASED to State.PREPARED
+        )
+        for (from in State.values()) {
+            for (to in State.values()) {
+                assertEquals("$from -> $to", allowed.contains(from to to),
+                        RecorderStateMachine.isTransitionAllowed(from, to))
+            }
+        }
+    }
+
+    @Test
+    fun test_captureThreadParkedWhilePaused() {
+        val machine = RecorderStateMachine(RecorderStateMachine.NO_CPU_CLOCK)
+        machine.moveTo(State.PREPARED)
+        machine.moveTo(State.RECORDING)
+        val iterations = AtomicLong(0)
+        val thread = Thread {
+            while (machine.state != State.STOPPING) {
+                machine.awaitWhilePaused()
+                iterations.incrementAndGet()
+            }
+        }
+        thread.start()
+        Thread.sleep(50)
+
+        machine.moveTo(State.PAUSED)
+        Thread.sleep(50)
+        val pausedAt = iterations.get()
+        Thread.sleep(200)
+        assertEquals(pausedAt, iterations.get())
+        assertEquals(Thread.State.WAITING, thread.state)
+
+        machine.moveTo(State.RECORDING)
+        Thread.sleep(50)
+        assertTrue(iterations.get() > pausedAt)
+
+        machine.moveTo(State.PAUSED)
+        Thread.sleep(50)
+        machine.moveTo(State.STOPPING)
+        thread.join(1000)
+        assertFalse(thread.isAlive)
+    }
+
+    @Test
+    fun test_nearZeroCpuTimeWhilePaused() {
+        val threadBean = ManagementFactory.getThreadMXBean()
+        val machine = RecorderStateMachine { threadBean.currentThreadCpuTime }
+        machine.moveTo(State.PREPARED)
+        machine.moveTo(State.RECORDING)
+        val thread = Thread {
+            var sink = 0L
+            while (machine.state != State.STOPPING) {
+                machine.awaitWhilePaused()
+                //Busy work instead of blocking AudioRecord.read().
+                for (i in 0 until 10000) {
+                    sink += i xor (sink shl 1)
+                }
+                machine.accountCpuTime()
+            }
+            if (sink == 42L) println(sink)
+        }
+        thread.start()
+        Thread.sleep(300)
+        machine.moveTo(State.PAUSED)
+        Thread.sleep(1000)
+        machine.moveTo(State.STOPPING)
+        thread.join(1000)
+
+        val recording = machine.getCpuTimeNanos(State.RECORDING)
+        val paused = machine.getCpuTimeNanos(State.PAUSED)
+        assertTrue("recording = $recording", recording > TimeUnit.MILLISECONDS.toNanos(100))
+        assertTrue("paused = $paused", paused < TimeUnit.MILLISECONDS.toNanos(20))
+    }
+}
@@ -0,0 +1,33 @@
+package com.dimowner.audiorecorder.audio.recorder
+
+import junit.framework.TestCase.assertEquals
+import org.junit.Test
+
+class RecordingClockTest {
+
+    @Test
+    fun test_durationOfFrames() {
+        val clock = RecordingClock(44100)
+        clock.advance(44100L * 61 + 441)
+        assertEquals(61010L, clock.durationMills)
+        assertEquals(61010000L, clock.durationMicros)
+    }
+
+    @Test
+    fun test_hourOfBlocksHasNoDrift() {
+        for (sampleRate in intArrayOf(8000, 22050, 44100, 48000)) {
+            val clock = RecordingClock(sampleRate)
+            //Typical AudioRecord block of 20 ms rounded down, so the block is not a whole count of mills.
+            val blockFrames = sampleRate / 50 - 7
+            val totalFrames = sampleRate * 3600L
+            var frames = 0L
+            while (frames < totalFrames) {
+                val count = minOf(blockFrames.toLong(), totalFrames - frames)
+                clock.advance(count)
+                frames += count
+            }
+            assertEquals(3600000L, clock.durationMills)
+            assertEquals(3600000000L, clock.durationMicros)
+        }
+    }
+}
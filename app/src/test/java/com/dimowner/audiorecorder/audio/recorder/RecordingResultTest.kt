@@ -0,0 +1,30 @@
+package com.dimowner.audiorecorder.audio.recorder
+
+import junit.framework.TestCase.assertEquals
+import junit.framework.TestCase.assertTrue
+import org.junit.Test
+
+class RecordingResultTest {
+
+    @Test
+    fun test_durationOfWrittenFrames() {
+        val result = RecordingResult("wav", 48000, 2, 48000 * 2 * 16, 48000L * 90 + 24000, 17280044)
+        assertEquals(90500000L, result.durationMicros)
+        //Frames of a long recording don't overflow int.
+        assertEquals(30L * 3600 * 1000000, RecordingResult("flac", 48000, 1, 0, 48000L * 3600 * 30, 0).durationMicros)
+        assertEquals(0L, RecordingResult("wav", 0, 1, 0, 100, 0).durationMicros)
+    }
+
+    @Test
+    fun test_loudnessIsUnknownUntilMeasured() {
+        val result = RecordingResult("wav", 48000, 2, 48000 * 2 * 16, 48000L, 192044)
+        assertTrue(result.integratedLoudness.isNaN())
+        assertTrue(result.maxTruePeak.isNaN())
+
+        val measured = result.withLoudness(-18.5f, -1.2f)
+        assertEquals(-18.5f, measured.integratedLoudness)
+        assertEquals(-1.2f, measured.maxTruePeak)
+        assertEquals(result.frameCount, measured.frameCount)
+        assertEquals(result.size, measured.size)
+    }
+}
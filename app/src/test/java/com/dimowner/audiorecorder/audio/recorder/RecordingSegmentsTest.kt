@@ -0,0 +1,120 @@
+package com.dimowner.audiorecorder.audio.recorder
+
+import junit.framework.TestCase.assertEquals
+import junit.framework.TestCase.assertFalse
+import junit.framework.TestCase.assertNull
+import junit.framework.TestCase.assertTrue
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+
+class RecordingSegmentsTest {
+
+    private lateinit var file: File
+    private val created = ArrayList<File>()
+
+    @Before
+    fun setUp() {
+        file = File.createTempFile("record", ".wav")
+        created.add(file)
+    }
+
+    @After
+    fun after() {
+        for (f in created) {
+            RecordingSegments.deleteSegments(f)
+            f.delete()
+        }
+    }
+
+    @Test
+    fun test_segmentFiles() {
+        assertEquals(file, RecordingSegments.segmentFile(file, 1))
+        assertEquals(File(file.path + ".part3"), RecordingSegments.segmentFile(file, 3))
+
+        writeSegments(file, 1000)
+        assertFalse(RecordingSegments.hasSegments(file))
+        assertEquals(listOf(file), RecordingSegments.list(file))
+
+        writeSegments(file, 1000, 400, 200)
+        assertTrue(RecordingSegments.hasSegments(file))
+        assertEquals(listOf(file, File(file.path + ".part2"), File(file.path + ".part3")), RecordingSegments.list(file))
+        assertEquals(3L * WavHeader.HEADER_SIZE + 1600, RecordingSegments.totalLength(file))
+    }
+
+    @Test
+    fun test_joinedHeaderAndStartTimes() {
+        //8000 Hz mono 16 bit is 16000 bytes per second.
+        writeSegments(file, 16000, 8000, 1600)
+
+        val header = RecordingSegments.readJoinedHeader(file)!!
+        assertEquals(25600L, header.dataLength)
+        assertEquals(1600000L, header.durationMicros)
+        assertTrue(RecordingSegments.canJoin(header))
+        assertEquals(listOf(0L, 1000L, 1500L),
+                RecordingSegments.readStartTimesMills(RecordingSegments.list(file)).toList())
+    }
+
+    @Test
+    fun test_differentFormatsAreNotJoined() {
+        writeSegments(file, 1000, 1000)
+        RecordingSegments.segmentFile(file, 2).writeBytes(WavHeader.generate(0, 44100, 1, 16))
+
+        assertNull(RecordingSegments.readJoinedHeader(file))
+        assertEquals(listOf(0L), RecordingSegments.readStartTimesMills(RecordingSegments.list(file)).toList())
+    }
+
+    @Test
+    fun test_openJoinedWav() {
+        val data = writeSegments(file, 1000, 600, 10)
+        val header = RecordingSegments.readJoinedHeader(file)!!
+
+        val joined = RecordingSegments.openJoinedWav(file, header).use { it.readBytes() }
+
+        assertEquals(WavHeader.HEADER_SIZE + 1610, joined.size)
+        assertEquals(WavHeader.generate(1610, SAMPLE_RATE, 1, 16).toList(), joined.take(WavHeader.HEADER_SIZE))
+        assertEquals(data.toList(), joined.drop(WavHeader.HEADER_SIZE))
+    }
+
+    @Test
+    fun test_renameCopyAndDeleteSegments() {
+        val data = writeSegments(file, 100, 200, 300)
+        val renamed = File(file.parentFile, file.name + ".del")
+        created.add(renamed)
+
+        assertTrue(file.renameTo(renamed))
+        assertTrue(RecordingSegments.renameSegments(file, renamed))
+        assertFalse(RecordingSegments.hasSegments(file))
+        assertEquals(3, RecordingSegments.list(renamed).size)
+
+        val copy = File.createTempFile("copy", ".wav")
+        created.add(copy)
+        renamed.copyTo(copy, true)
+        assertTrue(RecordingSegments.copySegments(renamed, copy))
+        val header = RecordingSegments.readJoinedHeader(copy)!!
+        val joined = RecordingSegments.openJoinedWav(copy, header).use { it.readBytes() }
+        assertEquals(data.toList(), joined.drop(WavHeader.HEADER_SIZE))
+
+        assertTrue(RecordingSegments.deleteSegments(renamed))
+        assertEquals(listOf(renamed), RecordingSegments.list(renamed))
+        assertTrue(renamed.exists())
+    }
+
+    /** Write mono segments with the data lengths. */
+    private fun writeSegments(recordFile: File, vararg lengths: Int): ByteArray {
+        val all = ArrayList<Byte>()
+        var value = 0
+        for (i in lengths.indices) {
+            val data = ByteArray(lengths[i]) { (value++ % 251 + 1).toByte() }
+            RecordingSegments.segmentFile(recordFile, i + 1)
+                    .writeBytes(WavHeader.generate(lengths[i].toLong(), SAMPLE_RATE, 1, 16) + data)
+            all.addAll(data.toList())
+        }
+        return all.toByteArray()
+    }
+
+    companion object {
+        private const val SAMPLE_RATE = 8000
+    }
+}
@@ -0,0 +1,130 @@
+package com.dimowner.audiorecorder.audio.recorder
+
+import com.dimowner.audiorecorder.audio.recorder.PreallocatedFileWriter.Durability
+import junit.framework.TestCase.assertEquals
+import junit.framework.TestCase.assertFalse
+import junit.framework.TestCase.assertTrue
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+
+class SegmentedWavWriterTest {
+
+    private lateinit var file: File
+
+    @Before
+    fun setUp() {
+        file = File.createTempFile("segmented", ".wav")
+    }
+
+    @After
+    fun after() {
+        RecordingSegments.deleteSegments(file)
+        file.delete()
+    }
+
+    @Test
+    fun test_rollsOverWithoutLosingSamples() {
+        val writer = SegmentedWavWriter(file, ::openSegment, SAMPLE_RATE, CHANNELS, 16, 1000)
+        val started = mutableListOf<Int>()
+        writer.setSegmentListener { _, number -> started.add(number) }
+
+        val written = writeBlocks(writer, 10, 384)
+        writer.finish()
+        writer.commitHeader()
+        writer.close()
+
+        assertEquals(4, writer.segmentCount)
+        assertEquals(listOf(2, 3, 4), started)
+        assertEquals(written.size.toLong(), writer.dataLength)
+        val segments = RecordingSegments.list(file)
+        assertEquals(4, segments.size)
+        val expectedLengths = listOf(1000L, 1000L, 1000L, 840L)
+        val data = ArrayList<Byte>()
+        for (i in segments.indices) {
+            val header = RandomAccessFile(segments[i], "r").use { WavHeader.read(it) }!!
+            assertEquals(expectedLengths[i], header.dataLength)
+            assertEquals(WavHeader.HEADER_SIZE + expectedLengths[i], segments[i].length())
+            data.addAll(segments[i].readBytes().drop(WavHeader.HEADER_SIZE))
+        }
+        assertEquals(written.toList(), data)
+    }
+
+    @Test
+    fun test_notSplitWhenNotLimited() {
+        val writer = SegmentedWavWriter(file, ::openSegment, SAMPLE_RATE, CHANNELS, 16, 0)
+        writeBlocks(writer, 10, 384)
+        writer.finish()
+        writer.commitHeader()
+        writer.close()
+
+        assertEquals(1, writer.segmentCount)
+        assertFalse(RecordingSegments.hasSegments(file))
+        assertEquals(WavHeader.HEADER_SIZE + 3840L, file.length())
+    }
+
+    @Test
+    fun test_headerCommittedForCurrentSegment() {
+        val writer = SegmentedWavWriter(file, ::openSegment, SAMPLE_RATE, CHANNELS, 16, 1000)
+        writeBlocks(writer, 4, 384)
+        writer.flush()
+        writer.commitHeader()
+
+        assertEquals(536L, writer.committedSegmentLength)
+        val second = RecordingSegments.segmentFile(file, 2)
+        assertEquals(536L, RandomAccessFile(second, "r").use { WavHeader.read(it) }!!.dataLength)
+        //Finished segment has the final header.
+        assertEquals(1000L, RandomAccessFile(file, "r").use { WavHeader.read(it) }!!.dataLength)
+        writer.close()
+    }
+
+    @Test
+    fun test_segmentLength() {
+        //Rounded down to frame size.
+        assertEquals(1000L, SegmentedWavWriter.segmentLength(1003, 4))
+        assertEquals(4L, SegmentedWavWriter.segmentLength(1, 4))
+        //Never exceeds WAV size limit.
+        assertEquals(SegmentedWavWriter.MAX_DATA_LENGTH - SegmentedWavWriter.MAX_DATA_LENGTH % 4,
+                SegmentedWavWriter.segmentLength(0, 4))
+        assertTrue(SegmentedWavWriter.segmentLength(Long.MAX_VALUE, 2) <= SegmentedWavWriter.MAX_DATA_LENGTH)
+
+        assertEquals(0L, SegmentedWavWriter.maxSegmentLength(0, 0, SAMPLE_RATE, CHANNELS, 16))
+        assertEquals(60L * SAMPLE_RATE * 4, SegmentedWavWriter.maxSegmentLength(1, 0, SAMPLE_RATE, CHANNELS, 16))
+        assertEquals(1000L - WavHeader.HEADER_SIZE, SegmentedWavWriter.maxSegmentLength(0, 1000, SAMPLE_RATE, CHANNELS, 16))
+        //The smaller limit is applied.
+        assertEquals(1000L - WavHeader.HEADER_SIZE, SegmentedWavWriter.maxSegmentLength(1, 1000, SAMPLE_RATE, CHANNELS, 16))
+    }
+
+    private fun openSegment(segment: File): PreallocatedFileWriter {
+        val raf = RandomAccessFile(segment, "rw")
+        raf.setLength(0)
+        raf.write(WavHeader.generate(0, SAMPLE_RATE, CHANNELS, 16))
+        return PreallocatedFileWriter(raf, WavHeader.HEADER_SIZE.toLong(), 4096, 0, Durability.NONE, 0)
+    }
+
+    /** Write blocks of consecutive samples. */
+    private fun writeBlocks(writer: SegmentedWavWriter, count: Int, blockSize: Int): ByteArray {
+        val all = ByteBuffer.allocate(count * blockSize).order(ByteOrder.LITTLE_ENDIAN)
+        var sample = 0
+        for (i in 0 until count) {
+            val block = ByteBuffer.allocateDirect(blockSize).order(ByteOrder.LITTLE_ENDIAN)
+            while (block.hasRemaining()) {
+                block.putShort(sample.toShort())
+                all.putShort(sample.toShort())
+                sample++
+            }
+            block.flip()
+            writer.write(arrayOf(block), 0, 1)
+        }
+        return all.array()
+    }
+
+    companion object {
+        private const val SAMPLE_RATE = 8000
+        private const val CHANNELS = 2
+    }
+}
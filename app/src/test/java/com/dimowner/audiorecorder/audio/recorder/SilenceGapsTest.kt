@@ -0,0 +1,99 @@
+package com.dimowner.audiorecorder.audio.recorder
+
+import junit.framework.TestCase.assertEquals
+import junit.framework.TestCase.assertFalse
+import junit.framework.TestCase.assertNotNull
+import junit.framework.TestCase.assertNull
+import junit.framework.TestCase.assertTrue
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+
+class SilenceGapsTest {
+
+    private lateinit var file: File
+    private val created = ArrayList<File>()
+
+    @Before
+    fun setUp() {
+        file = File.createTempFile("record", ".wav")
+        created.add(file)
+    }
+
+    @After
+    fun after() {
+        for (f in created) {
+            SilenceGaps.sidecarFile(f).delete()
+            f.delete()
+        }
+    }
+
+    @Test
+    fun test_originalTimeline() {
+        val gaps = SilenceGaps(SAMPLE_RATE, 4)
+        gaps.add(0, 1000)
+        gaps.add(500, 200)
+        //Gap at the same position is merged.
+        gaps.add(500, 300)
+        gaps.add(900, 0)
+
+        assertEquals(2, gaps.gapCount)
+        assertEquals(500L, gaps.getFrames(1))
+        assertEquals(1500L, gaps.skippedFrames)
+        assertEquals(6000L, gaps.skippedBytes)
+        assertEquals(187500L, gaps.skippedMicros)
+        assertEquals(1000L, gaps.toOriginalFrame(0))
+        assertEquals(1499L, gaps.toOriginalFrame(499))
+        assertEquals(2000L, gaps.toOriginalFrame(500))
+        assertEquals(2400L, gaps.toOriginalFrame(900))
+    }
+
+    @Test
+    fun test_writeAndRead() {
+        assertNull(SilenceGaps.read(file))
+        val gaps = SilenceGaps(SAMPLE_RATE, 2)
+        gaps.add(0, 8000)
+        gaps.add(16000, 24000)
+        gaps.detectorCpuNanos = 123456789L
+        gaps.write(file)
+
+        val read = SilenceGaps.read(file)
+        assertNotNull(read)
+        assertEquals(SAMPLE_RATE, read!!.sampleRate)
+        assertEquals(2, read.frameSize)
+        assertEquals(2, read.gapCount)
+        assertEquals(16000L, read.getPosition(1))
+        assertEquals(24000L, read.getFrames(1))
+        assertEquals(123456789L, read.detectorCpuNanos)
+
+        SilenceGaps.sidecarFile(file).writeText("not gaps\n")
+        assertNull(SilenceGaps.read(file))
+    }
+
+    @Test
+    fun test_sidecarFollowsRecordFile() {
+        val gaps = SilenceGaps(SAMPLE_RATE, 2)
+        gaps.add(100, 200)
+        gaps.write(file)
+        val renamed = File(file.parentFile, file.name + ".del")
+        created.add(renamed)
+
+        assertTrue(file.renameTo(renamed))
+        assertTrue(RecordingSegments.renameSegments(file, renamed))
+        assertNull(SilenceGaps.read(file))
+        assertEquals(200L, SilenceGaps.read(renamed)!!.skippedFrames)
+
+        val copy = File.createTempFile("copy", ".wav")
+        created.add(copy)
+        assertTrue(RecordingSegments.copySegments(renamed, copy))
+        assertEquals(200L, SilenceGaps.read(copy)!!.skippedFrames)
+
+        assertTrue(RecordingSegments.deleteSegments(renamed))
+        assertFalse(SilenceGaps.sidecarFile(renamed).exists())
+    }
+
+    companion object {
+        private const val SAMPLE_RATE = 8000
+    }
+}
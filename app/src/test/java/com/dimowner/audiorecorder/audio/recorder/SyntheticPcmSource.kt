@@ -0,0 +1,48 @@
+package com.dimowner.audiorecorder.audio.recorder
+
+import java.nio.ByteBuffer
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+/**
+ * PCM source used instead of AudioRecord in tests.
+ * Produces [totalFrames] frames where every 16 bit sample is equal to [sample] of its index,
+ * [sampleAt] by default, then returns 0 from every read.
+ */
+class SyntheticPcmSource(
+    private val totalFrames: Long,
+    private val channels: Int,
+    private val sample: (Long) -> Short = { sampleAt(it) }
+) : PcmSource {
+
+    private val exhausted = CountDownLatch(1)
+
+    @Volatile
+    var producedFrames = 0L
+        private set
+
+    override fun read(buffer: ByteBuffer, sizeInBytes: Int): Int {
+        val frameSize = channels * 2
+        val frames = minOf((sizeInBytes / frameSize).toLong(), totalFrames - producedFrames).toInt()
+        if (frames <= 0) {
+            exhausted.countDown()
+            return 0
+        }
+        val start = buffer.position()
+        var sampleIndex = producedFrames * channels
+        for (i in 0 until frames * channels) {
+            buffer.putShort(start + i * 2, sample(sampleIndex))
+            sampleIndex++
+        }
+        producedFrames += frames
+        return frames * frameSize
+    }
+
+    fun awaitExhausted(timeoutMills: Long = 10000): Boolean {
+        return exhausted.await(timeoutMills, TimeUnit.MILLISECONDS)
+    }
+
+    companion object {
+        fun sampleAt(index: Long): Short = (index % 30000).toShort()
+    }
+}
@@ -0,0 +1,163 @@
+package com.dimowner.audiorecorder.audio.recorder
+
+import junit.framework.TestCase.assertEquals
+import junit.framework.TestCase.assertFalse
+import junit.framework.TestCase.assertTrue
+import org.junit.Test
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.util.concurrent.CountDownLatch
+
+class TeeOutputTest {
+
+    @Test
+    fun test_proxyReceivesBytesAcceptedByMaster() {
+        val master = MemoryOutput(maxBytesPerWrite = 6)
+        val proxy = MemoryOutput()
+        val tee = TeeOutput(master, proxy, File.createTempFile("record", TeeOutput.PROXY_SUFFIX), 16, 4)
+        tee.start()
+        val first = ByteBuffer.wrap(ByteArray(10) { it.toByte() })
+        tee.write(first)
+        //Master accepted only part of the buffer, the rest is written later.
+        assertEquals(6, first.position())
+        tee.write(first)
+        tee.write(arrayOf(ByteBuffer.wrap(byteArrayOf(10, 11, 12)), ByteBuffer.wrap(byteArrayOf(13, 14))))
+        tee.finish()
+        tee.close()
+
+        assertTrue(master.isFinished)
+        assertTrue(proxy.isFinished)
+        assertTrue(proxy.isClosed)
+        assertTrue(tee.isProxyComplete)
+        assertEquals(15, proxy.data.size())
+        assertTrue(master.data.toByteArray().contentEquals(proxy.data.toByteArray()))
+        assertTrue(proxy.data.toByteArray().contentEquals(ByteArray(15) { it.toByte() }))
+    }
+
+    @Test
+    fun test_pauseIsPassedAfterData() {
+        val master = MemoryOutput()
+        val proxy = MemoryOutput()
+        val tee = TeeOutput(master, proxy, File.createTempFile("record", TeeOutput.PROXY_SUFFIX), 16, 4)
+        tee.start()
+        tee.write(ByteBuffer.wrap(ByteArray(9)))
+        tee.onPause()
+        tee.write(ByteBuffer.wrap(ByteArray(3)))
+        tee.finish()
+
+        assertEquals(1, master.pauses)
+        assertEquals(1, proxy.pauses)
+        assertEquals(9, proxy.sizeAtPause)
+        assertEquals(12, proxy.data.size())
+    }
+
+    @Test
+    fun test_slowProxyIsAbandoned() {
+        val proxyFile = File.createTempFile("record", TeeOutput.PROXY_SUFFIX)
+        val master = MemoryOutput()
+        val proxy = MemoryOutput()
+        proxy.writeGate = CountDownLatch(1)
+        val tee = TeeOutput(master, proxy, proxyFile, 2, 4)
+        tee.start()
+        for (i in 0 until 5) {
+            tee.write(ByteBuffer.wrap(ByteArray(4) { i.toByte() }))
+        }
+        proxy.writeGate!!.countDown()
+        tee.finish()
+        tee.close()
+
+        //Master is not stalled by the proxy.
+        assertEquals(20, master.data.size())
+        assertTrue(master.isFinished)
+        assertFalse(proxy.isFinished)
+        assertTrue(proxy.isClosed)
+        assertFalse(tee.isProxyComplete)
+        assertFalse(proxyFile.exists())
+    }
+
+    @Test
+    fun test_proxyWriteErrorKeepsMaster() {
+        val proxyFile = File.createTempFile("record", TeeOutput.PROXY_SUFFIX)
+        val master = MemoryOutput()
+        val proxy = MemoryOutput()
+        proxy.isFailing = true
+        val tee = TeeOutput(master, proxy, proxyFile, 16, 4)
+        tee.start()
+        tee.write(ByteBuffer.wrap(ByteArray(8)))
+        tee.onBatchWritten()
+        tee.write(ByteBuffer.wrap(ByteArray(8)))
+        tee.finish()
+        tee.close()
+
+        assertEquals(16, master.data.size())
+        assertEquals(1, master.batches)
+        assertTrue(master.isFinished)
+        assertTrue(master.isClosed)
+        assertFalse(tee.isProxyComplete)
+        assertFalse(proxyFile.exists())
+    }
+
+    @Test
+    fun test_proxyFileFollowsRecord() {
+        val record = File("/records/Record-1.wav")
+        assertEquals("/records/Record-1.wav.proxy.wav", TeeOutput.proxyFile(record).path)
+    }
+
+    private class MemoryOutput(private val maxBytesPerWrite: Int = Int.MAX_VALUE) : PcmOutput {
+        val data = ByteArrayOutputStream()
+        var pauses = 0
+        var sizeAtPause = 0
+        var batches = 0
+        var isFinished = false
+        var isClosed = false
+        var isFailing = false
+        var writeGate: CountDownLatch? = null
+
+        override fun write(srcs: Array<ByteBuffer>, offset: Int, length: Int): Long {
+            var total = 0L
+            for (i in offset until offset + length) {
+                total += write(srcs[i])
+            }
+            return total
+        }
+
+        override fun write(srcs: Array<ByteBuffer>): Long = write(srcs, 0, srcs.size)
+
+        override fun write(src: ByteBuffer): Int {
+            writeGate?.await()
+            if (isFailing) {
+                throw IOException("Write failed")
+            }
+            val count = minOf(src.remaining(), maxBytesPerWrite)
+            val bytes = ByteArray(count)
+            src.get(bytes)
+            data.write(bytes)
+            return count
+        }
+
+        override fun onBatchWritten() {
+            batches++
+        }
+
+        override fun onPause() {
+            pauses++
+            sizeAtPause = data.size()
+        }
+
+        override fun finish() {
+            isFinished = true
+        }
+
+        override fun isOpen(): Boolean = !isClosed
+
+        override fun close() {
+            isClosed = true
+        }
+
+        override fun getWriteCount(): Long = 0
+
+        override fun getSyncCount(): Long = 0
+    }
+}
@@ -0,0 +1,132 @@
+package com.dimowner.audiorecorder.audio.recorder
+
+import junit.framework.TestCase.assertEquals
+import junit.framework.TestCase.assertNotNull
+import junit.framework.TestCase.assertNull
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.io.RandomAccessFile
+
+class WavHeaderTest {
+
+    private lateinit var file: File
+
+    @Before
+    fun setUp() {
+        file = File.createTempFile("header", ".wav")
+    }
+
+    @After
+    fun after() {
+        file.delete()
+    }
+
+    @Test
+    fun test_generateAndRead() {
+        RandomAccessFile(file, "rw").use {
+            it.write(WavHeader.generate(96000, 48000, 2, 16))
+            val header = WavHeader.read(it)
+            assertNotNull(header)
+            assertEquals(48000, header!!.sampleRate)
+            assertEquals(2, header.channelCount)
+            assertEquals(16, header.bitsPerSample)
+            assertEquals(96000L, header.dataLength)
+            assertEquals(4, header.blockAlign)
+            assertEquals(192000L, header.byteRate)
+            assertEquals(500000L, header.durationMicros)
+            assertEquals(1536000, header.bitrate)
+        }
+    }
+
+    @Test
+    fun test_repairInterruptedRecording() {
+        //Header committed with 1 second of audio, while 3 seconds and a half frame reached the file.
+        RandomAccessFile(file, "rw").use {
+            it.write(WavHeader.generate(44100 * 2, 44100, 1, 16))
+            it.write(ByteArray(44100 * 2 * 3 + 1) { 1 })
+        }
+
+        val header = WavHeader.repair(file)
+
+        assertNotNull(header)
+        assertEquals(44100L * 2 * 3, header!!.dataLength)
+        assertEquals(3000000L, header.durationMicros)
+        assertEquals(44L + 44100 * 2 * 3, file.length())
+        RandomAccessFile(file, "r").use {
+            assertEquals(44100L * 2 * 3, WavHeader.read(it)!!.dataLength)
+            it.seek(4)
+            //RIFF chunk size is little-endian data length + 36.
+            val riffSize = it.read() or (it.read() shl 8) or (it.read() shl 16) or (it.read() shl 24)
+            assertEquals(44100 * 2 * 3 + 36, riffSize)
+        }
+    }
+
+    @Test
+    fun test_repairTruncatesPreallocatedSpace() {
+        //Header committed with 1000 bytes, 1500 bytes of audio written, then 4000 bytes of preallocated space.
+        RandomAccessFile(file, "rw").use {
+            it.write(WavHeader.generate(1000, 8000, 1, 16))
+            it.write(ByteArray(1500) { 5 })
+            it.write(ByteArray(4000))
+        }
+
+        val header = WavHeader.repair(file)
+
+        assertEquals(1500L, header!!.dataLength)
+        assertEquals(44L + 1500, file.length())
+    }
+
+    @Test
+    fun test_repairKeepsLastFrameEndingWithZeros() {
+        //Stereo frames, the right sample of the last written frame is 0.
+        RandomAccessFile(file, "rw").use {
+            it.write(WavHeader.generate(1000, 8000, 2, 16))
+            it.write(ByteArray(1496) { 5 })
+            it.write(byteArrayOf(5, 5, 0, 0))
+            it.write(ByteArray(4000))
+        }
+
+        val header = WavHeader.repair(file)
+
+        assertEquals(1500L, header!!.dataLength)
+        assertEquals(44L + 1500, file.length())
+    }
+
+    @Test
+    fun test_repairKeepsCommittedSilence() {
+        RandomAccessFile(file, "rw").use {
+            it.write(WavHeader.generate(1000, 8000, 1, 16))
+            it.write(ByteArray(3000))
+        }
+
+        assertEquals(1000L, WavHeader.repair(file)!!.dataLength)
+        assertEquals(44L + 1000, file.length())
+    }
+
+    @Test
+    fun test_repairConsistentFileNotChanged() {
+        RandomAccessFile(file, "rw").use {
+            it.write(WavHeader.generate(400, 8000, 1, 16))
+            it.write(ByteArray(400))
+        }
+        val modified = file.readBytes()
+
+        val header = WavHeader.repair(file)
+
+        assertEquals(400L, header!!.dataLength)
+        assertEquals(modified.toList(), file.readBytes().toList())
+    }
+
+    @Test
+    fun test_notWavFileIsNotRepaired() {
+        //Zeroed header written by the old recorder versions.
+        file.writeBytes(ByteArray(1000))
+        assertNull(WavHeader.repair(file))
+        assertEquals(1000L, file.length())
+
+        file.writeBytes(ByteArray(10))
+        assertNull(WavHeader.repair(file))
+    }
+}
@@ -0,0 +1,77 @@
+package com.dimowner.audiorecorder.data
+
+import com.dimowner.audiorecorder.audio.recorder.WavHeader
+import com.dimowner.audiorecorder.data.database.LocalRepository
+import com.dimowner.audiorecorder.data.database.UnfinishedRecord
+import io.mockk.MockKAnnotations
+import io.mockk.every
+import io.mockk.impl.annotations.MockK
+import io.mockk.verify
+import junit.framework.TestCase.assertEquals
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.io.RandomAccessFile
+
+class RecordingRecoveryTest {
+
+    @MockK
+    lateinit var localRepository: LocalRepository
+
+    private lateinit var file: File
+
+    @Before
+    fun setUp() {
+        MockKAnnotations.init(this)
+        file = File.createTempFile("recovery", ".wav")
+    }
+
+    @After
+    fun after() {
+        file.delete()
+    }
+
+    @Test
+    fun test_interruptedWavRecordRepaired() {
+        //Recording killed after 10 seconds of 16 kHz mono, before the first header commit.
+        val dataLength = 16000 * 2 * 10
+        file.writeBytes(WavHeader.generate(0, 16000, 1, 16) + ByteArray(dataLength) { 1 })
+        val record = UnfinishedRecord(7, file.path, "wav")
+        every { localRepository.getUnfinishedRecords() } returns listOf(record)
+        every { localRepository.updateRecoveredRecord(any(), any(), any(), any(), any(), any()) } returns true
+
+        assertEquals(1, RecordingRecovery(localRepository).recoverRecords())
+
+        verify { localRepository.updateRecoveredRecord(7, 10000000L, 44L + dataLength, 16000, 1, 256000) }
+        verify(exactly = 0) { localRepository.finishRecording(any<Int>()) }
+        assertEquals(dataLength.toLong(), RandomAccessFile(file, "r").use { WavHeader.read(it)!!.dataLength })
+    }
+
+    @Test
+    fun test_finishedRecordUpdated() {
+        //Recording finished writing the file, but its result was not stored.
+        file.writeBytes(WavHeader.generate(3200, 16000, 1, 16) + ByteArray(3200))
+        every { localRepository.getUnfinishedRecords() } returns listOf(UnfinishedRecord(7, file.path, "wav"))
+        every { localRepository.updateRecoveredRecord(any(), any(), any(), any(), any(), any()) } returns true
+
+        assertEquals(1, RecordingRecovery(localRepository).recoverRecords())
+
+        verify { localRepository.updateRecoveredRecord(7, 100000L, file.length(), 16000, 1, 256000) }
+    }
+
+    @Test
+    fun test_emptyAndLostRecordsMarkCleared() {
+        file.writeBytes(WavHeader.generate(0, 16000, 1, 16))
+        val empty = UnfinishedRecord(7, file.path, "wav")
+        val lost = UnfinishedRecord(8, file.path + ".missing", "wav")
+        every { localRepository.getUnfinishedRecords() } returns listOf(empty, lost)
+        every { localRepository.finishRecording(any<Int>()) } returns true
+
+        assertEquals(0, RecordingRecovery(localRepository).recoverRecords())
+
+        verify(exactly = 0) { localRepository.updateRecoveredRecord(any(), any(), any(), any(), any(), any()) }
+        verify { localRepository.finishRecording(7) }
+        verify { localRepository.finishRecording(8) }
+    }
+}
@@ -0,0 +1,119 @@
+package com.dimowner.audiorecorder.data
+
+import junit.framework.TestCase.assertEquals
+import org.junit.Test
+
+class StorageEstimatorTest {
+
+    private val reserve = 8L * 1024 * 1024
+
+    //16 kHz mono PCM: 32000 bytes per second, 160000 bytes per 5 second check.
+    private val bytesPerCheck = 160000L
+    private val checkMills = 5000L
+
+    private fun estimator() = StorageEstimator(25, 30000, reserve, longArrayOf(600000, 120000), 10000)
+
+    @Test
+    fun test_remainingTimeFromMeasuredRate() {
+        val estimator = estimator()
+        val available = 1_000_000_000L
+        for (i in 0 until 6) {
+            assertEquals(StorageEstimator.Event.NONE, estimator.update(i * checkMills, available, i * bytesPerCheck))
+            assertEquals(StorageEstimator.UNKNOWN, estimator.remainingMills)
+        }
+        assertEquals(StorageEstimator.Event.NONE, estimator.update(6 * checkMills, available, 6 * bytesPerCheck))
+        assertEquals(32000L, estimator.bytesPerSecond)
+        assertEquals((available - reserve) / 32, estimator.remainingMills)
+    }
+
+    @Test
+    fun test_rateFollowsSlidingWindow() {
+        val estimator = estimator()
+        var recorded = 0L
+        for (i in 0 until 25) {
+            estimator.update(i * checkMills, 1_000_000_000L, recorded)
+            recorded += bytesPerCheck
+        }
+        recorded -= bytesPerCheck
+        assertEquals(32000L, estimator.bytesPerSecond)
+        //Encoder writes at a half rate, the window is filled with the new rate after 24 checks.
+        for (i in 25 until 49) {
+            recorded += bytesPerCheck / 2
+            estimator.update(i * checkMills, 1_000_000_000L, recorded)
+        }
+        assertEquals(16000L, estimator.bytesPerSecond)
+    }
+
+    @Test
+    fun test_warningsRaisedOncePerStage() {
+        val estimator = estimator()
+        //700 seconds of recording left.
+        var available = 22_400_000L + reserve
+        var recorded = 0L
+        var time = 0L
+        val warnings = ArrayList<Long>()
+        var event = estimator.update(time, available, recorded)
+        while (event != StorageEstimator.Event.FULL) {
+            if (event == StorageEstimator.Event.WARNING) {
+                warnings.add(estimator.remainingMills)
+            }
+            time += checkMills
+            available -= bytesPerCheck
+            recorded += bytesPerCheck
+            event = estimator.update(time, available, recorded)
+        }
+        assertEquals(listOf(600000L, 120000L), warnings)
+        assertEquals(2, estimator.warningStage)
+        assertEquals(10000L, estimator.remainingMills)
+    }
+
+    @Test
+    fun test_allPassedWarningsRaisedAsOne() {
+        val estimator = estimator()
+        //100 seconds of recording left when the rate is measured.
+        val available = 100 * 32000L + 6 * bytesPerCheck + reserve
+        var events = 0
+        for (i in 0..6) {
+            if (estimator.update(i * checkMills, available - i * bytesPerCheck, i * bytesPerCheck) == StorageEstimator.Event.WARNING) {
+                events++
+            }
+        }
+        assertEquals(1, events)
+        assertEquals(2, estimator.warningStage)
+    }
+
+    @Test
+    fun test_fullWhenReserveReached() {
+        val estimator = estimator()
+        assertEquals(StorageEstimator.Event.FULL, estimator.update(0, reserve - 1, 0))
+        assertEquals(0L, estimator.remainingMills)
+    }
+
+    @Test
+    fun test_pauseNotMeasuredAfterRestartWindow() {
+        val estimator = estimator()
+        for (i in 0..6) {
+            estimator.update(i * checkMills, 1_000_000_000L, i * bytesPerCheck)
+        }
+        //Recording resumed after a 1 minute pause.
+        estimator.restartWindow()
+        estimator.update(90000, 1_000_000_000L, 6 * bytesPerCheck)
+        assertEquals(32000L, estimator.bytesPerSecond)
+        for (i in 1..5) {
+            estimator.update(90000 + i * checkMills, 1_000_000_000L, (6 + i) * bytesPerCheck)
+        }
+        assertEquals(32000L, estimator.bytesPerSecond)
+    }
+
+    @Test
+    fun test_resetForgetsRecording() {
+        val estimator = estimator()
+        for (i in 0..6) {
+            estimator.update(i * checkMills, 2 * reserve, i * bytesPerCheck)
+        }
+        estimator.reset()
+        assertEquals(StorageEstimator.UNKNOWN, estimator.remainingMills)
+        assertEquals(0L, estimator.bytesPerSecond)
+        assertEquals(0, estimator.warningStage)
+    }
+}
@@ -52,6 +52,8 @@ class LocalRepositoryTest {
             32000,
             2,
             128000,
+            -23f,
+            -1.5f,
             true,
             true,
             intArrayOf(1, 2, 3, 4)
@@ -325,4 +327,32 @@ class LocalRepositoryTest {
             fileRepository.markAsTrashRecord("path")
         }
     }
+
+    @Test
+    fun test_insertEmptyFile_markedAsRecording() {
+        every { recordsDataSource.isOpen } returns true
+        every { prefs.settingRecordingFormat } returns "wav"
+        every { prefs.settingSampleRate } returns 44100
+        every { prefs.settingChannelCount } returns 2
+        every { prefs.settingBitrate } returns 128000
+        val inserted = slot<Record>()
+        every { recordsDataSource.insertRecording(capture(inserted)) } returns testRecord
+
+        assertEquals(testRecord, localRepository.insertEmptyFile("/records/Record-1.wav"))
+
+        assertEquals("Record-1", inserted.captured.name)
+        assertEquals(0L, inserted.captured.duration)
+        verify(exactly = 0) { recordsDataSource.insertItem(any()) }
+    }
+
+    @Test
+    fun test_getUnfinishedRecords() {
+        val unfinished = arrayListOf(UnfinishedRecord(7, "path", "wav"))
+        every { recordsDataSource.isOpen } returns true
+        every { recordsDataSource.getUnfinishedRecords() } returns unfinished
+
+        assertEquals(unfinished, localRepository.getUnfinishedRecords())
+
+        verify(exactly = 0) { recordsDataSource.getItems(any()) }
+    }
 }